@@ -6,7 +6,9 @@ import java.util.Map;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.apidb.v0_6.impl.ActionChangeWriter;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.BatchedChangeWriter;
 import org.openstreetmap.osmosis.apidb.v0_6.impl.ChangeWriter;
+import org.openstreetmap.osmosis.apidb.v0_6.impl.EntityChangeWriter;
 import org.openstreetmap.osmosis.apidb.v0_6.impl.SchemaVersionValidator;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
@@ -22,7 +24,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
  */
 public class ApidbChangeWriter implements ChangeSink {
 
-    private final ChangeWriter changeWriter;
+    private final EntityChangeWriter changeWriter;
 
     private final Map<ChangeAction, ActionChangeWriter> actionWriterMap;
 
@@ -35,10 +37,16 @@ public class ApidbChangeWriter implements ChangeSink {
      * @param preferences Contains preferences configuring database behaviour.
      * @param populateCurrentTables If true, the current tables will be populated as well as history
      *        tables.
+     * @param batchSize The number of changes to collect before writing them to the database
+     *        together. If 0, each change is written individually.
      */
     public ApidbChangeWriter(DatabaseLoginCredentials loginCredentials, DatabasePreferences preferences,
-            boolean populateCurrentTables) {
-        changeWriter = new ChangeWriter(loginCredentials, populateCurrentTables);
+            boolean populateCurrentTables, int batchSize) {
+        if (batchSize > 0) {
+            changeWriter = new BatchedChangeWriter(loginCredentials, populateCurrentTables, batchSize);
+        } else {
+            changeWriter = new ChangeWriter(loginCredentials, populateCurrentTables);
+        }
         actionWriterMap = new HashMap<ChangeAction, ActionChangeWriter>();
         actionWriterMap.put(ChangeAction.Create, new ActionChangeWriter(changeWriter, ChangeAction.Create));
         actionWriterMap.put(ChangeAction.Modify, new ActionChangeWriter(changeWriter, ChangeAction.Modify));
@@ -1,6 +1,8 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.apidb.v0_6;
 
+import org.openstreetmap.osmosis.apidb.v0_6.impl.BatchedChangeWriter;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
 import org.openstreetmap.osmosis.core.database.DatabasePreferences;
 import org.openstreetmap.osmosis.core.database.DatabaseTaskManagerFactory;
@@ -17,6 +19,8 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.ChangeSinkManager;
 public class ApidbChangeWriterFactory extends DatabaseTaskManagerFactory {
 	private static final String ARG_POPULATE_CURRENT_TABLES = "populateCurrentTables";
 	private static final boolean DEFAULT_POPULATE_CURRENT_TABLES = true;
+	private static final String ARG_BATCH_SIZE = "batchSize";
+	private static final int DEFAULT_BATCH_SIZE = 0;
 	
 	
 	/**
@@ -27,19 +31,30 @@ public class ApidbChangeWriterFactory extends DatabaseTaskManagerFactory {
 		DatabaseLoginCredentials loginCredentials;
 		DatabasePreferences preferences;
 		boolean populateCurrentTables;
+		int batchSize;
 		
 		// Get the task arguments.
 		loginCredentials = getDatabaseLoginCredentials(taskConfig);
 		preferences = getDatabasePreferences(taskConfig);
 		populateCurrentTables = getBooleanArgument(
 				taskConfig, ARG_POPULATE_CURRENT_TABLES, DEFAULT_POPULATE_CURRENT_TABLES);
+		batchSize = getIntegerArgument(taskConfig, ARG_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+		if (batchSize < 0) {
+			throw new OsmosisRuntimeException(
+					"Argument " + ARG_BATCH_SIZE + " for task " + taskConfig.getId() + " must not be negative.");
+		}
+		if (batchSize > BatchedChangeWriter.MAX_BATCH_SIZE) {
+			throw new OsmosisRuntimeException("Argument " + ARG_BATCH_SIZE + " for task " + taskConfig.getId()
+					+ " must not exceed " + BatchedChangeWriter.MAX_BATCH_SIZE + ".");
+		}
 		
 		return new ChangeSinkManager(
 			taskConfig.getId(),
 			new ApidbChangeWriter(
 				loginCredentials,
 				preferences,
-				populateCurrentTables
+				populateCurrentTables,
+				batchSize
 			),
 			taskConfig.getPipeArgs()
 		);
@@ -15,7 +15,7 @@ import org.openstreetmap.osmosis.core.task.common.ChangeAction;
  * @author Brett Henderson
  */
 public class ActionChangeWriter implements EntityProcessor {
-	private ChangeWriter changeWriter;
+	private EntityChangeWriter changeWriter;
 	private ChangeAction action;
 	
 	
@@ -27,7 +27,7 @@ public class ActionChangeWriter implements EntityProcessor {
 	 * @param action
 	 *            The action to apply to all writes.
 	 */
-	public ActionChangeWriter(ChangeWriter changeWriter, ChangeAction action) {
+	public ActionChangeWriter(EntityChangeWriter changeWriter, ChangeAction action) {
 		this.changeWriter = changeWriter;
 		this.action = action;
 	}
@@ -0,0 +1,904 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.apidb.v0_6.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.osmosis.apidb.common.DatabaseContext;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
+import org.openstreetmap.osmosis.core.database.ReleasableStatementContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.task.common.ChangeAction;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
+import org.openstreetmap.osmosis.core.util.TileCalculator;
+
+
+/**
+ * Writes changes to a database in batches. Changes are collected until the
+ * batch is full or an entity of a different type is received. The existence of
+ * all entities in the batch is then resolved with a single query per table and
+ * the rows are written using JDBC statement batches. The resulting database
+ * contents and transaction behaviour are the same as {@link ChangeWriter}.
+ */
+public class BatchedChangeWriter implements EntityChangeWriter {
+
+	/**
+	 * The largest supported batch size. Existing rows are selected using one
+	 * bind parameter per entity and PostgreSQL accepts at most 32767 parameters
+	 * in a single statement.
+	 */
+	public static final int MAX_BATCH_SIZE = 32767;
+
+	private final DatabaseContext dbCtx;
+	private final UserManager userManager;
+	private final ChangesetManager changesetManager;
+	private final boolean populateCurrentTables;
+	private final int batchSize;
+	private final ReleasableStatementContainer statementContainer;
+	private final MemberTypeRenderer memberTypeRenderer;
+	private final TileCalculator tileCalculator;
+	private final EntityBatch<Node> nodeBatch;
+	private final EntityBatch<Way> wayBatch;
+	private final EntityBatch<Relation> relationBatch;
+	private EntityBatch<?> activeBatch;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param loginCredentials
+	 *            Contains all information required to connect to the database.
+	 * @param populateCurrentTables
+	 *            If true, the current tables will be populated as well as
+	 *            history tables.
+	 * @param batchSize
+	 *            The maximum number of changes to write in a single batch.
+	 */
+	public BatchedChangeWriter(DatabaseLoginCredentials loginCredentials, boolean populateCurrentTables,
+			int batchSize) {
+		if (batchSize < 1) {
+			throw new OsmosisRuntimeException("The batch size must be at least 1.");
+		}
+		if (batchSize > MAX_BATCH_SIZE) {
+			throw new OsmosisRuntimeException("The batch size must not exceed " + MAX_BATCH_SIZE + ".");
+		}
+
+		dbCtx = new DatabaseContext(loginCredentials);
+
+		statementContainer = new ReleasableStatementContainer();
+		userManager = new UserManager(dbCtx);
+		changesetManager = new ChangesetManager(dbCtx);
+
+		this.populateCurrentTables = populateCurrentTables;
+		this.batchSize = batchSize;
+
+		tileCalculator = new TileCalculator();
+		memberTypeRenderer = new MemberTypeRenderer();
+
+		nodeBatch = new NodeBatch();
+		wayBatch = new WayBatch();
+		relationBatch = new RelationBatch();
+	}
+
+
+	private <T extends Entity> void write(EntityBatch<T> batch, T entity, ChangeAction action) {
+		if (entity.getTimestamp() == null) {
+			throw new OsmosisRuntimeException(
+					entity.getType().toString() + " " + entity.getId() + " does not have a timestamp set.");
+		}
+
+		// Add or update the user in the database.
+		userManager.addOrUpdateUser(entity.getUser());
+
+		// Create the changeset in the database.
+		changesetManager.addChangesetIfRequired(entity.getChangesetId(), entity.getUser());
+
+		// Changes are written in the order they are received so any pending
+		// changes for other entity types must be written first.
+		if (activeBatch != batch) {
+			flush();
+			activeBatch = batch;
+		}
+
+		// If this is a deletion, the entity is not visible.
+		batch.add(entity, !action.equals(ChangeAction.Delete));
+
+		if (batch.size() >= batchSize) {
+			batch.flush();
+		}
+	}
+
+
+	private void flush() {
+		if (activeBatch != null) {
+			activeBatch.flush();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(Node node, ChangeAction action) {
+		write(nodeBatch, node, action);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(Way way, ChangeAction action) {
+		write(wayBatch, way, action);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(Relation relation, ChangeAction action) {
+		write(relationBatch, relation, action);
+	}
+
+
+	/**
+	 * Flushes all changes to the database.
+	 */
+	@Override
+	public void complete() {
+		flush();
+
+		dbCtx.commit();
+	}
+
+
+	/**
+	 * Releases all database resources.
+	 */
+	@Override
+	public void close() {
+		statementContainer.close();
+		userManager.close();
+		changesetManager.close();
+
+		dbCtx.close();
+	}
+
+
+	/**
+	 * A change waiting to be written.
+	 *
+	 * @param <T>
+	 *            The type of entity.
+	 */
+	private static final class PendingChange<T extends Entity> {
+		private final T entity;
+		private final boolean visible;
+
+
+		PendingChange(T entity, boolean visible) {
+			this.entity = entity;
+			this.visible = visible;
+		}
+	}
+
+
+	/**
+	 * Collects the changes of a single entity type and writes them to the
+	 * history and current tables. Table names are derived from the entity name
+	 * following the API database naming conventions. Subclasses add any
+	 * columns and child tables specific to the entity type.
+	 *
+	 * @param <T>
+	 *            The type of entity.
+	 */
+	private abstract class EntityBatch<T extends Entity> {
+		private final String entityName;
+		private final String[] extraColumns;
+		private final List<PendingChange<T>> changes;
+		private final List<PreparedStatement> historyDeleteStatements;
+		private final List<PreparedStatement> historyInsertStatements;
+		private final List<PreparedStatement> currentDeleteStatements;
+		private final List<PreparedStatement> currentInsertStatements;
+		private PreparedStatement selectHistoryStatement;
+		private PreparedStatement insertHistoryStatement;
+		private PreparedStatement updateHistoryStatement;
+		private PreparedStatement deleteTagStatement;
+		private PreparedStatement insertTagStatement;
+		private PreparedStatement selectCurrentStatement;
+		private PreparedStatement insertCurrentStatement;
+		private PreparedStatement updateCurrentStatement;
+		private PreparedStatement deleteCurrentTagStatement;
+		private PreparedStatement insertCurrentTagStatement;
+
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param entityName
+		 *            The name of the entity, such as "node".
+		 * @param extraColumns
+		 *            The entity columns in addition to the standard columns
+		 *            shared by all entity types.
+		 */
+		EntityBatch(String entityName, String... extraColumns) {
+			this.entityName = entityName;
+			this.extraColumns = extraColumns;
+
+			changes = new ArrayList<PendingChange<T>>();
+			historyDeleteStatements = new ArrayList<PreparedStatement>();
+			historyInsertStatements = new ArrayList<PreparedStatement>();
+			currentDeleteStatements = new ArrayList<PreparedStatement>();
+			currentInsertStatements = new ArrayList<PreparedStatement>();
+		}
+
+
+		void add(T entity, boolean visible) {
+			changes.add(new PendingChange<T>(entity, visible));
+		}
+
+
+		int size() {
+			return changes.size();
+		}
+
+
+		/**
+		 * Creates a statement that is released along with the writer.
+		 *
+		 * @param sql
+		 *            The statement to be created.
+		 * @return The statement.
+		 */
+		protected PreparedStatement prepare(String sql) {
+			return statementContainer.add(dbCtx.prepareStatement(sql));
+		}
+
+
+		/**
+		 * Registers statements removing child records of the history table.
+		 * They are executed before the entity rows are written.
+		 *
+		 * @param statement
+		 *            The statement.
+		 */
+		protected void addHistoryDeleteStatement(PreparedStatement statement) {
+			historyDeleteStatements.add(statement);
+		}
+
+
+		/**
+		 * Registers statements inserting child records of the history table.
+		 * They are executed after the entity rows are written.
+		 *
+		 * @param statement
+		 *            The statement.
+		 */
+		protected void addHistoryInsertStatement(PreparedStatement statement) {
+			historyInsertStatements.add(statement);
+		}
+
+
+		/**
+		 * Registers statements removing child records of the current table.
+		 *
+		 * @param statement
+		 *            The statement.
+		 */
+		protected void addCurrentDeleteStatement(PreparedStatement statement) {
+			currentDeleteStatements.add(statement);
+		}
+
+
+		/**
+		 * Registers statements inserting child records of the current table.
+		 *
+		 * @param statement
+		 *            The statement.
+		 */
+		protected void addCurrentInsertStatement(PreparedStatement statement) {
+			currentInsertStatements.add(statement);
+		}
+
+
+		private String buildInList() {
+			StringBuilder builder = new StringBuilder("(");
+
+			for (int i = 0; i < batchSize; i++) {
+				if (i > 0) {
+					builder.append(", ");
+				}
+				builder.append("?");
+			}
+
+			return builder.append(")").toString();
+		}
+
+
+		private String buildColumnList(String idColumn) {
+			StringBuilder builder = new StringBuilder();
+
+			builder.append(idColumn).append(", version, timestamp, visible, changeset_id");
+			for (String column : extraColumns) {
+				builder.append(", ").append(column);
+			}
+
+			return builder.toString();
+		}
+
+
+		private String buildValueList(int count) {
+			StringBuilder builder = new StringBuilder("?");
+
+			for (int i = 1; i < count; i++) {
+				builder.append(", ?");
+			}
+
+			return builder.toString();
+		}
+
+
+		private String buildAssignments(boolean includeVersion) {
+			StringBuilder builder = new StringBuilder();
+
+			if (includeVersion) {
+				builder.append("version = ?, ");
+			}
+			builder.append("timestamp = ?, visible = ?, changeset_id = ?");
+			for (String column : extraColumns) {
+				builder.append(", ").append(column).append(" = ?");
+			}
+
+			return builder.toString();
+		}
+
+
+		/**
+		 * Creates the statements required to write the entity. Subclasses
+		 * creating additional statements must call this implementation first.
+		 */
+		protected void prepareStatements() {
+			String historyTable = entityName + "s";
+			String idColumn = entityName + "_id";
+			String currentTable = "current_" + entityName + "s";
+			int columnCount = 5 + extraColumns.length;
+
+			// Existence is resolved using a single query for all entities in the
+			// batch. Unused parameters are filled with duplicate identifiers so
+			// the statement can be reused regardless of the number of entities.
+			selectHistoryStatement = prepare(
+					"SELECT " + idColumn + ", version FROM " + historyTable + " WHERE " + idColumn + " IN "
+					+ buildInList());
+			insertHistoryStatement = prepare(
+					"INSERT INTO " + historyTable + " (" + buildColumnList(idColumn) + ") VALUES ("
+					+ buildValueList(columnCount) + ")");
+			updateHistoryStatement = prepare(
+					"UPDATE " + historyTable + " SET " + buildAssignments(false) + " WHERE " + idColumn
+					+ " = ? AND version = ?");
+			deleteTagStatement = prepare(
+					"DELETE FROM " + entityName + "_tags WHERE " + idColumn + " = ? AND version = ?");
+			insertTagStatement = prepare(
+					"INSERT INTO " + entityName + "_tags (" + idColumn + ", version, k, v) VALUES (?, ?, ?, ?)");
+			historyDeleteStatements.add(deleteTagStatement);
+			historyInsertStatements.add(insertTagStatement);
+
+			if (populateCurrentTables) {
+				selectCurrentStatement = prepare(
+						"SELECT id FROM " + currentTable + " WHERE id IN " + buildInList());
+				insertCurrentStatement = prepare(
+						"INSERT INTO " + currentTable + " (" + buildColumnList("id") + ") VALUES ("
+						+ buildValueList(columnCount) + ")");
+				updateCurrentStatement = prepare(
+						"UPDATE " + currentTable + " SET " + buildAssignments(true) + " WHERE id = ?");
+				deleteCurrentTagStatement = prepare(
+						"DELETE FROM current_" + entityName + "_tags WHERE " + idColumn + " = ?");
+				insertCurrentTagStatement = prepare(
+						"INSERT INTO current_" + entityName + "_tags (" + idColumn + ", k, v) VALUES (?, ?, ?)");
+				currentDeleteStatements.add(deleteCurrentTagStatement);
+				currentInsertStatements.add(insertCurrentTagStatement);
+			}
+		}
+
+
+		/**
+		 * Sets the values of the entity specific columns.
+		 *
+		 * @param statement
+		 *            The statement to be populated.
+		 * @param prmIndex
+		 *            The index of the first entity specific parameter.
+		 * @param entity
+		 *            The entity being written.
+		 * @return The index of the next parameter.
+		 * @throws SQLException
+		 *             if an error occurs setting the parameters.
+		 */
+		protected int setExtraColumns(PreparedStatement statement, int prmIndex, T entity) throws SQLException {
+			return prmIndex;
+		}
+
+
+		/**
+		 * Adds the child records of the history table for the entity to the
+		 * statement batches. Subclasses adding further records must call this
+		 * implementation.
+		 *
+		 * @param entity
+		 *            The entity being written.
+		 * @throws SQLException
+		 *             if an error occurs adding the records.
+		 */
+		protected void addHistoryRecords(T entity) throws SQLException {
+			int prmIndex;
+
+			prmIndex = 1;
+			deleteTagStatement.setLong(prmIndex++, entity.getId());
+			deleteTagStatement.setInt(prmIndex++, entity.getVersion());
+			deleteTagStatement.addBatch();
+
+			for (Tag tag : entity.getTags()) {
+				prmIndex = 1;
+				insertTagStatement.setLong(prmIndex++, entity.getId());
+				insertTagStatement.setInt(prmIndex++, entity.getVersion());
+				insertTagStatement.setString(prmIndex++, tag.getKey());
+				insertTagStatement.setString(prmIndex++, tag.getValue());
+				insertTagStatement.addBatch();
+			}
+		}
+
+
+		/**
+		 * Adds the child records of the current table for the entity to the
+		 * statement batches. Subclasses adding further records must call this
+		 * implementation.
+		 *
+		 * @param entity
+		 *            The entity being written.
+		 * @throws SQLException
+		 *             if an error occurs adding the records.
+		 */
+		protected void addCurrentRecords(T entity) throws SQLException {
+			int prmIndex;
+
+			deleteCurrentTagStatement.setLong(1, entity.getId());
+			deleteCurrentTagStatement.addBatch();
+
+			for (Tag tag : entity.getTags()) {
+				prmIndex = 1;
+				insertCurrentTagStatement.setLong(prmIndex++, entity.getId());
+				insertCurrentTagStatement.setString(prmIndex++, tag.getKey());
+				insertCurrentTagStatement.setString(prmIndex++, tag.getValue());
+				insertCurrentTagStatement.addBatch();
+			}
+		}
+
+
+		private Set<Long> selectIds(PreparedStatement statement, Set<Long> ids) throws SQLException {
+			Map<Long, Set<Integer>> versions = new HashMap<Long, Set<Integer>>();
+
+			selectVersions(statement, ids, versions, false);
+
+			return versions.keySet();
+		}
+
+
+		private void selectVersions(PreparedStatement statement, Set<Long> ids, Map<Long, Set<Integer>> versions,
+				boolean includeVersion) throws SQLException {
+			int prmIndex;
+			long lastId = 0;
+
+			prmIndex = 1;
+			for (long id : ids) {
+				statement.setLong(prmIndex++, id);
+				lastId = id;
+			}
+			while (prmIndex <= batchSize) {
+				statement.setLong(prmIndex++, lastId);
+			}
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					long id = resultSet.getLong(1);
+					Set<Integer> idVersions = versions.get(id);
+
+					if (idVersions == null) {
+						idVersions = new HashSet<Integer>();
+						versions.put(id, idVersions);
+					}
+					if (includeVersion) {
+						idVersions.add(resultSet.getInt(2));
+					}
+				}
+			}
+		}
+
+
+		/**
+		 * Removes all but the last change for each key. Only the last change
+		 * determines the final contents of a row so the earlier changes can be
+		 * skipped, which also ensures that no row is written twice by the same
+		 * statement batch.
+		 */
+		private List<PendingChange<T>> getLastChanges(boolean perVersion) {
+			List<PendingChange<T>> lastChanges = new ArrayList<PendingChange<T>>();
+			Map<Long, Set<Integer>> seen = new HashMap<Long, Set<Integer>>();
+
+			for (int i = changes.size() - 1; i >= 0; i--) {
+				PendingChange<T> change = changes.get(i);
+				Set<Integer> seenVersions = seen.get(change.entity.getId());
+
+				if (seenVersions == null) {
+					seenVersions = new HashSet<Integer>();
+					seen.put(change.entity.getId(), seenVersions);
+				} else if (!perVersion) {
+					continue;
+				}
+				if (seenVersions.add(change.entity.getVersion())) {
+					lastChanges.add(change);
+				}
+			}
+			Collections.reverse(lastChanges);
+
+			return lastChanges;
+		}
+
+
+		private void executeBatches(List<PreparedStatement> statements) throws SQLException {
+			for (PreparedStatement statement : statements) {
+				statement.executeBatch();
+			}
+		}
+
+
+		private void writeHistory() throws SQLException {
+			List<PendingChange<T>> lastChanges;
+			Set<Long> ids;
+			Map<Long, Set<Integer>> existingVersions;
+
+			lastChanges = getLastChanges(true);
+
+			ids = new HashSet<Long>();
+			for (PendingChange<T> change : lastChanges) {
+				ids.add(change.entity.getId());
+			}
+			existingVersions = new HashMap<Long, Set<Integer>>();
+			selectVersions(selectHistoryStatement, ids, existingVersions, true);
+
+			for (PendingChange<T> change : lastChanges) {
+				T entity = change.entity;
+				Set<Integer> versions = existingVersions.get(entity.getId());
+				Timestamp timestamp = new Timestamp(entity.getTimestamp().getTime());
+				int prmIndex;
+
+				// Update the entity if it already exists in the history table,
+				// otherwise insert it.
+				prmIndex = 1;
+				if (versions != null && versions.contains(entity.getVersion())) {
+					updateHistoryStatement.setTimestamp(prmIndex++, timestamp);
+					updateHistoryStatement.setBoolean(prmIndex++, change.visible);
+					updateHistoryStatement.setLong(prmIndex++, entity.getChangesetId());
+					prmIndex = setExtraColumns(updateHistoryStatement, prmIndex, entity);
+					updateHistoryStatement.setLong(prmIndex++, entity.getId());
+					updateHistoryStatement.setInt(prmIndex++, entity.getVersion());
+					updateHistoryStatement.addBatch();
+				} else {
+					insertHistoryStatement.setLong(prmIndex++, entity.getId());
+					insertHistoryStatement.setInt(prmIndex++, entity.getVersion());
+					insertHistoryStatement.setTimestamp(prmIndex++, timestamp);
+					insertHistoryStatement.setBoolean(prmIndex++, change.visible);
+					insertHistoryStatement.setLong(prmIndex++, entity.getChangesetId());
+					prmIndex = setExtraColumns(insertHistoryStatement, prmIndex, entity);
+					insertHistoryStatement.addBatch();
+				}
+
+				addHistoryRecords(entity);
+			}
+
+			executeBatches(historyDeleteStatements);
+			updateHistoryStatement.executeBatch();
+			insertHistoryStatement.executeBatch();
+			executeBatches(historyInsertStatements);
+		}
+
+
+		private void writeCurrent() throws SQLException {
+			List<PendingChange<T>> lastChanges;
+			Set<Long> ids;
+			Set<Long> existingIds;
+
+			lastChanges = getLastChanges(false);
+
+			ids = new HashSet<Long>();
+			for (PendingChange<T> change : lastChanges) {
+				ids.add(change.entity.getId());
+			}
+			existingIds = selectIds(selectCurrentStatement, ids);
+
+			for (PendingChange<T> change : lastChanges) {
+				T entity = change.entity;
+				Timestamp timestamp = new Timestamp(entity.getTimestamp().getTime());
+				int prmIndex;
+
+				// Update the entity if it already exists in the current table,
+				// otherwise insert it.
+				prmIndex = 1;
+				if (existingIds.contains(entity.getId())) {
+					updateCurrentStatement.setInt(prmIndex++, entity.getVersion());
+					updateCurrentStatement.setTimestamp(prmIndex++, timestamp);
+					updateCurrentStatement.setBoolean(prmIndex++, change.visible);
+					updateCurrentStatement.setLong(prmIndex++, entity.getChangesetId());
+					prmIndex = setExtraColumns(updateCurrentStatement, prmIndex, entity);
+					updateCurrentStatement.setLong(prmIndex++, entity.getId());
+					updateCurrentStatement.addBatch();
+				} else {
+					insertCurrentStatement.setLong(prmIndex++, entity.getId());
+					insertCurrentStatement.setInt(prmIndex++, entity.getVersion());
+					insertCurrentStatement.setTimestamp(prmIndex++, timestamp);
+					insertCurrentStatement.setBoolean(prmIndex++, change.visible);
+					insertCurrentStatement.setLong(prmIndex++, entity.getChangesetId());
+					prmIndex = setExtraColumns(insertCurrentStatement, prmIndex, entity);
+					insertCurrentStatement.addBatch();
+				}
+
+				addCurrentRecords(entity);
+			}
+
+			executeBatches(currentDeleteStatements);
+			updateCurrentStatement.executeBatch();
+			insertCurrentStatement.executeBatch();
+			executeBatches(currentInsertStatements);
+		}
+
+
+		/**
+		 * Writes all pending changes to the database.
+		 */
+		void flush() {
+			if (changes.isEmpty()) {
+				return;
+			}
+
+			if (selectHistoryStatement == null) {
+				prepareStatements();
+			}
+
+			try {
+				writeHistory();
+				if (populateCurrentTables) {
+					writeCurrent();
+				}
+
+			} catch (SQLException e) {
+				// Batch failures report the underlying problem as the next
+				// exception.
+				throw new OsmosisRuntimeException(
+						"Unable to write a batch of " + changes.size() + " " + entityName + " changes.",
+						e.getNextException() != null ? e.getNextException() : e);
+			}
+
+			changes.clear();
+		}
+	}
+
+
+	/**
+	 * Writes node changes.
+	 */
+	private class NodeBatch extends EntityBatch<Node> {
+
+		NodeBatch() {
+			super("node", "latitude", "longitude", "tile");
+		}
+
+
+		@Override
+		protected int setExtraColumns(PreparedStatement statement, int prmIndex, Node node) throws SQLException {
+			int nextIndex = prmIndex;
+
+			statement.setInt(nextIndex++, FixedPrecisionCoordinateConvertor.convertToFixed(node.getLatitude()));
+			statement.setInt(nextIndex++, FixedPrecisionCoordinateConvertor.convertToFixed(node.getLongitude()));
+			statement.setLong(nextIndex++, tileCalculator.calculateTile(node.getLatitude(), node.getLongitude()));
+
+			return nextIndex;
+		}
+	}
+
+
+	/**
+	 * Writes way changes along with their node references.
+	 */
+	private class WayBatch extends EntityBatch<Way> {
+		private PreparedStatement deleteWayNodeStatement;
+		private PreparedStatement insertWayNodeStatement;
+		private PreparedStatement deleteWayNodeCurrentStatement;
+		private PreparedStatement insertWayNodeCurrentStatement;
+
+
+		WayBatch() {
+			super("way");
+		}
+
+
+		@Override
+		protected void prepareStatements() {
+			super.prepareStatements();
+
+			deleteWayNodeStatement = prepare("DELETE FROM way_nodes WHERE way_id = ? AND version = ?");
+			insertWayNodeStatement = prepare(
+					"INSERT INTO way_nodes (way_id, version, node_id, sequence_id) VALUES (?, ?, ?, ?)");
+			addHistoryDeleteStatement(deleteWayNodeStatement);
+			addHistoryInsertStatement(insertWayNodeStatement);
+
+			if (populateCurrentTables) {
+				deleteWayNodeCurrentStatement = prepare("DELETE FROM current_way_nodes WHERE way_id = ?");
+				insertWayNodeCurrentStatement = prepare(
+						"INSERT INTO current_way_nodes (way_id, node_id, sequence_id) VALUES (?, ?, ?)");
+				addCurrentDeleteStatement(deleteWayNodeCurrentStatement);
+				addCurrentInsertStatement(insertWayNodeCurrentStatement);
+			}
+		}
+
+
+		@Override
+		protected void addHistoryRecords(Way way) throws SQLException {
+			List<WayNode> wayNodes = way.getWayNodes();
+			int prmIndex;
+
+			super.addHistoryRecords(way);
+
+			prmIndex = 1;
+			deleteWayNodeStatement.setLong(prmIndex++, way.getId());
+			deleteWayNodeStatement.setInt(prmIndex++, way.getVersion());
+			deleteWayNodeStatement.addBatch();
+
+			for (int i = 0; i < wayNodes.size(); i++) {
+				prmIndex = 1;
+				insertWayNodeStatement.setLong(prmIndex++, way.getId());
+				insertWayNodeStatement.setInt(prmIndex++, way.getVersion());
+				insertWayNodeStatement.setLong(prmIndex++, wayNodes.get(i).getNodeId());
+				insertWayNodeStatement.setLong(prmIndex++, i + 1);
+				insertWayNodeStatement.addBatch();
+			}
+		}
+
+
+		@Override
+		protected void addCurrentRecords(Way way) throws SQLException {
+			List<WayNode> wayNodes = way.getWayNodes();
+			int prmIndex;
+
+			super.addCurrentRecords(way);
+
+			deleteWayNodeCurrentStatement.setLong(1, way.getId());
+			deleteWayNodeCurrentStatement.addBatch();
+
+			for (int i = 0; i < wayNodes.size(); i++) {
+				prmIndex = 1;
+				insertWayNodeCurrentStatement.setLong(prmIndex++, way.getId());
+				insertWayNodeCurrentStatement.setLong(prmIndex++, wayNodes.get(i).getNodeId());
+				insertWayNodeCurrentStatement.setLong(prmIndex++, i);
+				insertWayNodeCurrentStatement.addBatch();
+			}
+		}
+	}
+
+
+	/**
+	 * Writes relation changes along with their members.
+	 */
+	private class RelationBatch extends EntityBatch<Relation> {
+		private PreparedStatement deleteMemberStatement;
+		private PreparedStatement insertMemberStatement;
+		private PreparedStatement deleteMemberCurrentStatement;
+		private PreparedStatement insertMemberCurrentStatement;
+
+
+		RelationBatch() {
+			super("relation");
+		}
+
+
+		@Override
+		protected void prepareStatements() {
+			String memberTypeParameter;
+
+			super.prepareStatements();
+
+			switch (dbCtx.getDatabaseType()) {
+			case POSTGRESQL:
+				memberTypeParameter = "?::nwr_enum";
+				break;
+			case MYSQL:
+				memberTypeParameter = "?";
+				break;
+			default:
+				throw new OsmosisRuntimeException("Unknown database type " + dbCtx.getDatabaseType() + ".");
+			}
+
+			deleteMemberStatement = prepare("DELETE FROM relation_members WHERE relation_id = ? AND version = ?");
+			insertMemberStatement = prepare(
+					"INSERT INTO relation_members (relation_id, version, member_type, member_id, member_role,"
+					+ " sequence_id) VALUES (?, ?, " + memberTypeParameter + ", ?, ?, ?)");
+			addHistoryDeleteStatement(deleteMemberStatement);
+			addHistoryInsertStatement(insertMemberStatement);
+
+			if (populateCurrentTables) {
+				deleteMemberCurrentStatement = prepare("DELETE FROM current_relation_members WHERE relation_id = ?");
+				insertMemberCurrentStatement = prepare(
+						"INSERT INTO current_relation_members (relation_id, member_type, member_id, member_role,"
+						+ " sequence_id) VALUES (?, " + memberTypeParameter + ", ?, ?, ?)");
+				addCurrentDeleteStatement(deleteMemberCurrentStatement);
+				addCurrentInsertStatement(insertMemberCurrentStatement);
+			}
+		}
+
+
+		@Override
+		protected void addHistoryRecords(Relation relation) throws SQLException {
+			List<RelationMember> members = relation.getMembers();
+			int prmIndex;
+
+			super.addHistoryRecords(relation);
+
+			prmIndex = 1;
+			deleteMemberStatement.setLong(prmIndex++, relation.getId());
+			deleteMemberStatement.setInt(prmIndex++, relation.getVersion());
+			deleteMemberStatement.addBatch();
+
+			for (int i = 0; i < members.size(); i++) {
+				RelationMember member = members.get(i);
+
+				prmIndex = 1;
+				insertMemberStatement.setLong(prmIndex++, relation.getId());
+				insertMemberStatement.setInt(prmIndex++, relation.getVersion());
+				insertMemberStatement.setString(prmIndex++, memberTypeRenderer.render(member.getMemberType()));
+				insertMemberStatement.setLong(prmIndex++, member.getMemberId());
+				insertMemberStatement.setString(prmIndex++, member.getMemberRole());
+				insertMemberStatement.setInt(prmIndex++, i + 1);
+				insertMemberStatement.addBatch();
+			}
+		}
+
+
+		@Override
+		protected void addCurrentRecords(Relation relation) throws SQLException {
+			List<RelationMember> members = relation.getMembers();
+			int prmIndex;
+
+			super.addCurrentRecords(relation);
+
+			deleteMemberCurrentStatement.setLong(1, relation.getId());
+			deleteMemberCurrentStatement.addBatch();
+
+			for (int i = 0; i < members.size(); i++) {
+				RelationMember member = members.get(i);
+
+				prmIndex = 1;
+				insertMemberCurrentStatement.setLong(prmIndex++, relation.getId());
+				insertMemberCurrentStatement.setString(prmIndex++, memberTypeRenderer.render(member.getMemberType()));
+				insertMemberCurrentStatement.setLong(prmIndex++, member.getMemberId());
+				insertMemberCurrentStatement.setString(prmIndex++, member.getMemberRole());
+				insertMemberCurrentStatement.setInt(prmIndex++, i + 1);
+				insertMemberCurrentStatement.addBatch();
+			}
+		}
+	}
+}
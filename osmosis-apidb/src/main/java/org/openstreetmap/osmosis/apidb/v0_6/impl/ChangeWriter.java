@@ -18,7 +18,6 @@ import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
-import org.openstreetmap.osmosis.core.lifecycle.Completable;
 import org.openstreetmap.osmosis.core.task.common.ChangeAction;
 import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
 import org.openstreetmap.osmosis.core.util.TileCalculator;
@@ -29,7 +28,7 @@ import org.openstreetmap.osmosis.core.util.TileCalculator;
  * 
  * @author Brett Henderson
  */
-public class ChangeWriter implements Completable {
+public class ChangeWriter implements EntityChangeWriter {
 
     private static final String INSERT_SQL_NODE =
     	"INSERT INTO nodes (node_id, version, timestamp, visible, changeset_id, latitude, longitude, tile)"
@@ -269,6 +268,7 @@ public class ChangeWriter implements Completable {
      * @param node The node to be written.
      * @param action The change to be applied.
      */
+    @Override
     public void write(Node node, ChangeAction action) {
         boolean visible;
         boolean exists;
@@ -470,6 +470,7 @@ public class ChangeWriter implements Completable {
      * @param way The way to be written.
      * @param action The change to be applied.
      */
+    @Override
     public void write(Way way, ChangeAction action) {
         boolean visible;
         boolean exists;
@@ -715,6 +716,7 @@ public class ChangeWriter implements Completable {
      * @param relation The relation to be written.
      * @param action The change to be applied.
      */
+    @Override
     public void write(Relation relation, ChangeAction action) {
         boolean visible;
         boolean exists;
@@ -1001,6 +1003,7 @@ public class ChangeWriter implements Completable {
     /**
      * Flushes all changes to the database.
      */
+    @Override
     public void complete() {
         dbCtx.commit();
     }
@@ -1008,6 +1011,7 @@ public class ChangeWriter implements Completable {
     /**
      * Releases all database resources.
      */
+    @Override
     public void close() {
         statementContainer.close();
         userManager.close();
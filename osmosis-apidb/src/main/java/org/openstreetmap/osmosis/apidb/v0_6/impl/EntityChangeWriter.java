@@ -0,0 +1,48 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.apidb.v0_6.impl;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.lifecycle.Completable;
+import org.openstreetmap.osmosis.core.task.common.ChangeAction;
+
+
+/**
+ * Writes individual entity changes to a database. Changes become visible once
+ * the writer is completed.
+ */
+public interface EntityChangeWriter extends Completable {
+
+	/**
+	 * Writes the specified node change to the database.
+	 *
+	 * @param node
+	 *            The node to be written.
+	 * @param action
+	 *            The change to be applied.
+	 */
+	void write(Node node, ChangeAction action);
+
+
+	/**
+	 * Writes the specified way change to the database.
+	 *
+	 * @param way
+	 *            The way to be written.
+	 * @param action
+	 *            The change to be applied.
+	 */
+	void write(Way way, ChangeAction action);
+
+
+	/**
+	 * Writes the specified relation change to the database.
+	 *
+	 * @param relation
+	 *            The relation to be written.
+	 * @param action
+	 *            The change to be applied.
+	 */
+	void write(Relation relation, ChangeAction action);
+}
@@ -184,6 +184,62 @@ public class ApiDbTest extends AbstractDataTest {
         dataUtils.compareFiles(expectedResultFile, actualResultFile);
     }
 
+    /**
+     * A test loading an osm file into a apidb database, then applying a changeset in batches,
+     * then dumping it again and verifying the output is as expected.
+     * 
+     * @throws IOException if any file operations fail.
+     */
+    @Test
+    public void testApplyChangesetBatched() throws IOException {
+        File authFile;
+        File snapshotFile;
+        File changesetFile;
+        File expectedResultFile;
+        File actualResultFile;
+
+        // Generate input files.
+        authFile = dbUtils.getAuthorizationFile();
+        snapshotFile = dataUtils.createDataFile("v0_6/db-snapshot.osm");
+        changesetFile = dataUtils.createDataFile("v0_6/db-changeset.osc");
+        expectedResultFile = dataUtils.createDataFile("v0_6/db-changeset-expected.osm");
+        actualResultFile = File.createTempFile("test", ".osm");
+
+        // Remove all existing data from the database.
+        dbUtils.truncateDatabase();
+
+        // Load the database with the snapshot file.
+        Osmosis.run(new String[] {
+        		"-q",
+        		"--read-xml-0.6",
+        		snapshotFile.getPath(),
+        		"--write-apidb-0.6",
+                "authFile=" + authFile.getPath(),
+        		"allowIncorrectSchemaVersion=true" });
+
+        // Apply the changeset file to the database.
+        Osmosis.run(new String[] {
+        		"-q",
+        		"--read-xml-change-0.6",
+        		changesetFile.getPath(),
+        		"--write-apidb-change-0.6",
+                "authFile=" + authFile.getPath(),
+                "batchSize=2",
+        		"allowIncorrectSchemaVersion=true" });
+
+        // Dump the database to an osm file.
+        Osmosis.run(new String[] {
+        		"-q",
+        		"--read-apidb-0.6",
+        		"authFile=" + authFile.getPath(),
+        		"allowIncorrectSchemaVersion=true",
+        		"--tag-sort-0.6",
+                "--write-xml-0.6", actualResultFile.getPath() });
+
+        // Validate that the dumped file matches the expected result.
+        dataUtils.compareFiles(expectedResultFile, actualResultFile);
+    }
+
     /**
      * A test loading an osm file into a apidb database, then applying a changeset, then dumping the
      * original snapshot timeframe and verifying the output is as expected.
@@ -4,6 +4,7 @@ package org.openstreetmap.osmosis.areafilter;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.openstreetmap.osmosis.areafilter.v0_6.AreaSplitterFactory;
 import org.openstreetmap.osmosis.areafilter.v0_6.BoundingBoxFilterFactory;
 import org.openstreetmap.osmosis.areafilter.v0_6.PolygonFilterFactory;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
@@ -30,9 +31,11 @@ public class AreaFilterPluginLoader implements PluginLoader {
 		factoryMap.put("bb", new BoundingBoxFilterFactory());
 		factoryMap.put("bounding-polygon", new PolygonFilterFactory());
 		factoryMap.put("bp", new PolygonFilterFactory());
+		factoryMap.put("area-split", new AreaSplitterFactory());
 		
 		factoryMap.put("bounding-box-0.6", new BoundingBoxFilterFactory());
 		factoryMap.put("bounding-polygon-0.6", new PolygonFilterFactory());
+		factoryMap.put("area-split-0.6", new AreaSplitterFactory());
 		
 		return factoryMap;
 	}
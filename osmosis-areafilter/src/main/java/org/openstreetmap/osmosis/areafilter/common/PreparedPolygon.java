@@ -0,0 +1,331 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.common;
+
+import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * Provides fast point in polygon tests for a polygon area. The bounding box of
+ * the area is divided into a grid of cells. Cells that no polygon edge passes
+ * through are classified up front as entirely inside or entirely outside, so
+ * points within them are resolved with a single lookup. Points within the
+ * remaining edge cells are tested exactly, but only against the edges
+ * overlapping the grid row containing the point instead of every edge in the
+ * polygon.
+ * <p>
+ * The exact test follows the same crossing rules as {@link Area#contains(double,
+ * double)} so results are identical to testing against the area directly,
+ * including for points lying on the polygon boundary.
+ */
+public class PreparedPolygon {
+
+	private static final byte CELL_OUTSIDE = 0;
+	private static final byte CELL_INSIDE = 1;
+	private static final byte CELL_EDGE = 2;
+
+	private static final int MIN_GRID_SIZE = 16;
+	private static final int MAX_GRID_SIZE = 2048;
+
+	private Area area;
+	private Rectangle2D bounds;
+	private boolean curved;
+
+	// Edge coordinates ordered so that y0 is less than or equal to y1.
+	private int edgeCount;
+	private double[] edgeX0;
+	private double[] edgeY0;
+	private double[] edgeX1;
+	private double[] edgeY1;
+
+	private int gridSize;
+	private double minX;
+	private double minY;
+	private double cellWidth;
+	private double cellHeight;
+	private byte[] cells;
+	// The edges overlapping each grid row, sorted by decreasing maximum x.
+	private int[][] rowEdges;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param area
+	 *            The area to be prepared. It must not be modified afterwards.
+	 */
+	public PreparedPolygon(Area area) {
+		this.area = area;
+		bounds = area.getBounds2D();
+
+		loadEdges();
+
+		// Areas built from polygon files only contain straight lines, but
+		// anything else is tested against the area directly.
+		if (!curved && edgeCount > 0) {
+			buildGrid();
+		}
+	}
+
+
+	private void addEdge(double x0, double y0, double x1, double y1) {
+		if (y0 == y1) {
+			// Horizontal edges never contribute to crossing counts.
+			return;
+		}
+
+		if (edgeCount == edgeX0.length) {
+			int capacity = edgeCount * 2;
+			edgeX0 = Arrays.copyOf(edgeX0, capacity);
+			edgeY0 = Arrays.copyOf(edgeY0, capacity);
+			edgeX1 = Arrays.copyOf(edgeX1, capacity);
+			edgeY1 = Arrays.copyOf(edgeY1, capacity);
+		}
+
+		if (y0 < y1) {
+			edgeX0[edgeCount] = x0;
+			edgeY0[edgeCount] = y0;
+			edgeX1[edgeCount] = x1;
+			edgeY1[edgeCount] = y1;
+		} else {
+			edgeX0[edgeCount] = x1;
+			edgeY0[edgeCount] = y1;
+			edgeX1[edgeCount] = x0;
+			edgeY1[edgeCount] = y0;
+		}
+		edgeCount++;
+	}
+
+
+	private void loadEdges() {
+		double[] coords = new double[6];
+		double startX = 0;
+		double startY = 0;
+		double lastX = 0;
+		double lastY = 0;
+
+		edgeX0 = new double[64];
+		edgeY0 = new double[64];
+		edgeX1 = new double[64];
+		edgeY1 = new double[64];
+
+		for (PathIterator i = area.getPathIterator(null); !i.isDone(); i.next()) {
+			switch (i.currentSegment(coords)) {
+			case PathIterator.SEG_MOVETO:
+				startX = coords[0];
+				startY = coords[1];
+				lastX = startX;
+				lastY = startY;
+				break;
+			case PathIterator.SEG_LINETO:
+				addEdge(lastX, lastY, coords[0], coords[1]);
+				lastX = coords[0];
+				lastY = coords[1];
+				break;
+			case PathIterator.SEG_CLOSE:
+				addEdge(lastX, lastY, startX, startY);
+				lastX = startX;
+				lastY = startY;
+				break;
+			default:
+				curved = true;
+				return;
+			}
+		}
+	}
+
+
+	private int getColumn(double x) {
+		int column = (int) ((x - minX) / cellWidth);
+
+		return Math.max(0, Math.min(gridSize - 1, column));
+	}
+
+
+	private int getRow(double y) {
+		int row = (int) ((y - minY) / cellHeight);
+
+		return Math.max(0, Math.min(gridSize - 1, row));
+	}
+
+
+	private void buildGrid() {
+		int[] rowEdgeCounts;
+		boolean[] edgeCells;
+		double[] edgeMaxX;
+
+		gridSize = (int) Math.min(MAX_GRID_SIZE, Math.max(MIN_GRID_SIZE, 2 * Math.sqrt(edgeCount)));
+		minX = bounds.getMinX();
+		minY = bounds.getMinY();
+		cellWidth = Math.max(bounds.getWidth() / gridSize, Double.MIN_NORMAL);
+		cellHeight = Math.max(bounds.getHeight() / gridSize, Double.MIN_NORMAL);
+
+		// Mark every cell that each edge passes through and count the edges
+		// overlapping each row. Ranges are widened by one cell in each
+		// direction so that rounding when locating points can never place a
+		// point in a cell that was wrongly classified as uniform.
+		edgeCells = new boolean[gridSize * gridSize];
+		rowEdgeCounts = new int[gridSize];
+		for (int edge = 0; edge < edgeCount; edge++) {
+			int rowStart = Math.max(0, getRow(edgeY0[edge]) - 1);
+			int rowEnd = Math.min(gridSize - 1, getRow(edgeY1[edge]) + 1);
+
+			for (int row = rowStart; row <= rowEnd; row++) {
+				double bandX0;
+				double bandX1;
+				int columnStart;
+				int columnEnd;
+
+				// Find the horizontal extent of the edge within the row.
+				bandX0 = xForY(edge, Math.max(edgeY0[edge], minY + (row - 1) * cellHeight));
+				bandX1 = xForY(edge, Math.min(edgeY1[edge], minY + (row + 2) * cellHeight));
+				columnStart = Math.max(0, getColumn(Math.min(bandX0, bandX1)) - 1);
+				columnEnd = Math.min(gridSize - 1, getColumn(Math.max(bandX0, bandX1)) + 1);
+
+				rowEdgeCounts[row]++;
+				for (int column = columnStart; column <= columnEnd; column++) {
+					edgeCells[row * gridSize + column] = true;
+				}
+			}
+		}
+
+		// Build the per row edge lists sorted by decreasing maximum x so that
+		// the scan can stop at the first edge entirely to the left of a point.
+		rowEdges = new int[gridSize][];
+		for (int row = 0; row < gridSize; row++) {
+			rowEdges[row] = new int[rowEdgeCounts[row]];
+			rowEdgeCounts[row] = 0;
+		}
+		for (int edge = 0; edge < edgeCount; edge++) {
+			int rowStart = Math.max(0, getRow(edgeY0[edge]) - 1);
+			int rowEnd = Math.min(gridSize - 1, getRow(edgeY1[edge]) + 1);
+
+			for (int row = rowStart; row <= rowEnd; row++) {
+				rowEdges[row][rowEdgeCounts[row]++] = edge;
+			}
+		}
+		edgeMaxX = new double[edgeCount];
+		for (int edge = 0; edge < edgeCount; edge++) {
+			edgeMaxX[edge] = Math.max(edgeX0[edge], edgeX1[edge]);
+		}
+		for (int row = 0; row < gridSize; row++) {
+			sortByDecreasingMaxX(rowEdges[row], edgeMaxX);
+		}
+
+		// Classify each cell. Cells without edges are uniformly inside or
+		// outside so testing their centre is sufficient.
+		cells = new byte[gridSize * gridSize];
+		for (int row = 0; row < gridSize; row++) {
+			for (int column = 0; column < gridSize; column++) {
+				int cell = row * gridSize + column;
+
+				if (edgeCells[cell]) {
+					cells[cell] = CELL_EDGE;
+				} else if (containsExact(getRow(minY + (row + 0.5) * cellHeight), minX + (column + 0.5) * cellWidth,
+						minY + (row + 0.5) * cellHeight)) {
+					cells[cell] = CELL_INSIDE;
+				} else {
+					cells[cell] = CELL_OUTSIDE;
+				}
+			}
+		}
+	}
+
+
+	private void sortByDecreasingMaxX(int[] edges, final double[] edgeMaxX) {
+		Integer[] sorted = new Integer[edges.length];
+
+		for (int i = 0; i < edges.length; i++) {
+			sorted[i] = edges[i];
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(edgeMaxX[o2], edgeMaxX[o1]);
+			}
+		});
+		for (int i = 0; i < edges.length; i++) {
+			edges[i] = sorted[i];
+		}
+	}
+
+
+	/**
+	 * Counts edge crossings of a ray extending to the right of the point using
+	 * only the edges overlapping the specified row. This matches the crossing
+	 * rules used by the AWT geometry classes.
+	 */
+	private boolean containsExact(int row, double x, double y) {
+		int[] edges = rowEdges[row];
+		int crossings = 0;
+
+		for (int i = 0; i < edges.length; i++) {
+			int edge = edges[i];
+			double x0 = edgeX0[edge];
+			double y0 = edgeY0[edge];
+			double x1 = edgeX1[edge];
+			double y1 = edgeY1[edge];
+
+			if (x >= Math.max(x0, x1)) {
+				// All remaining edges lie to the left of the point.
+				break;
+			}
+			if (y >= y0 && y < y1) {
+				if (x < Math.min(x0, x1) || x < xForY(edge, y)) {
+					crossings++;
+				}
+			}
+		}
+
+		return (crossings & 1) == 1;
+	}
+
+
+	private double xForY(int edge, double y) {
+		double x0 = edgeX0[edge];
+		double y0 = edgeY0[edge];
+		double x1 = edgeX1[edge];
+		double y1 = edgeY1[edge];
+
+		if (x0 == x1 || y <= y0) {
+			return x0;
+		}
+		if (y >= y1) {
+			return x1;
+		}
+		return x0 + (y - y0) * (x1 - x0) / (y1 - y0);
+	}
+
+
+	/**
+	 * Indicates if the point lies within the polygon.
+	 *
+	 * @param x
+	 *            The x coordinate (longitude).
+	 * @param y
+	 *            The y coordinate (latitude).
+	 * @return True if the point lies inside.
+	 */
+	public boolean contains(double x, double y) {
+		int row;
+		byte cell;
+
+		if (!bounds.contains(x, y)) {
+			return false;
+		}
+		if (cells == null) {
+			return area.contains(x, y);
+		}
+
+		row = getRow(y);
+		cell = cells[row * gridSize + getColumn(x)];
+		if (cell == CELL_EDGE) {
+			return containsExact(row, x, y);
+		}
+
+		return cell == CELL_INSIDE;
+	}
+}
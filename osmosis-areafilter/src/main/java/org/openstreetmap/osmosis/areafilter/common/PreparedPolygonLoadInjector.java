@@ -0,0 +1,95 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.common;
+
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.util.Random;
+
+
+/**
+ * Very simple class for comparing the point in polygon throughput of
+ * {@link PreparedPolygon} against testing the polygon area directly. The
+ * polygon is loaded from a polygon file, typically a country boundary with many
+ * thousands of vertices, and random points within its bounding box are tested
+ * with both implementations. Any disagreement between the two is reported.
+ * <p>
+ * The program arguments are the polygon file name and the number of points to
+ * test (default 1000000).
+ */
+public final class PreparedPolygonLoadInjector {
+
+	private PreparedPolygonLoadInjector() {
+		// This class cannot be instantiated.
+	}
+
+
+	/**
+	 * Launches the application.
+	 * 
+	 * @param args
+	 *            The program arguments.
+	 */
+	public static void main(String[] args) {
+		int pointCount = 1000000;
+		Area area;
+		PreparedPolygon preparedPolygon;
+		Rectangle2D bounds;
+		double[] xs;
+		double[] ys;
+		boolean[] expected;
+		long startTime;
+		long duration;
+		int mismatches;
+
+		if (args.length < 1) {
+			System.err.println("Usage: PreparedPolygonLoadInjector <polygonFile> [points]");
+			return;
+		}
+		if (args.length > 1) {
+			pointCount = Integer.parseInt(args[1]);
+		}
+
+		area = new PolygonFileReader(new File(args[0])).loadPolygon();
+
+		startTime = System.nanoTime();
+		preparedPolygon = new PreparedPolygon(area);
+		duration = System.nanoTime() - startTime;
+		System.out.println("Prepared polygon in " + (duration / 1000000) + "ms.");
+
+		bounds = area.getBounds2D();
+		Random random = new Random(1);
+		xs = new double[pointCount];
+		ys = new double[pointCount];
+		for (int i = 0; i < pointCount; i++) {
+			xs[i] = bounds.getMinX() + random.nextDouble() * bounds.getWidth();
+			ys[i] = bounds.getMinY() + random.nextDouble() * bounds.getHeight();
+		}
+
+		expected = new boolean[pointCount];
+		startTime = System.nanoTime();
+		for (int i = 0; i < pointCount; i++) {
+			expected[i] = area.contains(xs[i], ys[i]);
+		}
+		duration = System.nanoTime() - startTime;
+		report("Area", pointCount, duration);
+
+		mismatches = 0;
+		startTime = System.nanoTime();
+		for (int i = 0; i < pointCount; i++) {
+			if (preparedPolygon.contains(xs[i], ys[i]) != expected[i]) {
+				mismatches++;
+			}
+		}
+		duration = System.nanoTime() - startTime;
+		report("PreparedPolygon", pointCount, duration);
+
+		System.out.println(mismatches + " mismatched results.");
+	}
+
+
+	private static void report(String name, int pointCount, long duration) {
+		System.out.println(name + ": tested " + pointCount + " points in " + (duration / 1000000) + "ms, "
+				+ (long) (pointCount / (duration / 1000000000.0)) + " points/s.");
+	}
+}
@@ -0,0 +1,122 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.common;
+
+import java.awt.geom.Rectangle2D;
+
+
+/**
+ * A spatial index over the bounding rectangles of many regions. The combined
+ * extent of all regions is divided into a grid of cells, and each cell holds
+ * the regions whose bounds overlap it. A point lookup returns the small set of
+ * regions that may contain the point so that only those need an exact test.
+ */
+public class RegionIndex {
+
+	private static final int[] NO_REGIONS = new int[0];
+
+	private static final int MIN_GRID_SIZE = 16;
+	private static final int MAX_GRID_SIZE = 512;
+
+	private int gridSize;
+	private double minX;
+	private double minY;
+	private double maxX;
+	private double maxY;
+	private double cellWidth;
+	private double cellHeight;
+	private int[][] cells;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param regionBounds
+	 *            The bounds of each region. Regions are identified by their
+	 *            position within this array.
+	 */
+	public RegionIndex(Rectangle2D[] regionBounds) {
+		int[] cellCounts;
+
+		gridSize = (int) Math.min(MAX_GRID_SIZE, Math.max(MIN_GRID_SIZE, 8 * Math.sqrt(regionBounds.length)));
+		cells = new int[gridSize * gridSize][];
+
+		if (regionBounds.length == 0) {
+			minX = Double.POSITIVE_INFINITY;
+			return;
+		}
+
+		minX = Double.POSITIVE_INFINITY;
+		minY = Double.POSITIVE_INFINITY;
+		maxX = Double.NEGATIVE_INFINITY;
+		maxY = Double.NEGATIVE_INFINITY;
+		for (Rectangle2D bounds : regionBounds) {
+			minX = Math.min(minX, bounds.getMinX());
+			minY = Math.min(minY, bounds.getMinY());
+			maxX = Math.max(maxX, bounds.getMaxX());
+			maxY = Math.max(maxY, bounds.getMaxY());
+		}
+		cellWidth = Math.max((maxX - minX) / gridSize, Double.MIN_NORMAL);
+		cellHeight = Math.max((maxY - minY) / gridSize, Double.MIN_NORMAL);
+
+		// Cell locations are calculated the same way for region bounds and
+		// for points, and increase monotonically with the coordinates, so a
+		// point within a region's bounds always maps to a cell holding that
+		// region.
+		cellCounts = new int[cells.length];
+		for (Rectangle2D bounds : regionBounds) {
+			for (int row = getRow(bounds.getMinY()); row <= getRow(bounds.getMaxY()); row++) {
+				for (int column = getColumn(bounds.getMinX()); column <= getColumn(bounds.getMaxX()); column++) {
+					cellCounts[row * gridSize + column]++;
+				}
+			}
+		}
+		for (int cell = 0; cell < cells.length; cell++) {
+			cells[cell] = cellCounts[cell] == 0 ? NO_REGIONS : new int[cellCounts[cell]];
+			cellCounts[cell] = 0;
+		}
+		for (int region = 0; region < regionBounds.length; region++) {
+			Rectangle2D bounds = regionBounds[region];
+
+			for (int row = getRow(bounds.getMinY()); row <= getRow(bounds.getMaxY()); row++) {
+				for (int column = getColumn(bounds.getMinX()); column <= getColumn(bounds.getMaxX()); column++) {
+					int cell = row * gridSize + column;
+
+					cells[cell][cellCounts[cell]++] = region;
+				}
+			}
+		}
+	}
+
+
+	private int getColumn(double x) {
+		int column = (int) ((x - minX) / cellWidth);
+
+		return Math.max(0, Math.min(gridSize - 1, column));
+	}
+
+
+	private int getRow(double y) {
+		int row = (int) ((y - minY) / cellHeight);
+
+		return Math.max(0, Math.min(gridSize - 1, row));
+	}
+
+
+	/**
+	 * Gets the regions whose bounds may contain the point. The returned array
+	 * is shared and must not be modified.
+	 *
+	 * @param x
+	 *            The x coordinate (longitude).
+	 * @param y
+	 *            The y coordinate (latitude).
+	 * @return The candidate regions in increasing order.
+	 */
+	public int[] getCandidates(double x, double y) {
+		if (!(x >= minX && x <= maxX && y >= minY && y <= maxY)) {
+			return NO_REGIONS;
+		}
+
+		return cells[getRow(y) * gridSize + getColumn(x)];
+	}
+}
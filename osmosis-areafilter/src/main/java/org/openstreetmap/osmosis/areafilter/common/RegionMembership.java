@@ -0,0 +1,116 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.common;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.filter.common.IdTracker;
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerFactory;
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
+
+
+/**
+ * Records which regions each entity id belongs to. Ids are held in a compact
+ * roaring id tracker per region. A second, much smaller index records which
+ * regions hold any id within each block of ids, so finding all regions of an
+ * id only has to check the regions active in its block rather than every
+ * region.
+ */
+public class RegionMembership {
+
+	private static final int BLOCK_BITS = 16;
+
+	private IdTracker[] trackers;
+	private Map<Long, BitSet> blockRegions;
+	private long lastBlock;
+	private BitSet lastBlockRegions;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param regionCount
+	 *            The number of regions.
+	 */
+	public RegionMembership(int regionCount) {
+		trackers = new IdTracker[regionCount];
+		for (int i = 0; i < regionCount; i++) {
+			trackers[i] = IdTrackerFactory.createInstance(IdTrackerType.Roaring);
+		}
+
+		blockRegions = new HashMap<Long, BitSet>();
+		lastBlock = -1;
+	}
+
+
+	private BitSet getBlockRegions(long block) {
+		// Consecutive lookups frequently fall within the same block.
+		if (block != lastBlock || lastBlockRegions == null) {
+			lastBlock = block;
+			lastBlockRegions = blockRegions.get(block);
+		}
+
+		return lastBlockRegions;
+	}
+
+
+	/**
+	 * Marks the id as belonging to the region.
+	 *
+	 * @param id
+	 *            The entity id.
+	 * @param region
+	 *            The region index.
+	 */
+	public void set(long id, int region) {
+		long block = id >> BLOCK_BITS;
+		BitSet regions = getBlockRegions(block);
+
+		if (regions == null) {
+			regions = new BitSet(trackers.length);
+			blockRegions.put(block, regions);
+			lastBlockRegions = regions;
+		}
+		regions.set(region);
+
+		trackers[region].set(id);
+	}
+
+
+	/**
+	 * Indicates if the id belongs to the region.
+	 *
+	 * @param id
+	 *            The entity id.
+	 * @param region
+	 *            The region index.
+	 * @return True if the id has been marked for the region.
+	 */
+	public boolean get(long id, int region) {
+		return trackers[region].get(id);
+	}
+
+
+	/**
+	 * Adds all regions the id belongs to into the supplied set.
+	 *
+	 * @param id
+	 *            The entity id.
+	 * @param regions
+	 *            The set to receive the region indexes.
+	 */
+	public void addRegions(long id, BitSet regions) {
+		BitSet candidates = getBlockRegions(id >> BLOCK_BITS);
+
+		if (candidates == null) {
+			return;
+		}
+
+		for (int region = candidates.nextSetBit(0); region >= 0; region = candidates.nextSetBit(region + 1)) {
+			if (!regions.get(region) && trackers[region].get(id)) {
+				regions.set(region);
+			}
+		}
+	}
+}
@@ -1,12 +1,15 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.areafilter.v0_6;
 
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityProcessor;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
@@ -22,17 +25,25 @@ import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 import org.openstreetmap.osmosis.core.store.SimpleObjectStore;
 import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
+import org.openstreetmap.osmosis.core.task.v0_6.MultiPassSink;
+import org.openstreetmap.osmosis.core.task.v0_6.NodeBatchSink;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
 
 
 /**
  * A base class for all tasks filter entities within an area.
+ * <p>
+ * The complete ways and complete relations options normally store all input
+ * data in temporary files until the selection is known. If the upstream
+ * source is able to replay its data, the selection is instead made during a
+ * first pass and the selected nodes and ways are read again from the source.
+ * Only relations are stored.
  * 
  * @author Brett Henderson
  * @author Karl Newman
  */
-public abstract class AreaFilter implements SinkSource, EntityProcessor {
+public abstract class AreaFilter implements SinkSource, NodeBatchSink, MultiPassSink, EntityProcessor {
 	private Sink sink;
 	private IdTracker availableNodes; // Nodes within the area.
 	private IdTracker requiredNodes; // Nodes needed to complete referencing entities.
@@ -49,6 +60,8 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 	private SimpleObjectStore<NodeContainer> allNodes;
     // this duplicates as a container for held-back relations in the cascadingRelations case:
 	private SimpleObjectStore<RelationContainer> allRelations; 
+	private boolean multiPass;
+	private Pass pass;
 	
 	
 	/**
@@ -105,6 +118,19 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 				new SimpleObjectStore<RelationContainer>(
 						new SingleClassObjectSerializationFactory(RelationContainer.class), "afr", true);
         }
+		
+		pass = Pass.Select;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean enableMultiPass() {
+		// Only the complete options need to see the data more than once.
+		multiPass = storeEntities;
+		
+		return multiPass;
 	}
 
 
@@ -130,8 +156,11 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 	 * {@inheritDoc}
 	 */
 	public void process(BoundContainer boundContainer) {
-		// By default, pass it on unchanged
-		sink.process(boundContainer);
+		// By default, pass it on unchanged. It is only sent once when making
+		// multiple passes.
+		if (pass == Pass.Select) {
+			sink.process(boundContainer);
+		}
 	}
 
 	/**
@@ -141,7 +170,21 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 	 *            The node to be checked.
 	 * @return True if the node lies within the area.
 	 */
-	protected abstract boolean isNodeWithinArea(Node node);
+	protected boolean isNodeWithinArea(Node node) {
+		return isNodeWithinArea(node.getLatitude(), node.getLongitude());
+	}
+
+
+	/**
+	 * Indicates if a node location lies within the area required.
+	 * 
+	 * @param latitude
+	 *            The latitude of the node.
+	 * @param longitude
+	 *            The longitude of the node.
+	 * @return True if the location lies within the area.
+	 */
+	protected abstract boolean isNodeWithinArea(double latitude, double longitude);
 	
 	
 	/**
@@ -152,8 +195,16 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 		
 		node = container.getEntity();
 		
+		// Later passes only send on the selected nodes.
+		if (pass != Pass.Select) {
+			if (pass == Pass.Emit && availableNodes.get(node.getId())) {
+				emitNode(container);
+			}
+			return;
+		}
+		
 		// Check if we're storing entities for later.
-		if (storeEntities) {
+		if (storeEntities && !multiPass) {
 			allNodes.add(container);
 		}
 		
@@ -169,6 +220,63 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(NodeBatchContainer batch) {
+		NodeBatchContainer nodesInArea;
+		
+		// Later passes only send on the selected nodes.
+		if (pass != Pass.Select) {
+			if (pass == Pass.Emit) {
+				emitSelectedNodes(batch);
+			}
+			return;
+		}
+		
+		// Stored nodes are serialised individually so there is nothing to be
+		// gained from keeping the batch.
+		if (storeEntities && !multiPass) {
+			for (int i = 0; i < batch.size(); i++) {
+				process(new NodeContainer(batch.getNode(i)));
+			}
+			return;
+		}
+		
+		// Nodes are only sent on immediately if the selection is already
+		// final.
+		nodesInArea = storeEntities ? null : new NodeBatchContainer(batch.getStrings(), batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			if (isNodeWithinArea(batch.getLatitude(i), batch.getLongitude(i))) {
+				availableNodes.set(batch.getId(i));
+				if (nodesInArea != null) {
+					nodesInArea.add(batch, i);
+				}
+			}
+		}
+		
+		if (nodesInArea != null && nodesInArea.size() > 0) {
+			nodesInArea.process(sink);
+		}
+	}
+	
+	
+	private void emitSelectedNodes(NodeBatchContainer batch) {
+		NodeBatchContainer selectedNodes;
+		
+		selectedNodes = new NodeBatchContainer(batch.getStrings(), batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			if (availableNodes.get(batch.getId(i))) {
+				selectedNodes.add(batch, i);
+			}
+		}
+		
+		if (selectedNodes.size() > 0) {
+			selectedNodes.process(sink);
+		}
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -177,9 +285,24 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 		boolean inArea;
 		
 		way = container.getEntity();
+		
+		// Later passes select the nodes of selected ways, then send on the
+		// selected ways.
+		if (pass != Pass.Select) {
+			if (availableWays.get(way.getId())) {
+				if (pass == Pass.WayNodes) {
+					for (WayNode wayNode : way.getWayNodes()) {
+						availableNodes.set(wayNode.getNodeId());
+					}
+				} else if (pass == Pass.Emit) {
+					emitWay(container);
+				}
+			}
+			return;
+		}
 
 		// Check if we're storing entities for later.
-		if (storeEntities) {
+		if (storeEntities && !multiPass) {
 			allWays.add(container);
 		}
 		
@@ -225,6 +348,12 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 		
 		relation = container.getEntity();
 		
+		// Relations are always stored during the first pass when making
+		// multiple passes.
+		if (pass != Pass.Select) {
+			return;
+		}
+		
 		// First look through all the node and way members to see if any are within the filtered area
 		inArea = false;
         holdBackRelation = false;
@@ -507,7 +636,7 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 	}
 	
 	
-	private void buildCompleteRelations() {
+	private void selectChildRelations() {
 		boolean selectionsMade;
 		
 		// Select all child relation members of type relation. 
@@ -517,9 +646,24 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 		
 		// Select all child relation members of type way or node.
 		selectChildNonRelationsPass();
+	}
+	
+	
+	private void selectStoredEntities() {
+		// Select all parents of current relations.
+		selectParentRelations();
+		
+		// Merge required ids into available ids.
+		availableNodes.setAll(requiredNodes);
+		availableWays.setAll(requiredWays);
+		availableRelations.setAll(requiredRelations);
+		requiredNodes = null;
+		requiredWays = null;
+		requiredRelations = null;
 		
-		// Select all way nodes of existing nodes.
-		selectWayNodes();
+		if (completeRelations) {
+			selectChildRelations();
+		}
 	}
     
     
@@ -559,30 +703,51 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
     }
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public Set<EntityType> completePass() {
+		switch (pass) {
+		case Select:
+			selectStoredEntities();
+			
+			// Nodes of ways selected by relations are found by reading the
+			// ways again.
+			if (completeRelations) {
+				pass = Pass.WayNodes;
+				return EnumSet.of(EntityType.Way);
+			}
+			pass = Pass.Emit;
+			return EnumSet.of(EntityType.Node, EntityType.Way);
+		case WayNodes:
+			pass = Pass.Emit;
+			return EnumSet.of(EntityType.Node, EntityType.Way);
+		default:
+			return null;
+		}
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	public void complete() {
 		// If we've stored entities temporarily, we now need to forward the selected ones to the output.
 		if (storeEntities) {
-			// Select all parents of current relations.
-			selectParentRelations();
-			
-			// Merge required ids into available ids.
-			availableNodes.setAll(requiredNodes);
-			availableWays.setAll(requiredWays);
-			availableRelations.setAll(requiredRelations);
-			requiredNodes = null;
-			requiredWays = null;
-			requiredRelations = null;
-			
-			if (completeRelations) {
-				buildCompleteRelations();
+			// When making multiple passes the selection has already been made
+			// and nodes and ways have already been sent.
+			if (!multiPass) {
+				selectStoredEntities();
+				
+				if (completeRelations) {
+					// Select all way nodes of existing nodes.
+					selectWayNodes();
+				}
+				
+				// Send the selected entities to the output.
+				pumpNodesToSink();
+				pumpWaysToSink();
 			}
-			
-			// Send the selected entities to the output.
-			pumpNodesToSink();
-			pumpWaysToSink();
 			pumpRelationsToSink();
 		} else if (cascadingRelations) {
 			// Select all parents of current relations.
@@ -622,4 +787,26 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 	public void setSink(Sink sink) {
 		this.sink = sink;
 	}
+	
+	
+	/**
+	 * The passes made over the input data.
+	 */
+	private enum Pass {
+		/**
+		 * Entities within the area are selected, and sent on immediately if
+		 * no further passes are required.
+		 */
+		Select,
+		
+		/**
+		 * The nodes of all selected ways are selected.
+		 */
+		WayNodes,
+		
+		/**
+		 * The selected nodes and ways are sent on.
+		 */
+		Emit
+	}
 }
@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.areafilter.v0_6;
 
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerFactory;
 import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
@@ -13,6 +14,7 @@ import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
  * @author Brett Henderson
  */
 public abstract class AreaFilterTaskManagerFactory extends TaskManagerFactory {
+	private static final String ARG_ID_TRACKER_TYPE = "idTrackerType";
 	private static final IdTrackerType DEFAULT_ID_TRACKER_TYPE = IdTrackerType.Dynamic;
 
 
@@ -26,6 +28,7 @@ public abstract class AreaFilterTaskManagerFactory extends TaskManagerFactory {
 	 * @return The entity identifier tracker type.
 	 */
 	protected IdTrackerType getIdTrackerType(TaskConfiguration taskConfig) {
-		return DEFAULT_ID_TRACKER_TYPE;
+		return IdTrackerFactory.parseSelectableType(
+				getStringArgument(taskConfig, ARG_ID_TRACKER_TYPE, DEFAULT_ID_TRACKER_TYPE.name()), taskConfig.getId());
 	}
 }
@@ -0,0 +1,282 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.v0_6;
+
+import java.awt.geom.Rectangle2D;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.osmosis.areafilter.common.RegionIndex;
+import org.openstreetmap.osmosis.areafilter.common.RegionMembership;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityProcessor;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.task.v0_6.NodeBatchSink;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.core.task.v0_6.SinkMultiSource;
+import org.openstreetmap.osmosis.core.task.v0_6.Source;
+
+
+/**
+ * Splits a single input into many regional extracts in one pass. Each region
+ * is sent to its own output. Nodes are assigned to every region containing
+ * them using a spatial index shared by all regions, and ways and relations are
+ * then sent to every region containing at least one of their members. This
+ * matches the default behaviour of running a separate bounding box or polygon
+ * filter for each region.
+ */
+public class AreaSplitter implements SinkMultiSource, NodeBatchSink, EntityProcessor {
+	private SplitRegion[] regions;
+	private RegionIndex regionIndex;
+	private RegionSource[] sources;
+	private RegionMembership nodeRegions;
+	private RegionMembership wayRegions;
+	private RegionMembership relationRegions;
+	private BitSet entityRegions;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param regions
+	 *            The regions to split the data into. Output sources are
+	 *            numbered in the same order.
+	 */
+	public AreaSplitter(List<SplitRegion> regions) {
+		Rectangle2D[] regionBounds;
+
+		this.regions = regions.toArray(new SplitRegion[regions.size()]);
+
+		regionBounds = new Rectangle2D[this.regions.length];
+		sources = new RegionSource[this.regions.length];
+		for (int i = 0; i < this.regions.length; i++) {
+			regionBounds[i] = this.regions[i].getBounds();
+			sources[i] = new RegionSource();
+		}
+		regionIndex = new RegionIndex(regionBounds);
+
+		nodeRegions = new RegionMembership(this.regions.length);
+		wayRegions = new RegionMembership(this.regions.length);
+		relationRegions = new RegionMembership(this.regions.length);
+		entityRegions = new BitSet(this.regions.length);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Source getSource(int index) {
+		if (index < 0 || index >= sources.length) {
+			throw new OsmosisRuntimeException("Source index " + index
+					+ " is in the range 0 to " + (sources.length - 1) + ".");
+		}
+
+		return sources[index];
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getSourceCount() {
+		return sources.length;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void initialize(Map<String, Object> metaData) {
+		for (RegionSource source : sources) {
+			source.sink.initialize(metaData);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(EntityContainer entityContainer) {
+		// The same entity may be passed to multiple downstream tasks therefore
+		// it is made read-only to prevent multiple threads impacting each other.
+		entityContainer.getEntity().makeReadOnly();
+
+		entityContainer.process(this);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(BoundContainer boundContainer) {
+		Bound bound;
+
+		bound = boundContainer.getEntity();
+
+		for (int i = 0; i < regions.length; i++) {
+			Bound newBound = regions[i].clip(bound);
+
+			if (newBound != null) {
+				sources[i].sink.process(new BoundContainer(newBound));
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(NodeContainer container) {
+		Node node;
+		int[] candidates;
+
+		node = container.getEntity();
+		candidates = regionIndex.getCandidates(node.getLongitude(), node.getLatitude());
+
+		for (int i = 0; i < candidates.length; i++) {
+			int region = candidates[i];
+
+			if (regions[region].contains(node.getLatitude(), node.getLongitude())) {
+				nodeRegions.set(node.getId(), region);
+				sources[region].sink.process(container);
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(NodeBatchContainer batch) {
+		NodeBatchContainer[] regionBatches;
+
+		regionBatches = new NodeBatchContainer[regions.length];
+
+		for (int i = 0; i < batch.size(); i++) {
+			double latitude = batch.getLatitude(i);
+			double longitude = batch.getLongitude(i);
+			int[] candidates = regionIndex.getCandidates(longitude, latitude);
+
+			for (int j = 0; j < candidates.length; j++) {
+				int region = candidates[j];
+
+				if (regions[region].contains(latitude, longitude)) {
+					nodeRegions.set(batch.getId(i), region);
+
+					if (regionBatches[region] == null) {
+						regionBatches[region] = new NodeBatchContainer(batch.getStrings(), batch.size());
+					}
+					regionBatches[region].add(batch, i);
+				}
+			}
+		}
+
+		for (int i = 0; i < regions.length; i++) {
+			if (regionBatches[i] != null) {
+				regionBatches[i].process(sources[i].sink);
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(WayContainer container) {
+		Way way;
+
+		way = container.getEntity();
+
+		// Find every region containing at least one of the way nodes.
+		entityRegions.clear();
+		for (WayNode nodeReference : way.getWayNodes()) {
+			nodeRegions.addRegions(nodeReference.getNodeId(), entityRegions);
+		}
+
+		for (int region = entityRegions.nextSetBit(0); region >= 0; region = entityRegions.nextSetBit(region + 1)) {
+			wayRegions.set(way.getId(), region);
+			sources[region].sink.process(container);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(RelationContainer container) {
+		Relation relation;
+
+		relation = container.getEntity();
+
+		// Find every region containing at least one of the relation members.
+		entityRegions.clear();
+		for (RelationMember member : relation.getMembers()) {
+			switch (member.getMemberType()) {
+			case Node:
+				nodeRegions.addRegions(member.getMemberId(), entityRegions);
+				break;
+			case Way:
+				wayRegions.addRegions(member.getMemberId(), entityRegions);
+				break;
+			case Relation:
+				relationRegions.addRegions(member.getMemberId(), entityRegions);
+				break;
+			default:
+				break;
+			}
+		}
+
+		for (int region = entityRegions.nextSetBit(0); region >= 0; region = entityRegions.nextSetBit(region + 1)) {
+			relationRegions.set(relation.getId(), region);
+			sources[region].sink.process(container);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void complete() {
+		for (RegionSource source : sources) {
+			source.sink.complete();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void close() {
+		for (RegionSource source : sources) {
+			source.sink.close();
+		}
+	}
+
+
+	/**
+	 * Instances of this class are returned via the parent class getSource
+	 * method.
+	 */
+	private static class RegionSource implements Source {
+		private Sink sink;
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void setSink(Sink sink) {
+			this.sink = sink;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.v0_6;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.areafilter.common.PolygonFileReader;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
+import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkMultiSourceManager;
+
+
+/**
+ * The task manager factory for an area splitter. Regions are read either from
+ * a directory of polygon files, ordered by file name, or from a file listing
+ * one bounding box per line in the form "left,bottom,right,top".
+ */
+public class AreaSplitterFactory extends TaskManagerFactory {
+
+	private static final Logger LOG = Logger.getLogger(AreaSplitterFactory.class.getName());
+
+	private static final String ARG_POLYGON_DIRECTORY = "polygonDirectory";
+	private static final String ARG_BBOX_FILE = "bboxFile";
+	private static final String POLYGON_FILE_SUFFIX = ".poly";
+
+
+	private List<SplitRegion> loadPolygonRegions(TaskConfiguration taskConfig, File directory) {
+		List<SplitRegion> regions;
+		File[] files;
+
+		files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(POLYGON_FILE_SUFFIX);
+			}
+		});
+		if (files == null || files.length == 0) {
+			throw new OsmosisRuntimeException("Argument " + ARG_POLYGON_DIRECTORY + " for task " + taskConfig.getId()
+					+ " must be a directory containing " + POLYGON_FILE_SUFFIX + " files.");
+		}
+		Arrays.sort(files);
+
+		regions = new ArrayList<SplitRegion>(files.length);
+		for (File file : files) {
+			LOG.fine("Region " + regions.size() + " is " + file + ".");
+			regions.add(new SplitRegion(new PolygonFileReader(file).loadPolygon()));
+		}
+
+		return regions;
+	}
+
+
+	private List<SplitRegion> loadBoxRegions(TaskConfiguration taskConfig, File file) {
+		List<SplitRegion> regions;
+
+		regions = new ArrayList<SplitRegion>();
+
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+			int lineNumber = 0;
+
+			while ((line = reader.readLine()) != null) {
+				String[] values;
+
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				values = line.split("[\\s,]+");
+				if (values.length != 4) {
+					throw new OsmosisRuntimeException("Line " + lineNumber + " of bounding box file " + file
+							+ " must contain left, bottom, right and top coordinates.");
+				}
+				try {
+					regions.add(new SplitRegion(
+							Double.parseDouble(values[0]), Double.parseDouble(values[2]),
+							Double.parseDouble(values[3]), Double.parseDouble(values[1])));
+				} catch (IllegalArgumentException e) {
+					throw new OsmosisRuntimeException("Line " + lineNumber + " of bounding box file " + file
+							+ " is not a valid bounding box.", e);
+				}
+			}
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read bounding box file " + file + ".", e);
+		}
+
+		if (regions.isEmpty()) {
+			throw new OsmosisRuntimeException("Argument " + ARG_BBOX_FILE + " for task " + taskConfig.getId()
+					+ " must be a file containing at least one bounding box.");
+		}
+
+		return regions;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
+		List<SplitRegion> regions;
+
+		// Get the task arguments.
+		if (doesArgumentExist(taskConfig, ARG_POLYGON_DIRECTORY) == doesArgumentExist(taskConfig, ARG_BBOX_FILE)) {
+			throw new OsmosisRuntimeException("Task " + taskConfig.getId() + " requires exactly one of the "
+					+ ARG_POLYGON_DIRECTORY + " or " + ARG_BBOX_FILE + " arguments.");
+		}
+		if (doesArgumentExist(taskConfig, ARG_POLYGON_DIRECTORY)) {
+			regions = loadPolygonRegions(
+					taskConfig, new File(getStringArgument(taskConfig, ARG_POLYGON_DIRECTORY)));
+		} else {
+			regions = loadBoxRegions(taskConfig, new File(getStringArgument(taskConfig, ARG_BBOX_FILE)));
+		}
+
+		return new SinkMultiSourceManager(
+			taskConfig.getId(),
+			new AreaSplitter(regions),
+			taskConfig.getPipeArgs()
+		);
+	}
+}
@@ -3,7 +3,6 @@ package org.openstreetmap.osmosis.areafilter.v0_6;
 
 import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
 import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
-import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
 
 /**
@@ -82,13 +81,7 @@ public class BoundingBoxFilter extends AreaFilter {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected boolean isNodeWithinArea(Node node) {
-		double latitude;
-		double longitude;
-
-		latitude = node.getLatitude();
-		longitude = node.getLongitude();
-
+	protected boolean isNodeWithinArea(double latitude, double longitude) {
 		/*
 		 * Check the node coordinates against the bounding box by comparing them to each "simple"
 		 * bound.
@@ -6,9 +6,9 @@ import java.awt.geom.Rectangle2D;
 import java.io.File;
 
 import org.openstreetmap.osmosis.areafilter.common.PolygonFileReader;
+import org.openstreetmap.osmosis.areafilter.common.PreparedPolygon;
 import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
 import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
-import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
 
 
@@ -21,7 +21,9 @@ import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
 public class PolygonFilter extends AreaFilter {
 	
 	private File polygonFile;
+	private boolean preparePolygon;
 	private Area area;
+	private PreparedPolygon preparedPolygon;
 	
 	
 	/**
@@ -47,13 +49,60 @@ public class PolygonFilter extends AreaFilter {
 	public PolygonFilter(
 			IdTrackerType idTrackerType, File polygonFile, boolean clipIncompleteEntities, boolean completeWays,
 			boolean completeRelations, boolean cascadingRelations) {
+		this(idTrackerType, polygonFile, clipIncompleteEntities, completeWays, completeRelations, cascadingRelations,
+				true);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param idTrackerType
+	 *            Defines the id tracker implementation to use.
+	 * @param polygonFile
+	 *            The file containing the polygon coordinates.
+	 * @param clipIncompleteEntities
+	 *            If true, entities referring to non-existent entities will be
+	 *            modified to ensure referential integrity. For example, ways
+	 *            will be modified to only include nodes inside the area.
+	 * @param completeWays
+	 *            Include all nodes for ways which have at least one node inside the filtered area.
+	 * @param completeRelations
+	 *            Include all relations referenced by other relations which have members inside
+	 *            the filtered area.
+	 * @param cascadingRelations
+	 *            Include all relations that reference other relations which have members inside the
+	 *            filtered area. This is less costly than completeRelations.
+	 * @param preparePolygon
+	 *            If true, the polygon is indexed in a grid before processing so
+	 *            that most nodes can be tested without visiting every polygon
+	 *            edge.
+	 */
+	public PolygonFilter(
+			IdTrackerType idTrackerType, File polygonFile, boolean clipIncompleteEntities, boolean completeWays,
+			boolean completeRelations, boolean cascadingRelations, boolean preparePolygon) {
 	    super(idTrackerType, clipIncompleteEntities, completeWays, completeRelations, cascadingRelations);
 		this.polygonFile = polygonFile;
+		this.preparePolygon = preparePolygon;
 		
 		area = null;
 	}
 	
 	
+	/**
+	 * Loads the polygon if it hasn't been loaded yet.
+	 */
+	private void loadArea() {
+		if (area == null) {
+			area = new PolygonFileReader(polygonFile).loadPolygon();
+			
+			if (preparePolygon) {
+				preparedPolygon = new PreparedPolygon(area);
+			}
+		}
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -62,9 +111,7 @@ public class PolygonFilter extends AreaFilter {
 		Bound newBound = null;
 
 		// Configure the area if it hasn't been created yet. (Should this be in an "initialize" method?)
-		if (area == null) {
-			area = new PolygonFileReader(polygonFile).loadPolygon();
-		}
+		loadArea();
 		
 		for (Bound b : boundContainer.getEntity().toSimpleBound()) {
 			if (newBound == null) {
@@ -130,17 +177,13 @@ public class PolygonFilter extends AreaFilter {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected boolean isNodeWithinArea(Node node) {
-		double latitude;
-		double longitude;
-		
+	protected boolean isNodeWithinArea(double latitude, double longitude) {
 		// Configure the area if it hasn't been created yet.
-		if (area == null) {
-			area = new PolygonFileReader(polygonFile).loadPolygon();
-		}
+		loadArea();
 		
-		latitude = node.getLatitude();
-		longitude = node.getLongitude();
+		if (preparedPolygon != null) {
+			return preparedPolygon.contains(longitude, latitude);
+		}
 		
 		return area.contains(longitude, latitude);
 	}
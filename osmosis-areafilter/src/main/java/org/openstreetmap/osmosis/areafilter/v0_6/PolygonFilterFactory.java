@@ -24,6 +24,8 @@ public class PolygonFilterFactory extends AreaFilterTaskManagerFactory {
 	private static final boolean DEFAULT_COMPLETE_WAYS = false;
 	private static final boolean DEFAULT_COMPLETE_RELATIONS = false;
 	private static final boolean DEFAULT_CASCADING_RELATIONS = false;
+	private static final String ARG_PREPARED = "prepared";
+	private static final boolean DEFAULT_PREPARED = true;
 
 	
 	/**
@@ -38,6 +40,7 @@ public class PolygonFilterFactory extends AreaFilterTaskManagerFactory {
 		boolean completeWays;
 		boolean completeRelations;
 		boolean cascadingRelations;
+		boolean prepared;
 		
 		// Get the task arguments.
 		idTrackerType = getIdTrackerType(taskConfig);
@@ -47,6 +50,7 @@ public class PolygonFilterFactory extends AreaFilterTaskManagerFactory {
 		completeWays = getBooleanArgument(taskConfig, ARG_COMPLETE_WAYS, DEFAULT_COMPLETE_WAYS);
 		completeRelations = getBooleanArgument(taskConfig, ARG_COMPLETE_RELATIONS, DEFAULT_COMPLETE_RELATIONS);
 		cascadingRelations = getBooleanArgument(taskConfig, ARG_CASCADING_RELATIONS, DEFAULT_CASCADING_RELATIONS);
+		prepared = getBooleanArgument(taskConfig, ARG_PREPARED, DEFAULT_PREPARED);
 		
 		// Create a file object from the file name provided.
 		file = new File(fileName);
@@ -54,7 +58,7 @@ public class PolygonFilterFactory extends AreaFilterTaskManagerFactory {
 		return new SinkSourceManager(
 			taskConfig.getId(),
 			new PolygonFilter(idTrackerType, file, clipIncompleteEntities, completeWays, completeRelations, 
-                cascadingRelations),
+                cascadingRelations, prepared),
 			taskConfig.getPipeArgs()
 		);
 	}
@@ -0,0 +1,119 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.v0_6;
+
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+
+import org.openstreetmap.osmosis.areafilter.common.PreparedPolygon;
+import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
+
+
+/**
+ * A single output region of an area split, defined either by a bounding box or
+ * by a polygon. Nodes are matched using the same rules as the bounding box and
+ * polygon filters.
+ */
+public class SplitRegion {
+	private Bound box;
+	private Iterable<Bound> simpleBoxes;
+	private PreparedPolygon polygon;
+	private Rectangle2D bounds;
+
+
+	/**
+	 * Creates a new instance for a bounding box. Nodes right on the edge of the
+	 * box are included.
+	 *
+	 * @param left
+	 *            The longitude marking the left edge of the bounding box.
+	 * @param right
+	 *            The longitude marking the right edge of the bounding box.
+	 * @param top
+	 *            The latitude marking the top edge of the bounding box.
+	 * @param bottom
+	 *            The latitude marking the bottom edge of the bounding box.
+	 */
+	public SplitRegion(double left, double right, double top, double bottom) {
+		box = new Bound(right, left, top, bottom, "");
+		simpleBoxes = box.toSimpleBound();
+
+		for (Bound b : simpleBoxes) {
+			Rectangle2D simpleBounds = new Rectangle2D.Double(
+					b.getLeft(), b.getBottom(), b.getRight() - b.getLeft(), b.getTop() - b.getBottom());
+
+			if (bounds == null) {
+				bounds = simpleBounds;
+			} else {
+				bounds = bounds.createUnion(simpleBounds);
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a new instance for a polygon.
+	 *
+	 * @param area
+	 *            The polygon area. It must not be modified afterwards.
+	 */
+	public SplitRegion(Area area) {
+		polygon = new PreparedPolygon(area);
+		bounds = area.getBounds2D();
+	}
+
+
+	/**
+	 * Gets the rectangle enclosing the region.
+	 *
+	 * @return The bounds with x holding longitude and y holding latitude.
+	 */
+	public Rectangle2D getBounds() {
+		return bounds;
+	}
+
+
+	/**
+	 * Indicates if a location lies within the region.
+	 *
+	 * @param latitude
+	 *            The latitude of the location.
+	 * @param longitude
+	 *            The longitude of the location.
+	 * @return True if the location lies within the region.
+	 */
+	public boolean contains(double latitude, double longitude) {
+		if (polygon != null) {
+			return polygon.contains(longitude, latitude);
+		}
+
+		for (Bound b : simpleBoxes) {
+			if (b.getTop() >= latitude
+			        && b.getBottom() <= latitude
+			        && b.getLeft() <= longitude
+			        && b.getRight() >= longitude) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Clips a bound to the region.
+	 *
+	 * @param bound
+	 *            The bound to be clipped.
+	 * @return The clipped bound, or null if it doesn't overlap the region.
+	 */
+	public Bound clip(Bound bound) {
+		if (polygon != null) {
+			// Polygons are clipped to their enclosing rectangle, limited to the
+			// valid coordinate range.
+			return bound.intersect(new Bound(
+					Math.min(180, bounds.getMaxX()), Math.max(-180, bounds.getMinX()),
+					Math.min(90, bounds.getMaxY()), Math.max(-90, bounds.getMinY()), ""));
+		}
+
+		return bound.intersect(box);
+	}
+}
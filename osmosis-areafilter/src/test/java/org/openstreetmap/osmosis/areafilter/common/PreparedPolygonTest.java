@@ -0,0 +1,122 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.common;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the prepared polygon implementation.
+ */
+public class PreparedPolygonTest {
+
+	private Area buildStar(Random random, int vertexCount, double centerX, double centerY, double radius) {
+		Path2D.Double path = new Path2D.Double();
+
+		for (int i = 0; i < vertexCount; i++) {
+			double angle = 2 * Math.PI * i / vertexCount;
+			double distance = radius * (0.5 + 0.5 * random.nextDouble());
+			double x = centerX + distance * Math.cos(angle);
+			double y = centerY + distance * Math.sin(angle);
+
+			if (i == 0) {
+				path.moveTo(x, y);
+			} else {
+				path.lineTo(x, y);
+			}
+		}
+		path.closePath();
+
+		return new Area(path);
+	}
+
+
+	private void assertSameAsArea(Area area, Random random, int pointCount) {
+		PreparedPolygon preparedPolygon = new PreparedPolygon(area);
+		Rectangle2D bounds = area.getBounds2D();
+		double[] coords = new double[6];
+
+		// Random points across and slightly beyond the bounding box.
+		for (int i = 0; i < pointCount; i++) {
+			double x = bounds.getMinX() - 1 + random.nextDouble() * (bounds.getWidth() + 2);
+			double y = bounds.getMinY() - 1 + random.nextDouble() * (bounds.getHeight() + 2);
+
+			Assert.assertEquals("Point " + x + "," + y + " is incorrect.", area.contains(x, y),
+					preparedPolygon.contains(x, y));
+		}
+
+		// Points lying exactly on vertices and edges of the polygon.
+		double lastX = 0;
+		double lastY = 0;
+		for (PathIterator i = area.getPathIterator(null); !i.isDone(); i.next()) {
+			if (i.currentSegment(coords) != PathIterator.SEG_CLOSE) {
+				double x = coords[0];
+				double y = coords[1];
+				double midX = (x + lastX) / 2;
+				double midY = (y + lastY) / 2;
+
+				Assert.assertEquals(area.contains(x, y), preparedPolygon.contains(x, y));
+				Assert.assertEquals(area.contains(midX, midY), preparedPolygon.contains(midX, midY));
+				Assert.assertEquals(area.contains(x, midY), preparedPolygon.contains(x, midY));
+				lastX = x;
+				lastY = y;
+			}
+		}
+	}
+
+
+	/**
+	 * Tests a polygon file with a notch removed from one corner.
+	 */
+	@Test
+	public void testPolygonFile() {
+		File polygonFile = new File(getClass().getResource("/org/openstreetmap/osmosis/areafilter/v0_6/testPolygon.txt")
+				.getFile());
+		Area area = new PolygonFileReader(polygonFile).loadPolygon();
+		PreparedPolygon preparedPolygon = new PreparedPolygon(area);
+
+		Assert.assertTrue(preparedPolygon.contains(10, 5));
+		Assert.assertFalse(preparedPolygon.contains(15, 15));
+		Assert.assertEquals(area.contains(10, 15), preparedPolygon.contains(10, 15));
+
+		assertSameAsArea(area, new Random(1), 100000);
+	}
+
+
+	/**
+	 * Tests a complex polygon with many vertices and a hole.
+	 */
+	@Test
+	public void testComplexPolygon() {
+		Random random = new Random(2);
+		Area area = buildStar(random, 5000, 8.5, 47.5, 1);
+
+		area.subtract(buildStar(random, 500, 8.5, 47.5, 0.3));
+		area.add(buildStar(random, 200, 10, 47.5, 0.4));
+
+		assertSameAsArea(area, random, 50000);
+	}
+
+
+	/**
+	 * Tests a polygon made up of a small number of long diagonal edges.
+	 */
+	@Test
+	public void testSimplePolygon() {
+		Path2D.Double path = new Path2D.Double();
+
+		path.moveTo(-180, -90);
+		path.lineTo(180, 0);
+		path.lineTo(-100, 90);
+		path.closePath();
+
+		assertSameAsArea(new Area(path), new Random(3), 100000);
+	}
+}
@@ -0,0 +1,142 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.v0_6;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+import org.openstreetmap.osmosis.testutil.v0_6.SinkEntityInspector;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.v0_6.XmlReader;
+import org.openstreetmap.osmosis.xml.v0_6.XmlWriter;
+
+
+/**
+ * Tests the area filter when the source offers multiple passes over the data.
+ */
+public class AreaFilterMultiPassTest extends AbstractDataTest {
+
+	private List<EntityContainer> readInput() {
+		SinkEntityInspector inspector = new SinkEntityInspector();
+		List<EntityContainer> entities = new ArrayList<EntityContainer>();
+		XmlReader reader;
+
+		reader = new XmlReader(dataUtils.createDataFile("v0_6/areafilter-in.osm"), true, CompressionMethod.None);
+		reader.setSink(inspector);
+		reader.run();
+
+		for (EntityContainer entityContainer : inspector.getProcessedEntities()) {
+			entities.add(entityContainer);
+		}
+
+		return entities;
+	}
+
+
+	private AreaFilter buildFilter(boolean completeWays, boolean completeRelations, File outputFile) {
+		AreaFilter filter;
+
+		filter = new BoundingBoxFilter(IdTrackerType.Dynamic, -10, 10, 10, -10, false, completeWays,
+				completeRelations, false);
+		filter.setSink(new XmlWriter(outputFile, CompressionMethod.None));
+
+		return filter;
+	}
+
+
+	private void sendPass(AreaFilter filter, List<EntityContainer> entities, Set<?> requiredTypes) {
+		for (EntityContainer entityContainer : entities) {
+			if (requiredTypes == null || requiredTypes.contains(entityContainer.getEntity().getType())) {
+				filter.process(entityContainer);
+			}
+		}
+	}
+
+
+	private void runSinglePass(AreaFilter filter, List<EntityContainer> entities) {
+		filter.initialize(Collections.<String, Object>emptyMap());
+		sendPass(filter, entities, null);
+		filter.complete();
+		filter.close();
+	}
+
+
+	private int runMultiPass(AreaFilter filter, List<EntityContainer> entities) {
+		Set<?> requiredTypes;
+		int passCount;
+
+		Assert.assertTrue(filter.enableMultiPass());
+
+		filter.initialize(Collections.<String, Object>emptyMap());
+		sendPass(filter, entities, null);
+		passCount = 1;
+		while ((requiredTypes = filter.completePass()) != null) {
+			sendPass(filter, entities, requiredTypes);
+			passCount++;
+		}
+		filter.complete();
+		filter.close();
+
+		return passCount;
+	}
+
+
+	private void assertSameOutput(boolean completeWays, boolean completeRelations, int expectedPassCount)
+			throws IOException {
+		List<EntityContainer> entities = readInput();
+		File singlePassFile = dataUtils.newFile();
+		File multiPassFile = dataUtils.newFile();
+
+		runSinglePass(buildFilter(completeWays, completeRelations, singlePassFile), entities);
+		Assert.assertEquals(expectedPassCount,
+				runMultiPass(buildFilter(completeWays, completeRelations, multiPassFile), entities));
+
+		dataUtils.compareFiles(singlePassFile, multiPassFile);
+	}
+
+
+	/**
+	 * Verifies that multiple passes with complete ways produce the same output
+	 * as storing the data.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testCompleteWays() throws IOException {
+		assertSameOutput(true, false, 2);
+	}
+
+
+	/**
+	 * Verifies that multiple passes with complete relations produce the same
+	 * output as storing the data.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testCompleteRelations() throws IOException {
+		assertSameOutput(false, true, 3);
+	}
+
+
+	/**
+	 * Verifies that multiple passes are declined when not required.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testStandardFilterDeclinesMultiPass() throws IOException {
+		Assert.assertFalse(buildFilter(false, false, dataUtils.newFile()).enableMultiPass());
+	}
+}
@@ -0,0 +1,130 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.areafilter.v0_6;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.Osmosis;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+
+
+/**
+ * Tests the area splitter implementation.
+ */
+public class AreaSplitterTest extends AbstractDataTest {
+
+	/**
+	 * Verifies that each bounding box region matches the output of a separate
+	 * bounding box filter.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testBoundingBoxes() throws IOException {
+		File inputFile;
+		File bboxFile;
+		File expectedStandardFile;
+		File expectedWholeFile;
+		File actualStandardFile;
+		File actualWholeFile;
+
+		// Generate input files.
+		inputFile = dataUtils.createDataFile("v0_6/areafilter-in.osm");
+		expectedStandardFile = dataUtils.createDataFile("v0_6/areafilter-out-standard.osm");
+		expectedWholeFile = dataUtils.createDataFile("v0_6/areafilter-out-whole.osm");
+		actualStandardFile = dataUtils.newFile();
+		actualWholeFile = dataUtils.newFile();
+		bboxFile = dataUtils.newFile();
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(bboxFile), StandardCharsets.UTF_8)) {
+			writer.write("# left,bottom,right,top\n");
+			writer.write("-10,-10,10,10\n");
+			writer.write("\n");
+			writer.write("-180 -90 180 90\n");
+		}
+
+		// Split the data into both regions.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--area-split", "bboxFile=" + bboxFile.getPath(), "outPipe.0=standard", "outPipe.1=whole",
+				"--tag-sort-0.6", "inPipe.0=standard",
+				"--write-xml-0.6",
+				actualStandardFile.getPath(),
+				"--tag-sort-0.6", "inPipe.0=whole",
+				"--write-xml-0.6",
+				actualWholeFile.getPath()
+			}
+		);
+
+		// Validate that each region matches the bounding box filter output.
+		dataUtils.compareFiles(expectedStandardFile, actualStandardFile);
+		dataUtils.compareFiles(expectedWholeFile, actualWholeFile);
+	}
+
+
+	/**
+	 * Verifies that a polygon region matches the output of a separate polygon
+	 * filter.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testPolygons() throws IOException {
+		File inputFile;
+		File polygonFile;
+		File polygonDirectory;
+		File expectedOutputFile;
+		File actualOutputFile;
+		File otherOutputFile;
+
+		// Generate input files.
+		inputFile = dataUtils.createDataFile("v0_6/areafilter-in.osm");
+		polygonFile = new File(getClass().getResource("testPolygon.txt").getFile());
+		polygonDirectory = dataUtils.newFolder();
+		// The second region sorts after the first and doesn't overlap the data.
+		Files.copy(polygonFile.toPath(), new File(polygonDirectory, "a.poly").toPath());
+		Files.write(new File(polygonDirectory, "b.poly").toPath(),
+				"empty\n1\n 100 60\n 101 60\n 101 61\n 100 61\nEND\nEND\n".getBytes(StandardCharsets.UTF_8));
+		expectedOutputFile = dataUtils.newFile();
+		actualOutputFile = dataUtils.newFile();
+		otherOutputFile = dataUtils.newFile();
+
+		// Generate the expected output using the polygon filter.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--bounding-polygon", "file=" + polygonFile.getPath(),
+				"--write-xml-0.6",
+				expectedOutputFile.getPath()
+			}
+		);
+
+		// Split the data into both regions.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--area-split", "polygonDirectory=" + polygonDirectory.getPath(), "outPipe.0=a", "outPipe.1=b",
+				"--write-xml-0.6", "inPipe.0=a",
+				actualOutputFile.getPath(),
+				"--write-xml-0.6", "inPipe.0=b",
+				otherOutputFile.getPath()
+			}
+		);
+
+		dataUtils.compareFiles(expectedOutputFile, actualOutputFile);
+	}
+}
@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core; 
 
+import java.io.File;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -8,6 +9,7 @@ import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.cli.CommandLineParser;
 import org.openstreetmap.osmosis.core.pipeline.common.Pipeline;
+import org.openstreetmap.osmosis.core.pipeline.common.PipelineMetrics;
 
 
 /**
@@ -82,6 +84,16 @@ public final class Osmosis {
 		
 		pipeline = new Pipeline(taskRegistrar.getFactoryRegister());
 		
+		if (commandLineParser.isMetricsEnabled()) {
+			File metricsFile = null;
+			
+			if (commandLineParser.getMetricsFile() != null) {
+				metricsFile = new File(commandLineParser.getMetricsFile());
+			}
+			
+			pipeline.setMetrics(new PipelineMetrics(metricsFile, commandLineParser.getMetricsInterval()));
+		}
+		
 		LOG.info("Preparing pipeline.");
 		pipeline.prepare(commandLineParser.getTaskInfoList());
 		
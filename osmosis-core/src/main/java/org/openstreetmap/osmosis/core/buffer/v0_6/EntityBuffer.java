@@ -4,7 +4,11 @@ package org.openstreetmap.osmosis.core.buffer.v0_6;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
-import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.Postbox;
+import org.openstreetmap.osmosis.core.store.PostboxFactory;
+import org.openstreetmap.osmosis.core.store.PostboxOwner;
+import org.openstreetmap.osmosis.core.store.PostboxStatistics;
+import org.openstreetmap.osmosis.core.store.PostboxType;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.core.task.v0_6.SinkRunnableSource;
 
@@ -17,9 +21,9 @@ import org.openstreetmap.osmosis.core.task.v0_6.SinkRunnableSource;
  * 
  * @author Brett Henderson
  */
-public class EntityBuffer implements SinkRunnableSource {
+public class EntityBuffer implements SinkRunnableSource, PostboxOwner {
 	private Sink sink;
-	private DataPostbox<EntityContainer> buffer;
+	private Postbox<EntityContainer> buffer;
 	
 	
 	/**
@@ -29,7 +33,20 @@ public class EntityBuffer implements SinkRunnableSource {
 	 *            The size of the buffer to use.
 	 */
 	public EntityBuffer(int bufferCapacity) {
-		buffer = new DataPostbox<EntityContainer>(bufferCapacity);
+		this(bufferCapacity, PostboxType.Locking);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param bufferCapacity
+	 *            The size of the buffer to use.
+	 * @param bufferType
+	 *            The postbox implementation used to pass data between threads.
+	 */
+	public EntityBuffer(int bufferCapacity, PostboxType bufferType) {
+		buffer = PostboxFactory.createInstance(bufferType, bufferCapacity);
 	}
 
 
@@ -73,6 +90,15 @@ public class EntityBuffer implements SinkRunnableSource {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PostboxStatistics getPostboxStatistics() {
+		return buffer.getStatistics();
+	}
+	
+	
 	/**
 	 * Sends all input data to the sink.
 	 */
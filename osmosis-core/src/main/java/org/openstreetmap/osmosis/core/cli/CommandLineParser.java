@@ -27,6 +27,8 @@ public class CommandLineParser {
 	private static final String OPTION_VERBOSE_LONG = "verbose";
 	private static final String OPTION_PLUGIN_SHORT = "p";
 	private static final String OPTION_PLUGIN_LONG = "plugin";
+	private static final String OPTION_METRICS_SHORT = "m";
+	private static final String OPTION_METRICS_LONG = "metrics";
 	
 	
 	/**
@@ -34,11 +36,19 @@ public class CommandLineParser {
 	 */
 	private static final int DEFAULT_LOG_LEVEL_INDEX = 3;
 	
+	/**
+	 * The default interval in seconds between writes of the metrics file.
+	 */
+	private static final int DEFAULT_METRICS_INTERVAL = 10;
+	
 	
 	private List<TaskConfiguration> taskConfigList;
 	private int quietValue;
 	private int verboseValue;
 	private List<String> plugins;
+	private boolean metricsEnabled;
+	private String metricsFile;
+	private int metricsInterval;
 	
 	
 	/**
@@ -50,6 +60,9 @@ public class CommandLineParser {
 		quietValue = 0;
 		verboseValue = 0;
 		plugins = new ArrayList<String>();
+		metricsEnabled = false;
+		metricsFile = null;
+		metricsInterval = DEFAULT_METRICS_INTERVAL;
 	}
 	
 	
@@ -88,6 +101,8 @@ public class CommandLineParser {
 				verboseValue = parseOptionIntegerWithDefault(globalOption, 0) + 1;
 			} else if (isArgumentForOption(OPTION_PLUGIN_SHORT, OPTION_PLUGIN_LONG, globalOption.name)) {
 				plugins.add(parseOptionString(globalOption));
+			} else if (isArgumentForOption(OPTION_METRICS_SHORT, OPTION_METRICS_LONG, globalOption.name)) {
+				parseMetricsOption(globalOption);
 			} else {
 				throw new OsmosisRuntimeException("Argument " + (globalOption.offset + 1)
 						+ " specifies an unrecognised option \"" + GLOBAL_ARGUMENT_PREFIX + globalOption.name
@@ -190,6 +205,43 @@ public class CommandLineParser {
 	}
 	
 	
+	/**
+	 * Parses the metrics option. The option has an optional file name to
+	 * write metrics to, followed by an optional interval in seconds between
+	 * writes.
+	 * 
+	 * @param globalOption
+	 *            The global option to be parsed.
+	 */
+	private void parseMetricsOption(GlobalOptionConfiguration globalOption) {
+		if (globalOption.parameters.size() > 2) {
+			throw new OsmosisRuntimeException(
+					"Expected argument " + (globalOption.offset + 1) + " to have no more than two parameters.");
+		}
+		
+		metricsEnabled = true;
+		
+		if (globalOption.parameters.size() > 0) {
+			metricsFile = globalOption.parameters.get(0);
+		}
+		
+		if (globalOption.parameters.size() > 1) {
+			try {
+				metricsInterval = Integer.parseInt(globalOption.parameters.get(1));
+				
+			} catch (NumberFormatException e) {
+				throw new OsmosisRuntimeException(
+						"Expected argument " + (globalOption.offset + 3) + " to contain an integer value.");
+			}
+			
+			if (metricsInterval < 1) {
+				throw new OsmosisRuntimeException(
+						"Expected argument " + (globalOption.offset + 3) + " to be at least 1.");
+			}
+		}
+	}
+	
+	
 	/**
 	 * Parses the details of a single option.
 	 * 
@@ -355,6 +407,37 @@ public class CommandLineParser {
 	}
 	
 	
+	/**
+	 * Indicates if metrics of the pipeline tasks should be recorded.
+	 * 
+	 * @return True if metrics are enabled.
+	 */
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+	
+	
+	/**
+	 * Returns the file to write the pipeline metrics to at regular intervals.
+	 * 
+	 * @return The file name, or null if metrics shouldn't be written to a
+	 *         file.
+	 */
+	public String getMetricsFile() {
+		return metricsFile;
+	}
+	
+	
+	/**
+	 * Returns the interval between writes of the metrics file.
+	 * 
+	 * @return The interval in seconds.
+	 */
+	public int getMetricsInterval() {
+		return metricsInterval;
+	}
+	
+	
 	/**
 	 * A data storage class holding information relating to a global option
 	 * during parsing.
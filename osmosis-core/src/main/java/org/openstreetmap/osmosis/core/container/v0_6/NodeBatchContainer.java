@@ -0,0 +1,459 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.container.v0_6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.task.v0_6.NodeBatchSink;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Holds a batch of nodes in parallel primitive arrays instead of individual
+ * node objects. Tag keys, tag values and user names are held as indexes into
+ * a string table which is typically shared with the data source (such as a PBF
+ * block string table) so that no per-node objects are required. Individual
+ * nodes are only created when requested.
+ * <p>
+ * Batches are passed between tasks using {@link #process(Sink)} which sends
+ * the whole batch to a {@link NodeBatchSink}, or falls back to individual node
+ * containers for sinks that don't support batches.
+ */
+public class NodeBatchContainer {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private String[] strings;
+	private int stringCount;
+	private Map<String, Integer> stringIndexes;
+
+	private int size;
+	private long[] ids;
+	private double[] latitudes;
+	private double[] longitudes;
+	private int[] versions;
+	private long[] timestamps;
+	private long[] changesetIds;
+	private int[] userIds;
+	private int[] userNameIndexes;
+	private int[] tagOffsets;
+	private int[] tagIndexes;
+	private int tagIndexCount;
+
+
+	/**
+	 * Creates a new instance with an empty string table. Strings are added to
+	 * the table using {@link #intern(String)}.
+	 */
+	public NodeBatchContainer() {
+		this(new String[] {""}, DEFAULT_CAPACITY);
+	}
+
+
+	/**
+	 * Creates a new instance using an existing string table.
+	 *
+	 * @param strings
+	 *            The string table referenced by tag and user name indexes.
+	 *            The array is not copied and must not be modified.
+	 * @param capacity
+	 *            The initial number of nodes to allocate space for.
+	 */
+	public NodeBatchContainer(String[] strings, int capacity) {
+		this.strings = strings;
+		stringCount = strings.length;
+
+		capacity = Math.max(1, capacity);
+		ids = new long[capacity];
+		latitudes = new double[capacity];
+		longitudes = new double[capacity];
+		versions = new int[capacity];
+		timestamps = new long[capacity];
+		changesetIds = new long[capacity];
+		userIds = new int[capacity];
+		userNameIndexes = new int[capacity];
+		tagOffsets = new int[capacity + 1];
+		tagIndexes = new int[capacity];
+	}
+
+
+	/**
+	 * Gets the index of a string within the string table, adding it if it
+	 * doesn't exist yet.
+	 *
+	 * @param value
+	 *            The string to be located.
+	 * @return The index of the string.
+	 */
+	public int intern(String value) {
+		Integer index;
+
+		if (stringIndexes == null) {
+			stringIndexes = new HashMap<String, Integer>();
+			for (int i = 0; i < stringCount; i++) {
+				stringIndexes.put(strings[i], i);
+			}
+		}
+
+		index = stringIndexes.get(value);
+		if (index == null) {
+			if (stringCount == strings.length) {
+				// The table may be shared with other batches so it must be
+				// copied rather than modified in place.
+				strings = Arrays.copyOf(strings, stringCount * 2 + 1);
+			}
+			index = stringCount;
+			strings[stringCount++] = value;
+			stringIndexes.put(value, index);
+		}
+
+		return index;
+	}
+
+
+	private void ensureCapacity() {
+		if (size == ids.length) {
+			int capacity = size * 2;
+
+			ids = Arrays.copyOf(ids, capacity);
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			versions = Arrays.copyOf(versions, capacity);
+			timestamps = Arrays.copyOf(timestamps, capacity);
+			changesetIds = Arrays.copyOf(changesetIds, capacity);
+			userIds = Arrays.copyOf(userIds, capacity);
+			userNameIndexes = Arrays.copyOf(userNameIndexes, capacity);
+			tagOffsets = Arrays.copyOf(tagOffsets, capacity + 1);
+		}
+	}
+
+
+	/**
+	 * Adds a node to the end of the batch. Tags are added afterwards using
+	 * {@link #addTag(int, int)}.
+	 *
+	 * @param id
+	 *            The node identifier.
+	 * @param latitude
+	 *            The latitude.
+	 * @param longitude
+	 *            The longitude.
+	 * @param version
+	 *            The version.
+	 * @param timestamp
+	 *            The timestamp in milliseconds since the epoch.
+	 * @param changesetId
+	 *            The changeset identifier.
+	 * @param userId
+	 *            The user identifier, or the id of {@link OsmUser#NONE} if
+	 *            no user is available.
+	 * @param userNameIndex
+	 *            The string table index of the user name.
+	 */
+	public void addNode(long id, double latitude, double longitude, int version, long timestamp, long changesetId,
+			int userId, int userNameIndex) {
+		ensureCapacity();
+
+		ids[size] = id;
+		latitudes[size] = latitude;
+		longitudes[size] = longitude;
+		versions[size] = version;
+		timestamps[size] = timestamp;
+		changesetIds[size] = changesetId;
+		userIds[size] = userId;
+		userNameIndexes[size] = userNameIndex;
+		size++;
+		tagOffsets[size] = tagIndexCount;
+	}
+
+
+	/**
+	 * Adds a tag to the most recently added node.
+	 *
+	 * @param keyIndex
+	 *            The string table index of the tag key.
+	 * @param valueIndex
+	 *            The string table index of the tag value.
+	 */
+	public void addTag(int keyIndex, int valueIndex) {
+		if (tagIndexCount + 2 > tagIndexes.length) {
+			tagIndexes = Arrays.copyOf(tagIndexes, Math.max(tagIndexCount + 2, tagIndexes.length * 2));
+		}
+
+		tagIndexes[tagIndexCount++] = keyIndex;
+		tagIndexes[tagIndexCount++] = valueIndex;
+		tagOffsets[size] = tagIndexCount;
+	}
+
+
+	/**
+	 * Adds a node to the end of the batch by copying it from another batch.
+	 * Both batches must use the same string table.
+	 *
+	 * @param source
+	 *            The batch containing the node.
+	 * @param index
+	 *            The index of the node within the source batch.
+	 */
+	public void add(NodeBatchContainer source, int index) {
+		addNode(source.ids[index], source.latitudes[index], source.longitudes[index], source.versions[index],
+				source.timestamps[index], source.changesetIds[index], source.userIds[index],
+				source.userNameIndexes[index]);
+
+		for (int i = source.tagOffsets[index]; i < source.tagOffsets[index + 1]; i += 2) {
+			addTag(source.tagIndexes[i], source.tagIndexes[i + 1]);
+		}
+	}
+
+
+	/**
+	 * Adds a node to the end of the batch, interning all of its strings.
+	 *
+	 * @param node
+	 *            The node to be added.
+	 */
+	public void add(Node node) {
+		OsmUser user = node.getUser();
+
+		addNode(node.getId(), node.getLatitude(), node.getLongitude(), node.getVersion(),
+				node.getTimestamp().getTime(), node.getChangesetId(), user.getId(), intern(user.getName()));
+
+		for (Tag tag : node.getTags()) {
+			addTag(intern(tag.getKey()), intern(tag.getValue()));
+		}
+	}
+
+
+	/**
+	 * Gets the string table referenced by this batch. Batches copying nodes
+	 * from this batch must use the same table.
+	 *
+	 * @return The string table. It must not be modified.
+	 */
+	public String[] getStrings() {
+		return strings;
+	}
+
+
+	/**
+	 * Gets the number of nodes in the batch.
+	 *
+	 * @return The node count.
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * Gets the identifier of a node.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The identifier.
+	 */
+	public long getId(int index) {
+		return ids[index];
+	}
+
+
+	/**
+	 * Gets the latitude of a node.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The latitude.
+	 */
+	public double getLatitude(int index) {
+		return latitudes[index];
+	}
+
+
+	/**
+	 * Gets the longitude of a node.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The longitude.
+	 */
+	public double getLongitude(int index) {
+		return longitudes[index];
+	}
+
+
+	/**
+	 * Gets the version of a node.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The version.
+	 */
+	public int getVersion(int index) {
+		return versions[index];
+	}
+
+
+	/**
+	 * Gets the timestamp of a node.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The timestamp in milliseconds since the epoch.
+	 */
+	public long getTimestamp(int index) {
+		return timestamps[index];
+	}
+
+
+	/**
+	 * Gets the changeset identifier of a node.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The changeset identifier.
+	 */
+	public long getChangesetId(int index) {
+		return changesetIds[index];
+	}
+
+
+	/**
+	 * Gets the user identifier of a node.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The user identifier which is the id of {@link OsmUser#NONE} if
+	 *         no user is available.
+	 */
+	public int getUserId(int index) {
+		return userIds[index];
+	}
+
+
+	/**
+	 * Gets the user name of a node.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The user name.
+	 */
+	public String getUserName(int index) {
+		return strings[userNameIndexes[index]];
+	}
+
+
+	/**
+	 * Gets the position of the first tag of a node. Tags of a node are
+	 * accessed using positions from this value up to, but not including,
+	 * {@link #getTagEnd(int)}.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The position of the first tag.
+	 */
+	public int getTagStart(int index) {
+		return tagOffsets[index] >> 1;
+	}
+
+
+	/**
+	 * Gets the position following the last tag of a node.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The position following the last tag.
+	 */
+	public int getTagEnd(int index) {
+		return tagOffsets[index + 1] >> 1;
+	}
+
+
+	/**
+	 * Gets a tag key.
+	 *
+	 * @param tagPosition
+	 *            The position of the tag within the batch.
+	 * @return The tag key.
+	 */
+	public String getTagKey(int tagPosition) {
+		return strings[tagIndexes[tagPosition << 1]];
+	}
+
+
+	/**
+	 * Gets a tag value.
+	 *
+	 * @param tagPosition
+	 *            The position of the tag within the batch.
+	 * @return The tag value.
+	 */
+	public String getTagValue(int tagPosition) {
+		return strings[tagIndexes[(tagPosition << 1) + 1]];
+	}
+
+
+	/**
+	 * Indicates if any node within the batch has tags.
+	 *
+	 * @return True if at least one tag exists.
+	 */
+	public boolean hasTags() {
+		return tagIndexCount > 0;
+	}
+
+
+	/**
+	 * Creates a node object for a node within the batch.
+	 *
+	 * @param index
+	 *            The node index within the batch.
+	 * @return The node.
+	 */
+	public Node getNode(int index) {
+		OsmUser user;
+		List<Tag> tags;
+		int tagStart = getTagStart(index);
+		int tagEnd = getTagEnd(index);
+
+		if (userIds[index] == OsmUser.NONE.getId()) {
+			user = OsmUser.NONE;
+		} else {
+			user = new OsmUser(userIds[index], strings[userNameIndexes[index]]);
+		}
+
+		tags = new ArrayList<Tag>(tagEnd - tagStart);
+		for (int i = tagStart; i < tagEnd; i++) {
+			tags.add(new Tag(getTagKey(i), getTagValue(i)));
+		}
+
+		return new Node(new CommonEntityData(ids[index], versions[index], new Date(timestamps[index]), user,
+				changesetIds[index], tags), latitudes[index], longitudes[index]);
+	}
+
+
+	/**
+	 * Sends the batch to a sink. If the sink implements {@link NodeBatchSink}
+	 * the batch is passed as is, otherwise a node container is created and sent
+	 * for each node in order.
+	 *
+	 * @param sink
+	 *            The sink to receive the nodes.
+	 */
+	public void process(Sink sink) {
+		if (sink instanceof NodeBatchSink) {
+			((NodeBatchSink) sink).process(this);
+		} else {
+			for (int i = 0; i < size; i++) {
+				sink.process(new NodeContainer(getNode(i)));
+			}
+		}
+	}
+}
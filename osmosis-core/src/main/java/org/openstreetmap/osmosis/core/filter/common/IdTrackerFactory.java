@@ -19,6 +19,28 @@ public final class IdTrackerFactory {
 	}
 	
 	
+	/**
+	 * Parses the id tracker type selected by a task argument. Only
+	 * implementations supporting the full 64-bit id range may be selected.
+	 * 
+	 * @param idTrackerType
+	 *            The value of the idTrackerType argument.
+	 * @param taskId
+	 *            The identifier of the task the argument belongs to.
+	 * @return The id tracker type.
+	 */
+	public static IdTrackerType parseSelectableType(String idTrackerType, String taskId) {
+		if (IdTrackerType.Dynamic.name().equals(idTrackerType)) {
+			return IdTrackerType.Dynamic;
+		} else if (IdTrackerType.Roaring.name().equals(idTrackerType)) {
+			return IdTrackerType.Roaring;
+		} else {
+			throw new OsmosisRuntimeException(
+					"Argument idTrackerType for task " + taskId + " must be Dynamic or Roaring.");
+		}
+	}
+	
+	
 	/**
 	 * Creates the requested id tracker type.
 	 * 
@@ -33,6 +55,8 @@ public final class IdTrackerFactory {
 			return new ListIdTracker();
 		} else if (IdTrackerType.Dynamic.equals(idTrackerType)) {
 			return new DynamicIdTracker();
+		} else if (IdTrackerType.Roaring.equals(idTrackerType)) {
+			return new RoaringIdTracker();
 		} else {
 			throw new OsmosisRuntimeException("The IdTrackerType " + idTrackerType + " is not recognised.");
 		}
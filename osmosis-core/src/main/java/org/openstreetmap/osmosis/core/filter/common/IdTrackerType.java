@@ -28,5 +28,13 @@ public enum IdTrackerType {
 	 * either one of the two other id list implementations depending on the number of ids to be
 	 * managed.
 	 */
-	Dynamic
+	Dynamic,
+	/**
+	 * The roaring implementation maintains a compressed bitmap. The id range is broken into
+	 * containers of 65536 ids, each holding either a sorted array of 16-bit offsets or a bitmap
+	 * depending on which is smaller. It supports the full 64-bit id range, uses at most 2 bytes per
+	 * id for sparse ranges and a single bit per id for dense ranges, and supports efficient bulk
+	 * operations.
+	 */
+	Roaring
 }
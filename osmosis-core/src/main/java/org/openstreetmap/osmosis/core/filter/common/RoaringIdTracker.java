@@ -0,0 +1,600 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.filter.common;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+
+/**
+ * Implements the IdTracker interface using a compressed bitmap in the style of
+ * a roaring bitmap. The 64-bit id space is split into containers of 65536 ids
+ * keyed by the upper 48 bits of the id. Containers holding few ids store them
+ * as a sorted array of 16-bit values (2 bytes per id), and containers holding
+ * many ids store them as a bitmap (8KB covering all 65536 ids). Each container
+ * switches representation automatically as it fills.
+ * <p>
+ * Unlike the other implementations, ids are iterated as primitives and
+ * {@link #setAll(IdTracker)} and {@link #intersection(RoaringIdTracker)} operate
+ * on whole containers at a time when both trackers are of this type.
+ */
+public class RoaringIdTracker implements IdTracker {
+
+	/**
+	 * The number of low order id bits stored within a container.
+	 */
+	private static final int CONTAINER_BITS = 16;
+
+	/**
+	 * The mask for extracting the container offset from an id.
+	 */
+	private static final int CONTAINER_MASK = 0xFFFF;
+
+	/**
+	 * The number of ids at which an array container is converted into a
+	 * bitmap container. At this size both representations use 8KB.
+	 */
+	/* package */ static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+
+	private static final int INITIAL_CONTAINER_CAPACITY = 16;
+
+	private long[] keys;
+	private Container[] containers;
+	private int containerCount;
+	private int lastContainerIndex;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public RoaringIdTracker() {
+		keys = new long[INITIAL_CONTAINER_CAPACITY];
+		containers = new Container[INITIAL_CONTAINER_CAPACITY];
+	}
+
+
+	/**
+	 * Finds the index of the container with the specified key.
+	 *
+	 * @return The container index, or (-(insertion point) - 1) if it doesn't
+	 *         exist.
+	 */
+	private int findContainer(long key) {
+		// Ids are typically processed in order so check the most recently
+		// used container and the end of the list before searching.
+		if (lastContainerIndex < containerCount && keys[lastContainerIndex] == key) {
+			return lastContainerIndex;
+		}
+		if (containerCount == 0 || keys[containerCount - 1] < key) {
+			return -containerCount - 1;
+		}
+
+		return Arrays.binarySearch(keys, 0, containerCount, key);
+	}
+
+
+	private void insertContainer(int index, long key, Container container) {
+		if (containerCount == keys.length) {
+			int newCapacity = containerCount * 2;
+
+			keys = Arrays.copyOf(keys, newCapacity);
+			containers = Arrays.copyOf(containers, newCapacity);
+		}
+
+		System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+		System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+		keys[index] = key;
+		containers[index] = container;
+		containerCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void set(long id) {
+		long key = id >> CONTAINER_BITS;
+		int index = findContainer(key);
+
+		if (index < 0) {
+			index = -index - 1;
+			insertContainer(index, key, new ArrayContainer());
+		}
+
+		containers[index] = containers[index].add((int) id & CONTAINER_MASK);
+		lastContainerIndex = index;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean get(long id) {
+		int index = findContainer(id >> CONTAINER_BITS);
+
+		if (index < 0) {
+			return false;
+		}
+
+		lastContainerIndex = index;
+
+		return containers[index].contains((int) id & CONTAINER_MASK);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setAll(IdTracker idTracker) {
+		if (idTracker instanceof RoaringIdTracker) {
+			union((RoaringIdTracker) idTracker);
+		} else {
+			for (Long id : idTracker) {
+				set(id);
+			}
+		}
+	}
+
+
+	/**
+	 * Merges the containers of another tracker into this one.
+	 */
+	private void union(RoaringIdTracker other) {
+		long[] newKeys = new long[containerCount + other.containerCount];
+		Container[] newContainers = new Container[newKeys.length];
+		int newCount = 0;
+		int i = 0;
+		int j = 0;
+
+		while (i < containerCount || j < other.containerCount) {
+			if (j >= other.containerCount || (i < containerCount && keys[i] < other.keys[j])) {
+				newKeys[newCount] = keys[i];
+				newContainers[newCount++] = containers[i++];
+			} else if (i >= containerCount || other.keys[j] < keys[i]) {
+				newKeys[newCount] = other.keys[j];
+				newContainers[newCount++] = other.containers[j++].copy();
+			} else {
+				newKeys[newCount] = keys[i];
+				newContainers[newCount++] = containers[i++].or(other.containers[j++]);
+			}
+		}
+
+		keys = newKeys;
+		containers = newContainers;
+		containerCount = newCount;
+		lastContainerIndex = 0;
+
+		if (keys.length == 0) {
+			keys = new long[INITIAL_CONTAINER_CAPACITY];
+			containers = new Container[INITIAL_CONTAINER_CAPACITY];
+		}
+	}
+
+
+	/**
+	 * Creates a new tracker containing only the ids set in both this tracker
+	 * and the specified tracker. Neither tracker is modified.
+	 *
+	 * @param other
+	 *            The tracker to intersect with.
+	 * @return The new tracker.
+	 */
+	public RoaringIdTracker intersection(RoaringIdTracker other) {
+		RoaringIdTracker result = new RoaringIdTracker();
+		int i = 0;
+		int j = 0;
+
+		while (i < containerCount && j < other.containerCount) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (other.keys[j] < keys[i]) {
+				j++;
+			} else {
+				Container container = containers[i].and(other.containers[j]);
+
+				if (container != null) {
+					result.insertContainer(result.containerCount, keys[i], container);
+				}
+				i++;
+				j++;
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PrimitiveIterator.OfLong iterator() {
+		return new IdIterator();
+	}
+
+
+	/**
+	 * Iterates over all ids in ascending order without boxing.
+	 */
+	private class IdIterator implements PrimitiveIterator.OfLong {
+		private int containerIndex;
+		private int nextOffset;
+		private int pendingOffset = -1;
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			while (pendingOffset < 0) {
+				if (containerIndex >= containerCount) {
+					return false;
+				}
+
+				pendingOffset = containers[containerIndex].nextValue(nextOffset);
+				if (pendingOffset < 0) {
+					containerIndex++;
+					nextOffset = 0;
+				}
+			}
+
+			return true;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long nextLong() {
+			long id;
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			id = (keys[containerIndex] << CONTAINER_BITS) | pendingOffset;
+			nextOffset = pendingOffset + 1;
+			pendingOffset = -1;
+
+			return id;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
+	/**
+	 * Holds the ids within a single range of 65536 ids as 16-bit offsets.
+	 */
+	private abstract static class Container {
+		/**
+		 * Adds an offset to the container.
+		 *
+		 * @return The container now holding the data, which may be a new
+		 *         container if the representation changed.
+		 */
+		abstract Container add(int offset);
+
+
+		abstract boolean contains(int offset);
+
+
+		/**
+		 * Finds the smallest offset in the container greater than or equal to
+		 * the specified offset.
+		 *
+		 * @return The offset, or -1 if none exists.
+		 */
+		abstract int nextValue(int fromOffset);
+
+
+		abstract Container copy();
+
+
+		/**
+		 * Creates the union of this container and another. This container
+		 * may be modified and returned.
+		 */
+		abstract Container or(Container other);
+
+
+		/**
+		 * Creates the intersection of this container and another without
+		 * modifying either.
+		 *
+		 * @return The new container, or null if the intersection is empty.
+		 */
+		abstract Container and(Container other);
+	}
+
+
+	/**
+	 * Stores offsets as a sorted array. The char type is used because it is
+	 * an unsigned 16-bit value.
+	 */
+	private static final class ArrayContainer extends Container {
+		private char[] values;
+		private int size;
+
+
+		ArrayContainer() {
+			values = new char[4];
+		}
+
+
+		ArrayContainer(char[] values, int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+
+		@Override
+		Container add(int offset) {
+			int index;
+
+			// Appending is by far the most common case.
+			if (size == 0 || values[size - 1] < offset) {
+				index = size;
+			} else {
+				index = Arrays.binarySearch(values, 0, size, (char) offset);
+				if (index >= 0) {
+					return this;
+				}
+				index = -index - 1;
+			}
+
+			if (size >= ARRAY_CONTAINER_MAX_SIZE) {
+				return toBitmap().add(offset);
+			}
+
+			if (size == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_CONTAINER_MAX_SIZE, Math.max(4, size * 2)));
+			}
+			System.arraycopy(values, index, values, index + 1, size - index);
+			values[index] = (char) offset;
+			size++;
+
+			return this;
+		}
+
+
+		@Override
+		boolean contains(int offset) {
+			return Arrays.binarySearch(values, 0, size, (char) offset) >= 0;
+		}
+
+
+		@Override
+		int nextValue(int fromOffset) {
+			int index;
+
+			if (fromOffset > CONTAINER_MASK) {
+				return -1;
+			}
+
+			index = Arrays.binarySearch(values, 0, size, (char) fromOffset);
+			if (index < 0) {
+				index = -index - 1;
+			}
+
+			return index < size ? values[index] : -1;
+		}
+
+
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, Math.max(1, size)), size);
+		}
+
+
+		private BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer();
+
+			for (int i = 0; i < size; i++) {
+				bitmap.add(values[i]);
+			}
+
+			return bitmap;
+		}
+
+
+		@Override
+		Container or(Container other) {
+			if (other instanceof ArrayContainer) {
+				ArrayContainer otherArray = (ArrayContainer) other;
+				char[] merged = new char[size + otherArray.size];
+				int mergedSize = 0;
+				int i = 0;
+				int j = 0;
+
+				while (i < size || j < otherArray.size) {
+					if (j >= otherArray.size || (i < size && values[i] < otherArray.values[j])) {
+						merged[mergedSize++] = values[i++];
+					} else if (i >= size || otherArray.values[j] < values[i]) {
+						merged[mergedSize++] = otherArray.values[j++];
+					} else {
+						merged[mergedSize++] = values[i++];
+						j++;
+					}
+				}
+
+				if (mergedSize > ARRAY_CONTAINER_MAX_SIZE) {
+					return new ArrayContainer(merged, mergedSize).toBitmap();
+				}
+
+				return new ArrayContainer(merged, mergedSize);
+
+			} else {
+				return other.copy().or(this);
+			}
+		}
+
+
+		@Override
+		Container and(Container other) {
+			char[] result = new char[size];
+			int resultSize = 0;
+
+			for (int i = 0; i < size; i++) {
+				if (other.contains(values[i])) {
+					result[resultSize++] = values[i];
+				}
+			}
+
+			if (resultSize == 0) {
+				return null;
+			}
+
+			return new ArrayContainer(result, resultSize);
+		}
+	}
+
+
+	/**
+	 * Stores offsets as a bitmap of all 65536 possible values.
+	 */
+	private static final class BitmapContainer extends Container {
+		private static final int WORD_COUNT = (CONTAINER_MASK + 1) / Long.SIZE;
+
+		private long[] words;
+		private int cardinality;
+
+
+		BitmapContainer() {
+			words = new long[WORD_COUNT];
+		}
+
+
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+
+		@Override
+		Container add(int offset) {
+			int wordIndex = offset >>> 6;
+			long bit = 1L << offset;
+
+			if ((words[wordIndex] & bit) == 0) {
+				words[wordIndex] |= bit;
+				cardinality++;
+			}
+
+			return this;
+		}
+
+
+		@Override
+		boolean contains(int offset) {
+			return (words[offset >>> 6] & (1L << offset)) != 0;
+		}
+
+
+		@Override
+		int nextValue(int fromOffset) {
+			int wordIndex;
+			long word;
+
+			if (fromOffset > CONTAINER_MASK) {
+				return -1;
+			}
+
+			wordIndex = fromOffset >>> 6;
+			// Shifts only use the lowest 6 bits so this masks out lower bits
+			// within the word.
+			word = words[wordIndex] & (-1L << fromOffset);
+
+			while (word == 0) {
+				wordIndex++;
+				if (wordIndex >= WORD_COUNT) {
+					return -1;
+				}
+				word = words[wordIndex];
+			}
+
+			return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+		}
+
+
+		@Override
+		Container copy() {
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+
+
+		@Override
+		Container or(Container other) {
+			if (other instanceof BitmapContainer) {
+				long[] otherWords = ((BitmapContainer) other).words;
+
+				cardinality = 0;
+				for (int i = 0; i < WORD_COUNT; i++) {
+					words[i] |= otherWords[i];
+					cardinality += Long.bitCount(words[i]);
+				}
+
+			} else {
+				for (int offset = other.nextValue(0); offset >= 0; offset = other.nextValue(offset + 1)) {
+					add(offset);
+				}
+			}
+
+			return this;
+		}
+
+
+		@Override
+		Container and(Container other) {
+			if (other instanceof BitmapContainer) {
+				long[] otherWords = ((BitmapContainer) other).words;
+				long[] result = new long[WORD_COUNT];
+				int resultCardinality = 0;
+				BitmapContainer bitmap;
+
+				for (int i = 0; i < WORD_COUNT; i++) {
+					result[i] = words[i] & otherWords[i];
+					resultCardinality += Long.bitCount(result[i]);
+				}
+
+				if (resultCardinality == 0) {
+					return null;
+				}
+
+				bitmap = new BitmapContainer(result, resultCardinality);
+				if (resultCardinality <= ARRAY_CONTAINER_MAX_SIZE) {
+					return bitmap.toArray();
+				}
+
+				return bitmap;
+
+			} else {
+				return other.and(this);
+			}
+		}
+
+
+		private ArrayContainer toArray() {
+			char[] values = new char[cardinality];
+			int size = 0;
+
+			for (int offset = nextValue(0); offset >= 0; offset = nextValue(offset + 1)) {
+				values[size++] = (char) offset;
+			}
+
+			return new ArrayContainer(values, size);
+		}
+	}
+}
@@ -0,0 +1,370 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.parallel.v0_6;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
+
+
+/**
+ * Runs a task that processes each entity independently on a pool of worker
+ * threads. Each worker owns a separate instance of the task. Incoming entities
+ * are grouped into batches which are processed by the next available worker,
+ * and the results are passed to the downstream sink on the calling thread in
+ * the original order. The output is therefore identical to running a single
+ * instance of the task, including any ordering guarantees of the stream.
+ * <p>
+ * Only tasks that keep no state between entities can be run in this way, and
+ * the task must not emit entities from any method other than process and
+ * complete.
+ */
+public class ParallelSinkSource implements SinkSource {
+
+	/**
+	 * The default number of entities passed to a worker at a time.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+
+	private List<Worker> workers;
+	private BlockingQueue<Worker> idleWorkers;
+	private ExecutorService executorService;
+	private int batchSize;
+	private int maxPendingBatches;
+	private Sink sink;
+	private Lock lock;
+	private Condition batchCompleteCondition;
+	private Queue<Batch> pendingBatches;
+	private Batch currentBatch;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param workerCount
+	 *            The number of worker threads.
+	 * @param batchSize
+	 *            The number of entities passed to a worker at a time.
+	 * @param taskSupplier
+	 *            Creates the task instance for each worker.
+	 */
+	public ParallelSinkSource(int workerCount, int batchSize, Supplier<? extends SinkSource> taskSupplier) {
+		if (workerCount < 1) {
+			throw new OsmosisRuntimeException("The number of workers must be at least 1.");
+		}
+		if (batchSize < 1) {
+			throw new OsmosisRuntimeException("The batch size must be at least 1.");
+		}
+
+		this.batchSize = batchSize;
+
+		workers = new ArrayList<Worker>(workerCount);
+		idleWorkers = new LinkedBlockingQueue<Worker>();
+		for (int i = 0; i < workerCount; i++) {
+			Worker worker = new Worker(taskSupplier.get());
+			workers.add(worker);
+			idleWorkers.add(worker);
+		}
+
+		// Allow a batch to be queued for each worker while the others are
+		// being processed so that workers don't wait on the calling thread.
+		maxPendingBatches = workerCount * 2;
+
+		executorService = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "parallel-sink-source");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		lock = new ReentrantLock();
+		batchCompleteCondition = lock.newCondition();
+		pendingBatches = new LinkedList<Batch>();
+		currentBatch = new Batch(batchSize);
+	}
+
+
+	/**
+	 * Wraps a task so that it runs on the specified number of worker threads.
+	 * If only a single worker is requested the task is run directly on the
+	 * calling thread.
+	 *
+	 * @param workerCount
+	 *            The number of worker threads.
+	 * @param taskSupplier
+	 *            Creates the task instance for each worker.
+	 * @return The task to be connected to the pipeline.
+	 */
+	public static SinkSource create(int workerCount, Supplier<? extends SinkSource> taskSupplier) {
+		if (workerCount <= 1) {
+			return taskSupplier.get();
+		}
+
+		return new ParallelSinkSource(workerCount, DEFAULT_BATCH_SIZE, taskSupplier);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSink(Sink sink) {
+		this.sink = sink;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		for (Worker worker : workers) {
+			worker.task.initialize(metaData);
+		}
+
+		sink.initialize(metaData);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(EntityContainer entityContainer) {
+		currentBatch.input.add(entityContainer);
+
+		if (currentBatch.input.size() >= batchSize) {
+			submitCurrentBatch();
+			sendResultsToSink(maxPendingBatches - 1, false);
+		}
+	}
+
+
+	private void submitCurrentBatch() {
+		final Batch batch = currentBatch;
+
+		currentBatch = new Batch(batchSize);
+
+		lock.lock();
+		try {
+			pendingBatches.add(batch);
+		} finally {
+			lock.unlock();
+		}
+
+		executorService.execute(new Runnable() {
+			@Override
+			public void run() {
+				processBatch(batch);
+			}
+		});
+	}
+
+
+	private void processBatch(Batch batch) {
+		Worker worker = null;
+		RuntimeException failure = null;
+
+		try {
+			worker = idleWorkers.take();
+			worker.output = batch.output;
+			for (EntityContainer entityContainer : batch.input) {
+				worker.task.process(entityContainer);
+			}
+
+		} catch (InterruptedException e) {
+			failure = new OsmosisRuntimeException("Thread was interrupted.", e);
+		} catch (RuntimeException e) {
+			failure = e;
+		} catch (Error e) {
+			failure = new OsmosisRuntimeException("A worker thread failed.", e);
+		} finally {
+			if (worker != null) {
+				worker.output = null;
+				idleWorkers.add(worker);
+			}
+		}
+
+		lock.lock();
+		try {
+			batch.failure = failure;
+			batch.complete = true;
+			batchCompleteCondition.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * Sends the results of completed batches to the sink in the order they
+	 * were received.
+	 *
+	 * @param targetQueueSize
+	 *            The number of batches that may remain pending. This method
+	 *            waits for the oldest batches to complete until the number of
+	 *            pending batches is reduced to this size.
+	 * @param includeComplete
+	 *            If true, batches that have already completed are also sent
+	 *            even if the target queue size has been reached.
+	 */
+	private void sendResultsToSink(int targetQueueSize, boolean includeComplete) {
+		while (true) {
+			Batch batch;
+
+			lock.lock();
+			try {
+				batch = pendingBatches.peek();
+				if (batch == null) {
+					return;
+				}
+				if (pendingBatches.size() <= targetQueueSize && !(includeComplete && batch.complete)) {
+					return;
+				}
+
+				while (!batch.complete) {
+					try {
+						batchCompleteCondition.await();
+					} catch (InterruptedException e) {
+						throw new OsmosisRuntimeException("Thread was interrupted.", e);
+					}
+				}
+
+				pendingBatches.remove();
+			} finally {
+				lock.unlock();
+			}
+
+			if (batch.failure != null) {
+				throw new OsmosisRuntimeException("A worker thread failed, aborting.", batch.failure);
+			}
+
+			for (EntityContainer entityContainer : batch.output) {
+				sink.process(entityContainer);
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		if (!currentBatch.input.isEmpty()) {
+			submitCurrentBatch();
+		}
+		sendResultsToSink(0, true);
+
+		// Complete each task on this thread, passing on anything emitted
+		// during completion.
+		for (Worker worker : workers) {
+			List<EntityContainer> output = new ArrayList<EntityContainer>();
+
+			worker.output = output;
+			worker.task.complete();
+			worker.output = null;
+
+			for (EntityContainer entityContainer : output) {
+				sink.process(entityContainer);
+			}
+		}
+
+		sink.complete();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		executorService.shutdownNow();
+
+		for (Worker worker : workers) {
+			worker.task.close();
+		}
+
+		sink.close();
+	}
+
+
+	/**
+	 * A group of entities processed by a single worker, along with the
+	 * results.
+	 */
+	private static class Batch {
+		private List<EntityContainer> input;
+		private List<EntityContainer> output;
+		private boolean complete;
+		private RuntimeException failure;
+
+
+		Batch(int batchSize) {
+			input = new ArrayList<EntityContainer>(batchSize);
+			output = new ArrayList<EntityContainer>(batchSize);
+		}
+	}
+
+
+	/**
+	 * A task instance along with the sink collecting its output. A worker is
+	 * only used by one thread at a time.
+	 */
+	private static class Worker implements Sink {
+		private SinkSource task;
+		private List<EntityContainer> output;
+
+
+		Worker(SinkSource task) {
+			this.task = task;
+			task.setSink(this);
+		}
+
+
+		@Override
+		public void initialize(Map<String, Object> metaData) {
+			// The downstream sink is initialized once by the parallel task.
+		}
+
+
+		@Override
+		public void process(EntityContainer entityContainer) {
+			if (output == null) {
+				throw new OsmosisRuntimeException("The task emitted an entity outside of processing.");
+			}
+
+			output.add(entityContainer);
+		}
+
+
+		@Override
+		public void complete() {
+			// The downstream sink is completed once by the parallel task.
+		}
+
+
+		@Override
+		public void close() {
+			// The downstream sink is closed once by the parallel task.
+		}
+	}
+}
@@ -0,0 +1,78 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.common;
+
+import java.util.Arrays;
+
+
+/**
+ * Measures the time spent in nested calls between tasks on a single thread.
+ * Tasks which don't run in their own thread are invoked by their source, so
+ * the time spent in a call to a task includes the time spent in the calls it
+ * makes to its own sinks. This timer keeps track of the time spent in nested
+ * calls so that it can be subtracted to determine the time spent within each
+ * task. There is one instance per thread.
+ */
+public final class CallTimer {
+	private static final ThreadLocal<CallTimer> TIMERS = new ThreadLocal<CallTimer>() {
+		@Override
+		protected CallTimer initialValue() {
+			return new CallTimer();
+		}
+	};
+
+	private long[] startTimes;
+	private long[] outerNestedTimes;
+	private int depth;
+	private long nestedTime;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	private CallTimer() {
+		startTimes = new long[8];
+		outerNestedTimes = new long[8];
+	}
+
+
+	/**
+	 * Returns the timer of the current thread.
+	 *
+	 * @return The timer.
+	 */
+	static CallTimer get() {
+		return TIMERS.get();
+	}
+
+
+	/**
+	 * Marks the start of a call.
+	 */
+	void start() {
+		if (depth >= startTimes.length) {
+			startTimes = Arrays.copyOf(startTimes, depth * 2);
+			outerNestedTimes = Arrays.copyOf(outerNestedTimes, depth * 2);
+		}
+
+		outerNestedTimes[depth] = nestedTime;
+		nestedTime = 0;
+		startTimes[depth++] = System.nanoTime();
+	}
+
+
+	/**
+	 * Marks the end of the most recently started call and records its
+	 * duration.
+	 *
+	 * @param metrics
+	 *            The metrics of the called task.
+	 */
+	void stop(TaskMetrics metrics) {
+		long elapsed = System.nanoTime() - startTimes[--depth];
+
+		metrics.addCallTime(elapsed, elapsed - nestedTime);
+
+		// The whole call is nested time from the point of view of the caller.
+		nestedTime = outerNestedTimes[depth] + elapsed;
+	}
+}
@@ -24,12 +24,27 @@ public class PipeTasks {
 	
 	private Map<String, Task> namedTasks;
 	private Deque<Task> defaultTasks;
+	private PipelineMetrics metrics;
 	
 	
 	/**
 	 * Creates a new instance.
 	 */
 	public PipeTasks() {
+		this(null);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param metrics
+	 *            The metrics to record task throughput in, or null if metrics
+	 *            are disabled.
+	 */
+	public PipeTasks(PipelineMetrics metrics) {
+		this.metrics = metrics;
+		
 		namedTasks = new HashMap<String, Task>();
 		defaultTasks = new ArrayDeque<Task>();
 	}
@@ -197,4 +212,14 @@ public class PipeTasks {
 	public Set<String> getPipeNames() {
 		return namedTasks.keySet();
 	}
+	
+	
+	/**
+	 * Returns the metrics that task connections are recorded in.
+	 * 
+	 * @return The pipeline metrics, or null if metrics are disabled.
+	 */
+	public PipelineMetrics getMetrics() {
+		return metrics;
+	}
 }
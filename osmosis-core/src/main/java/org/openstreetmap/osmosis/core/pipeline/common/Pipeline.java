@@ -21,6 +21,7 @@ public class Pipeline {
 	
 	private TaskManagerFactoryRegister factoryRegister;
 	private List<TaskManager> taskManagers;
+	private PipelineMetrics metrics;
 	
 	
 	/**
@@ -36,6 +37,18 @@ public class Pipeline {
 	}
 	
 	
+	/**
+	 * Enables the recording of metrics for all task connections. This must be
+	 * called before the pipeline is prepared.
+	 * 
+	 * @param metrics
+	 *            The metrics to record task throughput in.
+	 */
+	public void setMetrics(PipelineMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	
 	/**
 	 * Creates a new node in the pipeline. The node will be created with the
 	 * correct task with all task parameters set. The tasks will not be
@@ -66,7 +79,7 @@ public class Pipeline {
 		
 		// Create a container to map between the pipe name and the task that has
 		// last written to it.
-		pipeTasks = new PipeTasks();
+		pipeTasks = new PipeTasks(metrics);
 		
 		// Request each node to perform connection, each node will update the
 		// pipe tasks as it provides and consumes pipes.
@@ -121,6 +134,10 @@ public class Pipeline {
 	 * Launches the execution of the tasks within the pipeline.
 	 */
 	public void execute() {
+		if (metrics != null) {
+			metrics.start();
+		}
+		
 		// Initiate execution of all nodes.
 		for (TaskManager taskManager : taskManagers) {
 			taskManager.execute();
@@ -136,9 +153,16 @@ public class Pipeline {
 		
 		// Wait for completion of all nodes.
 		successful = true;
-		for (TaskManager taskManager : taskManagers) {
-			if (!taskManager.waitForCompletion()) {
-				successful = false;
+		try {
+			for (TaskManager taskManager : taskManagers) {
+				if (!taskManager.waitForCompletion()) {
+					successful = false;
+				}
+			}
+			
+		} finally {
+			if (metrics != null) {
+				metrics.complete();
 			}
 		}
 		
@@ -0,0 +1,328 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.store.PostboxOwner;
+import org.openstreetmap.osmosis.core.store.PostboxStatistics;
+import org.openstreetmap.osmosis.core.task.common.Task;
+
+
+/**
+ * Collects the metrics of all task inputs within a pipeline. The metrics are
+ * published via JMX while the pipeline is running, may optionally be written
+ * to a file at regular intervals as one JSON object per line, and are
+ * summarised in the log once the pipeline completes.
+ */
+public class PipelineMetrics {
+	private static final Logger LOG = Logger.getLogger(PipelineMetrics.class.getName());
+	private static final String OBJECT_NAME_PREFIX = "org.openstreetmap.osmosis:type=Task,name=";
+
+	private File dumpFile;
+	private int dumpInterval;
+	private List<TaskMetrics> taskMetrics;
+	private List<ObjectName> registeredNames;
+	private Thread dumpThread;
+	private long startTime;
+	private long completeTime;
+
+
+	/**
+	 * Creates a new instance which doesn't write metrics to a file.
+	 */
+	public PipelineMetrics() {
+		this(null, 0);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param dumpFile
+	 *            The file to write metrics to at regular intervals, or null to
+	 *            disable writing to a file.
+	 * @param dumpInterval
+	 *            The interval in seconds between writes of the metrics to the
+	 *            file.
+	 */
+	public PipelineMetrics(File dumpFile, int dumpInterval) {
+		if (dumpFile != null && dumpInterval < 1) {
+			throw new OsmosisRuntimeException(
+					"The metrics dump interval must be at least 1 second, " + dumpInterval + " is invalid.");
+		}
+
+		this.dumpFile = dumpFile;
+		this.dumpInterval = dumpInterval;
+
+		taskMetrics = new CopyOnWriteArrayList<TaskMetrics>();
+		registeredNames = new ArrayList<ObjectName>();
+	}
+
+
+	/**
+	 * Creates the metrics for an input of a task.
+	 *
+	 * @param name
+	 *            The name of the task input.
+	 * @param task
+	 *            The task receiving the input. If it implements
+	 *            {@link PostboxOwner} its postbox statistics are included.
+	 * @return The new metrics.
+	 */
+	public TaskMetrics createTaskMetrics(String name, Task task) {
+		PostboxStatistics postboxStatistics;
+		TaskMetrics metrics;
+
+		if (task instanceof PostboxOwner) {
+			postboxStatistics = ((PostboxOwner) task).getPostboxStatistics();
+		} else {
+			postboxStatistics = null;
+		}
+
+		metrics = new TaskMetrics(name, postboxStatistics);
+		taskMetrics.add(metrics);
+
+		return metrics;
+	}
+
+
+	/**
+	 * Returns the metrics of all task inputs in the order they were created.
+	 *
+	 * @return The task metrics.
+	 */
+	public List<TaskMetrics> getTaskMetrics() {
+		return taskMetrics;
+	}
+
+
+	/**
+	 * Publishes the metrics and starts writing them to the dump file if one has
+	 * been specified. This is called when the pipeline begins execution.
+	 */
+	public void start() {
+		startTime = System.nanoTime();
+
+		registerMBeans();
+
+		if (dumpFile != null) {
+			// Begin with an empty file.
+			writeDump(false);
+
+			dumpThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while (true) {
+							Thread.sleep(TimeUnit.SECONDS.toMillis(dumpInterval));
+							writeDump(true);
+						}
+					} catch (InterruptedException e) {
+						// The pipeline has completed.
+					}
+				}
+			}, "PipelineMetrics");
+			dumpThread.setDaemon(true);
+			dumpThread.start();
+		}
+	}
+
+
+	/**
+	 * Stops publishing the metrics, writes the final metrics to the dump file
+	 * and logs a summary. This is called when the pipeline has completed,
+	 * successfully or otherwise.
+	 */
+	public void complete() {
+		completeTime = System.nanoTime();
+
+		if (dumpThread != null) {
+			dumpThread.interrupt();
+			try {
+				dumpThread.join();
+			} catch (InterruptedException e) {
+				throw new OsmosisRuntimeException("Thread was interrupted.", e);
+			}
+			dumpThread = null;
+
+			writeDump(true);
+		}
+
+		unregisterMBeans();
+
+		if (LOG.isLoggable(Level.INFO)) {
+			LOG.info(buildSummary());
+		}
+	}
+
+
+	private long getElapsedNanos() {
+		long end = completeTime;
+
+		if (end == 0) {
+			end = System.nanoTime();
+		}
+
+		return end - startTime;
+	}
+
+
+	private void registerMBeans() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		for (TaskMetrics metrics : taskMetrics) {
+			try {
+				ObjectName objectName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(metrics.getName()));
+
+				server.registerMBean(metrics, objectName);
+				registeredNames.add(objectName);
+
+			} catch (JMException e) {
+				LOG.log(Level.WARNING, "Unable to publish the metrics of task " + metrics.getName() + ".", e);
+			}
+		}
+	}
+
+
+	private void unregisterMBeans() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		for (ObjectName objectName : registeredNames) {
+			try {
+				server.unregisterMBean(objectName);
+			} catch (JMException e) {
+				LOG.log(Level.WARNING, "Unable to remove the metrics " + objectName + ".", e);
+			}
+		}
+		registeredNames.clear();
+	}
+
+
+	private void writeDump(boolean append) {
+		try (Writer writer = new OutputStreamWriter(
+				new FileOutputStream(dumpFile, append), StandardCharsets.UTF_8)) {
+			if (append) {
+				writer.write(toJson());
+				writer.write('\n');
+			}
+		} catch (IOException e) {
+			// Metrics are informational only so the pipeline is allowed to
+			// continue.
+			LOG.log(Level.WARNING, "Unable to write metrics to file " + dumpFile + ".", e);
+		}
+	}
+
+
+	private static String format(String pattern, Object... args) {
+		return String.format(Locale.ROOT, pattern, args);
+	}
+
+
+	private static void appendJsonString(StringBuilder builder, String value) {
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < 0x20) {
+				builder.append(format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+	}
+
+
+	/**
+	 * Builds a JSON object containing the current metrics of all tasks.
+	 *
+	 * @return The JSON text.
+	 */
+	public String toJson() {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("{\"elapsedMillis\":").append(TimeUnit.NANOSECONDS.toMillis(getElapsedNanos()));
+		builder.append(",\"tasks\":[");
+		for (int i = 0; i < taskMetrics.size(); i++) {
+			TaskMetrics metrics = taskMetrics.get(i);
+
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append("{\"name\":");
+			appendJsonString(builder, metrics.getName());
+			builder.append(",\"entities\":").append(metrics.getEntityCount());
+			builder.append(",\"entitiesPerSecond\":").append(format("%.1f", metrics.getEntitiesPerSecond()));
+			builder.append(",\"busyMillis\":").append(metrics.getBusyMillis());
+			builder.append(",\"idleMillis\":").append(metrics.getIdleMillis());
+			if (metrics.getPostboxStatistics() != null) {
+				builder.append(",\"inputBlockedMillis\":").append(metrics.getInputBlockedMillis());
+				builder.append(",\"outputBlockedMillis\":").append(metrics.getOutputBlockedMillis());
+				builder.append(",\"queueCapacity\":").append(metrics.getQueueCapacity());
+				builder.append(",\"queueSize\":").append(metrics.getQueueSize());
+				builder.append(",\"peakQueueSize\":").append(metrics.getPeakQueueSize());
+				builder.append(",\"averageQueueSize\":").append(format("%.1f", metrics.getAverageQueueSize()));
+			}
+			builder.append('}');
+		}
+		builder.append("]}");
+
+		return builder.toString();
+	}
+
+
+	/**
+	 * Builds a summary of the metrics of all tasks identifying the task which
+	 * spent the most time processing data.
+	 *
+	 * @return The summary text.
+	 */
+	public String buildSummary() {
+		StringBuilder builder = new StringBuilder();
+		double elapsedSeconds = getElapsedNanos() / 1e9;
+		TaskMetrics bottleneck = null;
+
+		builder.append("Pipeline metrics:");
+		for (TaskMetrics metrics : taskMetrics) {
+			builder.append(format("%n  %s: %d entities, %.0f entities/second, busy %.1fs, idle %.1fs",
+					metrics.getName(), metrics.getEntityCount(), metrics.getEntitiesPerSecond(),
+					metrics.getBusyMillis() / 1e3, metrics.getIdleMillis() / 1e3));
+			if (metrics.getPostboxStatistics() != null) {
+				builder.append(format(", blocked on put %.1fs, blocked on get %.1fs, queue average %.0f peak %d of %d",
+						metrics.getInputBlockedMillis() / 1e3, metrics.getOutputBlockedMillis() / 1e3,
+						metrics.getAverageQueueSize(), metrics.getPeakQueueSize(), metrics.getQueueCapacity()));
+			}
+
+			if (bottleneck == null || metrics.getBusyNanos() > bottleneck.getBusyNanos()) {
+				bottleneck = metrics;
+			}
+		}
+
+		if (bottleneck != null && elapsedSeconds > 0) {
+			builder.append(format("%nBottleneck: task %s was busy for %.0f%% of the %.1fs pipeline execution time.",
+					bottleneck.getName(), 100 * bottleneck.getBusyMillis() / 1e3 / elapsedSeconds, elapsedSeconds));
+		}
+
+		return builder.toString();
+	}
+}
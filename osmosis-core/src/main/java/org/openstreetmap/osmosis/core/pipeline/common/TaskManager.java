@@ -192,6 +192,48 @@ public abstract class TaskManager {
 	}
 	
 	
+	/**
+	 * Creates the metrics for the single input of a task. The caller is
+	 * expected to wrap the sink connected to the input so that it updates the
+	 * metrics.
+	 * 
+	 * @param pipeTasks
+	 *            The currently registered pipe tasks.
+	 * @param task
+	 *            The task receiving the input.
+	 * @return The metrics, or null if metrics are disabled.
+	 */
+	protected TaskMetrics createInputMetrics(PipeTasks pipeTasks, Task task) {
+		if (pipeTasks.getMetrics() == null) {
+			return null;
+		}
+		
+		return pipeTasks.getMetrics().createTaskMetrics(taskId, task);
+	}
+	
+	
+	/**
+	 * Creates the metrics for one of several inputs of a task. The caller is
+	 * expected to wrap the sink connected to the input so that it updates the
+	 * metrics.
+	 * 
+	 * @param pipeTasks
+	 *            The currently registered pipe tasks.
+	 * @param task
+	 *            The task receiving the input.
+	 * @param pipeIndex
+	 *            The input pipe index for the current task.
+	 * @return The metrics, or null if metrics are disabled.
+	 */
+	protected TaskMetrics createInputMetrics(PipeTasks pipeTasks, Task task, int pipeIndex) {
+		if (pipeTasks.getMetrics() == null) {
+			return null;
+		}
+		
+		return pipeTasks.getMetrics().createTaskMetrics(taskId + "." + pipeIndex, task);
+	}
+	
+	
 	/**
 	 * @return The taskId.
 	 */
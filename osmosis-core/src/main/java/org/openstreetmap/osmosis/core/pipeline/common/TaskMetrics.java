@@ -0,0 +1,282 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.common;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.osmosis.core.store.PostboxStatistics;
+
+
+/**
+ * Records the throughput of a single task input. All updates are made by the
+ * thread sending data to the task, the values may be read by any thread.
+ */
+public class TaskMetrics implements TaskMetricsMBean {
+	private String name;
+	private PostboxStatistics postboxStatistics;
+	private volatile long entityCount;
+	private volatile long callNanos;
+	private volatile long busyNanos;
+	private volatile long initializeTime;
+	private volatile long completeTime;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param name
+	 *            The name of the task input.
+	 * @param postboxStatistics
+	 *            The statistics of the postbox receiving the input, or null if
+	 *            the task has no postbox.
+	 */
+	public TaskMetrics(String name, PostboxStatistics postboxStatistics) {
+		this.name = name;
+		this.postboxStatistics = postboxStatistics;
+	}
+
+
+	/**
+	 * Marks the start of a call to the task. Each call must be followed by a
+	 * call to {@link #endCall(CallTimer)} on the same thread.
+	 *
+	 * @return The timer which must be passed to endCall.
+	 */
+	public CallTimer startCall() {
+		CallTimer timer = CallTimer.get();
+
+		timer.start();
+
+		return timer;
+	}
+
+
+	/**
+	 * Marks the end of a call to the task.
+	 *
+	 * @param timer
+	 *            The timer returned by startCall.
+	 */
+	public void endCall(CallTimer timer) {
+		timer.stop(this);
+	}
+
+
+	/**
+	 * Adds the duration of a completed call.
+	 *
+	 * @param elapsedNanos
+	 *            The total duration of the call.
+	 * @param ownNanos
+	 *            The duration excluding nested calls to other tasks.
+	 */
+	void addCallTime(long elapsedNanos, long ownNanos) {
+		callNanos += elapsedNanos;
+		busyNanos += ownNanos;
+	}
+
+
+	/**
+	 * Marks the point where the task has been initialized.
+	 */
+	public void initialized() {
+		if (initializeTime == 0) {
+			initializeTime = System.nanoTime();
+		}
+	}
+
+
+	/**
+	 * Marks the point where the task has completed.
+	 */
+	public void completed() {
+		completeTime = System.nanoTime();
+	}
+
+
+	/**
+	 * Adds to the number of entities received by the task.
+	 *
+	 * @param count
+	 *            The number of entities received.
+	 */
+	public void addEntities(int count) {
+		entityCount += count;
+	}
+
+
+	/**
+	 * Returns the time between initialization and completion of the task, or
+	 * until now if the task hasn't completed.
+	 *
+	 * @return The active time in nanoseconds.
+	 */
+	public long getActiveNanos() {
+		long start = initializeTime;
+		long end = completeTime;
+
+		if (start == 0) {
+			return 0;
+		}
+		if (end == 0) {
+			end = System.nanoTime();
+		}
+
+		return end - start;
+	}
+
+
+	/**
+	 * Returns the time spent by the task processing its input.
+	 *
+	 * @return The busy time in nanoseconds.
+	 * @see #getBusyMillis()
+	 */
+	public long getBusyNanos() {
+		long result = busyNanos;
+
+		if (postboxStatistics != null) {
+			result -= postboxStatistics.getInputBlockedNanos();
+		}
+
+		return Math.max(result, 0);
+	}
+
+
+	/**
+	 * Returns the statistics of the postbox receiving the input.
+	 *
+	 * @return The postbox statistics, or null if the task has no postbox.
+	 */
+	public PostboxStatistics getPostboxStatistics() {
+		return postboxStatistics;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		return name;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEntityCount() {
+		return entityCount;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getEntitiesPerSecond() {
+		long activeNanos = getActiveNanos();
+
+		if (activeNanos <= 0) {
+			return 0;
+		}
+
+		return entityCount * (double) TimeUnit.SECONDS.toNanos(1) / activeNanos;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getBusyMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(getBusyNanos());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getIdleMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(Math.max(getActiveNanos() - callNanos, 0));
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getInputBlockedMillis() {
+		if (postboxStatistics == null) {
+			return 0;
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(postboxStatistics.getInputBlockedNanos());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getOutputBlockedMillis() {
+		if (postboxStatistics == null) {
+			return 0;
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(postboxStatistics.getOutputBlockedNanos());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getQueueCapacity() {
+		if (postboxStatistics == null) {
+			return 0;
+		}
+
+		return postboxStatistics.getCapacity();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getQueueSize() {
+		if (postboxStatistics == null) {
+			return 0;
+		}
+
+		return postboxStatistics.getOccupancy();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getPeakQueueSize() {
+		if (postboxStatistics == null) {
+			return 0;
+		}
+
+		return postboxStatistics.getPeakOccupancy();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getAverageQueueSize() {
+		if (postboxStatistics == null) {
+			return 0;
+		}
+
+		return postboxStatistics.getAverageOccupancy();
+	}
+}
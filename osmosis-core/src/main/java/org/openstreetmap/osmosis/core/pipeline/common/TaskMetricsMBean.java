@@ -0,0 +1,109 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.common;
+
+
+/**
+ * The JMX management interface of the metrics of a task input.
+ */
+public interface TaskMetricsMBean {
+
+	/**
+	 * Returns the name of the task input.
+	 *
+	 * @return The name.
+	 */
+	String getName();
+
+
+	/**
+	 * Returns the number of entities or changes received by the task.
+	 *
+	 * @return The entity count.
+	 */
+	long getEntityCount();
+
+
+	/**
+	 * Returns the average number of entities or changes received per second
+	 * since the task was initialized.
+	 *
+	 * @return The entity rate.
+	 */
+	double getEntitiesPerSecond();
+
+
+	/**
+	 * Returns the time spent by the task processing its input. This excludes
+	 * the time spent in downstream tasks invoked on the same thread and the
+	 * time spent blocked because its postbox was full.
+	 *
+	 * @return The busy time in milliseconds.
+	 */
+	long getBusyMillis();
+
+
+	/**
+	 * Returns the time the task has been waiting for input since it was
+	 * initialized, this is the time spent by the source outside calls to the
+	 * task.
+	 *
+	 * @return The idle time in milliseconds.
+	 */
+	long getIdleMillis();
+
+
+	/**
+	 * Returns the time the input thread has been blocked putting data into the
+	 * postbox of the task because the postbox was full. This is zero for tasks
+	 * without a postbox.
+	 *
+	 * @return The blocked time in milliseconds.
+	 */
+	long getInputBlockedMillis();
+
+
+	/**
+	 * Returns the time the task thread has been blocked getting data from its
+	 * postbox because the postbox was empty. This is zero for tasks without a
+	 * postbox.
+	 *
+	 * @return The blocked time in milliseconds.
+	 */
+	long getOutputBlockedMillis();
+
+
+	/**
+	 * Returns the capacity of the postbox of the task, or zero for tasks
+	 * without a postbox.
+	 *
+	 * @return The postbox capacity.
+	 */
+	int getQueueCapacity();
+
+
+	/**
+	 * Returns the most recently recorded number of objects in the postbox of
+	 * the task.
+	 *
+	 * @return The queue size.
+	 */
+	int getQueueSize();
+
+
+	/**
+	 * Returns the highest recorded number of objects in the postbox of the
+	 * task.
+	 *
+	 * @return The peak queue size.
+	 */
+	int getPeakQueueSize();
+
+
+	/**
+	 * Returns the average recorded number of objects in the postbox of the
+	 * task.
+	 *
+	 * @return The average queue size.
+	 */
+	double getAverageQueueSize();
+}
@@ -54,7 +54,7 @@ public class ChangeSinkMultiChangeSourceManager extends PassiveTaskManager {
 		
 		// Cast the input feed to the correct type.
 		// Connect the tasks.
-		source.setChangeSink(task);
+		source.setChangeSink(MeteredChangeSink.wrap(task, createInputMetrics(pipeTasks, task)));
 		
 		// Register all the sources provided by this task as outputs.
 		taskSourceCount = task.getChangeSourceCount();
@@ -51,7 +51,7 @@ public class ChangeSinkRunnableChangeSourceManager extends ActiveTaskManager {
 		source = (ChangeSource) getInputTask(pipeTasks, 0, ChangeSource.class);
 		
 		// Connect the tasks.
-		source.setChangeSink(task);
+		source.setChangeSink(MeteredChangeSink.wrap(task, createInputMetrics(pipeTasks, task)));
 		
 		// Register the task as an output. A source only has one output, this
 		// corresponds to pipe index 0.
@@ -0,0 +1,119 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.v0_6;
+
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
+import org.openstreetmap.osmosis.core.pipeline.common.CallTimer;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskMetrics;
+import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
+
+
+/**
+ * Passes all changes through to a change sink while recording metrics about
+ * the calls made to it.
+ */
+public class MeteredChangeSink implements ChangeSink {
+	private ChangeSink changeSink;
+	private TaskMetrics metrics;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param changeSink
+	 *            The change sink to pass all changes to.
+	 * @param metrics
+	 *            The metrics to update.
+	 */
+	public MeteredChangeSink(ChangeSink changeSink, TaskMetrics metrics) {
+		this.changeSink = changeSink;
+		this.metrics = metrics;
+	}
+
+
+	/**
+	 * Wraps the change sink so that it updates the metrics.
+	 *
+	 * @param changeSink
+	 *            The change sink to be wrapped.
+	 * @param metrics
+	 *            The metrics to update, or null if metrics are disabled.
+	 * @return The wrapped change sink, or the original change sink if metrics
+	 *         are disabled.
+	 */
+	public static ChangeSink wrap(ChangeSink changeSink, TaskMetrics metrics) {
+		if (metrics == null) {
+			return changeSink;
+		}
+
+		return new MeteredChangeSink(changeSink, metrics);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		CallTimer timer;
+
+		metrics.initialized();
+
+		timer = metrics.startCall();
+		try {
+			changeSink.initialize(metaData);
+		} finally {
+			metrics.endCall(timer);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(ChangeContainer change) {
+		CallTimer timer = metrics.startCall();
+
+		try {
+			changeSink.process(change);
+		} finally {
+			metrics.endCall(timer);
+		}
+
+		metrics.addEntities(1);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		CallTimer timer = metrics.startCall();
+
+		try {
+			changeSink.complete();
+		} finally {
+			metrics.endCall(timer);
+		}
+
+		metrics.completed();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		CallTimer timer = metrics.startCall();
+
+		try {
+			changeSink.close();
+		} finally {
+			metrics.endCall(timer);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.v0_6;
+
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
+import org.openstreetmap.osmosis.core.pipeline.common.CallTimer;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskMetrics;
+import org.openstreetmap.osmosis.core.task.v0_6.NodeBatchSink;
+
+
+/**
+ * A metered sink for sinks accepting node batches. The batches are passed
+ * through unchanged and counted as one entity per node.
+ */
+public class MeteredNodeBatchSink extends MeteredSink implements NodeBatchSink {
+	private NodeBatchSink sink;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param sink
+	 *            The sink to pass all data to.
+	 * @param metrics
+	 *            The metrics to update.
+	 */
+	public MeteredNodeBatchSink(NodeBatchSink sink, TaskMetrics metrics) {
+		super(sink, metrics);
+
+		this.sink = sink;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(NodeBatchContainer batch) {
+		TaskMetrics metrics = getMetrics();
+		CallTimer timer = metrics.startCall();
+
+		try {
+			sink.process(batch);
+		} finally {
+			metrics.endCall(timer);
+		}
+
+		metrics.addEntities(batch.size());
+	}
+}
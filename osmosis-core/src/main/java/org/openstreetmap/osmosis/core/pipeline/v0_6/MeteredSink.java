@@ -0,0 +1,162 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.v0_6;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.pipeline.common.CallTimer;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskMetrics;
+import org.openstreetmap.osmosis.core.task.v0_6.MultiPassSink;
+import org.openstreetmap.osmosis.core.task.v0_6.NodeBatchSink;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Passes all data through to a sink while recording metrics about the calls
+ * made to it. The multi pass methods are passed through to sinks supporting
+ * them so that sources behave the same whether or not metrics are enabled.
+ */
+public class MeteredSink implements MultiPassSink {
+	private Sink sink;
+	private TaskMetrics metrics;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param sink
+	 *            The sink to pass all data to.
+	 * @param metrics
+	 *            The metrics to update.
+	 */
+	public MeteredSink(Sink sink, TaskMetrics metrics) {
+		this.sink = sink;
+		this.metrics = metrics;
+	}
+
+
+	/**
+	 * Wraps the sink so that it updates the metrics. Sinks accepting node
+	 * batches are wrapped in a sink which also accepts node batches.
+	 *
+	 * @param sink
+	 *            The sink to be wrapped.
+	 * @param metrics
+	 *            The metrics to update, or null if metrics are disabled.
+	 * @return The wrapped sink, or the original sink if metrics are disabled.
+	 */
+	public static Sink wrap(Sink sink, TaskMetrics metrics) {
+		if (metrics == null) {
+			return sink;
+		}
+
+		if (sink instanceof NodeBatchSink) {
+			return new MeteredNodeBatchSink((NodeBatchSink) sink, metrics);
+		} else {
+			return new MeteredSink(sink, metrics);
+		}
+	}
+
+
+	/**
+	 * Returns the metrics updated by this sink.
+	 *
+	 * @return The metrics.
+	 */
+	protected TaskMetrics getMetrics() {
+		return metrics;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean enableMultiPass() {
+		return sink instanceof MultiPassSink && ((MultiPassSink) sink).enableMultiPass();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<EntityType> completePass() {
+		CallTimer timer = metrics.startCall();
+
+		try {
+			return ((MultiPassSink) sink).completePass();
+		} finally {
+			metrics.endCall(timer);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		CallTimer timer;
+
+		metrics.initialized();
+
+		timer = metrics.startCall();
+		try {
+			sink.initialize(metaData);
+		} finally {
+			metrics.endCall(timer);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(EntityContainer entityContainer) {
+		CallTimer timer = metrics.startCall();
+
+		try {
+			sink.process(entityContainer);
+		} finally {
+			metrics.endCall(timer);
+		}
+
+		metrics.addEntities(1);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		CallTimer timer = metrics.startCall();
+
+		try {
+			sink.complete();
+		} finally {
+			metrics.endCall(timer);
+		}
+
+		metrics.completed();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		CallTimer timer = metrics.startCall();
+
+		try {
+			sink.close();
+		} finally {
+			metrics.endCall(timer);
+		}
+	}
+}
@@ -58,7 +58,7 @@ public class MultiChangeSinkRunnableChangeSourceManager extends ActiveTaskManage
 			source = (ChangeSource) getInputTask(pipeTasks, i, ChangeSource.class);
 			
 			// Connect the tasks.
-			source.setChangeSink(sink);
+			source.setChangeSink(MeteredChangeSink.wrap(sink, createInputMetrics(pipeTasks, task, i)));
 		}
 		
 		// Register the source as an output task.
@@ -51,6 +51,6 @@ public class SinkManager extends PassiveTaskManager {
 		
 		// Cast the input feed to the correct type.
 		// Connect the tasks.
-		source.setSink(task);
+		source.setSink(MeteredSink.wrap(task, createInputMetrics(pipeTasks, task)));
 	}
 }
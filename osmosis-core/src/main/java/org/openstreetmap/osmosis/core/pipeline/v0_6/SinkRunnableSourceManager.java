@@ -51,7 +51,7 @@ public class SinkRunnableSourceManager extends ActiveTaskManager {
 		source = (Source) getInputTask(pipeTasks, 0, Source.class);
 		
 		// Connect the tasks.
-		source.setSink(task);
+		source.setSink(MeteredSink.wrap(task, createInputMetrics(pipeTasks, task)));
 		
 		// Register the task as an output. A source only has one output, this
 		// corresponds to pipe index 0.
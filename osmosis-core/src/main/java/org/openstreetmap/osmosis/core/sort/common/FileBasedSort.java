@@ -6,7 +6,6 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
-import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 import org.openstreetmap.osmosis.core.store.ChunkedObjectStore;
 import org.openstreetmap.osmosis.core.store.ObjectSerializationFactory;
@@ -22,7 +21,7 @@ import org.openstreetmap.osmosis.core.store.Storeable;
  *            The object type to be sorted.
  * @author Brett Henderson
  */
-public class FileBasedSort<T extends Storeable> implements Closeable {
+public class FileBasedSort<T extends Storeable> implements ExternalSort<T> {
 	/**
 	 * The maximum number of entities to perform memory-based sorting on,
 	 * amounts larger than this will be split into chunks of this size, the
@@ -103,11 +102,9 @@ public class FileBasedSort<T extends Storeable> implements Closeable {
 	
 	
 	/**
-	 * Adds a new object to be sorted.
-	 * 
-	 * @param value
-	 *            The data object.
+	 * {@inheritDoc}
 	 */
+	@Override
 	public void add(T value) {
 		// Add the new data entity to the add buffer.
 		addBuffer.add(value);
@@ -271,10 +268,9 @@ public class FileBasedSort<T extends Storeable> implements Closeable {
 	
 	
 	/**
-	 * Sorts and returns the contents of the sorter.
-	 * 
-	 * @return An iterator providing access to the sorted entities.
+	 * {@inheritDoc}
 	 */
+	@Override
 	public ReleasableIterator<T> iterate() {
 		flushAddBuffer();
 		
@@ -0,0 +1,145 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+
+
+/**
+ * This iterator examines a list of sorted input sources and merges them into a
+ * single sorted list. It produces the same results as {@link MergingIterator}
+ * but selects the next element using a heap, making it suitable for merging a
+ * large number of sources at once. Where elements compare equal, the element
+ * from the source appearing first in the source list is returned first.
+ *
+ * @param <DataType>
+ *            The object type to be sorted.
+ */
+public class HeapMergingIterator<DataType> implements ReleasableIterator<DataType> {
+	private List<ReleasableIterator<DataType>> sources;
+	private Comparator<DataType> comparator;
+	private PriorityQueue<SourceHead> heap;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param sources
+	 *            The list of data sources.
+	 * @param comparator
+	 *            The comparator to be used for sorting.
+	 */
+	public HeapMergingIterator(List<ReleasableIterator<DataType>> sources, Comparator<DataType> comparator) {
+		this.sources = new ArrayList<ReleasableIterator<DataType>>(sources);
+		this.comparator = comparator;
+	}
+
+
+	/**
+	 * Primes the heap with the first element from each source.
+	 */
+	private void initialize() {
+		if (heap == null) {
+			heap = new PriorityQueue<SourceHead>(Math.max(1, sources.size()));
+
+			for (int i = 0; i < sources.size(); i++) {
+				ReleasableIterator<DataType> source = sources.get(i);
+
+				if (source.hasNext()) {
+					heap.add(new SourceHead(i, source.next()));
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasNext() {
+		initialize();
+
+		return !heap.isEmpty();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DataType next() {
+		SourceHead head;
+		DataType result;
+		ReleasableIterator<DataType> source;
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		head = heap.poll();
+		result = head.data;
+
+		// Replace the returned element with the next one from the same source
+		// and re-insert it into the heap, re-using the holder object.
+		source = sources.get(head.sourceIndex);
+		if (source.hasNext()) {
+			head.data = source.next();
+			heap.add(head);
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Not supported. An UnsupportedOperationException is always thrown.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		for (ReleasableIterator<DataType> source : sources) {
+			source.close();
+		}
+	}
+
+
+	/**
+	 * Holds the current element of a single source within the heap.
+	 */
+	private class SourceHead implements Comparable<SourceHead> {
+		private int sourceIndex;
+		private DataType data;
+
+
+		SourceHead(int sourceIndex, DataType data) {
+			this.sourceIndex = sourceIndex;
+			this.data = data;
+		}
+
+
+		@Override
+		public int compareTo(SourceHead o) {
+			int result = comparator.compare(data, o.data);
+
+			if (result == 0) {
+				result = Integer.compare(sourceIndex, o.sourceIndex);
+			}
+
+			return result;
+		}
+	}
+}
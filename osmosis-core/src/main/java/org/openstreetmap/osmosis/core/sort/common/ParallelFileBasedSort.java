@@ -0,0 +1,392 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.store.ObjectSerializationFactory;
+import org.openstreetmap.osmosis.core.store.SimpleObjectStore;
+import org.openstreetmap.osmosis.core.store.Storeable;
+
+
+/**
+ * Allows a large number of objects to be sorted by writing sorted runs to disk
+ * and merging them. Unlike {@link FileBasedSort}, the size of each run is
+ * derived from a memory budget, runs are sorted and written on a fork-join pool
+ * while the next run is being collected, and all runs are merged at once using
+ * a heap. Only when the number of runs exceeds the maximum merge fan-in is an
+ * intermediate merge pass performed, so data is typically written to disk once
+ * or twice regardless of the total number of objects.
+ *
+ * @param <T>
+ *            The object type to be sorted.
+ */
+public class ParallelFileBasedSort<T extends Storeable> implements ExternalSort<T> {
+
+	private static final Logger LOG = Logger.getLogger(ParallelFileBasedSort.class.getName());
+
+	/**
+	 * The approximate heap size of a single object in bytes. This is used to
+	 * convert the memory budget into a run length. It is a rough figure for an
+	 * entity container with a small number of tags.
+	 */
+	private static final int ESTIMATED_OBJECT_SIZE = 256;
+
+	/**
+	 * The minimum number of objects in a single run regardless of the memory
+	 * budget. This matches the chunk size used by {@link FileBasedSort}.
+	 */
+	private static final int MIN_RUN_SIZE = 16384;
+
+	/**
+	 * The maximum number of runs to merge at once. This limits the number of
+	 * open files and buffers during a merge.
+	 */
+	private static final int MAX_MERGE_SOURCE_COUNT = 128;
+
+
+	private ObjectSerializationFactory serializationFactory;
+	private Comparator<T> comparator;
+	private boolean useCompression;
+	private int runSize;
+	private int maxMergeSourceCount;
+	private int maxPendingRuns;
+	private ForkJoinPool pool;
+	private List<T> addBuffer;
+	private Deque<Future<SimpleObjectStore<T>>> pendingRuns;
+	private List<SimpleObjectStore<T>> runs;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param comparator
+	 *            The comparator to be used for sorting the results.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param workerCount
+	 *            The number of threads used to sort and merge runs.
+	 * @param memoryBudget
+	 *            The number of bytes of heap to use for holding unsorted
+	 *            objects. This is shared between the run being collected and
+	 *            the runs being sorted.
+	 */
+	public ParallelFileBasedSort(ObjectSerializationFactory serializationFactory, Comparator<T> comparator,
+			boolean useCompression, int workerCount, long memoryBudget) {
+		this(serializationFactory, comparator, useCompression, workerCount,
+				(int) Math.min(Integer.MAX_VALUE - 8,
+						Math.max(MIN_RUN_SIZE, memoryBudget / ESTIMATED_OBJECT_SIZE / (workerCount + 1))),
+				MAX_MERGE_SOURCE_COUNT);
+	}
+
+
+	/**
+	 * Creates a new instance with explicit run sizing. This is primarily
+	 * intended for testing.
+	 *
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param comparator
+	 *            The comparator to be used for sorting the results.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param workerCount
+	 *            The number of threads used to sort and merge runs.
+	 * @param runSize
+	 *            The number of objects in each initial sorted run.
+	 * @param maxMergeSourceCount
+	 *            The maximum number of runs to merge at once.
+	 */
+	ParallelFileBasedSort(ObjectSerializationFactory serializationFactory, Comparator<T> comparator,
+			boolean useCompression, int workerCount, int runSize, int maxMergeSourceCount) {
+		if (workerCount <= 0) {
+			throw new OsmosisRuntimeException("A worker count of " + workerCount
+					+ " is invalid, must be greater than 0.");
+		}
+		if (runSize <= 0 || maxMergeSourceCount < 2) {
+			throw new OsmosisRuntimeException("Run size must be positive and merge source count at least 2.");
+		}
+
+		this.serializationFactory = serializationFactory;
+		this.comparator = comparator;
+		this.useCompression = useCompression;
+		this.runSize = runSize;
+		this.maxMergeSourceCount = maxMergeSourceCount;
+
+		// Up to workerCount runs may be sorting while another is collected.
+		maxPendingRuns = workerCount;
+
+		pool = new ForkJoinPool(workerCount);
+		addBuffer = new ArrayList<T>();
+		pendingRuns = new ArrayDeque<Future<SimpleObjectStore<T>>>();
+		runs = new ArrayList<SimpleObjectStore<T>>();
+	}
+
+
+	/**
+	 * Waits for a submitted task to complete and returns its result.
+	 */
+	private SimpleObjectStore<T> getResult(Future<SimpleObjectStore<T>> future) {
+		try {
+			return future.get();
+
+		} catch (InterruptedException e) {
+			throw new OsmosisRuntimeException("Thread was interrupted.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new OsmosisRuntimeException("Unable to sort data.", cause);
+		}
+	}
+
+
+	/**
+	 * Waits for the oldest pending run and adds it to the completed run list.
+	 * Runs are always completed in submission order so that equal objects
+	 * retain their original ordering.
+	 */
+	private void completeOldestRun() {
+		runs.add(getResult(pendingRuns.removeFirst()));
+	}
+
+
+	/**
+	 * Hands the data currently in the add buffer to the pool for sorting and
+	 * persisting, and starts a new buffer.
+	 */
+	private void flushAddBuffer() {
+		final List<T> run;
+
+		if (addBuffer.isEmpty()) {
+			return;
+		}
+
+		// Bound memory usage by limiting the number of runs in flight.
+		while (pendingRuns.size() >= maxPendingRuns) {
+			completeOldestRun();
+		}
+
+		run = addBuffer;
+		addBuffer = new ArrayList<T>();
+
+		pendingRuns.add(pool.submit(new Callable<SimpleObjectStore<T>>() {
+			@Override
+			public SimpleObjectStore<T> call() {
+				Collections.sort(run, comparator);
+
+				return writeRun(run);
+			}
+		}));
+	}
+
+
+	/**
+	 * Writes a sorted run to a new temporary store.
+	 */
+	private SimpleObjectStore<T> writeRun(Iterable<T> sortedData) {
+		SimpleObjectStore<T> store = new SimpleObjectStore<T>(serializationFactory, "emta", useCompression);
+
+		try {
+			SimpleObjectStore<T> result;
+
+			for (T value : sortedData) {
+				store.add(value);
+			}
+			store.complete();
+
+			result = store;
+			store = null;
+
+			return result;
+
+		} finally {
+			if (store != null) {
+				store.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Creates an iterator merging all of the specified runs.
+	 */
+	private ReleasableIterator<T> iterate(List<SimpleObjectStore<T>> sourceRuns) {
+		List<ReleasableIterator<T>> sources = new ArrayList<ReleasableIterator<T>>(sourceRuns.size());
+
+		try {
+			ReleasableIterator<T> result;
+
+			for (SimpleObjectStore<T> run : sourceRuns) {
+				sources.add(run.iterate());
+			}
+
+			result = new HeapMergingIterator<T>(sources, comparator);
+
+			// The merging iterator owns the sources now.
+			sources.clear();
+
+			return result;
+
+		} finally {
+			for (ReleasableIterator<T> source : sources) {
+				source.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Merges groups of runs into larger runs until no more than the maximum
+	 * merge source count remain. Each group is merged on the pool.
+	 */
+	private void reduceRuns() {
+		while (runs.size() > maxMergeSourceCount) {
+			List<Future<SimpleObjectStore<T>>> merges = new ArrayList<Future<SimpleObjectStore<T>>>();
+			List<SimpleObjectStore<T>> mergedRuns = new ArrayList<SimpleObjectStore<T>>();
+			int groupCount = (runs.size() + maxMergeSourceCount - 1) / maxMergeSourceCount;
+			// Spread the runs evenly so that we don't end up with a single tiny
+			// trailing group.
+			int groupSize = (runs.size() + groupCount - 1) / groupCount;
+
+			LOG.fine("Merging " + runs.size() + " sorted runs in groups of " + groupSize + ".");
+
+			for (int i = 0; i < runs.size(); i += groupSize) {
+				final List<SimpleObjectStore<T>> group = runs.subList(i, Math.min(runs.size(), i + groupSize));
+
+				merges.add(pool.submit(new Callable<SimpleObjectStore<T>>() {
+					@Override
+					public SimpleObjectStore<T> call() {
+						try (ReleasableIterator<T> mergeIterator = iterate(group)) {
+							return writeRun(new IterableAdaptor(mergeIterator));
+						}
+					}
+				}));
+			}
+
+			try {
+				for (Future<SimpleObjectStore<T>> merge : merges) {
+					mergedRuns.add(getResult(merge));
+				}
+
+			} finally {
+				// Release any merged runs that won't be tracked due to failure.
+				if (mergedRuns.size() < merges.size()) {
+					for (SimpleObjectStore<T> mergedRun : mergedRuns) {
+						mergedRun.close();
+					}
+					for (Future<SimpleObjectStore<T>> merge : merges.subList(mergedRuns.size(), merges.size())) {
+						closeQuietly(merge);
+					}
+				}
+			}
+
+			// The source runs are no longer required.
+			for (SimpleObjectStore<T> run : runs) {
+				run.close();
+			}
+			runs = mergedRuns;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(T value) {
+		addBuffer.add(value);
+
+		if (addBuffer.size() >= runSize) {
+			flushAddBuffer();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ReleasableIterator<T> iterate() {
+		flushAddBuffer();
+		while (!pendingRuns.isEmpty()) {
+			completeOldestRun();
+		}
+
+		LOG.fine("Sorted data into " + runs.size() + " runs of up to " + runSize + " objects.");
+
+		reduceRuns();
+
+		return iterate(runs);
+	}
+
+
+	/**
+	 * Waits for a task to finish and releases its result, logging any
+	 * failures. This is only used during cleanup.
+	 */
+	private void closeQuietly(Future<SimpleObjectStore<T>> future) {
+		try {
+			future.get().close();
+		} catch (InterruptedException e) {
+			LOG.log(Level.WARNING, "Interrupted while waiting for a sort task to finish.", e);
+		} catch (ExecutionException e) {
+			LOG.log(Level.FINE, "Ignoring sort task failure during cleanup.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		while (!pendingRuns.isEmpty()) {
+			closeQuietly(pendingRuns.removeFirst());
+		}
+
+		for (SimpleObjectStore<T> run : runs) {
+			run.close();
+		}
+		runs.clear();
+		addBuffer.clear();
+
+		pool.shutdown();
+	}
+
+
+	/**
+	 * Exposes a single-use iterator as an Iterable for use with writeRun.
+	 */
+	private class IterableAdaptor implements Iterable<T> {
+		private ReleasableIterator<T> iterator;
+
+
+		IterableAdaptor(ReleasableIterator<T> iterator) {
+			this.iterator = iterator;
+		}
+
+
+		@Override
+		public Iterator<T> iterator() {
+			return iterator;
+		}
+	}
+}
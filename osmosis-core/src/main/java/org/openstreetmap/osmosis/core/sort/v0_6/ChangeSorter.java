@@ -6,7 +6,9 @@ import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.sort.common.ExternalSort;
 import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
+import org.openstreetmap.osmosis.core.sort.common.ParallelFileBasedSort;
 import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSinkChangeSource;
@@ -19,7 +21,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.ChangeSinkChangeSource;
  * @author Brett Henderson
  */
 public class ChangeSorter implements ChangeSinkChangeSource {
-	private FileBasedSort<ChangeContainer> fileBasedSort;
+	private ExternalSort<ChangeContainer> fileBasedSort;
 	private ChangeSink changeSink;
 	
 	
@@ -35,6 +37,24 @@ public class ChangeSorter implements ChangeSinkChangeSource {
 					new SingleClassObjectSerializationFactory(ChangeContainer.class), comparator, true);
 	}
 
+	
+	/**
+	 * Creates a new instance using the parallel sort implementation.
+	 * 
+	 * @param comparator
+	 *            The comparator to use for sorting.
+	 * @param workerCount
+	 *            The number of threads used to sort and merge data.
+	 * @param memoryBudget
+	 *            The number of bytes of heap to use for sorting in memory.
+	 */
+	public ChangeSorter(Comparator<ChangeContainer> comparator, int workerCount, long memoryBudget) {
+		fileBasedSort =
+			new ParallelFileBasedSort<ChangeContainer>(
+					new SingleClassObjectSerializationFactory(ChangeContainer.class), comparator, true,
+					workerCount, memoryBudget);
+	}
+
 
 	/**
 	 * {@inheritDoc}
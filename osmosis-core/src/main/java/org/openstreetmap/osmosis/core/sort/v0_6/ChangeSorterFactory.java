@@ -9,7 +9,6 @@ import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
-import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.ChangeSinkChangeSourceManager;
 
 
@@ -18,7 +17,7 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.ChangeSinkChangeSourceManage
  * 
  * @author Brett Henderson
  */
-public class ChangeSorterFactory extends TaskManagerFactory {
+public class ChangeSorterFactory extends SorterTaskManagerFactory {
 	private static final String ARG_COMPARATOR_TYPE = "type";
 	
 	private Map<String, Comparator<ChangeContainer>> comparatorMap;
@@ -81,6 +80,8 @@ public class ChangeSorterFactory extends TaskManagerFactory {
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
 		Comparator<ChangeContainer> comparator;
+		int workers;
+		ChangeSorter sorter;
 		
 		// Get the comparator.
 		comparator = getComparator(
@@ -90,10 +91,18 @@ public class ChangeSorterFactory extends TaskManagerFactory {
 				getDefaultStringArgument(taskConfig, defaultComparatorType)
 			)
 		);
+		workers = getWorkers(taskConfig);
+		
+		// A worker count of zero selects the original single-threaded sort.
+		if (workers > 0) {
+			sorter = new ChangeSorter(comparator, workers, getMemoryBudget(taskConfig));
+		} else {
+			sorter = new ChangeSorter(comparator);
+		}
 		
 		return new ChangeSinkChangeSourceManager(
 			taskConfig.getId(),
-			new ChangeSorter(comparator),
+			sorter,
 			taskConfig.getPipeArgs()
 		);
 	}
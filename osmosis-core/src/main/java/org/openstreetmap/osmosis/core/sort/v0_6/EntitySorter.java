@@ -6,7 +6,9 @@ import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.sort.common.ExternalSort;
 import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
+import org.openstreetmap.osmosis.core.sort.common.ParallelFileBasedSort;
 import org.openstreetmap.osmosis.core.store.GenericObjectSerializationFactory;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
@@ -19,7 +21,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
  * @author Brett Henderson
  */
 public class EntitySorter implements SinkSource {
-	private FileBasedSort<EntityContainer> fileBasedSort;
+	private ExternalSort<EntityContainer> fileBasedSort;
 	private Sink sink;
 
 
@@ -47,6 +49,22 @@ public class EntitySorter implements SinkSource {
 	}
 
 
+	/**
+	 * Creates a new instance using the parallel sort implementation.
+	 *
+	 * @param comparator
+	 *            The comparator to use for sorting.
+	 * @param workerCount
+	 *            The number of threads used to sort and merge data.
+	 * @param memoryBudget
+	 *            The number of bytes of heap to use for sorting in memory.
+	 */
+	public EntitySorter(Comparator<EntityContainer> comparator, int workerCount, long memoryBudget) {
+		fileBasedSort = new ParallelFileBasedSort<EntityContainer>(
+			new GenericObjectSerializationFactory(), comparator, true, workerCount, memoryBudget);
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
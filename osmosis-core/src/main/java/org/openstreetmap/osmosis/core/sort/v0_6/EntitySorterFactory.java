@@ -9,7 +9,6 @@ import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
-import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
 
 
@@ -18,7 +17,7 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
  * 
  * @author Brett Henderson
  */
-public class EntitySorterFactory extends TaskManagerFactory {
+public class EntitySorterFactory extends SorterTaskManagerFactory {
 	private static final String ARG_COMPARATOR_TYPE = "type";
 	
 	private Map<String, Comparator<EntityContainer>> comparatorMap;
@@ -81,6 +80,8 @@ public class EntitySorterFactory extends TaskManagerFactory {
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
 		Comparator<EntityContainer> comparator;
+		int workers;
+		EntitySorter sorter;
 		
 		// Get the comparator.
 		comparator = getComparator(
@@ -90,10 +91,18 @@ public class EntitySorterFactory extends TaskManagerFactory {
 				getDefaultStringArgument(taskConfig, defaultComparatorType)
 			)
 		);
+		workers = getWorkers(taskConfig);
+		
+		// A worker count of zero selects the original single-threaded sort.
+		if (workers > 0) {
+			sorter = new EntitySorter(comparator, workers, getMemoryBudget(taskConfig));
+		} else {
+			sorter = new EntitySorter(comparator);
+		}
 		
 		return new SinkSourceManager(
 			taskConfig.getId(),
-			new EntitySorter(comparator),
+			sorter,
 			taskConfig.getPipeArgs()
 		);
 	}
@@ -0,0 +1,150 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.v0_6;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Random;
+
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.sort.common.ExternalSort;
+import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
+import org.openstreetmap.osmosis.core.sort.common.ParallelFileBasedSort;
+import org.openstreetmap.osmosis.core.store.GenericObjectSerializationFactory;
+
+
+/**
+ * Very simple class for comparing the performance of the sort
+ * implementations. It sorts the same randomly ordered nodes with
+ * {@link FileBasedSort} and {@link ParallelFileBasedSort} and reports the
+ * elapsed time of each. On Linux the number of bytes written by the process
+ * (and therefore the temporary file I/O volume) is also reported.
+ * <p>
+ * The program arguments are the node count (default 5000000), the number of
+ * parallel workers (default is the number of processors), and the parallel
+ * sort memory budget in MB (default 256).
+ */
+public final class EntitySorterLoadInjector {
+
+	private static final String PROC_IO_FILE = "/proc/self/io";
+	private static final String PROC_IO_WRITE_FIELD = "wchar:";
+
+	private int nodeCount;
+	private int workerCount;
+	private long memoryBudget;
+	private Comparator<EntityContainer> comparator;
+
+
+	private EntitySorterLoadInjector(int nodeCount, int workerCount, long memoryBudget) {
+		this.nodeCount = nodeCount;
+		this.workerCount = workerCount;
+		this.memoryBudget = memoryBudget;
+
+		comparator = new EntityContainerComparator(new EntityByTypeThenIdComparator());
+	}
+
+
+	/**
+	 * Launches the application.
+	 *
+	 * @param args
+	 *            The program arguments.
+	 */
+	public static void main(String[] args) {
+		int nodeCount = 5000000;
+		int workerCount = Runtime.getRuntime().availableProcessors();
+		long memoryBudgetMB = 256;
+
+		if (args.length > 0) {
+			nodeCount = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			workerCount = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2) {
+			memoryBudgetMB = Long.parseLong(args[2]);
+		}
+
+		new EntitySorterLoadInjector(nodeCount, workerCount, memoryBudgetMB * 1024 * 1024).run();
+	}
+
+
+	private void run() {
+		measure("FileBasedSort", new FileBasedSort<EntityContainer>(
+				new GenericObjectSerializationFactory(), comparator, true));
+		measure("ParallelFileBasedSort", new ParallelFileBasedSort<EntityContainer>(
+				new GenericObjectSerializationFactory(), comparator, true, workerCount, memoryBudget));
+	}
+
+
+	private void measure(String name, ExternalSort<EntityContainer> sort) {
+		Random random = new Random(1);
+		Date timestamp = new Date();
+		long startBytes = getBytesWritten();
+		long startTime = System.currentTimeMillis();
+		long count = 0;
+
+		try {
+			for (int i = 0; i < nodeCount; i++) {
+				long id = random.nextInt(Integer.MAX_VALUE);
+
+				sort.add(new NodeContainer(
+						new Node(new CommonEntityData(id, 1, timestamp, OsmUser.NONE, 1), 10, 10)));
+			}
+
+			try (ReleasableIterator<EntityContainer> iterator = sort.iterate()) {
+				while (iterator.hasNext()) {
+					iterator.next();
+					count++;
+				}
+			}
+
+		} finally {
+			sort.close();
+		}
+
+		System.out.println(name + ": sorted " + count + " nodes in "
+				+ (System.currentTimeMillis() - startTime) + "ms, "
+				+ formatBytes(startBytes, getBytesWritten()) + " written.");
+	}
+
+
+	private static String formatBytes(long start, long end) {
+		if (start < 0 || end < 0) {
+			return "unknown bytes";
+		} else {
+			return (end - start) + " bytes";
+		}
+	}
+
+
+	/**
+	 * Returns the number of bytes written by this process, or -1 if unknown.
+	 */
+	private static long getBytesWritten() {
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(PROC_IO_FILE), StandardCharsets.UTF_8))) {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(PROC_IO_WRITE_FIELD)) {
+					return Long.parseLong(line.substring(PROC_IO_WRITE_FIELD.length()).trim());
+				}
+			}
+
+		} catch (IOException e) {
+			// Not available on this platform.
+		}
+
+		return -1;
+	}
+}
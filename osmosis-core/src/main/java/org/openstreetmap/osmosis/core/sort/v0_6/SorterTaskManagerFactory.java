@@ -0,0 +1,54 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.v0_6;
+
+import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
+
+
+/**
+ * Extends the basic task manager factory functionality with the arguments
+ * common to the sort tasks.
+ */
+public abstract class SorterTaskManagerFactory extends TaskManagerFactory {
+	private static final String ARG_WORKERS = "workers";
+	private static final String ARG_MEMORY_BUDGET = "memoryBudgetMB";
+	private static final int DEFAULT_WORKERS = 0;
+	private static final int DEFAULT_MEMORY_BUDGET = 0;
+	private static final long BYTES_PER_MB = 1024 * 1024;
+	private static final int DEFAULT_MEMORY_BUDGET_HEAP_FRACTION = 4;
+
+
+	/**
+	 * Gets the number of threads to be used by the parallel sort.
+	 *
+	 * @param taskConfig
+	 *            Contains all information required to instantiate and configure
+	 *            the task.
+	 * @return The number of workers, or 0 if the original single-threaded sort
+	 *         is to be used.
+	 */
+	protected int getWorkers(TaskConfiguration taskConfig) {
+		return getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+	}
+
+
+	/**
+	 * Gets the amount of heap the parallel sort may use for sorting in memory.
+	 * If not specified, a fixed fraction of the maximum heap size is used.
+	 *
+	 * @param taskConfig
+	 *            Contains all information required to instantiate and configure
+	 *            the task.
+	 * @return The memory budget in bytes.
+	 */
+	protected long getMemoryBudget(TaskConfiguration taskConfig) {
+		long memoryBudget;
+
+		memoryBudget = getIntegerArgument(taskConfig, ARG_MEMORY_BUDGET, DEFAULT_MEMORY_BUDGET) * BYTES_PER_MB;
+		if (memoryBudget <= 0) {
+			memoryBudget = Runtime.getRuntime().maxMemory() / DEFAULT_MEMORY_BUDGET_HEAP_FRACTION;
+		}
+
+		return memoryBudget;
+	}
+}
@@ -1,8 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.store;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 
@@ -17,6 +16,8 @@ public abstract class BaseObjectReader implements ObjectReader {
 	private StoreReader storeReader;
 	private StoreClassRegister storeClassRegister;
 	private StoreableConstructorCache constructorCache;
+	private Class<?> currentClass;
+	private MethodHandle currentConstructor;
 	
 	
 	/**
@@ -55,28 +56,22 @@ public abstract class BaseObjectReader implements ObjectReader {
 	 */
 	public Storeable readObject() {
 		Class<?> clazz;
-		Constructor<?> constructor;
 		
 		clazz = readClassFromIdentifier(storeReader, storeClassRegister);
 		
-		constructor = constructorCache.getStoreableConstructor(clazz);
+		// Most stores hold a single class so avoid the cache lookup if possible.
+		if (clazz != currentClass) {
+			currentConstructor = constructorCache.getStoreableConstructorHandle(clazz);
+			currentClass = clazz;
+		}
 		
 		try {
-			return (Storeable) constructor.newInstance(new Object[] {storeReader, storeClassRegister});
+			return (Storeable) currentConstructor.invokeExact(storeReader, storeClassRegister);
 			
-		} catch (IllegalAccessException e) {
-			throw new OsmosisRuntimeException(
-					"The class " + constructor.getDeclaringClass().getName() + " could not be instantiated.", e);
-		} catch (InvocationTargetException e) {
-			Throwable cause = e.getCause();
-			if (cause instanceof EndOfStoreException) {
-				throw (EndOfStoreException) cause; 
-			}
-			throw new OsmosisRuntimeException(
-					"The class " + constructor.getDeclaringClass().getName() + " could not be instantiated.", e);
-		} catch (InstantiationException e) {
-			throw new OsmosisRuntimeException(
-					"The class " + constructor.getDeclaringClass().getName() + " could not be instantiated.", e);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new OsmosisRuntimeException("The class " + clazz.getName() + " could not be instantiated.", e);
 		}
 	}
 }
@@ -0,0 +1,207 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Caches fixed size blocks of read-only store files in memory. A single cache
+ * may be shared by any number of files and threads, with the least recently
+ * used blocks being discarded once the total size of cached blocks exceeds the
+ * configured limit. Files must not be modified while blocks of them are
+ * cached.
+ */
+public class BlockCache {
+
+	/**
+	 * The default number of bytes in each block.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 8192;
+
+	private int blockSize;
+	private long maxBytes;
+	private long bytes;
+	private Map<BlockKey, byte[]> blocks;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+
+	/**
+	 * Creates a new instance using the default block size.
+	 *
+	 * @param maxBytes
+	 *            The maximum number of bytes of file data to hold.
+	 */
+	public BlockCache(long maxBytes) {
+		this(maxBytes, DEFAULT_BLOCK_SIZE);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param maxBytes
+	 *            The maximum number of bytes of file data to hold.
+	 * @param blockSize
+	 *            The number of bytes in each block.
+	 */
+	public BlockCache(long maxBytes, int blockSize) {
+		this.maxBytes = maxBytes;
+		this.blockSize = blockSize;
+
+		blocks = new LinkedHashMap<BlockKey, byte[]>(16, 0.75f, true);
+	}
+
+
+	/**
+	 * Gets the number of bytes in each block.
+	 *
+	 * @return The block size.
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+
+	/**
+	 * Gets a block of a file, reading it from the file if it isn't cached. The
+	 * final block of a file is shorter than the block size. The returned array
+	 * is shared and must not be modified.
+	 *
+	 * @param file
+	 *            The file containing the block. This identifies the file within
+	 *            the cache.
+	 * @param randomFile
+	 *            A file handle opened on the file used to read the block if it
+	 *            isn't cached.
+	 * @param blockIndex
+	 *            The index of the block within the file.
+	 * @return The block data.
+	 * @throws IOException
+	 *             if the block cannot be read.
+	 */
+	public byte[] getBlock(File file, RandomAccessFile randomFile, long blockIndex) throws IOException {
+		BlockKey key;
+		byte[] block;
+		long blockPosition;
+
+		key = new BlockKey(file, blockIndex);
+
+		synchronized (this) {
+			block = blocks.get(key);
+			if (block != null) {
+				hitCount++;
+				return block;
+			}
+			missCount++;
+		}
+
+		// Blocks are read outside the lock so that other threads can continue
+		// to use the cache.
+		blockPosition = blockIndex * blockSize;
+		block = new byte[(int) Math.max(0, Math.min(blockSize, randomFile.length() - blockPosition))];
+		randomFile.seek(blockPosition);
+		randomFile.readFully(block);
+
+		synchronized (this) {
+			// Another thread may have loaded the same block in the meantime.
+			if (!blocks.containsKey(key)) {
+				blocks.put(key, block);
+				bytes += block.length;
+
+				for (Iterator<byte[]> i = blocks.values().iterator(); bytes > maxBytes;) {
+					bytes -= i.next().length;
+					i.remove();
+					evictionCount++;
+				}
+			}
+		}
+
+		return block;
+	}
+
+
+	/**
+	 * Gets the number of block requests satisfied from the cache.
+	 *
+	 * @return The hit count.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+
+	/**
+	 * Gets the number of block requests which required the block to be read
+	 * from the file.
+	 *
+	 * @return The miss count.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+
+	/**
+	 * Gets the number of blocks discarded to keep the cache within its size
+	 * limit.
+	 *
+	 * @return The eviction count.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+
+	/**
+	 * Gets the number of bytes of file data currently held.
+	 *
+	 * @return The cached byte count.
+	 */
+	public synchronized long getByteCount() {
+		return bytes;
+	}
+
+
+	/**
+	 * Identifies a single block of a file.
+	 */
+	private static final class BlockKey {
+		private File file;
+		private long blockIndex;
+		private int hashCode;
+
+
+		BlockKey(File file, long blockIndex) {
+			this.file = file;
+			this.blockIndex = blockIndex;
+
+			hashCode = file.hashCode() * 31 + (int) (blockIndex ^ (blockIndex >>> 32));
+		}
+
+
+		@Override
+		public boolean equals(Object o) {
+			BlockKey other;
+
+			if (!(o instanceof BlockKey)) {
+				return false;
+			}
+			other = (BlockKey) o;
+
+			return blockIndex == other.blockIndex && file.equals(other.file);
+		}
+
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+
+/**
+ * Reads a file through a block cache shared with other readers. Data is only
+ * read from the file when the block containing it isn't already cached, so
+ * repeated reads of the same regions of a file by any reader are served from
+ * memory. The file must not be modified while it is being read.
+ */
+public class BlockCachedFileInputStream extends RandomAccessInputStream {
+
+	private File file;
+	private BlockCache blockCache;
+	private int blockSize;
+	private RandomAccessFile randomFile;
+	private long length;
+	private long position;
+	private byte[] block;
+	private long blockPosition;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param file
+	 *            The file to be read.
+	 * @param blockCache
+	 *            The cache holding blocks of the file.
+	 * @throws FileNotFoundException
+	 *             if the file cannot be opened.
+	 */
+	public BlockCachedFileInputStream(File file, BlockCache blockCache) throws FileNotFoundException {
+		this.file = file;
+		this.blockCache = blockCache;
+
+		blockSize = blockCache.getBlockSize();
+		randomFile = new RandomAccessFile(file, "r");
+		length = file.length();
+
+		position = 0;
+		block = null;
+		blockPosition = -1;
+	}
+
+
+	/**
+	 * Ensures the block containing the current position is available.
+	 *
+	 * @return The offset of the current position within the block, or -1 if
+	 *         the end of file has been reached.
+	 */
+	private int populateBlock() throws IOException {
+		long offset;
+
+		if (position >= length) {
+			return -1;
+		}
+
+		offset = position - blockPosition;
+		if (block == null || offset < 0 || offset >= block.length) {
+			long blockIndex = position / blockSize;
+
+			block = blockCache.getBlock(file, randomFile, blockIndex);
+			blockPosition = blockIndex * blockSize;
+			offset = position - blockPosition;
+		}
+
+		return (int) offset;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		int offset = populateBlock();
+
+		if (offset < 0) {
+			return -1;
+		}
+		position++;
+
+		return block[offset] & 0xff;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int offset;
+		int readLength;
+
+		if (len == 0) {
+			return 0;
+		}
+
+		offset = populateBlock();
+		if (offset < 0) {
+			return -1;
+		}
+
+		readLength = Math.min(len, block.length - offset);
+		System.arraycopy(block, offset, b, off, readLength);
+		position += readLength;
+
+		return readLength;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void seek(long pos) throws IOException {
+		position = pos;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long length() throws IOException {
+		return length;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long position() throws IOException {
+		return position;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		randomFile.close();
+	}
+}
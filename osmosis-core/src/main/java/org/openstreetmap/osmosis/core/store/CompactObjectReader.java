@@ -0,0 +1,41 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.DataInput;
+
+
+/**
+ * Reads objects written by a {@link CompactObjectWriter} from a DataInput
+ * implementation.
+ */
+public class CompactObjectReader implements ObjectReader {
+	private CompactStoreReader storeReader;
+	private ObjectReader objectReader;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param input
+	 *            The data input to read data from.
+	 * @param storeClassRegister
+	 *            The register for class to identifier mappings.
+	 */
+	public CompactObjectReader(ObjectSerializationFactory serializationFactory, DataInput input,
+			StoreClassRegister storeClassRegister) {
+		storeReader = new CompactStoreReader(input);
+		objectReader = serializationFactory.createObjectReader(storeReader, storeClassRegister);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Storeable readObject() {
+		storeReader.startObject();
+		return objectReader.readObject();
+	}
+}
@@ -0,0 +1,41 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.DataOutput;
+
+
+/**
+ * Writes objects to a DataOutput implementation using a
+ * {@link CompactStoreWriter}.
+ */
+public class CompactObjectWriter implements ObjectWriter {
+	private CompactStoreWriter storeWriter;
+	private ObjectWriter objectWriter;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param output
+	 *            The destination to write the data to.
+	 * @param storeClassRegister
+	 *            The register for class to identifier mappings.
+	 */
+	public CompactObjectWriter(ObjectSerializationFactory serializationFactory, DataOutput output,
+			StoreClassRegister storeClassRegister) {
+		storeWriter = new CompactStoreWriter(output);
+		objectWriter = serializationFactory.createObjectWriter(storeWriter, storeClassRegister);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeObject(Storeable value) {
+		storeWriter.startObject();
+		objectWriter.writeObject(value);
+	}
+}
@@ -0,0 +1,207 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Reads persisted input written by a {@link CompactStoreWriter} from a
+ * DataInput implementation. Objects must be read in the same order they were
+ * written.
+ */
+public class CompactStoreReader implements StoreReader {
+	private static final int INITIAL_SLOT_COUNT = 16;
+
+	private DataInput input;
+	private int[] previousIntegers;
+	private int integerIndex;
+	private long[] previousLongs;
+	private int longIndex;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param input
+	 *            The data input to read data from.
+	 */
+	public CompactStoreReader(DataInput input) {
+		this.input = input;
+
+		previousIntegers = new int[INITIAL_SLOT_COUNT];
+		previousLongs = new long[INITIAL_SLOT_COUNT];
+	}
+
+
+	/**
+	 * Notifies the reader that the values of a new object follow. This must be
+	 * called before each object is read.
+	 */
+	public void startObject() {
+		integerIndex = 0;
+		longIndex = 0;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean readBoolean() {
+		try {
+			return input.readBoolean();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a boolean from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read a boolean from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte readByte() {
+		try {
+			return input.readByte();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a byte from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a byte from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char readCharacter() {
+		try {
+			return (char) readVarLong();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a character from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a character from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readInteger() {
+		int value;
+
+		try {
+			value = (int) unZigZag(readVarLong());
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read an integer from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read an integer from the store.", e);
+		}
+
+		if (integerIndex >= previousIntegers.length) {
+			previousIntegers = Arrays.copyOf(previousIntegers, previousIntegers.length * 2);
+		}
+		value += previousIntegers[integerIndex];
+		previousIntegers[integerIndex++] = value;
+
+		return value;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long readLong() {
+		long value;
+
+		try {
+			value = unZigZag(readVarLong());
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a long from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a long from the store.", e);
+		}
+
+		if (longIndex >= previousLongs.length) {
+			previousLongs = Arrays.copyOf(previousLongs, previousLongs.length * 2);
+		}
+		value += previousLongs[longIndex];
+		previousLongs[longIndex++] = value;
+
+		return value;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double readDouble() {
+		try {
+			return input.readDouble();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a double from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a double from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String readString() {
+		try {
+			return input.readUTF();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a String from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a String from the store.", e);
+		}
+	}
+
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		int shift = 0;
+		byte b;
+
+		do {
+			b = input.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+
+		return value;
+	}
+}
@@ -0,0 +1,182 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Writes persisted output to a DataOutput implementation using a compact
+ * encoding. Integers, longs and characters are written as variable length
+ * values. Integers and longs are written as the difference to the value at the
+ * same position in the previous object, so that identifiers and coordinates of
+ * sorted data take only a few bytes. The data must be read by a
+ * {@link CompactStoreReader} which reads the objects in the same order.
+ */
+public class CompactStoreWriter implements StoreWriter {
+	private static final int INITIAL_SLOT_COUNT = 16;
+
+	private DataOutput output;
+	private byte[] buffer;
+	private int[] previousIntegers;
+	private int integerIndex;
+	private long[] previousLongs;
+	private int longIndex;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param output
+	 *            The destination to write the data to.
+	 */
+	public CompactStoreWriter(DataOutput output) {
+		this.output = output;
+
+		buffer = new byte[10];
+		previousIntegers = new int[INITIAL_SLOT_COUNT];
+		previousLongs = new long[INITIAL_SLOT_COUNT];
+	}
+
+
+	/**
+	 * Notifies the writer that the values of a new object follow. This must be
+	 * called before each object is written.
+	 */
+	public void startObject() {
+		integerIndex = 0;
+		longIndex = 0;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBoolean(boolean value) {
+		try {
+			output.writeBoolean(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write boolean " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeByte(byte value) {
+		try {
+			output.writeByte(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write byte " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeCharacter(char value) {
+		try {
+			writeVarLong(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write character " + ((int) value) + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeInteger(int value) {
+		int previous;
+
+		if (integerIndex >= previousIntegers.length) {
+			previousIntegers = Arrays.copyOf(previousIntegers, previousIntegers.length * 2);
+		}
+		previous = previousIntegers[integerIndex];
+		previousIntegers[integerIndex++] = value;
+
+		try {
+			// The difference is calculated as a long to avoid overflow.
+			writeVarLong(zigZag((long) value - previous));
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write integer " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeLong(long value) {
+		long previous;
+
+		if (longIndex >= previousLongs.length) {
+			previousLongs = Arrays.copyOf(previousLongs, previousLongs.length * 2);
+		}
+		previous = previousLongs[longIndex];
+		previousLongs[longIndex++] = value;
+
+		try {
+			// Overflow of the difference is harmless because the reader adds
+			// it back with the same overflow.
+			writeVarLong(zigZag(value - previous));
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write long " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeDouble(double value) {
+		try {
+			output.writeDouble(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write double " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeString(String value) {
+		try {
+			output.writeUTF(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write String (" + value + ") to the store.", e);
+		}
+	}
+
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+
+	private void writeVarLong(long value) throws IOException {
+		long remaining = value;
+		int length = 0;
+
+		while ((remaining & ~0x7FL) != 0) {
+			buffer[length++] = (byte) ((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		buffer[length++] = (byte) remaining;
+
+		output.write(buffer, 0, length);
+	}
+}
@@ -11,7 +11,6 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
-import org.openstreetmap.osmosis.core.task.v0_6.Initializable;
 
 
 /**
@@ -78,7 +77,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.Initializable;
  * @param <T>
  *            The type of data held in the postbox.
  */
-public class DataPostbox<T> implements Initializable {
+public class DataPostbox<T> implements Postbox<T> {
 	private int bufferCapacity;
 	private int chunkSize;
 	private Lock lock;
@@ -97,6 +96,7 @@ public class DataPostbox<T> implements Initializable {
 	private boolean outputExit;
 	private boolean inputOkay;
 	private boolean outputOkay;
+	private PostboxStatistics statistics;
 
 
 	/**
@@ -139,6 +139,8 @@ public class DataPostbox<T> implements Initializable {
 		inputOkay = true;
 		outputOkay = true;
 
+		statistics = new PostboxStatistics(bufferCapacity);
+
 		// Create the inter-thread data transfer queues.
 		initializeQueues();
 	}
@@ -213,14 +215,21 @@ public class DataPostbox<T> implements Initializable {
 			checkForOutputErrors();
 
 			// Wait until the currently posted data is cleared.
-			while (centralQueue.size() >= bufferCapacity) {
-				waitForUpdate();
-				checkForOutputErrors();
+			if (centralQueue.size() >= bufferCapacity) {
+				long waitStart = System.nanoTime();
+
+				while (centralQueue.size() >= bufferCapacity) {
+					waitForUpdate();
+					checkForOutputErrors();
+				}
+
+				statistics.addInputBlockedNanos(System.nanoTime() - waitStart);
 			}
 
 			// Post the new data.
 			centralQueue.addAll(inboundQueue);
 			inboundQueue.clear();
+			statistics.recordOccupancy(centralQueue.size());
 			signalUpdate();
 
 		} finally {
@@ -239,9 +248,15 @@ public class DataPostbox<T> implements Initializable {
 			checkForInputErrors();
 
 			// Wait until data is available.
-			while (!((centralQueue.size() > 0) || inputComplete)) {
-				waitForUpdate();
-				checkForInputErrors();
+			if (!((centralQueue.size() > 0) || inputComplete)) {
+				long waitStart = System.nanoTime();
+
+				while (!((centralQueue.size() > 0) || inputComplete)) {
+					waitForUpdate();
+					checkForInputErrors();
+				}
+
+				statistics.addOutputBlockedNanos(System.nanoTime() - waitStart);
 			}
 
 			outboundQueue.addAll(centralQueue);
@@ -543,4 +558,13 @@ public class DataPostbox<T> implements Initializable {
 			lock.unlock();
 		}
 	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PostboxStatistics getStatistics() {
+		return statistics;
+	}
 }
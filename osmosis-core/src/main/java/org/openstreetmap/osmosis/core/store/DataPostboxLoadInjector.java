@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.store;
 
+import java.util.Collections;
 import java.util.Date;
 
 import org.openstreetmap.osmosis.core.buffer.v0_6.EntityBuffer;
@@ -12,8 +13,10 @@ import org.openstreetmap.osmosis.core.misc.v0_6.NullWriter;
 import org.openstreetmap.osmosis.core.progress.v0_6.EntityProgressLogger;
 
 /**
- * Very simple class for applying load to the DataPostbox class and measuring
- * performance.
+ * Very simple class for applying load to the postbox implementations and
+ * measuring performance. The postbox type to test may be passed as the first
+ * program argument (one of the {@link PostboxType} values), allowing the
+ * locking and ring buffer implementations to be compared on the same machine.
  * 
  * @author Brett Henderson
  */
@@ -30,12 +33,20 @@ public final class DataPostboxLoadInjector implements Runnable {
 	 *            The program arguments.
 	 */
 	public static void main(String[] args) {
-		new DataPostboxLoadInjector().run();
+		PostboxType postboxType;
+
+		if (args.length > 0) {
+			postboxType = PostboxType.valueOf(args[0]);
+		} else {
+			postboxType = PostboxType.Locking;
+		}
+
+		new DataPostboxLoadInjector(postboxType).run();
 	}
 
 	
-	private DataPostboxLoadInjector() {
-		buffer = new EntityBuffer(10000);
+	private DataPostboxLoadInjector(PostboxType postboxType) {
+		buffer = new EntityBuffer(10000, postboxType);
 		progressLogger = new EntityProgressLogger(5000, null);
 		buffer.setSink(progressLogger);
 		nullWriter = new NullWriter();
@@ -79,6 +90,8 @@ public final class DataPostboxLoadInjector implements Runnable {
 		}
 
 		public void run() {
+			buffer.initialize(Collections.<String, Object>emptyMap());
+
 			while (true) {
 				buffer.process(nodeContainer);
 			}
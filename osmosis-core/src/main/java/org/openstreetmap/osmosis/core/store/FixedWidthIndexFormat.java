@@ -0,0 +1,180 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+
+/**
+ * Describes the layout of index files containing fixed width elements which
+ * can be searched directly through a memory mapping. These are the files
+ * written by {@link IndexStore} for the supported element types, each element
+ * being a big-endian key followed by a big-endian long value with no
+ * additional framing.
+ * <p>
+ * Keys are converted to longs whose natural ordering matches the index
+ * ordering, allowing searches to compare and interpolate keys as numbers.
+ */
+public enum FixedWidthIndexFormat {
+	/**
+	 * {@link LongLongIndexElement} elements ordered by signed key.
+	 */
+	LongLong(16) {
+		@Override
+		long readKey(ByteBuffer buffer, int offset) {
+			return buffer.getLong(offset);
+		}
+
+
+		@Override
+		long toSearchKey(Object key) {
+			return (Long) key;
+		}
+
+
+		@Override
+		IndexElement<?> createElement(long key, long value) {
+			return new LongLongIndexElement(key, value);
+		}
+	},
+
+	/**
+	 * {@link IntegerLongIndexElement} elements ordered by signed key.
+	 */
+	IntegerLong(12) {
+		@Override
+		long readKey(ByteBuffer buffer, int offset) {
+			return buffer.getInt(offset);
+		}
+
+
+		@Override
+		long toSearchKey(Object key) {
+			return (Integer) key;
+		}
+
+
+		@Override
+		IndexElement<?> createElement(long key, long value) {
+			return new IntegerLongIndexElement((int) key, value);
+		}
+	},
+
+	/**
+	 * {@link IntegerLongIndexElement} elements ordered by unsigned key as used
+	 * for tile indexes.
+	 */
+	UnsignedIntegerLong(12) {
+		@Override
+		long readKey(ByteBuffer buffer, int offset) {
+			return buffer.getInt(offset) & 0xFFFFFFFFL;
+		}
+
+
+		@Override
+		long toSearchKey(Object key) {
+			return ((Integer) key) & 0xFFFFFFFFL;
+		}
+
+
+		@Override
+		IndexElement<?> createElement(long key, long value) {
+			return new IntegerLongIndexElement((int) key, value);
+		}
+	};
+
+
+	private final int elementSize;
+
+
+	private FixedWidthIndexFormat(int elementSize) {
+		this.elementSize = elementSize;
+	}
+
+
+	/**
+	 * Gets the format used for an index of the specified element type and
+	 * ordering.
+	 *
+	 * @param elementType
+	 *            The type of element stored in the index.
+	 * @param ordering
+	 *            The key ordering of the index.
+	 * @return The format, or null if the index cannot be accessed as fixed
+	 *         width elements.
+	 */
+	public static FixedWidthIndexFormat getFormat(Class<?> elementType, Comparator<?> ordering) {
+		// Only the comparators with a known numeric ordering can be supported.
+		if (LongLongIndexElement.class.equals(elementType) && ordering instanceof ComparableComparator) {
+			return LongLong;
+		}
+		if (IntegerLongIndexElement.class.equals(elementType)) {
+			if (ordering instanceof ComparableComparator) {
+				return IntegerLong;
+			}
+			if (ordering instanceof UnsignedIntegerComparator) {
+				return UnsignedIntegerLong;
+			}
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Gets the number of bytes occupied by each element.
+	 *
+	 * @return The element size.
+	 */
+	public int getElementSize() {
+		return elementSize;
+	}
+
+
+	/**
+	 * Reads the search key of the element at the specified offset.
+	 *
+	 * @param buffer
+	 *            The buffer containing the element.
+	 * @param offset
+	 *            The offset of the element.
+	 * @return The search key.
+	 */
+	abstract long readKey(ByteBuffer buffer, int offset);
+
+
+	/**
+	 * Reads the value of the element at the specified offset.
+	 *
+	 * @param buffer
+	 *            The buffer containing the element.
+	 * @param offset
+	 *            The offset of the element.
+	 * @return The value.
+	 */
+	long readValue(ByteBuffer buffer, int offset) {
+		return buffer.getLong(offset + elementSize - 8);
+	}
+
+
+	/**
+	 * Converts an index key into a search key.
+	 *
+	 * @param key
+	 *            The index key.
+	 * @return The search key.
+	 */
+	abstract long toSearchKey(Object key);
+
+
+	/**
+	 * Creates an index element.
+	 *
+	 * @param key
+	 *            The search key of the element.
+	 * @param value
+	 *            The element value.
+	 * @return The index element.
+	 */
+	abstract IndexElement<?> createElement(long key, long value);
+}
@@ -14,6 +14,9 @@ import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
 /**
  * Writes data into an index file and sorts it if input data is unordered. The
  * data must be fixed width to allow index values to be randomly accessed later.
+ * Indexes of {@link LongLongIndexElement} and {@link IntegerLongIndexElement}
+ * elements with a supported ordering (see {@link FixedWidthIndexFormat}) are
+ * read through a memory mapping shared by all readers.
  * 
  * @param <K>
  *            The index key type.
@@ -33,6 +36,8 @@ public class IndexStore<K, T extends IndexElement<K>> implements Completable {
 	private long elementCount;
 	private long elementSize;
 	private boolean complete;
+	private FixedWidthIndexFormat mappedFormat;
+	private MappedIndex mappedIndex;
 	
 	
 	/**
@@ -53,6 +58,7 @@ public class IndexStore<K, T extends IndexElement<K>> implements Completable {
 		serializationFactory = new SingleClassObjectSerializationFactory(elementType);
 		
 		indexStore = new RandomAccessObjectStore<T>(serializationFactory, indexFile);
+		mappedFormat = FixedWidthIndexFormat.getFormat(elementType, ordering);
 		
 		sorted = true;
 		elementCount = 0;
@@ -80,6 +86,7 @@ public class IndexStore<K, T extends IndexElement<K>> implements Completable {
 		serializationFactory = new SingleClassObjectSerializationFactory(elementType);
 		
 		indexStore = new RandomAccessObjectStore<T>(serializationFactory, tempFilePrefix);
+		mappedFormat = FixedWidthIndexFormat.getFormat(elementType, ordering);
 		
 		sorted = true;
 		elementCount = 0;
@@ -148,6 +155,16 @@ public class IndexStore<K, T extends IndexElement<K>> implements Completable {
 	 * @return A store reader.
 	 */
 	public IndexStoreReader<K, T> createReader() {
+		// The index file may only be mapped once it is complete, or if it is
+		// an existing file being read without being written.
+		if (mappedFormat != null && (complete || elementCount == 0)) {
+			if (mappedIndex == null) {
+				mappedIndex = new MappedIndex(indexStore.getStorageFile(), mappedFormat);
+			}
+			
+			return new IndexStoreReader<K, T>(mappedIndex, ordering);
+		}
+		
 		return new IndexStoreReader<K, T>(indexStore.createReader(), ordering);
 	}
 	
@@ -201,6 +218,7 @@ public class IndexStore<K, T extends IndexElement<K>> implements Completable {
 							indexStore.add(sortIterator.next());
 						}
 					}
+					indexStore.complete();
 					
 				}
 			}
@@ -214,6 +232,9 @@ public class IndexStore<K, T extends IndexElement<K>> implements Completable {
 	 * {@inheritDoc}
 	 */
 	public void close() {
+		// The mapping is released when it is garbage collected.
+		mappedIndex = null;
+		
 		indexStore.close();
 	}
 }
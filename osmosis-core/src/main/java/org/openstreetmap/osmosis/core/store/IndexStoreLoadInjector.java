@@ -0,0 +1,140 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Very simple class for measuring index lookup performance. An index of long
+ * keys with gaps similar to OSM identifiers is created, then random, sequential
+ * and batched lookups are timed against both the stream based index reader and
+ * the memory mapped index reader. The number of index elements may be passed
+ * as the first program argument.
+ */
+public final class IndexStoreLoadInjector implements Runnable {
+
+	private static final int LOOKUP_COUNT = 1000000;
+
+	private int elementCount;
+	private Comparator<Long> ordering;
+
+
+	/**
+	 * Launches the application.
+	 *
+	 * @param args
+	 *            The program arguments.
+	 */
+	public static void main(String[] args) {
+		int elementCount;
+
+		if (args.length > 0) {
+			elementCount = Integer.parseInt(args[0]);
+		} else {
+			elementCount = 10000000;
+		}
+
+		new IndexStoreLoadInjector(elementCount).run();
+	}
+
+
+	private IndexStoreLoadInjector(int elementCount) {
+		this.elementCount = elementCount;
+
+		ordering = new ComparableComparator<Long>();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void run() {
+		Random random = new Random(1);
+		long[] keys = new long[elementCount];
+		long key;
+		List<Long> randomKeys;
+		List<Long> sequentialKeys;
+
+		// Ids are allocated in order but many have since been deleted.
+		key = 0;
+		for (int i = 0; i < elementCount; i++) {
+			key += 1 + random.nextInt(4);
+			keys[i] = key;
+		}
+
+		randomKeys = new ArrayList<Long>(LOOKUP_COUNT);
+		for (int i = 0; i < LOOKUP_COUNT; i++) {
+			randomKeys.add(keys[random.nextInt(elementCount)]);
+		}
+		sequentialKeys = new ArrayList<Long>(LOOKUP_COUNT);
+		for (int i = 0; i < LOOKUP_COUNT; i++) {
+			sequentialKeys.add(keys[(int) ((long) i * elementCount / LOOKUP_COUNT)]);
+		}
+
+		try (RandomAccessObjectStore<LongLongIndexElement> store = new RandomAccessObjectStore<LongLongIndexElement>(
+				new SingleClassObjectSerializationFactory(LongLongIndexElement.class), "idxload")) {
+			MappedIndex mappedIndex;
+
+			for (int i = 0; i < elementCount; i++) {
+				store.add(new LongLongIndexElement(keys[i], i));
+			}
+			store.complete();
+
+			mappedIndex = new MappedIndex(store.getStorageFile(), FixedWidthIndexFormat.LongLong);
+
+			for (int pass = 0; pass < 2; pass++) {
+				try (IndexStoreReader<Long, LongLongIndexElement> reader = new IndexStoreReader<Long, LongLongIndexElement>(
+						store.createReader(), ordering)) {
+					measureGet("stream random", reader, randomKeys);
+					measureGet("stream sequential", reader, sequentialKeys);
+					measureGetAll("stream batched", reader, sequentialKeys);
+				}
+				try (IndexStoreReader<Long, LongLongIndexElement> reader = new IndexStoreReader<Long, LongLongIndexElement>(
+						mappedIndex, ordering)) {
+					measureGet("mapped random", reader, randomKeys);
+					measureGet("mapped sequential", reader, sequentialKeys);
+					measureGetAll("mapped batched", reader, sequentialKeys);
+				}
+			}
+		}
+	}
+
+
+	private void report(String name, long startTime, long checksum) {
+		long duration = System.nanoTime() - startTime;
+
+		System.out.println(name + ": " + (LOOKUP_COUNT * 1000000000L / duration) + " lookups/s (checksum "
+				+ checksum + ")");
+	}
+
+
+	private void measureGet(String name, IndexStoreReader<Long, LongLongIndexElement> reader, List<Long> lookupKeys) {
+		long startTime = System.nanoTime();
+		long checksum = 0;
+
+		for (Long lookupKey : lookupKeys) {
+			checksum += reader.get(lookupKey).getValue();
+		}
+
+		report(name, startTime, checksum);
+	}
+
+
+	private void measureGetAll(
+			String name, IndexStoreReader<Long, LongLongIndexElement> reader, List<Long> lookupKeys) {
+		long startTime = System.nanoTime();
+		long checksum = 0;
+		Iterator<LongLongIndexElement> elements;
+
+		elements = reader.getAll(lookupKeys.iterator());
+		while (elements.hasNext()) {
+			checksum += elements.next().getValue();
+		}
+
+		report(name, startTime, checksum);
+	}
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 
@@ -24,6 +25,7 @@ import org.openstreetmap.osmosis.core.lifecycle.Closeable;
  */
 public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable {
 	private RandomAccessObjectStoreReader<T> indexStoreReader;
+	private MappedIndex mappedIndex;
 	private Comparator<K> ordering;
 	private boolean elementDetailsInitialized;
 	private long elementCount;
@@ -50,6 +52,26 @@ public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable
 	}
 	
 	
+	/**
+	 * Creates a new instance reading a fixed width index through a memory
+	 * mapping.
+	 * 
+	 * @param mappedIndex
+	 *            Provides access to the index data. This may be shared with
+	 *            other readers.
+	 * @param ordering
+	 *            A comparator that sorts index elements desired index key
+	 *            ordering. This must match the ordering of the mapped index
+	 *            format.
+	 */
+	public IndexStoreReader(MappedIndex mappedIndex, Comparator<K> ordering) {
+		this.mappedIndex = mappedIndex;
+		this.ordering = ordering;
+		
+		elementDetailsInitialized = false;
+	}
+	
+	
 	/**
 	 * Initialises the element count and element size required for performing
 	 * binary searches within the index.
@@ -176,9 +198,21 @@ public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable
 	 *            The identifier for the index element to be retrieved.
 	 * @return The requested object.
 	 */
+	@SuppressWarnings("unchecked")
 	public T get(K key) {
 		long keyIndex;
 		
+		if (mappedIndex != null) {
+			long searchKey = mappedIndex.getFormat().toSearchKey(key);
+			
+			keyIndex = mappedIndex.search(searchKey);
+			if (keyIndex < mappedIndex.getElementCount() && mappedIndex.getKey(keyIndex) == searchKey) {
+				return (T) mappedIndex.getElement(keyIndex);
+			}
+			
+			throw new NoSuchIndexElementException("Requested key " + key + " does not exist.");
+		}
+		
 		// Determine the location of the key within the index.
 		keyIndex = getKeyIndex(key);
 		
@@ -213,6 +247,12 @@ public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable
 	public Iterator<T> getRange(K beginKey, K endKey) {
 		long keyIndex;
 		
+		if (mappedIndex != null) {
+			keyIndex = mappedIndex.search(mappedIndex.getFormat().toSearchKey(beginKey));
+			
+			return new IndexRangeIterator<K, T>(iterateMapped(keyIndex), beginKey, endKey, ordering);
+		}
+		
 		// Determine the location of the begin key within the index.
 		keyIndex = getKeyIndex(beginKey);
 		
@@ -226,12 +266,146 @@ public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable
 	}
 	
 	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Iterator<T> iterateMapped(long keyIndex) {
+		return (Iterator) mappedIndex.iterate(keyIndex);
+	}
+	
+	
+	/**
+	 * Returns all elements matching any of the specified keys. Keys are
+	 * processed in the order provided, and the elements for each key are
+	 * returned in turn. If the keys are in ascending index order, all keys are
+	 * located in a single pass over the index which is much faster than
+	 * searching for each key individually. Keys in any other order are still
+	 * supported.
+	 * 
+	 * @param keys
+	 *            The keys of the required index elements.
+	 * @return An iterator over the matching elements.
+	 */
+	public Iterator<T> getAll(final Iterator<K> keys) {
+		if (mappedIndex == null) {
+			return new MultipleKeyIterator(keys);
+		}
+		
+		return new MappedMultipleKeyIterator(keys);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void close() {
-		indexStoreReader.close();
+		if (indexStoreReader != null) {
+			indexStoreReader.close();
+		}
+	}
+	
+	
+	/**
+	 * Returns the elements for multiple keys by searching for each key in turn.
+	 */
+	private class MultipleKeyIterator implements Iterator<T> {
+		private Iterator<K> keys;
+		private Iterator<T> currentRange;
+		
+		
+		MultipleKeyIterator(Iterator<K> keys) {
+			this.keys = keys;
+		}
+		
+		
+		@Override
+		public boolean hasNext() {
+			while (currentRange == null || !currentRange.hasNext()) {
+				K key;
+				
+				if (!keys.hasNext()) {
+					return false;
+				}
+				
+				key = keys.next();
+				currentRange = getRange(key, key);
+			}
+			
+			return true;
+		}
+		
+		
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			return currentRange.next();
+		}
+		
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	
+	/**
+	 * Returns the elements for multiple keys from a mapped index, searching
+	 * forwards from the previous key while keys are ascending.
+	 */
+	private class MappedMultipleKeyIterator implements Iterator<T> {
+		private Iterator<K> keys;
+		private long searchKey;
+		private long position;
+		private long previousSearchKey;
+		
+		
+		MappedMultipleKeyIterator(Iterator<K> keys) {
+			this.keys = keys;
+			
+			position = mappedIndex.getElementCount();
+			previousSearchKey = Long.MIN_VALUE;
+		}
+		
+		
+		@Override
+		public boolean hasNext() {
+			while (position >= mappedIndex.getElementCount() || mappedIndex.getKey(position) != searchKey) {
+				if (!keys.hasNext()) {
+					return false;
+				}
+				
+				searchKey = mappedIndex.getFormat().toSearchKey(keys.next());
+				
+				if (searchKey > previousSearchKey && position < mappedIndex.getElementCount()) {
+					position = mappedIndex.searchFrom(searchKey, position);
+				} else {
+					position = mappedIndex.search(searchKey);
+				}
+				previousSearchKey = searchKey;
+			}
+			
+			return true;
+		}
+		
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			return (T) mappedIndex.getElement(position++);
+		}
+		
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
 	}
 	
 	
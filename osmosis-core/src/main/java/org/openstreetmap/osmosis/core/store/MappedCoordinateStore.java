@@ -0,0 +1,236 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
+
+
+/**
+ * Stores coordinates for a large range of identifiers in a sparse memory-mapped
+ * temporary file indexed directly by identifier. Each identifier occupies eight
+ * bytes holding the fixed precision longitude and latitude. The file is mapped
+ * in fixed size segments which are only created when an identifier within
+ * their range is first written, and the operating system only allocates disk
+ * blocks and page cache for pages which are actually touched. No coordinate
+ * data is held on the Java heap, and lookups are a single memory read with no
+ * searching.
+ * <p>
+ * Coordinates are stored with their sign bit flipped so that an untouched
+ * (zero) record can be recognised as missing. As a result the single fixed
+ * precision value pair (Integer.MIN_VALUE, Integer.MIN_VALUE), which lies far
+ * outside the valid coordinate range, cannot be stored.
+ * <p>
+ * Identifiers may be added and read in any order. Negative identifiers are
+ * not supported.
+ */
+public class MappedCoordinateStore implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(MappedCoordinateStore.class.getName());
+
+	private static final int RECORD_SIZE = 8;
+	private static final int SEGMENT_RECORD_SHIFT = 23;
+	private static final long SEGMENT_RECORD_COUNT = 1L << SEGMENT_RECORD_SHIFT;
+	private static final long SEGMENT_RECORD_MASK = SEGMENT_RECORD_COUNT - 1;
+	private static final long SEGMENT_SIZE = SEGMENT_RECORD_COUNT * RECORD_SIZE;
+
+	private File file;
+	private RandomAccessFile randomAccessFile;
+	private FileChannel channel;
+	private List<MappedByteBuffer> segments;
+	private long maxId;
+
+
+	/**
+	 * Creates a new instance. The backing file is created when the first
+	 * coordinate is added.
+	 */
+	public MappedCoordinateStore() {
+		segments = new ArrayList<MappedByteBuffer>();
+		maxId = -1;
+	}
+
+
+	private void initializeFile() {
+		try {
+			file = File.createTempFile("nodelatlonmap", null);
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			channel = randomAccessFile.getChannel();
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to create temporary file " + file + ".", e);
+		}
+	}
+
+
+	/**
+	 * Gets the segment holding the specified identifier, mapping it if it
+	 * doesn't exist yet.
+	 */
+	private MappedByteBuffer getOrCreateSegment(int segmentIndex) {
+		MappedByteBuffer segment;
+
+		if (channel == null) {
+			initializeFile();
+		}
+
+		while (segments.size() <= segmentIndex) {
+			segments.add(null);
+		}
+
+		segment = segments.get(segmentIndex);
+		if (segment == null) {
+			try {
+				// Mapping beyond the end of the file extends it without
+				// writing any data so the file remains sparse.
+				segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentIndex * SEGMENT_SIZE, SEGMENT_SIZE);
+				segment.order(ByteOrder.nativeOrder());
+
+			} catch (IOException e) {
+				throw new OsmosisRuntimeException("Unable to map segment " + segmentIndex + " of file " + file + ".", e);
+			}
+			segments.set(segmentIndex, segment);
+
+			if (LOG.isLoggable(Level.FINER)) {
+				LOG.finer("Mapped coordinate store segment " + segmentIndex + " of " + (SEGMENT_SIZE / 1048576)
+						+ "MB.");
+			}
+		}
+
+		return segment;
+	}
+
+
+	/**
+	 * Reads the raw record for the specified identifier.
+	 */
+	private long getRecord(long id) {
+		int segmentIndex;
+		MappedByteBuffer segment;
+
+		if (id < 0 || id > maxId) {
+			return 0;
+		}
+
+		segmentIndex = (int) (id >>> SEGMENT_RECORD_SHIFT);
+		if (segmentIndex >= segments.size()) {
+			return 0;
+		}
+		segment = segments.get(segmentIndex);
+		if (segment == null) {
+			return 0;
+		}
+
+		return segment.getLong((int) (id & SEGMENT_RECORD_MASK) * RECORD_SIZE);
+	}
+
+
+	/**
+	 * Stores the coordinate for the specified identifier, replacing any
+	 * existing value.
+	 *
+	 * @param id
+	 *            The identifier, must not be negative.
+	 * @param longitude
+	 *            The longitude.
+	 * @param latitude
+	 *            The latitude.
+	 */
+	public void setLocation(long id, double longitude, double latitude) {
+		MappedByteBuffer segment;
+		long record;
+
+		if (id < 0) {
+			throw new OsmosisRuntimeException("Negative id " + id + " cannot be stored in a mapped coordinate store.");
+		}
+
+		segment = getOrCreateSegment((int) (id >>> SEGMENT_RECORD_SHIFT));
+
+		record = ((long) (FixedPrecisionCoordinateConvertor.convertToFixed(longitude) ^ Integer.MIN_VALUE) << 32)
+				| ((FixedPrecisionCoordinateConvertor.convertToFixed(latitude) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+		segment.putLong((int) (id & SEGMENT_RECORD_MASK) * RECORD_SIZE, record);
+
+		if (id > maxId) {
+			maxId = id;
+		}
+	}
+
+
+	/**
+	 * Indicates if a coordinate has been stored for the specified identifier.
+	 *
+	 * @param id
+	 *            The identifier.
+	 * @return True if a coordinate exists.
+	 */
+	public boolean contains(long id) {
+		return getRecord(id) != 0;
+	}
+
+
+	/**
+	 * Gets the longitude of the specified identifier. The result is undefined
+	 * if {@link #contains(long)} returns false.
+	 *
+	 * @param id
+	 *            The identifier.
+	 * @return The longitude.
+	 */
+	public double getLongitude(long id) {
+		return FixedPrecisionCoordinateConvertor.convertToDouble(((int) (getRecord(id) >>> 32)) ^ Integer.MIN_VALUE);
+	}
+
+
+	/**
+	 * Gets the latitude of the specified identifier. The result is undefined
+	 * if {@link #contains(long)} returns false.
+	 *
+	 * @param id
+	 *            The identifier.
+	 * @return The latitude.
+	 */
+	public double getLatitude(long id) {
+		return FixedPrecisionCoordinateConvertor.convertToDouble(((int) getRecord(id)) ^ Integer.MIN_VALUE);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// The mappings are released when garbage collected. Most platforms
+		// allow the file to be deleted while still mapped.
+		segments.clear();
+
+		if (channel != null) {
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+				// We cannot throw an exception within a release method.
+				LOG.log(Level.WARNING, "Unable to close file " + file + ".", e);
+			}
+			channel = null;
+			randomAccessFile = null;
+		}
+
+		if (file != null) {
+			if (!file.delete()) {
+				// We cannot throw an exception within a release method.
+				LOG.warning("Unable to delete file " + file);
+			}
+			file = null;
+		}
+	}
+}
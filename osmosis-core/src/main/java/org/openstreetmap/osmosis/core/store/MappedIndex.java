@@ -0,0 +1,274 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Provides read-only access to a sorted index file of fixed width elements
+ * through a memory mapping. Keys are located using interpolation search, which
+ * typically needs only a few probes for the near uniformly distributed
+ * identifiers found in OSM data, falling back to bisection when the key
+ * distribution is skewed. Lookups of keys in ascending order search forwards
+ * from the previous result so that batches of sorted keys are located in a
+ * single pass over the index.
+ * <p>
+ * All access is through absolute reads of the mapping so a single instance may
+ * be shared by any number of readers and threads.
+ */
+public class MappedIndex {
+
+	private static final int SEGMENT_ELEMENT_SHIFT = 26;
+	private static final long SEGMENT_ELEMENT_MASK = (1L << SEGMENT_ELEMENT_SHIFT) - 1;
+
+	/**
+	 * Intervals smaller than this are scanned rather than searched.
+	 */
+	private static final int SCAN_THRESHOLD = 16;
+
+	private FixedWidthIndexFormat format;
+	private int elementSize;
+	private long elementCount;
+	private MappedByteBuffer[] segments;
+
+
+	/**
+	 * Creates a new instance mapping the specified file.
+	 *
+	 * @param file
+	 *            The index file. The file must not be modified while the index
+	 *            is in use.
+	 * @param format
+	 *            The format of the index elements.
+	 */
+	public MappedIndex(File file, FixedWidthIndexFormat format) {
+		this.format = format;
+
+		elementSize = format.getElementSize();
+
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			FileChannel channel = randomAccessFile.getChannel();
+			long segmentSize = (SEGMENT_ELEMENT_MASK + 1) * elementSize;
+			long length;
+			int segmentCount;
+
+			length = channel.size();
+			if (length % elementSize != 0) {
+				throw new OsmosisRuntimeException("Index file " + file + " of length " + length
+						+ " does not contain elements of size " + elementSize + ".");
+			}
+			elementCount = length / elementSize;
+
+			// The mapping remains valid after the channel is closed.
+			segmentCount = (int) ((length + segmentSize - 1) / segmentSize);
+			segments = new MappedByteBuffer[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				long position = i * segmentSize;
+
+				segments[i] = channel.map(
+						FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, length - position));
+			}
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to map index file " + file + ".", e);
+		}
+	}
+
+
+	/**
+	 * Gets the format of the index elements.
+	 *
+	 * @return The format.
+	 */
+	public FixedWidthIndexFormat getFormat() {
+		return format;
+	}
+
+
+	/**
+	 * Gets the number of elements in the index.
+	 *
+	 * @return The element count.
+	 */
+	public long getElementCount() {
+		return elementCount;
+	}
+
+
+	/**
+	 * Gets the search key of the element at the specified position.
+	 *
+	 * @param index
+	 *            The position of the element.
+	 * @return The search key.
+	 */
+	public long getKey(long index) {
+		return format.readKey(
+				segments[(int) (index >>> SEGMENT_ELEMENT_SHIFT)], (int) (index & SEGMENT_ELEMENT_MASK) * elementSize);
+	}
+
+
+	/**
+	 * Gets the value of the element at the specified position.
+	 *
+	 * @param index
+	 *            The position of the element.
+	 * @return The value.
+	 */
+	public long getValue(long index) {
+		return format.readValue(
+				segments[(int) (index >>> SEGMENT_ELEMENT_SHIFT)], (int) (index & SEGMENT_ELEMENT_MASK) * elementSize);
+	}
+
+
+	/**
+	 * Creates the index element at the specified position.
+	 *
+	 * @param index
+	 *            The position of the element.
+	 * @return The index element.
+	 */
+	public IndexElement<?> getElement(long index) {
+		return format.createElement(getKey(index), getValue(index));
+	}
+
+
+	/**
+	 * Returns the position of the first element with a key greater than or
+	 * equal to the specified key.
+	 *
+	 * @param searchKey
+	 *            The search key to locate.
+	 * @return The position of the element, or the element count if all keys
+	 *         are lower.
+	 */
+	public long search(long searchKey) {
+		return search(searchKey, 0, elementCount);
+	}
+
+
+	/**
+	 * Returns the position of the first element at or after the start position
+	 * with a key greater than or equal to the specified key. The distance
+	 * searched grows exponentially from the start position, so keys close to
+	 * the start are located with few probes.
+	 *
+	 * @param searchKey
+	 *            The search key to locate.
+	 * @param start
+	 *            The position to begin searching from.
+	 * @return The position of the element, or the element count if all
+	 *         remaining keys are lower.
+	 */
+	public long searchFrom(long searchKey, long start) {
+		long begin;
+		long end;
+		long step;
+
+		begin = start;
+		end = start;
+		step = 1;
+		while (end < elementCount && getKey(end) < searchKey) {
+			begin = end + 1;
+			end = start + step;
+			step *= 2;
+		}
+
+		return search(searchKey, begin, Math.min(end, elementCount));
+	}
+
+
+	/**
+	 * Locates the first key greater than or equal to the search key within an
+	 * interval known to contain the result.
+	 */
+	private long search(long searchKey, long begin, long end) {
+		boolean bisect;
+
+		// The result lies within begin and end inclusive.
+		bisect = false;
+		while (end - begin > SCAN_THRESHOLD) {
+			long firstKey;
+			long lastKey;
+			long probe;
+			long previousSize;
+
+			firstKey = getKey(begin);
+			if (firstKey >= searchKey) {
+				return begin;
+			}
+			lastKey = getKey(end - 1);
+			if (lastKey < searchKey) {
+				return end;
+			}
+
+			// Estimate the position from the key distribution, but bisect if
+			// the previous estimate didn't at least halve the interval.
+			if (bisect) {
+				probe = begin + (end - begin) / 2;
+			} else {
+				double fraction = ((double) searchKey - firstKey) / ((double) lastKey - firstKey);
+				probe = begin + (long) (fraction * (end - 1 - begin));
+			}
+			probe = Math.max(begin + 1, Math.min(end - 2, probe));
+
+			previousSize = end - begin;
+			if (getKey(probe) < searchKey) {
+				begin = probe + 1;
+			} else {
+				end = probe;
+			}
+			bisect = (end - begin) * 2 > previousSize;
+		}
+
+		while (begin < end && getKey(begin) < searchKey) {
+			begin++;
+		}
+
+		return begin;
+	}
+
+
+	/**
+	 * Iterates over all elements from the specified position.
+	 *
+	 * @param start
+	 *            The position of the first element to return.
+	 * @return The element iterator.
+	 */
+	public Iterator<IndexElement<?>> iterate(final long start) {
+		return new Iterator<IndexElement<?>>() {
+			private long position = start;
+
+
+			@Override
+			public boolean hasNext() {
+				return position < elementCount;
+			}
+
+
+			@Override
+			public IndexElement<?> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				return getElement(position++);
+			}
+
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
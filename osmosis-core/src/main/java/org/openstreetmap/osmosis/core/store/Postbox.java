@@ -0,0 +1,80 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.task.v0_6.Initializable;
+
+
+/**
+ * Defines the operations supported by a mechanism for passing data from one
+ * thread to another. A single input thread calls the {@link Initializable}
+ * methods and put, and a single output thread calls the output methods. See
+ * {@link DataPostbox} for a full description of the calling sequence and
+ * blocking behaviour which all implementations must honour.
+ *
+ * @param <T>
+ *            The type of data held in the postbox.
+ */
+public interface Postbox<T> extends Initializable {
+
+	/**
+	 * Adds a new object to the postbox.
+	 *
+	 * @param o
+	 *            The object to be added.
+	 */
+	void put(T o);
+
+
+	/**
+	 * Notifies that the output thread has begun processing, and gets the
+	 * initialization data set by the input thread. This will block until either
+	 * the input thread has called initialize, or an input error occurs.
+	 *
+	 * @return The initialization data.
+	 */
+	Map<String, Object> outputInitialize();
+
+
+	/**
+	 * Indicates if data is available for output. This will block until either
+	 * data is available, input processing has completed, or an input error
+	 * occurs.
+	 *
+	 * @return True if data is available.
+	 */
+	boolean hasNext();
+
+
+	/**
+	 * Returns the next available object from the postbox. This should be
+	 * preceeded by a call to hasNext.
+	 *
+	 * @return The next available object.
+	 */
+	T getNext();
+
+
+	/**
+	 * Notifies that the output thread has completed processing. This will block
+	 * until either the input thread has called complete, or an input error
+	 * occurs.
+	 */
+	void outputComplete();
+
+
+	/**
+	 * Notifies that the output thread has released. This will block until the
+	 * input thread has also released and the object has been reset.
+	 */
+	void outputRelease();
+
+
+	/**
+	 * Returns the statistics describing how the postbox has been used.
+	 *
+	 * @return The postbox statistics.
+	 */
+	PostboxStatistics getStatistics();
+}
@@ -0,0 +1,17 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+
+/**
+ * Implemented by tasks which pass their input to another thread through a
+ * postbox. This allows the pipeline to report how the postbox is used.
+ */
+public interface PostboxOwner {
+
+	/**
+	 * Returns the statistics of the postbox receiving the task input.
+	 *
+	 * @return The postbox statistics.
+	 */
+	PostboxStatistics getPostboxStatistics();
+}
@@ -0,0 +1,139 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+
+/**
+ * Records how long the threads using a postbox spend waiting for each other
+ * and how full the postbox is. The input thread updates the input blocked time
+ * and the occupancy, the output thread updates the output blocked time. The
+ * values may be read by any thread.
+ */
+public class PostboxStatistics {
+	private int capacity;
+	private volatile long inputBlockedNanos;
+	private volatile long outputBlockedNanos;
+	private volatile int occupancy;
+	private volatile int peakOccupancy;
+	private volatile long occupancyTotal;
+	private volatile long occupancySamples;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param capacity
+	 *            The maximum number of objects held by the postbox.
+	 */
+	public PostboxStatistics(int capacity) {
+		this.capacity = capacity;
+	}
+
+
+	/**
+	 * Adds to the time the input thread has been blocked because the postbox
+	 * was full. This may only be called by the input thread.
+	 *
+	 * @param nanos
+	 *            The blocked time in nanoseconds.
+	 */
+	public void addInputBlockedNanos(long nanos) {
+		inputBlockedNanos += nanos;
+	}
+
+
+	/**
+	 * Adds to the time the output thread has been blocked because the postbox
+	 * was empty. This may only be called by the output thread.
+	 *
+	 * @param nanos
+	 *            The blocked time in nanoseconds.
+	 */
+	public void addOutputBlockedNanos(long nanos) {
+		outputBlockedNanos += nanos;
+	}
+
+
+	/**
+	 * Records the number of objects currently held by the postbox. This may
+	 * only be called by the input thread.
+	 *
+	 * @param count
+	 *            The number of objects in the postbox.
+	 */
+	public void recordOccupancy(int count) {
+		occupancy = count;
+		if (count > peakOccupancy) {
+			peakOccupancy = count;
+		}
+		occupancyTotal += count;
+		occupancySamples++;
+	}
+
+
+	/**
+	 * Returns the maximum number of objects held by the postbox.
+	 *
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+
+	/**
+	 * Returns the time the input thread has been blocked because the postbox
+	 * was full.
+	 *
+	 * @return The blocked time in nanoseconds.
+	 */
+	public long getInputBlockedNanos() {
+		return inputBlockedNanos;
+	}
+
+
+	/**
+	 * Returns the time the output thread has been blocked because the postbox
+	 * was empty.
+	 *
+	 * @return The blocked time in nanoseconds.
+	 */
+	public long getOutputBlockedNanos() {
+		return outputBlockedNanos;
+	}
+
+
+	/**
+	 * Returns the most recently recorded number of objects in the postbox.
+	 *
+	 * @return The occupancy.
+	 */
+	public int getOccupancy() {
+		return occupancy;
+	}
+
+
+	/**
+	 * Returns the highest recorded number of objects in the postbox.
+	 *
+	 * @return The peak occupancy.
+	 */
+	public int getPeakOccupancy() {
+		return peakOccupancy;
+	}
+
+
+	/**
+	 * Returns the average of all recorded numbers of objects in the postbox.
+	 *
+	 * @return The average occupancy.
+	 */
+	public double getAverageOccupancy() {
+		long samples = occupancySamples;
+
+		if (samples <= 0) {
+			return 0;
+		}
+
+		return (double) occupancyTotal / samples;
+	}
+}
@@ -0,0 +1,23 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+/**
+ * Defines the different postbox implementations available for passing data
+ * between threads.
+ */
+public enum PostboxType {
+	/**
+	 * The locking implementation ({@link DataPostbox}) moves data between
+	 * threads in chunks guarded by a single lock. It is the most widely tested
+	 * implementation and the default.
+	 */
+	Locking,
+	/**
+	 * The ring buffer implementation ({@link RingBufferPostbox}) passes data
+	 * through a bounded single-producer single-consumer array without taking a
+	 * lock per chunk. Threads spin briefly before parking when the buffer is
+	 * full or empty. This reduces hand-off overhead where several pipeline
+	 * threads are busy.
+	 */
+	RingBuffer
+}
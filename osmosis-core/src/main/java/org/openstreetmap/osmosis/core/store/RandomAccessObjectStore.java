@@ -178,12 +178,32 @@ public class RandomAccessObjectStore<T extends Storeable> implements Completable
 	 * @return A store reader.
 	 */
 	public RandomAccessObjectStoreReader<T> createReader() {
+		return createReader(null);
+	}
+	
+	
+	/**
+	 * Creates a new reader capable of accessing the contents of this store
+	 * through a block cache which may be shared with other readers. The reader
+	 * must be explicitly released when no longer required. Readers must be
+	 * released prior to this store.
+	 * 
+	 * @param blockCache
+	 *            The cache to read store data through, or null to read the
+	 *            store file directly.
+	 * @return A store reader.
+	 */
+	public RandomAccessObjectStoreReader<T> createReader(BlockCache blockCache) {
 		initializeReadingStage();
 		
 		try {
-			BufferedRandomAccessFileInputStream randomFileReader;
+			RandomAccessInputStream randomFileReader;
 			
-			randomFileReader = new BufferedRandomAccessFileInputStream(storageFile);
+			if (blockCache != null) {
+				randomFileReader = new BlockCachedFileInputStream(storageFile, blockCache);
+			} else {
+				randomFileReader = new BufferedRandomAccessFileInputStream(storageFile);
+			}
 			
 			return new RandomAccessObjectStoreReader<T>(
 				randomFileReader,
@@ -199,6 +219,20 @@ public class RandomAccessObjectStore<T extends Storeable> implements Completable
 	}
 	
 	
+	/**
+	 * Gets the file containing the stored objects for reading. As with
+	 * {@link #createReader()}, no further objects may be added once this has
+	 * been called.
+	 * 
+	 * @return The storage file.
+	 */
+	File getStorageFile() {
+		initializeReadingStage();
+		
+		return storageFile;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
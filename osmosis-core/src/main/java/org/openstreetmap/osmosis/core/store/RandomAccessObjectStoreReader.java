@@ -2,7 +2,10 @@
 package org.openstreetmap.osmosis.core.store;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,8 +26,9 @@ import org.openstreetmap.osmosis.core.lifecycle.Closeable;
  */
 public class RandomAccessObjectStoreReader<T> implements Closeable {
 	private static final Logger LOG = Logger.getLogger(RandomAccessObjectStoreReader.class.getName());
+	private static final int BATCH_SIZE = 4096;
 	
-	private BufferedRandomAccessFileInputStream randomFile;
+	private RandomAccessInputStream randomFile;
 	private ObjectReader objectReader;
 	
 	
@@ -36,7 +40,7 @@ public class RandomAccessObjectStoreReader<T> implements Closeable {
 	 * @param objectReader
 	 *            The reader containing the objects to be deserialized.
 	 */
-	public RandomAccessObjectStoreReader(BufferedRandomAccessFileInputStream randomFile, ObjectReader objectReader) {
+	public RandomAccessObjectStoreReader(RandomAccessInputStream randomFile, ObjectReader objectReader) {
 		this.randomFile = randomFile;
 		this.objectReader = objectReader;
 	}
@@ -72,6 +76,21 @@ public class RandomAccessObjectStoreReader<T> implements Closeable {
 	}
 	
 	
+	/**
+	 * Reads the objects at the file offsets held in the values of a sequence of
+	 * index elements. Offsets are read in batches, and each batch is read in
+	 * ascending file offset order to minimise seeking regardless of the order
+	 * of the index elements.
+	 * 
+	 * @param offsetElements
+	 *            The index elements containing the file offsets to read.
+	 * @return The objects in the same order as the index elements.
+	 */
+	public Iterator<T> getAll(Iterator<LongLongIndexElement> offsetElements) {
+		return new BatchIterator(offsetElements);
+	}
+	
+	
 	/**
 	 * Returns the length of data.
 	 * 
@@ -141,4 +160,91 @@ public class RandomAccessObjectStoreReader<T> implements Closeable {
 			randomFile = null;
 		}
 	}
+	
+	
+	/**
+	 * Reads objects for a sequence of offsets in batches sorted by offset.
+	 */
+	private class BatchIterator implements Iterator<T> {
+		private Iterator<LongLongIndexElement> offsetElements;
+		private long[] offsets;
+		private Object[] objects;
+		private int batchCount;
+		private int batchPosition;
+		
+		
+		BatchIterator(Iterator<LongLongIndexElement> offsetElements) {
+			this.offsetElements = offsetElements;
+			
+			offsets = new long[BATCH_SIZE];
+			objects = new Object[BATCH_SIZE];
+		}
+		
+		
+		private void readBatch() {
+			final long[] batchOffsets = offsets;
+			boolean sorted;
+			
+			Arrays.fill(objects, 0, batchCount, null);
+			
+			batchCount = 0;
+			batchPosition = 0;
+			sorted = true;
+			while (batchCount < BATCH_SIZE && offsetElements.hasNext()) {
+				offsets[batchCount] = offsetElements.next().getValue();
+				if (batchCount > 0 && offsets[batchCount] < offsets[batchCount - 1]) {
+					sorted = false;
+				}
+				batchCount++;
+			}
+			
+			if (sorted) {
+				for (int i = 0; i < batchCount; i++) {
+					objects[i] = get(offsets[i]);
+				}
+			} else {
+				Integer[] order = new Integer[batchCount];
+				
+				for (int i = 0; i < batchCount; i++) {
+					order[i] = i;
+				}
+				Arrays.sort(order, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer o1, Integer o2) {
+						return Long.compare(batchOffsets[o1], batchOffsets[o2]);
+					}
+				});
+				for (Integer i : order) {
+					objects[i] = get(offsets[i]);
+				}
+			}
+		}
+		
+		
+		@Override
+		public boolean hasNext() {
+			if (batchPosition >= batchCount) {
+				readBatch();
+			}
+			
+			return batchPosition < batchCount;
+		}
+		
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			return (T) objects[batchPosition++];
+		}
+		
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
@@ -0,0 +1,674 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * <p>
+ * A postbox implementation passing data between a single input thread and a
+ * single output thread through a bounded ring buffer. It honours exactly the
+ * same calling sequence, blocking rules and error propagation as
+ * {@link DataPostbox}, but data is exchanged without acquiring a lock.
+ * </p>
+ * <p>
+ * The input thread writes objects directly into ring slots and publishes its
+ * write position once per batch. The output thread reads all published
+ * objects without further synchronisation and publishes its read position
+ * once per batch. When the buffer is full (or empty) the waiting thread spins
+ * for a short time, then yields, and finally parks until the other thread
+ * publishes more progress. The lock is only used for the initialize, complete
+ * and release handshakes which occur once per pipeline invocation.
+ * </p>
+ * <p>
+ * In addition to the single object put and getNext methods, batch putAll and
+ * drainTo methods are provided to allow callers to move many objects at once.
+ * </p>
+ *
+ * @param <T>
+ *            The type of data held in the postbox.
+ */
+public class RingBufferPostbox<T> implements Postbox<T> {
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final int SPIN_LIMIT = 100;
+	private static final int YIELD_LIMIT = 10;
+	private static final long PARK_NANOS = 100000;
+
+	private int bufferCapacity;
+	private int mask;
+	private int batchSize;
+	private Object[] ring;
+	private AtomicLong head;
+	private AtomicLong tail;
+
+	// Owned by the input thread.
+	private long producerIndex;
+	private long producerPublished;
+	private long producerHeadCache;
+
+	// Owned by the output thread.
+	private long consumerIndex;
+	private long consumerPublished;
+	private long consumerTailCache;
+
+	private volatile Thread waitingProducer;
+	private volatile Thread waitingConsumer;
+
+	private Lock lock;
+	private Condition dataWaitCondition;
+	private Map<String, Object> processingMetaData;
+	private boolean inputInitialized;
+	private boolean outputInitialized;
+	// These flags are read by the data transfer methods outside the lock.
+	private volatile boolean inputComplete;
+	private volatile boolean inputOkay;
+	private volatile boolean outputOkay;
+	private boolean outputComplete;
+	private boolean inputReleased;
+	private boolean outputReleased;
+	private boolean inputExit;
+	private boolean outputExit;
+	private PostboxStatistics statistics;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param capacity
+	 *            The maximum number of objects to hold in the postbox before
+	 *            blocking. This is rounded up to the next power of two.
+	 */
+	public RingBufferPostbox(int capacity) {
+		if (capacity <= 0 || capacity > MAXIMUM_CAPACITY) {
+			throw new OsmosisRuntimeException("A capacity of " + capacity + " is invalid, must be between 1 and "
+					+ MAXIMUM_CAPACITY + ".");
+		}
+
+		bufferCapacity = 1;
+		while (bufferCapacity < capacity) {
+			bufferCapacity <<= 1;
+		}
+		mask = bufferCapacity - 1;
+
+		// Publish positions every quarter of the buffer, this matches the chunk
+		// size used by DataPostbox.
+		batchSize = bufferCapacity / 4;
+		if (batchSize <= 0) {
+			batchSize = 1;
+		}
+
+		ring = new Object[bufferCapacity];
+		head = new AtomicLong();
+		tail = new AtomicLong();
+
+		lock = new ReentrantLock();
+		dataWaitCondition = lock.newCondition();
+
+		inputInitialized = false;
+		outputInitialized = false;
+		inputComplete = false;
+		outputComplete = false;
+		inputReleased = false;
+		outputReleased = false;
+		inputExit = true;
+		outputExit = true;
+		inputOkay = true;
+		outputOkay = true;
+
+		statistics = new PostboxStatistics(bufferCapacity);
+
+		initializeQueues();
+	}
+
+
+	private void initializeQueues() {
+		Arrays.fill(ring, null);
+		head.set(0);
+		tail.set(0);
+		producerIndex = 0;
+		producerPublished = 0;
+		producerHeadCache = 0;
+		consumerIndex = 0;
+		consumerPublished = 0;
+		consumerTailCache = 0;
+	}
+
+
+	/**
+	 * This is called by the input thread to validate that no errors have
+	 * occurred on the output thread.
+	 */
+	private void checkForOutputErrors() {
+		if (!outputOkay) {
+			throw new OsmosisRuntimeException("An output error has occurred, aborting.");
+		}
+	}
+
+
+	/**
+	 * This is called by the output thread to validate that no errors have
+	 * occurred on the input thread.
+	 */
+	private void checkForInputErrors() {
+		if (!inputOkay) {
+			throw new OsmosisRuntimeException("An input error has occurred, aborting.");
+		}
+	}
+
+
+	/**
+	 * Either thread can call this method when they wish to wait until a
+	 * lifecycle update has been performed by the other thread.
+	 */
+	private void waitForUpdate() {
+		try {
+			dataWaitCondition.await();
+
+		} catch (InterruptedException e) {
+			throw new OsmosisRuntimeException("Thread was interrupted.", e);
+		}
+	}
+
+
+	/**
+	 * Either thread can call this method when they wish to signal the other
+	 * thread that a lifecycle update has occurred. Both threads are also woken
+	 * if they are parked waiting for data.
+	 */
+	private void signalUpdate() {
+		dataWaitCondition.signal();
+		wake(waitingProducer);
+		wake(waitingConsumer);
+	}
+
+
+	private static void wake(Thread thread) {
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+
+	/**
+	 * Backs off while waiting for the other thread to make progress. The first
+	 * calls return immediately, later calls yield, and finally the thread parks
+	 * for a short period or until it is woken.
+	 *
+	 * @param attempt
+	 *            The number of times the caller has already waited.
+	 */
+	private void backOff(int attempt) {
+		if (attempt < SPIN_LIMIT) {
+			return;
+		} else if (attempt < SPIN_LIMIT + YIELD_LIMIT) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(this, PARK_NANOS);
+			if (Thread.interrupted()) {
+				throw new OsmosisRuntimeException("Thread was interrupted.");
+			}
+		}
+	}
+
+
+	/**
+	 * Makes all objects written so far visible to the output thread.
+	 */
+	private void publishTail() {
+		checkForOutputErrors();
+
+		if (producerIndex != producerPublished) {
+			tail.set(producerIndex);
+			producerPublished = producerIndex;
+			statistics.recordOccupancy((int) (producerIndex - head.get()));
+			wake(waitingConsumer);
+		}
+	}
+
+
+	/**
+	 * Makes all slots read so far available to the input thread.
+	 */
+	private void publishHead() {
+		if (consumerIndex != consumerPublished) {
+			head.set(consumerIndex);
+			consumerPublished = consumerIndex;
+			wake(waitingProducer);
+		}
+	}
+
+
+	/**
+	 * Blocks the input thread until at least one slot is free.
+	 */
+	private void waitForSpace() {
+		long waitStart = System.nanoTime();
+		int attempt = 0;
+
+		publishTail();
+
+		while (true) {
+			producerHeadCache = head.get();
+			if (producerIndex - producerHeadCache < bufferCapacity) {
+				statistics.addInputBlockedNanos(System.nanoTime() - waitStart);
+				return;
+			}
+
+			checkForOutputErrors();
+
+			if (attempt >= SPIN_LIMIT + YIELD_LIMIT) {
+				// Register before re-checking to avoid missing a wake up.
+				waitingProducer = Thread.currentThread();
+				try {
+					if (producerIndex - head.get() >= bufferCapacity && outputOkay) {
+						backOff(attempt);
+					}
+				} finally {
+					waitingProducer = null;
+				}
+			} else {
+				backOff(attempt);
+				attempt++;
+			}
+		}
+	}
+
+
+	/**
+	 * Blocks the output thread until either data is available, or input has
+	 * completed.
+	 *
+	 * @return True if data is available.
+	 */
+	private boolean waitForData() {
+		long waitStart = System.nanoTime();
+		int attempt = 0;
+
+		publishHead();
+
+		while (true) {
+			consumerTailCache = tail.get();
+			if (consumerIndex < consumerTailCache) {
+				statistics.addOutputBlockedNanos(System.nanoTime() - waitStart);
+				return true;
+			}
+
+			checkForInputErrors();
+
+			if (inputComplete) {
+				statistics.addOutputBlockedNanos(System.nanoTime() - waitStart);
+				// The final data is published before the complete flag is set.
+				consumerTailCache = tail.get();
+				return consumerIndex < consumerTailCache;
+			}
+
+			if (attempt >= SPIN_LIMIT + YIELD_LIMIT) {
+				// Register before re-checking to avoid missing a wake up.
+				waitingConsumer = Thread.currentThread();
+				try {
+					if (consumerIndex >= tail.get() && !inputComplete && inputOkay) {
+						backOff(attempt);
+					}
+				} finally {
+					waitingConsumer = null;
+				}
+			} else {
+				backOff(attempt);
+				attempt++;
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		if (inputInitialized) {
+			throw new OsmosisRuntimeException("initialize has already been called");
+		}
+
+		lock.lock();
+
+		try {
+			checkForOutputErrors();
+
+			processingMetaData = metaData;
+			inputInitialized = true;
+
+			signalUpdate();
+
+			// Now we must wait until the output thread initializes or
+			// encounters an error.
+			while (!outputInitialized) {
+				waitForUpdate();
+				checkForOutputErrors();
+			}
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(T o) {
+		if (!inputInitialized) {
+			throw new OsmosisRuntimeException("initialize has not been called");
+		}
+
+		if (producerIndex - producerHeadCache >= bufferCapacity) {
+			waitForSpace();
+		}
+
+		ring[(int) (producerIndex & mask)] = o;
+		producerIndex++;
+
+		if (producerIndex - producerPublished >= batchSize) {
+			publishTail();
+		}
+	}
+
+
+	/**
+	 * Adds a group of objects to the postbox.
+	 *
+	 * @param objects
+	 *            The objects to be added.
+	 */
+	public void putAll(Collection<? extends T> objects) {
+		for (T o : objects) {
+			put(o);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		if (!inputInitialized) {
+			throw new OsmosisRuntimeException("initialize has not been called");
+		}
+
+		publishTail();
+
+		lock.lock();
+
+		try {
+			inputComplete = true;
+
+			signalUpdate();
+
+			// Now we must wait until the output thread completes or
+			// encounters an error.
+			while (!outputComplete) {
+				waitForUpdate();
+				checkForOutputErrors();
+			}
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * This method conforms to the
+	 * {@link org.openstreetmap.osmosis.core.lifecycle.Closeable} contract,
+	 * however there are limitations around calling it multiple times. Each call
+	 * to this method must be matched by a call to the outputRelease method in a
+	 * separate thread or deadlock will occur.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+
+		try {
+			// If release is being called without having completed successfully,
+			// it is an error condition.
+			if (!inputComplete) {
+				inputOkay = false;
+			}
+
+			inputReleased = true;
+			inputExit = false;
+			signalUpdate();
+
+			// Wait until the output thread releases.
+			while (!outputReleased) {
+				waitForUpdate();
+			}
+
+			// At this point both threads have reached a release state so we can
+			// reset our state.
+			initializeQueues();
+			inputInitialized = false;
+			inputComplete = false;
+			inputReleased = false;
+			inputExit = true;
+			inputOkay = true;
+			signalUpdate();
+
+			// Wait for the output thread to exit.
+			while (!outputExit) {
+				waitForUpdate();
+			}
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, Object> outputInitialize() {
+		if (outputInitialized) {
+			throw new OsmosisRuntimeException("outputInitialize has already been called");
+		}
+
+		lock.lock();
+
+		try {
+			checkForInputErrors();
+
+			// We must wait until the input thread initializes or
+			// encounters an error.
+			while (!inputInitialized) {
+				waitForUpdate();
+				checkForInputErrors();
+			}
+
+			outputInitialized = true;
+			signalUpdate();
+
+			return processingMetaData;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasNext() {
+		if (!outputInitialized) {
+			throw new OsmosisRuntimeException("outputInitialize has not been called");
+		}
+
+		if (consumerIndex < consumerTailCache) {
+			return true;
+		}
+
+		return waitForData();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public T getNext() {
+		if (hasNext()) {
+			int slot = (int) (consumerIndex & mask);
+			@SuppressWarnings("unchecked")
+			T result = (T) ring[slot];
+
+			ring[slot] = null;
+			consumerIndex++;
+
+			if (consumerIndex - consumerPublished >= batchSize) {
+				publishHead();
+			}
+
+			return result;
+
+		} else {
+			throw new OsmosisRuntimeException("No data is available, should call hasNext first.");
+		}
+	}
+
+
+	/**
+	 * Removes up to the specified number of objects from the postbox and adds
+	 * them to the target collection. This will block until at least one object
+	 * is available, or until input processing has completed.
+	 *
+	 * @param target
+	 *            The collection to receive the objects.
+	 * @param maxObjects
+	 *            The maximum number of objects to remove.
+	 * @return The number of objects removed, 0 means no more data is available.
+	 */
+	public int drainTo(Collection<? super T> target, int maxObjects) {
+		int count;
+
+		if (!hasNext()) {
+			return 0;
+		}
+
+		count = (int) Math.min(maxObjects, consumerTailCache - consumerIndex);
+		for (int i = 0; i < count; i++) {
+			int slot = (int) (consumerIndex & mask);
+			@SuppressWarnings("unchecked")
+			T o = (T) ring[slot];
+
+			target.add(o);
+			ring[slot] = null;
+			consumerIndex++;
+		}
+
+		if (consumerIndex - consumerPublished >= batchSize) {
+			publishHead();
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void outputComplete() {
+		if (!outputInitialized) {
+			throw new OsmosisRuntimeException("outputInitialize has not been called");
+		}
+
+		lock.lock();
+
+		try {
+			checkForInputErrors();
+
+			// We must wait until the input thread completes or encounters an
+			// error.
+			while (!inputComplete) {
+				waitForUpdate();
+				checkForInputErrors();
+			}
+
+			outputComplete = true;
+			signalUpdate();
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void outputRelease() {
+		lock.lock();
+
+		try {
+			// If release is being called without having completed successfully,
+			// it is an error condition.
+			if (!outputComplete) {
+				outputOkay = false;
+				signalUpdate();
+			}
+
+			// Wait until the input thread is released.
+			while (!inputReleased) {
+				waitForUpdate();
+			}
+
+			// At this point both threads have reached a release state so we can
+			// set out state as released but waiting for exit.
+			outputInitialized = false;
+			outputComplete = false;
+			outputReleased = true;
+			outputExit = false;
+			outputOkay = true;
+			signalUpdate();
+
+			// Wait until the input thread has reached the exit point.
+			while (!inputExit) {
+				waitForUpdate();
+			}
+
+			// The input thread has reached exit, so now we can clear the
+			// release flag (required so that subsequent iterations if they
+			// exist must go through the same handshake sequence) and flag that
+			// we've reached exit.
+			outputReleased = false;
+			outputExit = true;
+			signalUpdate();
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PostboxStatistics getStatistics() {
+		return statistics;
+	}
+}
@@ -12,11 +12,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPOutputStream;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.lifecycle.Completable;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.util.FastGZIPOutputStream;
 import org.openstreetmap.osmosis.core.util.MultiMemberGZIPInputStream;
 
 
@@ -111,13 +111,12 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 				if (useCompression) {
 					dataOutStream = new DataOutputStream(
 							new BufferedOutputStream(
-									new GZIPOutputStream(arrayOutStream), 65536));
+									new FastGZIPOutputStream(arrayOutStream, 65536), 65536));
 				} else {
 					dataOutStream = new DataOutputStream(new BufferedOutputStream(arrayOutStream, 65536));
 				}
 				
-				objectWriter = serializationFactory.createObjectWriter(
-						new DataOutputStoreWriter(dataOutStream), storeClassRegister);
+				objectWriter = new CompactObjectWriter(serializationFactory, dataOutStream, storeClassRegister);
 				
 				chunkActive = true;
 				
@@ -274,7 +273,7 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 				if (useCompression) {
 					dataInStream = new DataInputStream(
 							new BufferedInputStream(
-									new MultiMemberGZIPInputStream(fileStream), 65536));
+									new MultiMemberGZIPInputStream(fileStream, 65536), 65536));
 				} else {
 					dataInStream = new DataInputStream(new BufferedInputStream(fileStream, 65536));
 				}
@@ -287,8 +286,7 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 			// the reference now so it isn't closed on method exit.
 			fileStream = null;
 			
-			objectReader = serializationFactory.createObjectReader(
-					new DataInputStoreReader(dataInStream), storeClassRegister);
+			objectReader = new CompactObjectReader(serializationFactory, dataInStream, storeClassRegister);
 			
 			if (maxObjectCount >= 0) {
 				return new SubObjectStreamIterator<T>(dataInStream, objectReader, maxObjectCount);
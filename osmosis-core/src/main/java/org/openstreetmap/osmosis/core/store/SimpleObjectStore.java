@@ -11,11 +11,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPOutputStream;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.lifecycle.Completable;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.util.FastGZIPOutputStream;
 import org.openstreetmap.osmosis.core.util.MultiMemberGZIPInputStream;
 
 
@@ -85,14 +85,13 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 				
 				if (useCompression) {
 					dataOutStream = new DataOutputStream(
-							new BufferedOutputStream(new GZIPOutputStream(fileOutStream), 65536));
+							new BufferedOutputStream(new FastGZIPOutputStream(fileOutStream, 65536), 65536));
 				} else {
 					dataOutStream = new DataOutputStream(
 							new BufferedOutputStream(fileOutStream, 65536));
 				}
 				
-				objectWriter = serializationFactory.createObjectWriter(
-						new DataOutputStoreWriter(dataOutStream), storeClassRegister);
+				objectWriter = new CompactObjectWriter(serializationFactory, dataOutStream, storeClassRegister);
 				
 				stage = StorageStage.Add;
 				
@@ -173,7 +172,7 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 			try {
 				if (useCompression) {
 					dataInStream = new DataInputStream(
-							new BufferedInputStream(new MultiMemberGZIPInputStream(fileStream), 65536));
+							new BufferedInputStream(new MultiMemberGZIPInputStream(fileStream, 65536), 65536));
 				} else {
 					dataInStream = new DataInputStream(
 							new BufferedInputStream(fileStream, 65536));
@@ -189,8 +188,7 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 			
 			return new ObjectStreamIterator<T>(
 					dataInStream,
-					serializationFactory.createObjectReader(
-							new DataInputStoreReader(dataInStream), storeClassRegister));
+					new CompactObjectReader(serializationFactory, dataInStream, storeClassRegister));
 			
 		} finally {
 			if (fileStream != null) {
@@ -206,11 +204,15 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 	
 	
 	/**
-	 * {@inheritDoc}
+	 * Flushes and closes the underlying output file. No further data may be
+	 * added, but the store may still be iterated. This allows many stores to
+	 * be populated without holding a file handle open for each one.
 	 */
 	@Override
 	public void complete() {
-		// Do nothing.
+		if (stage.compareTo(StorageStage.Add) == 0) {
+			initializeIteratingStage();
+		}
 	}
 	
 	
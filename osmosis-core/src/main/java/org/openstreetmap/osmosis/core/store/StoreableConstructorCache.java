@@ -1,6 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.store;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,11 +17,17 @@ import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
  * StoreClassRegister as arguments. This class uses reflection to obtain the
  * required constructor and is suitable for validating classes being written to
  * a store as well as obtaining suitable constructors when reading from a store.
+ * Readers should use the constructor method handles which avoid the overhead of
+ * reflective invocation.
  * 
  * @author Brett Henderson
  */
 public class StoreableConstructorCache {
+	private static final MethodType STOREABLE_CONSTRUCTOR_TYPE =
+			MethodType.methodType(Storeable.class, StoreReader.class, StoreClassRegister.class);
+	
 	private Map<Class<?>, Constructor<?>> cache;
+	private Map<Class<?>, MethodHandle> handleCache;
 	
 	
 	/**
@@ -26,6 +35,7 @@ public class StoreableConstructorCache {
 	 */
 	public StoreableConstructorCache() {
 		cache = new HashMap<Class<?>, Constructor<?>>();
+		handleCache = new HashMap<Class<?>, MethodHandle>();
 	}
 	
 	
@@ -57,4 +67,36 @@ public class StoreableConstructorCache {
 		
 		return constructor;
 	}
+	
+	
+	/**
+	 * Returns a method handle invoking the constructor on the specified class
+	 * that is used for loading state from a data store. The handle accepts a
+	 * StoreReader and StoreClassRegister and returns a Storeable, allowing it to
+	 * be called with invokeExact.
+	 * 
+	 * @param clazz
+	 *            The class with the storeable constructor.
+	 * @return The storeable class constructor handle.
+	 */
+	public MethodHandle getStoreableConstructorHandle(Class<?> clazz) {
+		MethodHandle handle;
+		
+		handle = handleCache.get(clazz);
+		if (handle == null) {
+			Constructor<?> constructor = getStoreableConstructor(clazz);
+			
+			try {
+				handle = MethodHandles.lookup().unreflectConstructor(constructor).asType(STOREABLE_CONSTRUCTOR_TYPE);
+				
+			} catch (IllegalAccessException e) {
+				throw new OsmosisRuntimeException(
+						"The class " + clazz.getName() + " could not be instantiated.", e);
+			}
+			
+			handleCache.put(clazz, handle);
+		}
+		
+		return handle;
+	}
 }
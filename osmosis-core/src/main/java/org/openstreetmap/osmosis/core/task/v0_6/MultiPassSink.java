@@ -0,0 +1,40 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.task.v0_6;
+
+import java.util.Set;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+
+
+/**
+ * Extends the sink interface for tasks able to read their input more than
+ * once instead of storing it. Sources able to replay their data, such as a
+ * seekable file reader, offer multiple passes to sinks implementing this
+ * interface. All other sources send their data once as usual.
+ * <p>
+ * When multiple passes are enabled the source sends its data, then calls
+ * {@link #completePass()}, and repeats until no further pass is requested.
+ * {@link #complete()} is called once after the final pass.
+ */
+public interface MultiPassSink extends Sink {
+
+	/**
+	 * Offers multiple passes to the sink. This is called by sources able to
+	 * replay their data before {@link #initialize(java.util.Map)}.
+	 *
+	 * @return True if the sink will use multiple passes.
+	 */
+	boolean enableMultiPass();
+
+
+	/**
+	 * Notifies the sink that a pass over the data is complete. This is only
+	 * called if multiple passes have been enabled.
+	 *
+	 * @return The entity types required in the next pass, or null if no
+	 *         further passes are required. The source may skip data not
+	 *         containing these types, but is not required to, so sinks must
+	 *         ignore any other entities received during the pass.
+	 */
+	Set<EntityType> completePass();
+}
@@ -0,0 +1,24 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.task.v0_6;
+
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
+
+
+/**
+ * Extends the sink interface for tasks able to consume nodes in columnar
+ * batches without requiring a node object per entity. Producers must only send
+ * batches to sinks implementing this interface, and should use
+ * {@link NodeBatchContainer#process(Sink)} which falls back to individual node
+ * containers for all other sinks.
+ */
+public interface NodeBatchSink extends Sink {
+
+	/**
+	 * Process a batch of nodes. The batch must not be modified by the caller
+	 * after it has been passed to this method because the sink may retain it.
+	 *
+	 * @param batch
+	 *            The nodes to be processed.
+	 */
+	void process(NodeBatchContainer batch);
+}
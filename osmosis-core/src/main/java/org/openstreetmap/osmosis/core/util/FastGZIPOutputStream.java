@@ -0,0 +1,32 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * A gzip output stream using the fastest compression level. This suits
+ * temporary files which are read back once, where compression speed matters
+ * more than size. The output can be read by any gzip input stream.
+ */
+public class FastGZIPOutputStream extends GZIPOutputStream {
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param out
+	 *            The output stream.
+	 * @param size
+	 *            The buffer size.
+	 * @throws IOException
+	 *             if an IO exception occurs.
+	 */
+	public FastGZIPOutputStream(OutputStream out, int size) throws IOException {
+		super(out, size);
+		
+		def.setLevel(Deflater.BEST_SPEED);
+	}
+}
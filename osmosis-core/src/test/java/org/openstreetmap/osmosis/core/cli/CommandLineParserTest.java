@@ -127,6 +127,42 @@ public class CommandLineParserTest {
 	}
 	
 	
+	/**
+	 * Validates the metrics option.
+	 */
+	@Test
+	public void testMetricsOption() {
+		CommandLineParser commandLineParser;
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String [] {});
+		Assert.assertFalse("Metrics should be disabled by default.", commandLineParser.isMetricsEnabled());
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String [] {"-m"});
+		Assert.assertTrue("Metrics should be enabled.", commandLineParser.isMetricsEnabled());
+		Assert.assertNull("No metrics file should be set.", commandLineParser.getMetricsFile());
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String [] {"-metrics", "metrics.json", "5"});
+		Assert.assertTrue("Metrics should be enabled.", commandLineParser.isMetricsEnabled());
+		Assert.assertEquals("Incorrect metrics file.", "metrics.json", commandLineParser.getMetricsFile());
+		Assert.assertEquals("Incorrect metrics interval.", 5, commandLineParser.getMetricsInterval());
+	}
+	
+	
+	/**
+	 * Validates failure when the metrics interval is invalid.
+	 */
+	@Test (expected = OsmosisRuntimeException.class)
+	public void testInvalidMetricsInterval() {
+		CommandLineParser commandLineParser;
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String [] {"-m", "metrics.json", "0"});
+	}
+	
+	
 	/**
 	 * Validates failure when an unknown option is specified.
 	 */
@@ -0,0 +1,118 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.container.v0_6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.testutil.v0_6.SinkEntityInspector;
+
+
+/**
+ * Tests the node batch container.
+ */
+public class NodeBatchContainerTest {
+
+	private List<Node> buildNodes() {
+		List<Node> nodes = new ArrayList<Node>();
+
+		nodes.add(new Node(new CommonEntityData(1, 2, new Date(1000000), new OsmUser(12, "user12"), 3,
+				new ArrayList<Tag>()), 10.5, -20.25));
+		nodes.add(new Node(new CommonEntityData(2, 1, new Date(2000000), OsmUser.NONE, 4,
+				Arrays.asList(new Tag("amenity", "bench"), new Tag("name", "Bench"))), -45, 170));
+		nodes.add(new Node(new CommonEntityData(5, 7, new Date(3000000), new OsmUser(12, "user12"), 5,
+				Arrays.asList(new Tag("name", "Tree"))), 0, 0));
+
+		return nodes;
+	}
+
+
+	private void assertNodesEqual(Node expected, Node actual) {
+		Assert.assertEquals(expected.getId(), actual.getId());
+		Assert.assertEquals(expected.getVersion(), actual.getVersion());
+		Assert.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+		Assert.assertEquals(expected.getUser(), actual.getUser());
+		Assert.assertEquals(expected.getChangesetId(), actual.getChangesetId());
+		Assert.assertEquals(expected.getLatitude(), actual.getLatitude(), 0);
+		Assert.assertEquals(expected.getLongitude(), actual.getLongitude(), 0);
+		Assert.assertEquals("Node " + expected.getId() + " is incorrect.", 0, expected.compareTo(actual));
+	}
+
+
+	/**
+	 * Verifies that nodes added to a batch are materialised unchanged.
+	 */
+	@Test
+	public void testNodeRoundTrip() {
+		List<Node> nodes = buildNodes();
+		NodeBatchContainer batch = new NodeBatchContainer();
+
+		for (Node node : nodes) {
+			batch.add(node);
+		}
+
+		Assert.assertEquals(nodes.size(), batch.size());
+		Assert.assertTrue(batch.hasTags());
+		for (int i = 0; i < nodes.size(); i++) {
+			assertNodesEqual(nodes.get(i), batch.getNode(i));
+		}
+		Assert.assertSame(OsmUser.NONE, batch.getNode(1).getUser());
+		Assert.assertEquals(batch.getTagStart(1) + 2, batch.getTagEnd(1));
+		Assert.assertEquals("amenity", batch.getTagKey(batch.getTagStart(1)));
+	}
+
+
+	/**
+	 * Verifies that nodes copied between batches sharing a string table are
+	 * unchanged.
+	 */
+	@Test
+	public void testCopyBetweenBatches() {
+		List<Node> nodes = buildNodes();
+		NodeBatchContainer source = new NodeBatchContainer();
+		NodeBatchContainer target;
+
+		for (Node node : nodes) {
+			source.add(node);
+		}
+
+		target = new NodeBatchContainer(source.getStrings(), 1);
+		target.add(source, 2);
+		target.add(source, 1);
+
+		Assert.assertEquals(2, target.size());
+		assertNodesEqual(nodes.get(2), target.getNode(0));
+		assertNodesEqual(nodes.get(1), target.getNode(1));
+	}
+
+
+	/**
+	 * Verifies that a sink without batch support receives individual nodes.
+	 */
+	@Test
+	public void testFallbackToNodeContainers() {
+		List<Node> nodes = buildNodes();
+		NodeBatchContainer batch = new NodeBatchContainer();
+		SinkEntityInspector inspector = new SinkEntityInspector();
+		int i = 0;
+
+		for (Node node : nodes) {
+			batch.add(node);
+		}
+
+		batch.process(inspector);
+
+		for (EntityContainer container : inspector.getProcessedEntities()) {
+			Assert.assertTrue(container instanceof NodeContainer);
+			assertNodesEqual(nodes.get(i++), ((NodeContainer) container).getEntity());
+		}
+		Assert.assertEquals(nodes.size(), i);
+	}
+}
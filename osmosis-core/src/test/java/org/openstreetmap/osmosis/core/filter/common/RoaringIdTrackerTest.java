@@ -0,0 +1,116 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.filter.common;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the roaring id tracker implementation.
+ */
+public class RoaringIdTrackerTest extends IdTrackerBase {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected IdTracker getImplementation() {
+		return new RoaringIdTracker();
+	}
+
+
+	private void assertContents(TreeSet<Long> expected, RoaringIdTracker tracker) {
+		PrimitiveIterator.OfLong iterator = tracker.iterator();
+
+		for (long id : expected) {
+			Assert.assertTrue("Id " + id + " should be set.", tracker.get(id));
+			Assert.assertTrue("Iterator ended before id " + id + ".", iterator.hasNext());
+			Assert.assertEquals(id, iterator.nextLong());
+		}
+		Assert.assertFalse("Iterator returned unexpected ids.", iterator.hasNext());
+	}
+
+
+	/**
+	 * Tests random ids across the full 64-bit range including values that
+	 * cause containers to switch between array and bitmap storage.
+	 */
+	@Test
+	public void testRandomIds() {
+		Random random = new Random(1);
+		TreeSet<Long> expected = new TreeSet<Long>();
+		RoaringIdTracker tracker = new RoaringIdTracker();
+
+		expected.add(Long.MIN_VALUE);
+		expected.add(Long.MAX_VALUE);
+		expected.add(-1L);
+		expected.add(0L);
+		for (int i = 0; i < 20000; i++) {
+			// A dense cluster which becomes a bitmap container.
+			expected.add(1000000L + random.nextInt(10000));
+			// A sparse spread which stays in array containers.
+			expected.add(random.nextLong());
+			// Negative ids near zero.
+			expected.add((long) -random.nextInt(200000));
+		}
+
+		for (long id : expected.descendingSet()) {
+			tracker.set(id);
+		}
+
+		assertContents(expected, tracker);
+		Assert.assertFalse(tracker.get(1000000L + 10000));
+		Assert.assertFalse(tracker.get(-200001L));
+	}
+
+
+	/**
+	 * Tests the setAll and intersection operations between trackers.
+	 */
+	@Test
+	public void testSetAllAndIntersection() {
+		Random random = new Random(2);
+		TreeSet<Long> first = new TreeSet<Long>();
+		TreeSet<Long> second = new TreeSet<Long>();
+		TreeSet<Long> union = new TreeSet<Long>();
+		TreeSet<Long> intersection = new TreeSet<Long>();
+		RoaringIdTracker firstTracker = new RoaringIdTracker();
+		RoaringIdTracker secondTracker = new RoaringIdTracker();
+		DynamicIdTracker dynamicTracker = new DynamicIdTracker();
+
+		for (int i = 0; i < 30000; i++) {
+			first.add((long) random.nextInt(500000) - 100000);
+			second.add((long) random.nextInt(500000) + 100000);
+		}
+		union.addAll(first);
+		union.addAll(second);
+		intersection.addAll(first);
+		intersection.retainAll(second);
+
+		for (long id : first) {
+			firstTracker.set(id);
+		}
+		for (long id : second) {
+			secondTracker.set(id);
+			dynamicTracker.set(id);
+		}
+
+		assertContents(intersection, firstTracker.intersection(secondTracker));
+		assertContents(intersection, secondTracker.intersection(firstTracker));
+
+		RoaringIdTracker unionTracker = new RoaringIdTracker();
+		unionTracker.setAll(firstTracker);
+		unionTracker.setAll(dynamicTracker);
+		assertContents(union, unionTracker);
+
+		firstTracker.setAll(secondTracker);
+		assertContents(union, firstTracker);
+
+		// The source of a setAll must not be modified.
+		assertContents(second, secondTracker);
+	}
+}
@@ -0,0 +1,197 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.parallel.v0_6;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
+
+
+/**
+ * Tests the parallel sink source.
+ */
+public class ParallelSinkSourceTest {
+	private static final int ENTITY_COUNT = 5000;
+
+
+	private static EntityContainer buildNode(long id) {
+		return new NodeContainer(new Node(new CommonEntityData(id, 1, new Date(0), OsmUser.NONE, 0), 0, 0));
+	}
+
+
+	/**
+	 * Verifies that entities are passed downstream in the original order even
+	 * though batches complete out of order.
+	 */
+	@Test
+	public void testOrderPreserved() {
+		CollectingSink sink = new CollectingSink();
+		ParallelSinkSource task;
+
+		task = new ParallelSinkSource(4, 7, new Supplier<SinkSource>() {
+			@Override
+			public SinkSource get() {
+				return new ThirdFilter(-1);
+			}
+		});
+		task.setSink(sink);
+
+		task.initialize(Collections.<String, Object>emptyMap());
+		for (int i = 1; i <= ENTITY_COUNT; i++) {
+			task.process(buildNode(i));
+		}
+		task.complete();
+		task.close();
+
+		Assert.assertEquals("Incorrect initialize count.", 1, sink.initializeCount);
+		Assert.assertEquals("Incorrect complete count.", 1, sink.completeCount);
+		Assert.assertEquals("Incorrect close count.", 1, sink.closeCount);
+
+		Assert.assertEquals("Incorrect entity count.", ENTITY_COUNT - ENTITY_COUNT / 3, sink.ids.size());
+		long previousId = 0;
+		for (long id : sink.ids) {
+			Assert.assertTrue("Entities are out of order.", id > previousId);
+			Assert.assertTrue("A filtered entity was passed on.", id % 3 != 0);
+			previousId = id;
+		}
+	}
+
+
+	/**
+	 * Verifies that a failure of a task on a worker thread is reported on the
+	 * calling thread.
+	 */
+	@Test
+	public void testWorkerFailure() {
+		CollectingSink sink = new CollectingSink();
+		ParallelSinkSource task;
+
+		task = new ParallelSinkSource(2, 10, new Supplier<SinkSource>() {
+			@Override
+			public SinkSource get() {
+				return new ThirdFilter(100);
+			}
+		});
+		task.setSink(sink);
+
+		try {
+			task.initialize(Collections.<String, Object>emptyMap());
+			for (int i = 1; i <= ENTITY_COUNT; i++) {
+				task.process(buildNode(i));
+			}
+			task.complete();
+			Assert.fail("The worker failure was not reported.");
+
+		} catch (OsmosisRuntimeException e) {
+			Assert.assertEquals("Incorrect cause.", "Failed on entity 100.", e.getCause().getMessage());
+		} finally {
+			task.close();
+		}
+
+		Assert.assertEquals("Completion should not be passed on.", 0, sink.completeCount);
+		Assert.assertEquals("Only entities before the failure should be passed on.", 60, sink.ids.size());
+	}
+
+
+	/**
+	 * Drops every third entity, taking a varying amount of time per entity so
+	 * that batches complete out of order.
+	 */
+	private static class ThirdFilter implements SinkSource {
+		private Sink sink;
+		private long failId;
+
+
+		ThirdFilter(long failId) {
+			this.failId = failId;
+		}
+
+
+		@Override
+		public void initialize(Map<String, Object> metaData) {
+			sink.initialize(metaData);
+		}
+
+
+		@Override
+		public void process(EntityContainer entityContainer) {
+			long id = entityContainer.getEntity().getId();
+
+			if (id == failId) {
+				throw new OsmosisRuntimeException("Failed on entity " + id + ".");
+			}
+			if (id % 11 == 0) {
+				Thread.yield();
+			}
+			if (id % 3 != 0) {
+				sink.process(entityContainer);
+			}
+		}
+
+
+		@Override
+		public void complete() {
+			sink.complete();
+		}
+
+
+		@Override
+		public void close() {
+			sink.close();
+		}
+
+
+		@Override
+		public void setSink(Sink sink) {
+			this.sink = sink;
+		}
+	}
+
+
+	/**
+	 * Records the entities and lifecycle calls received.
+	 */
+	private static class CollectingSink implements Sink {
+		private List<Long> ids = new ArrayList<Long>();
+		private int initializeCount;
+		private int completeCount;
+		private int closeCount;
+
+
+		@Override
+		public void initialize(Map<String, Object> metaData) {
+			initializeCount++;
+		}
+
+
+		@Override
+		public void process(EntityContainer entityContainer) {
+			ids.add(entityContainer.getEntity().getId());
+		}
+
+
+		@Override
+		public void complete() {
+			completeCount++;
+		}
+
+
+		@Override
+		public void close() {
+			closeCount++;
+		}
+	}
+}
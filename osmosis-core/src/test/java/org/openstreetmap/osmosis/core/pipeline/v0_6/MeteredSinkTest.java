@@ -0,0 +1,196 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.v0_6;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.buffer.v0_6.EntityBuffer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.pipeline.common.PipeTasks;
+import org.openstreetmap.osmosis.core.pipeline.common.PipelineMetrics;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskMetrics;
+import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
+
+
+/**
+ * Tests the metrics recorded for task connections.
+ */
+public class MeteredSinkTest {
+	private static final int ENTITY_COUNT = 50;
+
+
+	/**
+	 * Runs a pipeline with a buffer, a pass through task and a slow sink and
+	 * verifies that the time of the slow sink is attributed to the sink alone.
+	 */
+	@Test
+	public void testPipelineMetrics() {
+		PipelineMetrics metrics = new PipelineMetrics();
+		PipeTasks pipeTasks = new PipeTasks(metrics);
+		Map<String, String> pipeArgs = Collections.emptyMap();
+		List<TaskManager> taskManagers = new ArrayList<TaskManager>();
+		TaskMetrics bufferMetrics;
+		TaskMetrics passThroughMetrics;
+		TaskMetrics sinkMetrics;
+
+		taskManagers.add(new RunnableSourceManager("1-source", new NodeSource(), pipeArgs));
+		taskManagers.add(new SinkRunnableSourceManager("2-buffer", new EntityBuffer(4), pipeArgs));
+		taskManagers.add(new SinkSourceManager("3-pass", new PassThrough(), pipeArgs));
+		taskManagers.add(new SinkManager("4-sink", new SlowSink(), pipeArgs));
+		for (TaskManager taskManager : taskManagers) {
+			taskManager.connect(pipeTasks);
+		}
+
+		metrics.start();
+		for (TaskManager taskManager : taskManagers) {
+			taskManager.execute();
+		}
+		for (TaskManager taskManager : taskManagers) {
+			Assert.assertTrue(taskManager.waitForCompletion());
+		}
+		metrics.complete();
+
+		Assert.assertEquals(3, metrics.getTaskMetrics().size());
+		bufferMetrics = metrics.getTaskMetrics().get(0);
+		passThroughMetrics = metrics.getTaskMetrics().get(1);
+		sinkMetrics = metrics.getTaskMetrics().get(2);
+
+		Assert.assertEquals("2-buffer", bufferMetrics.getName());
+		Assert.assertEquals("3-pass", passThroughMetrics.getName());
+		Assert.assertEquals("4-sink", sinkMetrics.getName());
+		for (TaskMetrics taskMetrics : metrics.getTaskMetrics()) {
+			Assert.assertEquals(ENTITY_COUNT, taskMetrics.getEntityCount());
+		}
+
+		// The sink sleeps for a millisecond for each entity, this time must
+		// not be included in the time of the task calling it.
+		Assert.assertTrue(sinkMetrics.getBusyMillis() >= ENTITY_COUNT);
+		Assert.assertTrue(passThroughMetrics.getBusyMillis() < sinkMetrics.getBusyMillis() / 2);
+
+		// The source is much faster than the sink so it must fill the buffer.
+		Assert.assertEquals(4, bufferMetrics.getQueueCapacity());
+		Assert.assertTrue(bufferMetrics.getInputBlockedMillis() > 0);
+		Assert.assertTrue(bufferMetrics.getPeakQueueSize() > 0);
+		Assert.assertTrue(bufferMetrics.getBusyMillis() < sinkMetrics.getBusyMillis() / 2);
+		Assert.assertEquals(0, sinkMetrics.getQueueCapacity());
+
+		Assert.assertTrue(metrics.buildSummary().contains("Bottleneck: task 4-sink "));
+		Assert.assertTrue(metrics.toJson().contains("{\"name\":\"2-buffer\",\"entities\":" + ENTITY_COUNT + ","));
+		Assert.assertTrue(metrics.toJson().contains("\"queueCapacity\":4,"));
+	}
+
+
+	/**
+	 * Verifies that sinks are not wrapped when metrics are disabled.
+	 */
+	@Test
+	public void testMetricsDisabled() {
+		Sink sink = new SlowSink();
+
+		Assert.assertSame(sink, MeteredSink.wrap(sink, null));
+	}
+
+
+	private static class NodeSource implements RunnableSource {
+		private Sink sink;
+
+
+		@Override
+		public void setSink(Sink sink) {
+			this.sink = sink;
+		}
+
+
+		@Override
+		public void run() {
+			try {
+				sink.initialize(Collections.<String, Object>emptyMap());
+				for (int i = 0; i < ENTITY_COUNT; i++) {
+					sink.process(new NodeContainer(
+							new Node(new CommonEntityData(i, 1, new Date(), OsmUser.NONE, 1), 1, 2)));
+				}
+				sink.complete();
+			} finally {
+				sink.close();
+			}
+		}
+	}
+
+
+	private static class PassThrough implements SinkSource {
+		private Sink sink;
+
+
+		@Override
+		public void setSink(Sink sink) {
+			this.sink = sink;
+		}
+
+
+		@Override
+		public void initialize(Map<String, Object> metaData) {
+			sink.initialize(metaData);
+		}
+
+
+		@Override
+		public void process(EntityContainer entityContainer) {
+			sink.process(entityContainer);
+		}
+
+
+		@Override
+		public void complete() {
+			sink.complete();
+		}
+
+
+		@Override
+		public void close() {
+			sink.close();
+		}
+	}
+
+
+	private static class SlowSink implements Sink {
+		@Override
+		public void initialize(Map<String, Object> metaData) {
+			// Nothing to do.
+		}
+
+
+		@Override
+		public void process(EntityContainer entityContainer) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				throw new OsmosisRuntimeException("Thread was interrupted.", e);
+			}
+		}
+
+
+		@Override
+		public void complete() {
+			// Nothing to do.
+		}
+
+
+		@Override
+		public void close() {
+			// Nothing to do.
+		}
+	}
+}
@@ -0,0 +1,84 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.sort.common;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
+
+
+/**
+ * Tests the {@link ParallelFileBasedSort} class.
+ */
+public class ParallelFileBasedSortTest {
+
+	private Comparator<SampleStoreable> comparator = new Comparator<SampleStoreable>() {
+		@Override
+		public int compare(SampleStoreable o1, SampleStoreable o2) {
+			return Integer.compare(o1.getValue(), o2.getValue());
+		}
+	};
+
+
+	private void checkSort(ExternalSort<SampleStoreable> sort, int itemCount) {
+		// Add randomly generated test values into the sorter.
+		Random random = new Random();
+		for (int i = 0; i < itemCount; i++) {
+			sort.add(new SampleStoreable(random.nextInt()));
+		}
+
+		// Read back all values in the sorter and verify that they are
+		// sorted correctly.
+		try (ReleasableIterator<SampleStoreable> resultIterator = sort.iterate()) {
+			int lastValue = Integer.MIN_VALUE;
+			int resultCount = 0;
+			while (resultIterator.hasNext()) {
+				int currentValue = resultIterator.next().getValue();
+				Assert.assertTrue(currentValue >= lastValue);
+				lastValue = currentValue;
+				resultCount++;
+			}
+			Assert.assertEquals(itemCount, resultCount);
+		}
+	}
+
+
+	/**
+	 * Sorts data fitting within a single merge pass.
+	 */
+	@Test
+	public void testSinglePass() {
+		try (ParallelFileBasedSort<SampleStoreable> sort = new ParallelFileBasedSort<SampleStoreable>(
+				new SingleClassObjectSerializationFactory(SampleStoreable.class), comparator, true, 4, 1000, 64)) {
+			checkSort(sort, 10000);
+		}
+	}
+
+
+	/**
+	 * Sorts data requiring intermediate merge passes because the number of
+	 * runs exceeds the merge fan-in.
+	 */
+	@Test
+	public void testMultiplePasses() {
+		try (ParallelFileBasedSort<SampleStoreable> sort = new ParallelFileBasedSort<SampleStoreable>(
+				new SingleClassObjectSerializationFactory(SampleStoreable.class), comparator, false, 3, 100, 4)) {
+			checkSort(sort, 10007);
+		}
+	}
+
+
+	/**
+	 * Verifies that an empty sorter returns no data.
+	 */
+	@Test
+	public void testEmpty() {
+		try (ParallelFileBasedSort<SampleStoreable> sort = new ParallelFileBasedSort<SampleStoreable>(
+				new SingleClassObjectSerializationFactory(SampleStoreable.class), comparator, true, 2, 0L)) {
+			checkSort(sort, 0);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests reading store files through a block cache.
+ */
+public class BlockCacheTest {
+
+	/**
+	 * Provides a location for test files.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+
+	/**
+	 * Verifies that data read through the cache matches the file, that blocks
+	 * are shared between readers and that the cache remains within its size
+	 * limit.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testCachedReads() throws IOException {
+		File file = folder.newFile();
+		byte[] data = new byte[10000];
+		BlockCache cache;
+
+		new Random(1).nextBytes(data);
+		Files.write(file.toPath(), data);
+
+		// Hold at most two of the four blocks.
+		cache = new BlockCache(6000, 3000);
+
+		try (BlockCachedFileInputStream first = new BlockCachedFileInputStream(file, cache);
+				BlockCachedFileInputStream second = new BlockCachedFileInputStream(file, cache)) {
+			byte[] buffer = new byte[3500];
+
+			Assert.assertEquals(10000, first.length());
+
+			// Reads spanning blocks return data up to the end of a block.
+			first.seek(2000);
+			new DataInputStream(first).readFully(buffer);
+			Assert.assertArrayEquals(Arrays.copyOfRange(data, 2000, 5500), buffer);
+			Assert.assertEquals(5500, first.position());
+			Assert.assertEquals(0, cache.getHitCount());
+			Assert.assertEquals(2, cache.getMissCount());
+
+			// The second reader finds the blocks loaded by the first.
+			second.seek(3500);
+			Assert.assertEquals(data[3500] & 0xff, second.read());
+			Assert.assertEquals(1, cache.getHitCount());
+
+			// Reading the final short block evicts the least recently used.
+			second.seek(9999);
+			Assert.assertEquals(data[9999] & 0xff, second.read());
+			Assert.assertEquals(-1, second.read());
+			Assert.assertEquals(-1, second.read(buffer, 0, buffer.length));
+			Assert.assertEquals(1, cache.getEvictionCount());
+			Assert.assertEquals(3000 + 1000, cache.getByteCount());
+
+			first.seek(0);
+			Assert.assertEquals(data[0] & 0xff, first.read());
+			Assert.assertEquals(4, cache.getMissCount());
+			Assert.assertTrue(cache.getByteCount() <= 6000);
+		}
+	}
+
+
+	/**
+	 * Verifies that objects read in batches are returned in the order
+	 * requested.
+	 */
+	@Test
+	public void testBatchedObjectReads() {
+		try (RandomAccessObjectStore<LongLongIndexElement> store = new RandomAccessObjectStore<LongLongIndexElement>(
+				new SingleClassObjectSerializationFactory(LongLongIndexElement.class), "blockcachetest")) {
+			List<Long> offsets = new ArrayList<Long>();
+			List<LongLongIndexElement> offsetElements = new ArrayList<LongLongIndexElement>();
+			Random random = new Random(2);
+			Iterator<LongLongIndexElement> objects;
+
+			for (long i = 0; i < 10000; i++) {
+				offsets.add(store.add(new LongLongIndexElement(i, i * 2)));
+			}
+			store.complete();
+
+			for (int i = 0; i < 10000; i++) {
+				offsetElements.add(new LongLongIndexElement(i, offsets.get(random.nextInt(10000))));
+			}
+
+			try (RandomAccessObjectStoreReader<LongLongIndexElement> reader =
+					store.createReader(new BlockCache(1000000))) {
+				objects = reader.getAll(offsetElements.iterator());
+
+				for (LongLongIndexElement offsetElement : offsetElements) {
+					LongLongIndexElement object = objects.next();
+
+					Assert.assertEquals(offsetElement.getValue(), (long) offsets.get((int) object.getId()));
+				}
+				Assert.assertFalse(objects.hasNext());
+			}
+		}
+	}
+}
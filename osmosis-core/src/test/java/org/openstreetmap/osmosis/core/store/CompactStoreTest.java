@@ -0,0 +1,140 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
+
+
+/**
+ * Tests the compact store encoding.
+ */
+public class CompactStoreTest {
+
+	/**
+	 * Verifies that values of objects with differing layouts are read back
+	 * unchanged, including values whose differences overflow.
+	 */
+	@Test
+	public void testValueRoundTrip() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CompactStoreWriter writer = new CompactStoreWriter(new DataOutputStream(bytes));
+		CompactStoreReader reader;
+		long[] longs = {0, Long.MAX_VALUE, Long.MIN_VALUE, -1, 1234567890123L};
+		int[] integers = {0, Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 900000000};
+
+		for (int i = 0; i < longs.length; i++) {
+			writer.startObject();
+			// Later objects contain more values than earlier ones.
+			for (int j = 0; j <= i * 10; j++) {
+				writer.writeLong(longs[(i + j) % longs.length]);
+				writer.writeInteger(integers[(i + j) % integers.length]);
+			}
+			writer.writeCharacter((char) (0xFFFF - i));
+			writer.writeString("value" + i);
+			writer.writeBoolean(i % 2 == 0);
+			writer.writeByte((byte) -i);
+			writer.writeDouble(i / 3.0);
+		}
+
+		reader = new CompactStoreReader(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		for (int i = 0; i < longs.length; i++) {
+			reader.startObject();
+			for (int j = 0; j <= i * 10; j++) {
+				Assert.assertEquals(longs[(i + j) % longs.length], reader.readLong());
+				Assert.assertEquals(integers[(i + j) % integers.length], reader.readInteger());
+			}
+			Assert.assertEquals((char) (0xFFFF - i), reader.readCharacter());
+			Assert.assertEquals("value" + i, reader.readString());
+			Assert.assertEquals(i % 2 == 0, reader.readBoolean());
+			Assert.assertEquals((byte) -i, reader.readByte());
+			Assert.assertEquals(i / 3.0, reader.readDouble(), 0);
+		}
+
+		reader.startObject();
+		try {
+			reader.readLong();
+			Assert.fail("The end of the store was not detected.");
+		} catch (EndOfStoreException e) {
+			// This is expected.
+		}
+	}
+
+
+	/**
+	 * Verifies that entities written to a store are read back unchanged, with
+	 * and without compression.
+	 */
+	@Test
+	public void testEntityRoundTrip() {
+		for (boolean useCompression : new boolean[] {false, true}) {
+			List<EntityContainer> entities = createEntities();
+			SimpleObjectStore<EntityContainer> store = new SimpleObjectStore<EntityContainer>(
+					new GenericObjectSerializationFactory(), "compactstoretest", useCompression);
+
+			try {
+				for (EntityContainer entity : entities) {
+					store.add(entity);
+				}
+				store.complete();
+
+				try (ReleasableIterator<EntityContainer> iterator = store.iterate()) {
+					for (EntityContainer expected : entities) {
+						Assert.assertEquals(expected.getEntity(), iterator.next().getEntity());
+					}
+					Assert.assertFalse(iterator.hasNext());
+				}
+
+			} finally {
+				store.close();
+			}
+		}
+	}
+
+
+	private List<EntityContainer> createEntities() {
+		List<EntityContainer> entities = new ArrayList<EntityContainer>();
+		OsmUser user = new OsmUser(12, "user");
+		Date timestamp = new Date(1234567890000L);
+
+		for (int i = 0; i < 1000; i++) {
+			entities.add(new NodeContainer(new Node(
+					new CommonEntityData(1000 + i * 3, 1 + i % 3, timestamp, user, 5000 + i,
+							Arrays.asList(new Tag("name", "node" + i))),
+					// Use coordinates which are not changed by the fixed precision
+					// storage format.
+					FixedPrecisionCoordinateConvertor.convertToDouble(471000000 + i * 1000),
+					FixedPrecisionCoordinateConvertor.convertToDouble(-82000000 - i * 1000))));
+		}
+		for (int i = 0; i < 100; i++) {
+			List<WayNode> wayNodes = new ArrayList<WayNode>();
+
+			for (int j = 0; j <= i % 7; j++) {
+				wayNodes.add(new WayNode(1000 + (i + j) * 3));
+			}
+			entities.add(new WayContainer(new Way(
+					new CommonEntityData(i, 2, timestamp, OsmUser.NONE, -i), wayNodes)));
+		}
+
+		return entities;
+	}
+}
@@ -0,0 +1,187 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the index store including access to fixed width indexes through a
+ * memory mapping.
+ */
+public class IndexStoreTest {
+
+	private static List<Long> getValues(Iterator<? extends IndexElement<?>> iterator) {
+		List<Long> values = new ArrayList<Long>();
+
+		while (iterator.hasNext()) {
+			IndexElement<?> element = iterator.next();
+
+			if (element instanceof LongLongIndexElement) {
+				values.add(((LongLongIndexElement) element).getValue());
+			} else {
+				values.add(((IntegerLongIndexElement) element).getValue());
+			}
+		}
+
+		return values;
+	}
+
+
+	private static List<Long> sort(List<Long> values) {
+		Collections.sort(values);
+
+		return values;
+	}
+
+
+	/**
+	 * Verifies that an unsorted long index is sorted and that keys are located
+	 * individually, by range and in batches, including keys with a skewed
+	 * distribution.
+	 */
+	@Test
+	public void testLongIndex() {
+		List<Long> keys = new ArrayList<Long>();
+		Random random = new Random(1);
+
+		// Mix uniformly distributed keys with a few large outliers and
+		// negative keys so that interpolation search must fall back to
+		// bisection.
+		for (long i = 0; i < 5000; i++) {
+			keys.add(i * 3);
+		}
+		for (int i = 0; i < 40; i++) {
+			keys.add(1L << (i + 20));
+			keys.add(-(1L << (i + 10)));
+		}
+		keys.add(Long.MAX_VALUE);
+		keys.add(Long.MIN_VALUE);
+		Collections.shuffle(keys, random);
+
+		try (IndexStore<Long, LongLongIndexElement> store = new IndexStore<Long, LongLongIndexElement>(
+				LongLongIndexElement.class, new ComparableComparator<Long>(), "idxtest")) {
+			List<Long> sortedKeys;
+			List<Long> requestedKeys;
+			List<Long> expectedValues;
+
+			for (Long key : keys) {
+				// Add duplicate keys for a subset of the data.
+				store.write(new LongLongIndexElement(key, key + 1));
+				if (key % 7 == 0) {
+					store.write(new LongLongIndexElement(key, key + 2));
+				}
+			}
+			store.complete();
+
+			sortedKeys = new ArrayList<Long>(keys);
+			Collections.sort(sortedKeys);
+
+			try (IndexStoreReader<Long, LongLongIndexElement> reader = store.createReader()) {
+				// Individual lookups.
+				for (Long key : keys) {
+					long value = reader.get(key).getValue();
+					
+					Assert.assertTrue("Incorrect value " + value + " for key " + key + ".",
+							value == key + 1 || (key % 7 == 0 && value == key + 2));
+				}
+				for (long key = 1; key < 1000; key += 3) {
+					try {
+						reader.get(key);
+						Assert.fail("Key " + key + " should not exist.");
+					} catch (NoSuchIndexElementException e) {
+						// Expected.
+					}
+				}
+
+				// Range lookups. The order of elements with duplicate keys is
+				// not defined.
+				Assert.assertEquals(Arrays.asList(1L, 2L, 4L), sort(getValues(reader.getRange(0L, 3L))));
+				Assert.assertEquals(Arrays.asList(Long.MIN_VALUE + 1),
+						getValues(reader.getRange(Long.MIN_VALUE, Long.MIN_VALUE)));
+				Assert.assertEquals(Collections.emptyList(), getValues(reader.getRange(1L, 2L)));
+
+				// Batched lookups of sorted keys including missing keys.
+				requestedKeys = new ArrayList<Long>();
+				expectedValues = new ArrayList<Long>();
+				for (Long key : sortedKeys) {
+					if (random.nextInt(3) == 0) {
+						requestedKeys.add(key);
+						expectedValues.add(key + 1);
+						if (key % 7 == 0) {
+							expectedValues.add(key + 2);
+						}
+					}
+					if (random.nextInt(5) == 0 && key != Long.MAX_VALUE) {
+						requestedKeys.add(key + 1);
+					}
+				}
+				Assert.assertEquals(sort(expectedValues), sort(getValues(reader.getAll(requestedKeys.iterator()))));
+
+				// Unsorted keys are still located.
+				Assert.assertEquals(Arrays.asList(301L, 4L, 301L),
+						getValues(reader.getAll(Arrays.asList(300L, 3L, 300L).iterator())));
+			}
+		}
+	}
+
+
+	/**
+	 * Verifies that an integer index ordered by unsigned key is searched in
+	 * the same order.
+	 */
+	@Test
+	public void testUnsignedIntegerIndex() {
+		int[] keys = {0, 1, 5, 1000, Integer.MAX_VALUE, Integer.MIN_VALUE, -5, -1};
+
+		try (IndexStore<Integer, IntegerLongIndexElement> store = new IndexStore<Integer, IntegerLongIndexElement>(
+				IntegerLongIndexElement.class, new UnsignedIntegerComparator(), "idxtest")) {
+			for (int i = 0; i < keys.length; i++) {
+				store.write(new IntegerLongIndexElement(keys[i], i));
+			}
+			store.complete();
+
+			try (IndexStoreReader<Integer, IntegerLongIndexElement> reader = store.createReader()) {
+				for (int i = 0; i < keys.length; i++) {
+					Assert.assertEquals(i, reader.get(keys[i]).getValue());
+				}
+
+				// Negative keys sort after positive keys when unsigned.
+				Assert.assertEquals(Arrays.asList(3L, 4L, 5L, 6L),
+						getValues(reader.getRange(1000, -5)));
+				Assert.assertEquals(Arrays.asList(1L, 5L, 7L),
+						getValues(reader.getAll(Arrays.asList(1, Integer.MIN_VALUE, -1).iterator())));
+			}
+		}
+	}
+
+
+	/**
+	 * Verifies that an integer index ordered by signed key is searched in the
+	 * same order.
+	 */
+	@Test
+	public void testSignedIntegerIndex() {
+		try (IndexStore<Integer, IntegerLongIndexElement> store = new IndexStore<Integer, IntegerLongIndexElement>(
+				IntegerLongIndexElement.class, new ComparableComparator<Integer>(), "idxtest")) {
+			for (int i = 100; i >= -100; i--) {
+				store.write(new IntegerLongIndexElement(i * 2, i));
+			}
+			store.complete();
+
+			try (IndexStoreReader<Integer, IntegerLongIndexElement> reader = store.createReader()) {
+				Assert.assertEquals(-100, reader.get(-200).getValue());
+				Assert.assertEquals(Arrays.asList(-1L, 0L, 1L), getValues(reader.getRange(-2, 3)));
+				Assert.assertEquals(Arrays.asList(-50L, 50L),
+						getValues(reader.getAll(Arrays.asList(-100, -99, 99, 100).iterator())));
+			}
+		}
+	}
+}
@@ -0,0 +1,217 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Tests the {@link RingBufferPostbox} class.
+ */
+public class RingBufferPostboxTest {
+
+	/**
+	 * Passes a large number of values through a small buffer and verifies that
+	 * they arrive in order and that the postbox can be re-used afterwards.
+	 *
+	 * @throws Exception
+	 *             if an error occurs.
+	 */
+	@Test
+	public void testTransferInOrder() throws Exception {
+		final int itemCount = 100000;
+		final RingBufferPostbox<Integer> postbox = new RingBufferPostbox<Integer>(10);
+		final List<Throwable> failures = new ArrayList<Throwable>();
+
+		for (int iteration = 0; iteration < 2; iteration++) {
+			final List<Integer> received = new ArrayList<Integer>();
+
+			Thread input = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						postbox.initialize(Collections.<String, Object>emptyMap());
+						for (int i = 0; i < itemCount; i++) {
+							postbox.put(i);
+						}
+						postbox.complete();
+					} catch (Throwable t) {
+						synchronized (failures) {
+							failures.add(t);
+						}
+					} finally {
+						postbox.close();
+					}
+				}
+			});
+			input.start();
+
+			try {
+				postbox.outputInitialize();
+				while (postbox.hasNext()) {
+					received.add(postbox.getNext());
+				}
+				postbox.outputComplete();
+			} finally {
+				postbox.outputRelease();
+			}
+			input.join();
+
+			Assert.assertEquals("Unexpected failures " + failures, 0, failures.size());
+			Assert.assertEquals(itemCount, received.size());
+			for (int i = 0; i < itemCount; i++) {
+				Assert.assertEquals(i, received.get(i).intValue());
+			}
+		}
+	}
+
+
+	/**
+	 * Verifies that the batch methods transfer all data.
+	 *
+	 * @throws Exception
+	 *             if an error occurs.
+	 */
+	@Test
+	public void testBatchTransfer() throws Exception {
+		final int itemCount = 50000;
+		final RingBufferPostbox<Integer> postbox = new RingBufferPostbox<Integer>(64);
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		final List<Integer> received = new ArrayList<Integer>();
+
+		Thread input = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					List<Integer> batch = new ArrayList<Integer>();
+
+					postbox.initialize(Collections.<String, Object>emptyMap());
+					for (int i = 0; i < itemCount; i++) {
+						batch.add(i);
+						if (batch.size() == 100) {
+							postbox.putAll(batch);
+							batch.clear();
+						}
+					}
+					postbox.putAll(batch);
+					postbox.complete();
+				} catch (Throwable t) {
+					synchronized (failures) {
+						failures.add(t);
+					}
+				} finally {
+					postbox.close();
+				}
+			}
+		});
+		input.start();
+
+		try {
+			postbox.outputInitialize();
+			while (postbox.drainTo(received, 37) > 0) {
+				// Keep draining.
+			}
+			postbox.outputComplete();
+		} finally {
+			postbox.outputRelease();
+		}
+		input.join();
+
+		Assert.assertEquals("Unexpected failures " + failures, 0, failures.size());
+		Assert.assertEquals(itemCount, received.size());
+		for (int i = 0; i < itemCount; i++) {
+			Assert.assertEquals(i, received.get(i).intValue());
+		}
+	}
+
+
+	/**
+	 * Verifies that a failure on the output thread is reported to an input
+	 * thread blocked on a full buffer.
+	 *
+	 * @throws Exception
+	 *             if an error occurs.
+	 */
+	@Test
+	public void testOutputErrorPropagates() throws Exception {
+		final RingBufferPostbox<Integer> postbox = new RingBufferPostbox<Integer>(4);
+		final List<Throwable> failures = new ArrayList<Throwable>();
+
+		Thread input = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postbox.initialize(Collections.<String, Object>emptyMap());
+					for (int i = 0; i < 1000; i++) {
+						postbox.put(i);
+					}
+					postbox.complete();
+				} catch (Throwable t) {
+					synchronized (failures) {
+						failures.add(t);
+					}
+				} finally {
+					postbox.close();
+				}
+			}
+		});
+		input.start();
+
+		// Read a single value and then abort without completing.
+		postbox.outputInitialize();
+		postbox.getNext();
+		postbox.outputRelease();
+		input.join();
+
+		Assert.assertEquals(1, failures.size());
+		Assert.assertTrue(failures.get(0) instanceof OsmosisRuntimeException);
+	}
+
+
+	/**
+	 * Verifies that a failure on the input thread is reported to an output
+	 * thread waiting for data.
+	 *
+	 * @throws Exception
+	 *             if an error occurs.
+	 */
+	@Test
+	public void testInputErrorPropagates() throws Exception {
+		final RingBufferPostbox<Integer> postbox = new RingBufferPostbox<Integer>(4);
+		final List<Throwable> failures = new ArrayList<Throwable>();
+
+		Thread output = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postbox.outputInitialize();
+					while (postbox.hasNext()) {
+						postbox.getNext();
+					}
+					postbox.outputComplete();
+				} catch (Throwable t) {
+					synchronized (failures) {
+						failures.add(t);
+					}
+				} finally {
+					postbox.outputRelease();
+				}
+			}
+		});
+		output.start();
+
+		// Write a single value and then abort without completing.
+		postbox.initialize(Collections.<String, Object>emptyMap());
+		postbox.put(1);
+		postbox.close();
+		output.join();
+
+		Assert.assertEquals(1, failures.size());
+		Assert.assertTrue(failures.get(0) instanceof OsmosisRuntimeException);
+	}
+}
@@ -2,7 +2,9 @@
 package org.openstreetmap.osmosis.dataset.v0_6;
 
 import java.io.File;
+import java.util.logging.Logger;
 
+import org.openstreetmap.osmosis.core.store.BlockCache;
 import org.openstreetmap.osmosis.dataset.v0_6.impl.DatasetStore;
 import org.openstreetmap.osmosis.dataset.v0_6.impl.DatasetStoreFileManager;
 import org.openstreetmap.osmosis.dataset.v0_6.impl.PermanentFileDatasetStoreFileManager;
@@ -17,8 +19,11 @@ import org.openstreetmap.osmosis.core.task.v0_6.RunnableDatasetSource;
  */
 public class ReadDataset implements RunnableDatasetSource {
 	
+	private static final Logger LOG = Logger.getLogger(ReadDataset.class.getName());
+	
 	private DatasetSink datasetSink;
 	private DatasetStoreFileManager fileManager;
+	private BlockCache blockCache;
 	private DatasetStore store;
 	
 	
@@ -32,8 +37,28 @@ public class ReadDataset implements RunnableDatasetSource {
 	 *            index is used.
 	 */
 	public ReadDataset(File directory, boolean enableWayTileIndex) {
+		this(directory, enableWayTileIndex, 0);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param directory
+	 *            The directory to store all data files in.
+	 * @param enableWayTileIndex
+	 *            If true a tile index is created for ways, otherwise a node-way
+	 *            index is used.
+	 * @param cacheSize
+	 *            The number of bytes of entity data to cache for all readers
+	 *            of the dataset. If 0, entity data is always read from disk.
+	 */
+	public ReadDataset(File directory, boolean enableWayTileIndex, long cacheSize) {
 		fileManager = new PermanentFileDatasetStoreFileManager(directory);
-		store = new DatasetStore(fileManager, enableWayTileIndex);
+		if (cacheSize > 0) {
+			blockCache = new BlockCache(cacheSize);
+		}
+		store = new DatasetStore(fileManager, enableWayTileIndex, blockCache);
 	}
 	
 	
@@ -57,6 +82,11 @@ public class ReadDataset implements RunnableDatasetSource {
 		} finally {
 			datasetSink.close();
 			store.close();
+			
+			if (blockCache != null) {
+				LOG.fine("Dataset cache hits: " + blockCache.getHitCount() + ", misses: " + blockCache.getMissCount()
+						+ ", evictions: " + blockCache.getEvictionCount() + ".");
+			}
 		}
 	}
 }
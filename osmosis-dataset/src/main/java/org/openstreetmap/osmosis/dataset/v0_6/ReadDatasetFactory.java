@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.dataset.v0_6;
 
 import java.io.File;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
@@ -17,8 +18,10 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.RunnableDatasetSourceManager
 public class ReadDatasetFactory extends TaskManagerFactory {
 	private static final String ARG_DIRECTORY_NAME = "directory";
 	private static final String ARG_ENABLE_WAY_TILE_INDEX = "enableWayTileIndex";
+	private static final String ARG_CACHE_SIZE_MB = "cacheSizeMB";
 	private static final String DEFAULT_DIRECTORY_NAME = "dataset";
 	private static final boolean DEFAULT_ENABLE_WAY_TILE_INDEX = false;
+	private static final int DEFAULT_CACHE_SIZE_MB = 0;
 	
 	/**
 	 * {@inheritDoc}
@@ -28,6 +31,7 @@ public class ReadDatasetFactory extends TaskManagerFactory {
 		String directoryName;
 		File directory;
 		boolean enableWayTileIndex;
+		int cacheSizeMB;
 		ReadDataset task;
 		
 		// Get the task arguments.
@@ -41,12 +45,17 @@ public class ReadDatasetFactory extends TaskManagerFactory {
 			ARG_ENABLE_WAY_TILE_INDEX,
 			DEFAULT_ENABLE_WAY_TILE_INDEX
 		);
+		cacheSizeMB = getIntegerArgument(taskConfig, ARG_CACHE_SIZE_MB, DEFAULT_CACHE_SIZE_MB);
+		if (cacheSizeMB < 0) {
+			throw new OsmosisRuntimeException("Argument " + ARG_CACHE_SIZE_MB + " for task " + taskConfig.getId()
+					+ " must be zero or greater.");
+		}
 		
 		// Create a file object from the directory name provided.
 		directory = new File(directoryName);
 		
 		// Build the task object.
-		task = new ReadDataset(directory, enableWayTileIndex);
+		task = new ReadDataset(directory, enableWayTileIndex, cacheSizeMB * 1024L * 1024L);
 		
 		return new RunnableDatasetSourceManager(
 			taskConfig.getId(),
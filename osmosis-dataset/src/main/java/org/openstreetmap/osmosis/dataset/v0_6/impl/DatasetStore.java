@@ -23,6 +23,7 @@ import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.lifecycle.CompletableContainer;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableContainer;
 import org.openstreetmap.osmosis.core.sort.v0_6.SortedEntityPipeValidator;
+import org.openstreetmap.osmosis.core.store.BlockCache;
 import org.openstreetmap.osmosis.core.store.ComparableComparator;
 import org.openstreetmap.osmosis.core.store.IndexStore;
 import org.openstreetmap.osmosis.core.store.IndexStoreReader;
@@ -52,6 +53,7 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 	private UnsignedIntegerComparator uintComparator;
 	
 	private boolean enableWayTileIndex;
+	private BlockCache blockCache;
 	
 	private CompletableContainer storeContainer;
 	private RandomAccessObjectStore<Node> nodeObjectStore;
@@ -81,7 +83,26 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 	 *            index is used.
 	 */
 	public DatasetStore(DatasetStoreFileManager fileManager, boolean enableWayTileIndex) {
+		this(fileManager, enableWayTileIndex, null);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param fileManager
+	 *            The manager providing access to store files.
+	 * @param enableWayTileIndex
+	 *            If true a tile index is created for ways, otherwise a node-way
+	 *            index is used.
+	 * @param blockCache
+	 *            The cache shared by all readers of the store to hold entity
+	 *            data, or null if entity data is to be read directly from the
+	 *            store files.
+	 */
+	public DatasetStore(DatasetStoreFileManager fileManager, boolean enableWayTileIndex, BlockCache blockCache) {
 		this.enableWayTileIndex = enableWayTileIndex;
+		this.blockCache = blockCache;
 		
 		storeContainer = new CompletableContainer();
 		
@@ -405,18 +426,18 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 			
 			reader = new DatasetStoreReader(
 					new NodeStorageContainer(
-							releasableContainer.add(nodeObjectStore.createReader()),
+							releasableContainer.add(nodeObjectStore.createReader(blockCache)),
 							releasableContainer.add(nodeObjectOffsetIndexWriter.createReader()),
 							releasableContainer.add(nodeTileIndexWriter.createReader()),
 							releasableContainer.add(nodeWayIndexWriter.createReader()),
 							releasableContainer.add(nodeRelationIndexWriter.createReader())),
 					new WayStorageContainer(
-							releasableContainer.add(wayObjectStore.createReader()),
+							releasableContainer.add(wayObjectStore.createReader(blockCache)),
 							releasableContainer.add(wayObjectOffsetIndexWriter.createReader()),
 							releasableContainer.add(wayTileIndexWriter.createReader()),
 							releasableContainer.add(wayRelationIndexWriter.createReader())),
 					new RelationStorageContainer(
-							releasableContainer.add(relationObjectStore.createReader()),
+							releasableContainer.add(relationObjectStore.createReader(blockCache)),
 							releasableContainer.add(relationObjectOffsetIndexWriter.createReader()),
 							releasableContainer.add(relationRelationIndexWriter.createReader())),
 					enableWayTileIndex
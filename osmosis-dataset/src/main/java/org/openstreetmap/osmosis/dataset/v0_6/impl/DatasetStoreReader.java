@@ -104,29 +104,32 @@ public class DatasetStoreReader implements DatasetContext {
 	
 	
 	/**
-	 * {@inheritDoc}
+	 * Returns the ids of all ways owning any of the specified nodes. Node ids in
+	 * ascending order are located in a single pass over the index.
 	 */
-	private ReleasableIterator<Long> getWayIdsOwningNode(long nodeId) {
+	private ReleasableIterator<Long> getWayIdsOwningNodes(Iterable<Long> nodeIds) {
 		return new RelationalIndexValueIdIterator(
-				nodeStorageContainer.getNodeWayIndexReader().getRange(nodeId, nodeId));
+				nodeStorageContainer.getNodeWayIndexReader().getAll(nodeIds.iterator()));
 	}
 	
 	
 	/**
-	 * {@inheritDoc}
+	 * Returns the ids of all relations owning any of the specified nodes. Node
+	 * ids in ascending order are located in a single pass over the index.
 	 */
-	private ReleasableIterator<Long> getRelationIdsOwningNode(long nodeId) {
+	private ReleasableIterator<Long> getRelationIdsOwningNodes(Iterable<Long> nodeIds) {
 		return new RelationalIndexValueIdIterator(
-				nodeStorageContainer.getNodeRelationIndexReader().getRange(nodeId, nodeId));
+				nodeStorageContainer.getNodeRelationIndexReader().getAll(nodeIds.iterator()));
 	}
 	
 	
 	/**
-	 * {@inheritDoc}
+	 * Returns the ids of all relations owning any of the specified ways. Way
+	 * ids in ascending order are located in a single pass over the index.
 	 */
-	private ReleasableIterator<Long> getRelationIdsOwningWay(long wayId) {
+	private ReleasableIterator<Long> getRelationIdsOwningWays(Iterable<Long> wayIds) {
 		return new RelationalIndexValueIdIterator(
-				wayStorageContainer.getWayRelationIndexReader().getRange(wayId, wayId));
+				wayStorageContainer.getWayRelationIndexReader().getAll(wayIds.iterator()));
 	}
 	
 	
@@ -139,6 +142,39 @@ public class DatasetStoreReader implements DatasetContext {
 	}
 	
 	
+	/**
+	 * Returns the nodes with the specified ids, skipping any that don't exist.
+	 * Node ids in ascending order are located in a single pass over the index
+	 * and read in batches sorted by file offset.
+	 */
+	private Iterator<Node> getNodes(Iterable<Long> nodeIds) {
+		return nodeStorageContainer.getNodeObjectReader().getAll(
+				nodeStorageContainer.getNodeObjectOffsetIndexReader().getAll(nodeIds.iterator()));
+	}
+	
+	
+	/**
+	 * Returns the ways with the specified ids, skipping any that don't exist.
+	 * Way ids in ascending order are located in a single pass over the index
+	 * and read in batches sorted by file offset.
+	 */
+	private Iterator<Way> getWays(Iterable<Long> wayIds) {
+		return wayStorageContainer.getWayObjectReader().getAll(
+				wayStorageContainer.getWayObjectOffsetIndexReader().getAll(wayIds.iterator()));
+	}
+	
+	
+	/**
+	 * Returns the relations with the specified ids, skipping any that don't
+	 * exist. Relation ids in ascending order are located in a single pass over
+	 * the index and read in batches sorted by file offset.
+	 */
+	private Iterator<Relation> getRelations(Iterable<Long> relationIds) {
+		return relationStorageContainer.getRelationObjectReader().getAll(
+				relationStorageContainer.getRelationObjectOffsetIndexReader().getAll(relationIds.iterator()));
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -301,12 +337,12 @@ public class DatasetStoreReader implements DatasetContext {
 
 		// Check to see whether each applicable node lies within the bounding
 		// box and add them to the result id list if they are.
-		for (long nodeId : idTracker) {
-			Node node = getNode(nodeId);
+		for (Iterator<Node> nodes = getNodes(idTracker); nodes.hasNext();) {
+			Node node = nodes.next();
 			
 			// Determine if the node lies within the required bounding box.
 			if (isNodeInsideBox(bboxCtx.boundingBox, node)) {
-				bboxCtx.nodeIdTracker.set(nodeId);
+				bboxCtx.nodeIdTracker.set(node.getId());
 			}
 		}
 	}
@@ -321,51 +357,60 @@ public class DatasetStoreReader implements DatasetContext {
 	 *            The bounding box data.
 	 */
 	private void populateWayIdsUsingTileWayIndex(BoundingBoxContext bboxCtx, boolean completeWays) {
-		// Search through all ways in the tile range and store the ids of those
-		// within the bounding box.
+		IdTracker idTracker;
+		
+		idTracker = new DynamicIdTracker();
+		
+		// Search through all ways in the tile range and add them to a
+		// temporary id tracker so that the ways are loaded in ascending order.
 		try (ReleasableIterator<Long> tileWayIndexValues =
 					 getWayIdsForTileRange(bboxCtx.minimumTile, bboxCtx.maximumTile)) {
 			while (tileWayIndexValues.hasNext()) {
-				long wayId;
-				Way way;
-				List<Node> nodes;
-				
-				// Load the current way.
-				wayId = tileWayIndexValues.next();
-				way = getWay(wayId);
-				
-				// Load the nodes within the way.
-				nodes = new ArrayList<Node>();
-				for (WayNode wayNode : way.getWayNodes()) {
-					try {
-						nodes.add(getNode(wayNode.getNodeId()));
-					} catch (NoSuchIndexElementException e) {
-						// Ignore any referential integrity problems.
-						if (LOG.isLoggable(Level.FINER)) {
-							LOG.finest(
-								"Ignoring referential integrity problem where way " + wayId
-								+ " refers to non-existent node " + wayNode.getNodeId() + "."
-							);
-						}
+				idTracker.set(tileWayIndexValues.next());
+			}
+		}
+		
+		// Store the ids of all ways within the bounding box.
+		for (Iterator<Way> ways = getWays(idTracker); ways.hasNext();) {
+			long wayId;
+			Way way;
+			List<Node> nodes;
+			
+			// Load the current way.
+			way = ways.next();
+			wayId = way.getId();
+			
+			// Load the nodes within the way.
+			nodes = new ArrayList<Node>();
+			for (WayNode wayNode : way.getWayNodes()) {
+				try {
+					nodes.add(getNode(wayNode.getNodeId()));
+				} catch (NoSuchIndexElementException e) {
+					// Ignore any referential integrity problems.
+					if (LOG.isLoggable(Level.FINER)) {
+						LOG.finest(
+							"Ignoring referential integrity problem where way " + wayId
+							+ " refers to non-existent node " + wayNode.getNodeId() + "."
+						);
 					}
 				}
+			}
+			
+			// Determine if the way lies within the required bounding box.
+			if (isWayInsideBox(bboxCtx.boundingBox, nodes)) {
+				bboxCtx.wayIdTracker.set(wayId);
 				
-				// Determine if the way lies within the required bounding box.
-				if (isWayInsideBox(bboxCtx.boundingBox, nodes)) {
-					bboxCtx.wayIdTracker.set(wayId);
-					
-					// If we want complete ways, we need to check the list of nodes
-					// adding any nodes that haven't already been selected (ie.
-					// those that are outside the box).
-					if (completeWays) {
-						for (WayNode wayNode : way.getWayNodes()) {
-							long nodeId;
-							
-							nodeId = wayNode.getNodeId();
-							
-							if (!bboxCtx.nodeIdTracker.get(nodeId)) {
-								bboxCtx.externalNodeIdTracker.set(nodeId);
-							}
+				// If we want complete ways, we need to check the list of nodes
+				// adding any nodes that haven't already been selected (ie.
+				// those that are outside the box).
+				if (completeWays) {
+					for (WayNode wayNode : way.getWayNodes()) {
+						long nodeId;
+						
+						nodeId = wayNode.getNodeId();
+						
+						if (!bboxCtx.nodeIdTracker.get(nodeId)) {
+							bboxCtx.externalNodeIdTracker.set(nodeId);
 						}
 					}
 				}
@@ -384,11 +429,9 @@ public class DatasetStoreReader implements DatasetContext {
 	 */
 	private void populateWayIdsUsingNodeWayIndex(BoundingBoxContext bboxCtx, boolean completeWays) {
 		// Select all ways that contain the currently selected nodes.
-		for (Long nodeId : bboxCtx.nodeIdTracker) {
-			try (ReleasableIterator<Long> wayIdIterator = getWayIdsOwningNode(nodeId)) {
-				while (wayIdIterator.hasNext()) {
-					bboxCtx.wayIdTracker.set(wayIdIterator.next());
-				}
+		try (ReleasableIterator<Long> wayIdIterator = getWayIdsOwningNodes(bboxCtx.nodeIdTracker)) {
+			while (wayIdIterator.hasNext()) {
+				bboxCtx.wayIdTracker.set(wayIdIterator.next());
 			}
 		}
 		
@@ -398,10 +441,10 @@ public class DatasetStoreReader implements DatasetContext {
 		// This is done outside the main loop so that ways are loaded
 		// in ascending order which utilises index caching more effectively
 		if (completeWays) {
-			for (Long wayId : bboxCtx.wayIdTracker) {
+			for (Iterator<Way> ways = getWays(bboxCtx.wayIdTracker); ways.hasNext();) {
 				Way way;
 				
-				way = getWay(wayId);
+				way = ways.next();
 				
 				for (WayNode wayNode : way.getWayNodes()) {
 					long externalNodeId;
@@ -427,20 +470,14 @@ public class DatasetStoreReader implements DatasetContext {
 	 */
 	private void populateRelationIds(BoundingBoxContext bboxCtx) {
 		// Select all relations that contain the currently selected nodes, ways and relations.
-		for (Long nodeId : bboxCtx.nodeIdTracker) {
-			try (ReleasableIterator<Long> relationIdIterator = getRelationIdsOwningNode(nodeId)) {
-				while (relationIdIterator.hasNext()) {
-					bboxCtx.relationIdTracker.set(relationIdIterator.next());
-				}
-				
+		try (ReleasableIterator<Long> relationIdIterator = getRelationIdsOwningNodes(bboxCtx.nodeIdTracker)) {
+			while (relationIdIterator.hasNext()) {
+				bboxCtx.relationIdTracker.set(relationIdIterator.next());
 			}
 		}
-		for (Long wayId : bboxCtx.wayIdTracker) {
-			try (ReleasableIterator<Long> relationIdIterator = getRelationIdsOwningWay(wayId)) {
-				while (relationIdIterator.hasNext()) {
-					bboxCtx.relationIdTracker.set(relationIdIterator.next());
-				}
-				
+		try (ReleasableIterator<Long> relationIdIterator = getRelationIdsOwningWays(bboxCtx.wayIdTracker)) {
+			while (relationIdIterator.hasNext()) {
+				bboxCtx.relationIdTracker.set(relationIdIterator.next());
 			}
 		}
 		for (boolean moreParents = true; moreParents;) {
@@ -518,9 +555,9 @@ public class DatasetStoreReader implements DatasetContext {
 	 * @author Brett Henderson
 	 */
 	private class ResultIterator implements ReleasableIterator<EntityContainer> {
-		private Iterator<Long> nodeIds;
-		private Iterator<Long> wayIds;
-		private Iterator<Long> relationIds;
+		private Iterator<Node> nodes;
+		private Iterator<Way> ways;
+		private Iterator<Relation> relations;
 		
 		
 		/**
@@ -534,9 +571,9 @@ public class DatasetStoreReader implements DatasetContext {
 		 *            The set of relations to be returned.
 		 */
 		public ResultIterator(IdTracker nodeIdList, IdTracker wayIdList, IdTracker relationIdList) {
-			nodeIds = nodeIdList.iterator();
-			wayIds = wayIdList.iterator();
-			relationIds = relationIdList.iterator();
+			nodes = getNodes(nodeIdList);
+			ways = getWays(wayIdList);
+			relations = getRelations(relationIdList);
 		}
 		
 		
@@ -545,7 +582,7 @@ public class DatasetStoreReader implements DatasetContext {
 		 */
 		@Override
 		public boolean hasNext() {
-			return (nodeIds.hasNext() || wayIds.hasNext() || relationIds.hasNext());
+			return (nodes.hasNext() || ways.hasNext() || relations.hasNext());
 		}
 		
 		
@@ -554,14 +591,14 @@ public class DatasetStoreReader implements DatasetContext {
 		 */
 		@Override
 		public EntityContainer next() {
-			if (nodeIds.hasNext()) {
-				return new NodeContainer(getNode(nodeIds.next()));
+			if (nodes.hasNext()) {
+				return new NodeContainer(nodes.next());
 			}
-			if (wayIds.hasNext()) {
-				return new WayContainer(getWay(wayIds.next()));
+			if (ways.hasNext()) {
+				return new WayContainer(ways.next());
 			}
-			if (relationIds.hasNext()) {
-				return new RelationContainer(getRelation(relationIds.next()));
+			if (relations.hasNext()) {
+				return new RelationContainer(relations.next());
 			}
 			
 			throw new NoSuchElementException();
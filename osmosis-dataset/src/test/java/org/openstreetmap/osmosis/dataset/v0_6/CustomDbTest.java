@@ -61,4 +61,121 @@ public class CustomDbTest extends AbstractDataTest {
 		// Validate that the output file matches the input file.
 		dataUtils.compareFiles(inputFile, outputFile);
 	}
+	
+	
+	/**
+	 * Loads the bounding box test dataset, extracts a bounding box from it
+	 * with and without the entity cache, and verifies both results.
+	 * 
+	 * @param enableWayTileIndex
+	 *            If true, ways are selected using the tile-way index instead
+	 *            of the node-way index.
+	 * @param completeWays
+	 *            If true, all nodes of selected ways are included.
+	 * @param expectedFileName
+	 *            The name of the file containing the expected result.
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	private void runBoundingBox(boolean enableWayTileIndex, boolean completeWays, String expectedFileName)
+			throws IOException {
+		File inputFile;
+		File expectedFile;
+		File dataDir;
+		
+		// Generate input files.
+		inputFile = dataUtils.createDataFile("v0_6/customdb-bbox-snapshot.osm");
+		expectedFile = dataUtils.createDataFile(expectedFileName);
+		dataDir = dataUtils.newFolder();
+		
+		// Load the database with a dataset.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--write-customdb-0.6",
+				"directory=" + dataDir,
+				"enableWayTileIndex=" + enableWayTileIndex
+			}
+		);
+		
+		// Extract the bounding box with the cache disabled, then enabled.
+		for (String cacheSizeMB : new String[] {"0", "1"}) {
+			File outputFile = dataUtils.newFile();
+			
+			Osmosis.run(
+				new String [] {
+					"-q",
+					"--read-customdb-0.6",
+					"directory=" + dataDir,
+					"enableWayTileIndex=" + enableWayTileIndex,
+					"cacheSizeMB=" + cacheSizeMB,
+					"--dataset-bounding-box-0.6",
+					"left=0",
+					"right=10",
+					"bottom=0",
+					"top=10",
+					"completeWays=" + completeWays,
+					"--write-xml-0.6",
+					outputFile.getPath()
+				}
+			);
+			
+			// Validate that the output file matches the expected result.
+			dataUtils.compareFiles(expectedFile, outputFile);
+		}
+	}
+	
+	
+	/**
+	 * Tests a bounding box extract selecting ways and relations through the
+	 * node-way and relation indexes.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testBoundingBox() throws IOException {
+		runBoundingBox(false, false, "v0_6/customdb-bbox-expected.osm");
+	}
+	
+	
+	/**
+	 * Tests a bounding box extract including the nodes outside the box of
+	 * selected ways.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testBoundingBoxCompleteWays() throws IOException {
+		runBoundingBox(false, true, "v0_6/customdb-bbox-complete-expected.osm");
+	}
+	
+	
+	/**
+	 * Tests a bounding box extract selecting ways through the tile-way index,
+	 * which also finds ways crossing the box without a node inside it.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testBoundingBoxTileIndex() throws IOException {
+		runBoundingBox(true, false, "v0_6/customdb-bbox-tile-expected.osm");
+	}
+	
+	
+	/**
+	 * Tests a bounding box extract selecting ways through the tile-way index
+	 * and including the nodes outside the box of selected ways.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testBoundingBoxTileIndexCompleteWays() throws IOException {
+		runBoundingBox(true, true, "v0_6/customdb-bbox-tile-complete-expected.osm");
+	}
 }
@@ -53,6 +53,14 @@ public abstract class BinaryParser implements BlockReaderAdapter {
     protected String getStringById(int id) {
       return strings[id];
     }
+
+    /** Get the string table of the block currently being parsed.
+     * 
+     * @return The strings indexed by their id. The array must not be modified.
+     */
+    protected String[] getStrings() {
+      return strings;
+    }
     
     @Override
     public void handleBlock(FileBlock message) {
@@ -98,8 +98,11 @@ public class BinarySerializer {
     }
 
     public void close() throws IOException {
-        flush();
-        output.close();
+        try {
+            flush();
+        } finally {
+            output.close();
+        }
     }
 
     long debug_bytes = 0;
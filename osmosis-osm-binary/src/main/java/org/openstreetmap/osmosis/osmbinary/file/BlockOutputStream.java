@@ -19,19 +19,53 @@ package org.openstreetmap.osmosis.osmbinary.file;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-
-enum CompressFlags {
-    NONE, DEFLATE
-}
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 public class BlockOutputStream {
 
     public BlockOutputStream(OutputStream output) {
+        this(output, 1);
+    }
+
+    /**
+     * Create a stream that compresses blocks using a pool of worker threads.
+     * Blocks are still written in the order they are passed in, and the
+     * output is identical to the single threaded stream. With a single
+     * worker, blocks are compressed on the calling thread.
+     *
+     * @param output The stream to write to.
+     * @param workers The number of threads used to compress blocks.
+     */
+    public BlockOutputStream(OutputStream output, int workers) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Worker count must be at least 1, not " + workers);
         this.outwrite = new DataOutputStream(output);
         this.compression = CompressFlags.DEFLATE;
+        if (workers > 1) {
+            // Daemon threads so that a stream that is never closed can't
+            // keep the JVM running.
+            this.executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "pbf-block-compressor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // Allow a block to wait for each worker so they never sit idle.
+            this.maxPendingBlocks = workers * 2;
+        }
     }
 
     public void setCompress(CompressFlags flag) {
@@ -53,22 +87,69 @@ public class BlockOutputStream {
     }
 
     /** Write a specific block with a specific compression flags */
-    public void write(FileBlock block, CompressFlags compression)
+    public void write(final FileBlock block, final CompressFlags compression)
             throws IOException {
-        FileBlockPosition ref = block.writeTo(outwrite, compression);
-        writtenblocks.add(ref);
+        if (executor == null) {
+            FileBlockPosition ref = block.writeTo(outwrite, compression);
+            writtenblocks.add(ref);
+            return;
+        }
+
+        // Limit the number of blocks held in memory.
+        while (pendingBlocks.size() >= maxPendingBlocks)
+            writeOldestPendingBlock();
+
+        pendingBlocks.add(executor.submit(new Callable<EncodedFileBlock>() {
+            @Override
+            public EncodedFileBlock call() {
+                return block.encode(compression);
+            }
+        }));
+    }
+
+    /** Wait for the oldest block to be compressed and write it. */
+    private void writeOldestPendingBlock() throws IOException {
+        EncodedFileBlock encoded;
+
+        try {
+            encoded = pendingBlocks.removeFirst().get();
+        } catch (InterruptedException e) {
+            InterruptedIOException ioe = new InterruptedIOException("Interrupted while compressing a block.");
+            ioe.initCause(e);
+            throw ioe;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException("Unable to compress block.", cause);
+        }
+
+        writtenblocks.add(encoded.writeTo(outwrite));
     }
 
     public void flush() throws IOException {
+        while (!pendingBlocks.isEmpty())
+            writeOldestPendingBlock();
         outwrite.flush();
     }
 
     public void close() throws IOException {
-        outwrite.flush();
-        outwrite.close();
+        try {
+            flush();
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
+            pendingBlocks.clear();
+            outwrite.close();
+        }
     }
 
     OutputStream outwrite;
     List<FileBlockPosition> writtenblocks = new ArrayList<FileBlockPosition>();
     CompressFlags compression;
+    ExecutorService executor;
+    int maxPendingBlocks;
+    Deque<Future<EncodedFileBlock>> pendingBlocks = new ArrayDeque<Future<EncodedFileBlock>>();
 }
@@ -0,0 +1,41 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.osmbinary.file;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+
+/**
+ * A fileblock whose header and blob have been built and compressed and are
+ * ready to be written to a stream.
+ */
+class EncodedFileBlock {
+    private final FileBlockBase base;
+    private final Fileformat.BlobHeader header;
+    private final Fileformat.Blob blob;
+
+    EncodedFileBlock(FileBlockBase base, Fileformat.BlobHeader header,
+            Fileformat.Blob blob) {
+        this.base = base;
+        this.header = header;
+        this.blob = blob;
+    }
+
+    /** Write the length prefix, header and blob to the stream. */
+    FileBlockPosition writeTo(OutputStream outwrite) throws IOException {
+        int size = header.getSerializedSize();
+
+        (new DataOutputStream(outwrite)).writeInt(size);
+        header.writeTo(outwrite);
+        long offset = -1;
+
+        if (outwrite instanceof FileOutputStream)
+            offset = ((FileOutputStream) outwrite).getChannel().position();
+
+        blob.writeTo(outwrite);
+        return FileBlockPosition.newInstance(base, offset, size);
+    }
+}
@@ -17,8 +17,6 @@
 
 package org.openstreetmap.osmosis.osmbinary.file;
 
-import java.io.DataOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -88,6 +86,15 @@ public class FileBlock extends FileBlockBase {
 
     public FileBlockPosition writeTo(OutputStream outwrite, CompressFlags flags)
             throws IOException {
+        return encode(flags).writeTo(outwrite);
+    }
+
+    /**
+     * Build the header and blob messages, compressing the data if requested.
+     * This does all the expensive work of writing a block, but doesn't touch
+     * the output stream so it may be run on a different thread.
+     */
+    EncodedFileBlock encode(CompressFlags flags) {
         BlobHeader.Builder builder = Fileformat.BlobHeader
                 .newBuilder();
         if (indexdata != null)
@@ -109,19 +116,8 @@ public class FileBlock extends FileBlockBase {
 
         builder.setDatasize(blob.getSerializedSize());
         Fileformat.BlobHeader message = builder.build();
-        int size = message.getSerializedSize();
-
-        // System.out.format("Outputed header size %d bytes, header of %d bytes, and blob of %d bytes\n",
-        // size,message.getSerializedSize(),blob.getSerializedSize());
-        (new DataOutputStream(outwrite)).writeInt(size);
-        message.writeTo(outwrite);
-        long offset = -1;
-
-        if (outwrite instanceof FileOutputStream)
-            offset = ((FileOutputStream) outwrite).getChannel().position();
 
-        blob.writeTo(outwrite);
-        return FileBlockPosition.newInstance(this, offset, size);
+        return new EncodedFileBlock(this, message, blob);
     }
 
     /** Reads or skips a fileblock. */
@@ -8,6 +8,7 @@ import java.util.List;
 import org.openstreetmap.osmosis.core.OsmosisConstants;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
@@ -21,6 +22,7 @@ import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.task.v0_6.NodeBatchSink;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 
 import org.openstreetmap.osmosis.osmbinary.BinaryParser;
@@ -84,6 +86,11 @@ public class OsmosisBinaryParser extends BinaryParser {
     
     @Override
     protected void parseDense(Osmformat.DenseNodes nodes) {
+        if (sink instanceof NodeBatchSink) {
+            parseDenseBatch(nodes).process(sink);
+            return;
+        }
+
         long lastId = 0, lastLat = 0, lastLon = 0;
         
         int j = 0; // Index into the keysvals array.
@@ -139,6 +146,50 @@ public class OsmosisBinaryParser extends BinaryParser {
         }
     }
 
+    /** Convert a dense node group into a node batch referring to the block string table.
+     * @param nodes The dense nodes.
+     * @return The node batch. */
+    private NodeBatchContainer parseDenseBatch(Osmformat.DenseNodes nodes) {
+        NodeBatchContainer batch = new NodeBatchContainer(getStrings(), nodes.getIdCount());
+        long lastId = 0, lastLat = 0, lastLon = 0;
+        long lasttimestamp = 0, lastchangeset = 0;
+        int lastuserSid = 0, lastuid = 0;
+        int j = 0; // Index into the keysvals array.
+        DenseInfo di = null;
+        if (nodes.hasDenseinfo()) {
+          di = nodes.getDenseinfo();
+        }
+        for (int i = 0; i < nodes.getIdCount(); i++) {
+            long lat = nodes.getLat(i) + lastLat;
+            lastLat = lat;
+            long lon = nodes.getLon(i) + lastLon;
+            lastLon = lon;
+            long id = nodes.getId(i) + lastId;
+            lastId = id;
+            if (di != null) {
+              int uid = di.getUid(i) + lastuid; lastuid = uid;
+              int userSid = di.getUserSid(i) + lastuserSid; lastuserSid = userSid;
+              long timestamp = di.getTimestamp(i) + lasttimestamp; lasttimestamp = timestamp;
+              long changeset = di.getChangeset(i) + lastchangeset; lastchangeset = changeset;
+              batch.addNode(id, parseLat(lat), parseLon(lon), di.getVersion(i), date_granularity * timestamp,
+                  changeset, uid < 0 ? OsmUser.NONE.getId() : uid, uid < 0 ? 0 : userSid);
+            } else {
+              batch.addNode(id, parseLat(lat), parseLon(lon), NOVERSION, NODATE.getTime(), NOCHANGESET,
+                  OsmUser.NONE.getId(), 0);
+            }
+            // If empty, assume that nothing here has keys or vals.
+            if (nodes.getKeysValsCount() > 0) {
+                while (nodes.getKeysVals(j) != 0) {
+                    int keyid = nodes.getKeysVals(j++);
+                    int valid = nodes.getKeysVals(j++);
+                    batch.addTag(keyid, valid);
+                }
+                j++; // Skip over the '0' delimiter.
+            }
+        }
+        return batch;
+    }
+
     @Override
     protected void parseWays(List<Osmformat.Way> ways) {
         for (Osmformat.Way i : ways) {
@@ -3,6 +3,7 @@ package crosby.binary.osmosis;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +15,7 @@ import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityProcessor;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
@@ -27,7 +29,7 @@ import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
-import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.core.task.v0_6.NodeBatchSink;
 
 import org.openstreetmap.osmosis.osmbinary.BinarySerializer;
 import org.openstreetmap.osmosis.osmbinary.Osmformat;
@@ -40,7 +42,7 @@ import org.openstreetmap.osmosis.osmbinary.file.FileBlock;
 /**
  * Receives data from the Osmosis pipeline and stores it in the PBF format.
  */
-public class OsmosisSerializer extends BinarySerializer implements Sink {
+public class OsmosisSerializer extends BinarySerializer implements NodeBatchSink {
 	private static final Logger LOG = Logger.getLogger(OsmosisSerializer.class.getName());
 	
   /** Additional configuration flag for whether to serialize into DenseNodes/DenseInfo? */
@@ -248,6 +250,117 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
 
     
 
+    /**
+     * Serializes nodes received in batches in the dense format directly from
+     * the batch columns. Nodes are referenced by their batch and index so no
+     * node objects are created.
+     */
+    private class NodeBatchGroup implements PrimGroupWriterInterface {
+        private List<NodeBatchContainer> batches = new ArrayList<NodeBatchContainer>();
+        private int[] indexes = new int[16];
+
+        /** Add a node to the group.
+         * @param batch The batch containing the node.
+         * @param index The index of the node within the batch. */
+        public void add(NodeBatchContainer batch, int index) {
+            if (batches.size() == indexes.length) {
+                indexes = Arrays.copyOf(indexes, indexes.length * 2);
+            }
+            indexes[batches.size()] = index;
+            batches.add(batch);
+        }
+
+        private String getUserName(NodeBatchContainer batch, int index) {
+            if (batch.getUserId(index) == OsmUser.NONE.getId()) {
+                return OsmUser.NONE.getName();
+            }
+            return batch.getUserName(index);
+        }
+
+        public void addStringsToStringtable() {
+            StringTable stable = getStringTable();
+            for (int n = 0; n < batches.size(); n++) {
+                NodeBatchContainer batch = batches.get(n);
+                int index = indexes[n];
+                for (int t = batch.getTagStart(index); t < batch.getTagEnd(index); t++) {
+                    stable.incr(batch.getTagKey(t));
+                    stable.incr(batch.getTagValue(t));
+                }
+                if (!omit_metadata) {
+                    stable.incr(getUserName(batch, index));
+                }
+            }
+        }
+
+        public Osmformat.PrimitiveGroup serialize() {
+            if (batches.size() == 0) {
+              return null;
+            }
+            Osmformat.PrimitiveGroup.Builder builder = Osmformat.PrimitiveGroup
+                    .newBuilder();
+            StringTable stable = getStringTable();
+
+            Osmformat.DenseNodes.Builder bi = Osmformat.DenseNodes.newBuilder();
+            boolean doesBlockHaveTags = false;
+            for (int n = 0; n < batches.size() && !doesBlockHaveTags; n++) {
+              doesBlockHaveTags = batches.get(n).getTagEnd(indexes[n]) > batches.get(n).getTagStart(indexes[n]);
+            }
+            if (!omit_metadata) {
+              Osmformat.DenseInfo.Builder bdi = Osmformat.DenseInfo.newBuilder();
+              long lasttimestamp = 0, lastchangeset = 0;
+              int lastuserSid = 0, lastuid = 0;
+              for (int n = 0; n < batches.size(); n++) {
+                NodeBatchContainer batch = batches.get(n);
+                int index = indexes[n];
+                if (batch.getUserId(index) == OsmUser.NONE.getId() && warncount < Prim.MAXWARN) {
+                  LOG.warning("Attention: Data being output lacks metadata. Please use omitmetadata=true");
+                  warncount++;
+                }
+                int uid = batch.getUserId(index);
+                int userSid = stable.getIndex(getUserName(batch, index));
+                int timestamp = (int) (batch.getTimestamp(index) / date_granularity);
+                long changeset = batch.getChangesetId(index);
+
+                bdi.addVersion(batch.getVersion(index));
+                bdi.addTimestamp(timestamp - lasttimestamp);
+                lasttimestamp = timestamp;
+                bdi.addChangeset(changeset - lastchangeset);
+                lastchangeset = changeset;
+                bdi.addUid(uid - lastuid);
+                lastuid = uid;
+                bdi.addUserSid(userSid - lastuserSid);
+                lastuserSid = userSid;
+              }
+              bi.setDenseinfo(bdi);
+            }
+
+            long lastlat = 0, lastlon = 0, lastid = 0;
+            for (int n = 0; n < batches.size(); n++) {
+                NodeBatchContainer batch = batches.get(n);
+                int index = indexes[n];
+                long id = batch.getId(index);
+                int lat = mapDegrees(batch.getLatitude(index));
+                int lon = mapDegrees(batch.getLongitude(index));
+                bi.addId(id - lastid);
+                lastid = id;
+                bi.addLon(lon - lastlon);
+                lastlon = lon;
+                bi.addLat(lat - lastlat);
+                lastlat = lat;
+
+                if (doesBlockHaveTags) {
+                  for (int t = batch.getTagStart(index); t < batch.getTagEnd(index); t++) {
+                      bi.addKeysVals(stable.getIndex(batch.getTagKey(t)));
+                      bi.addKeysVals(stable.getIndex(batch.getTagValue(t)));
+                  }
+                  bi.addKeysVals(0); // Add delimiter.
+                }
+            }
+            builder.setDense(bi);
+            return builder.build();
+        }
+    }
+
     private class WayGroup extends Prim<Way> implements PrimGroupWriterInterface {
       public Osmformat.PrimitiveGroup serialize() {
         if (contents.size() == 0) {
@@ -339,6 +452,7 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
     /* One list for each type */
     private WayGroup ways;
     private NodeGroup nodes;
+    private NodeBatchGroup nodeBatches;
     private RelationGroup relations;
 
     private Processor processor = new Processor();
@@ -381,6 +495,24 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
             checkLimit();
         }
 
+        /**
+         * Add all nodes of a batch, switching to a batch node group if
+         * required.
+         *
+         * @param batch The nodes to be added.
+         */
+        public void process(NodeBatchContainer batch) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (nodeBatches == null) {
+                    writeEmptyHeaderIfNeeded();
+                    switchTypes();
+                    nodeBatches = new NodeBatchGroup();
+                }
+                nodeBatches.add(batch, i);
+                checkLimit();
+            }
+        }
+
         @Override
         public void process(WayContainer way) {
             if (ways == null) {
@@ -412,6 +544,9 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
         if (nodes != null) {
             groups.add(nodes);
             nodes = null;
+        } else if (nodeBatches != null) {
+            groups.add(nodeBatches);
+            nodeBatches = null;
         } else if (ways != null) {
             groups.add(ways);
             ways = null;
@@ -488,6 +623,19 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
         entityContainer.process(processor);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void process(NodeBatchContainer batch) {
+        if (useDense) {
+            processor.process(batch);
+        } else {
+            for (int i = 0; i < batch.size(); i++) {
+                processor.process(new NodeContainer(batch.getNode(i)));
+            }
+        }
+    }
+
     @Override
     public void complete() {
         try {
@@ -19,6 +19,8 @@ import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
 public class OsmosisSerializerFactory extends TaskManagerFactory {
     private static final String ARG_FILE_NAME = "file";
     private static final String DEFAULT_FILE_NAME = "dump.osm.pbf";
+    private static final String ARG_WORKERS = "workers";
+    private static final int DEFAULT_WORKERS = 1;
 
     @Override
     protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
@@ -26,10 +28,15 @@ public class OsmosisSerializerFactory extends TaskManagerFactory {
         String fileName;
         File file;
         OsmosisSerializer task = null;
+        int workers;
 
         // Get the task arguments.
         fileName = getStringArgument(taskConfig, ARG_FILE_NAME,
                 getDefaultStringArgument(taskConfig, DEFAULT_FILE_NAME));
+        workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+        if (workers < 1) {
+            throw new OsmosisRuntimeException("Argument " + ARG_WORKERS + " must be at least 1.");
+        }
 
         // Create a file object from the file name provided.
         file = new File(fileName);
@@ -37,7 +44,7 @@ public class OsmosisSerializerFactory extends TaskManagerFactory {
         // Build the task object.
         try {
             BlockOutputStream output = new BlockOutputStream(
-                    new FileOutputStream(file));
+                    new FileOutputStream(file), workers);
             task = new OsmosisSerializer(output);
             task.configBatchLimit(this.getIntegerArgument(taskConfig,
                     "batchlimit", 8000));
@@ -3,6 +3,9 @@ package crosby.binary.osmosis;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Assert;
 
 import org.junit.Test;
 import org.openstreetmap.osmosis.core.Osmosis;
@@ -49,4 +52,52 @@ public class OsmosisReaderAndSerializerTest extends AbstractDataTest {
         // Validate that the output file matches the input file.
         dataUtils.compareFiles(inputXmlFile, outputXmlFile);
 	}
+
+
+	/**
+	 * Tests that compressing blocks on multiple worker threads produces exactly
+	 * the same file as the single threaded writer.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testParallelWriteIdentical() throws IOException {
+		// Generate data files.
+		File inputXmlFile = dataUtils.createDataFile("v0_6/data-snapshot.osm");
+		File singlePbfFile = dataUtils.newFile();
+		File parallelPbfFile = dataUtils.newFile();
+		File outputXmlFile = dataUtils.newFile();
+
+		// Write the XML to PBF with and without workers. A small batch limit
+		// ensures there are many blocks to be compressed concurrently.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputXmlFile.getPath(),
+				"--tee-0.6",
+				"--write-pbf-0.6",
+				"file=" + singlePbfFile.getPath(),
+				"batchlimit=3",
+				"--write-pbf-0.6",
+				"file=" + parallelPbfFile.getPath(),
+				"batchlimit=3",
+				"workers=3"
+				});
+
+		Assert.assertArrayEquals("Parallel output differs from single threaded output.",
+				Files.readAllBytes(singlePbfFile.toPath()), Files.readAllBytes(parallelPbfFile.toPath()));
+
+		// Read the parallel PBF and write to XML.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-pbf-0.6",
+				parallelPbfFile.getPath(),
+				"--write-xml-0.6",
+				outputXmlFile.getPath()
+				});
+
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputXmlFile, outputXmlFile);
+	}
 }
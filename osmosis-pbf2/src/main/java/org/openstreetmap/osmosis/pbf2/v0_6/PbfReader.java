@@ -6,25 +6,48 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.task.v0_6.MultiPassSink;
 import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfBlobIndex;
 import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfDecoder;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfRawBlob;
 import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfStreamSplitter;
 
 /**
  * An OSM data source reading from a PBF file. The entire contents of the file
  * are read.
+ * <p>
+ * In seekable mode the blob headers are scanned up front (or loaded from a
+ * blob index file) and each worker thread reads its own blobs directly from
+ * the file, so that reading is not limited to a single thread. Seekable mode
+ * also allows sinks supporting multiple passes to re-read the file, skipping
+ * blobs that don't contain the entity types required by each pass.
  * 
  * @author Brett Henderson
  */
 public class PbfReader implements RunnableSource {
+	private static final Logger LOG = Logger.getLogger(PbfReader.class.getName());
+
 	private final Supplier<InputStream> supplier;
+	private final File seekableFile;
+	private final File blobIndexFile;
 	private Sink sink;
 	private int workers;
 
@@ -64,6 +87,101 @@ public class PbfReader implements RunnableSource {
 	public PbfReader(Supplier<InputStream> supplier, int workers) {
 		this.supplier = supplier;
 		this.workers = workers;
+		this.seekableFile = null;
+		this.blobIndexFile = null;
+	}
+
+	/**
+	 * Creates a new instance which reads blobs directly from the file on the
+	 * worker threads.
+	 * 
+	 * @param file
+	 *            The file to read. This must be a regular file.
+	 * @param workers
+	 *            The number of worker threads for reading and decoding PBF
+	 *            blocks.
+	 * @param blobIndexFile
+	 *            The file caching the blob index. If it doesn't exist or is
+	 *            out of date it is created. If null, the index is built in
+	 *            memory only.
+	 */
+	public PbfReader(File file, int workers, File blobIndexFile) {
+		this.supplier = null;
+		this.workers = workers;
+		this.seekableFile = file;
+		this.blobIndexFile = blobIndexFile;
+	}
+
+	private PbfBlobIndex getBlobIndex(FileChannel channel) {
+		PbfBlobIndex index = null;
+
+		if (blobIndexFile != null) {
+			index = PbfBlobIndex.load(blobIndexFile, seekableFile);
+		}
+
+		if (index == null) {
+			index = PbfBlobIndex.build(seekableFile, channel);
+
+			if (blobIndexFile != null) {
+				index.save(blobIndexFile);
+			}
+		}
+
+		if (LOG.isLoggable(Level.FINE)) {
+			LOG.fine("Reading " + index.size() + " blobs from " + seekableFile + ".");
+		}
+
+		return index;
+	}
+
+	private BitSet selectBlobs(List<Set<EntityType>> blobEntityTypes, Set<EntityType> requiredTypes) {
+		BitSet blobs = new BitSet(blobEntityTypes.size());
+
+		for (int i = 0; i < blobEntityTypes.size(); i++) {
+			for (EntityType type : blobEntityTypes.get(i)) {
+				if (requiredTypes.contains(type)) {
+					blobs.set(i);
+					break;
+				}
+			}
+		}
+
+		if (LOG.isLoggable(Level.FINE)) {
+			LOG.fine("Reading " + blobs.cardinality() + " of " + blobEntityTypes.size() + " blobs for next pass over "
+					+ requiredTypes + ".");
+		}
+
+		return blobs;
+	}
+
+	private void runPasses(ExecutorService executorService, FileChannel channel) {
+		PbfBlobIndex blobIndex;
+		List<Set<EntityType>> blobEntityTypes = null;
+		MultiPassSink multiPassSink = null;
+		PbfDecoder pbfDecoder;
+
+		blobIndex = getBlobIndex(channel);
+		if (sink instanceof MultiPassSink && ((MultiPassSink) sink).enableMultiPass()) {
+			multiPassSink = (MultiPassSink) sink;
+			blobEntityTypes = new ArrayList<Set<EntityType>>(blobIndex.size());
+		}
+
+		sink.initialize(Collections.<String, Object>emptyMap());
+
+		// The first pass reads every blob and records the entity types each
+		// one contains.
+		pbfDecoder = new PbfDecoder(blobIndex.iterator(channel), executorService, workers + 1, sink);
+		pbfDecoder.setBlobEntityTypes(blobEntityTypes);
+		pbfDecoder.run();
+
+		if (multiPassSink != null) {
+			Set<EntityType> requiredTypes;
+
+			while ((requiredTypes = multiPassSink.completePass()) != null) {
+				new PbfDecoder(blobIndex.iterator(channel, selectBlobs(blobEntityTypes, requiredTypes)),
+						executorService, workers + 1, sink).run();
+			}
+		}
 	}
 
 	@Override
@@ -74,24 +192,40 @@ public class PbfReader implements RunnableSource {
 	@Override
 	public void run() {
 		PbfStreamSplitter streamSplitter = null;
+		RandomAccessFile randomAccessFile = null;
+		Iterator<PbfRawBlob> blobs;
 		ExecutorService executorService = Executors.newFixedThreadPool(workers);
 
 		try {
-			sink.initialize(Collections.<String, Object>emptyMap());
+			if (seekableFile != null) {
+				// Blobs are located using the index and read by the worker
+				// threads.
+				try {
+					randomAccessFile = new RandomAccessFile(seekableFile, "r");
+				} catch (IOException e) {
+					throw new OsmosisRuntimeException("Unable to read PBF file " + seekableFile + ".", e);
+				}
+				runPasses(executorService, randomAccessFile.getChannel());
+
+			} else {
+				sink.initialize(Collections.<String, Object>emptyMap());
 
-			InputStream inputStream = supplier.get();
+				InputStream inputStream = supplier.get();
 
-			// Create a stream splitter to break the PBF stream into blobs.
-			streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream));
+				// Create a stream splitter to break the PBF stream into blobs.
+				streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream));
+				blobs = streamSplitter;
 
-			// Process all blobs of data in the stream using threads from the
-			// executor service. We allow the decoder to issue an extra blob
-			// than there are workers to ensure there is another blob
-			// immediately ready for processing when a worker thread completes.
-			// The main thread is responsible for splitting blobs from the
-			// request stream, and sending decoded entities to the sink.
-			PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink);
-			pbfDecoder.run();
+				// Process all blobs of data in the stream using threads from
+				// the executor service. We allow the decoder to issue an extra
+				// blob than there are workers to ensure there is another blob
+				// immediately ready for processing when a worker thread
+				// completes. The main thread is responsible for splitting
+				// blobs from the request stream, and sending decoded entities
+				// to the sink.
+				PbfDecoder pbfDecoder = new PbfDecoder(blobs, executorService, workers + 1, sink);
+				pbfDecoder.run();
+			}
 
 			sink.complete();
 		} finally {
@@ -102,6 +236,14 @@ public class PbfReader implements RunnableSource {
 			if (streamSplitter != null) {
 				streamSplitter.close();
 			}
+
+			if (randomAccessFile != null) {
+				try {
+					randomAccessFile.close();
+				} catch (IOException e) {
+					LOG.log(Level.WARNING, "Unable to close PBF file " + seekableFile + ".", e);
+				}
+			}
 		}
 	}
 
@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.pbf2.v0_6;
 
 import java.io.File;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
@@ -19,6 +20,9 @@ public class PbfReaderFactory extends TaskManagerFactory {
 	private static final String DEFAULT_FILE_NAME = "dump.osm.pbf";
 	private static final String ARG_WORKERS = "workers";
 	private static final int DEFAULT_WORKERS = 1;
+	private static final String ARG_SEEKABLE = "seekable";
+	private static final boolean DEFAULT_SEEKABLE = false;
+	private static final String ARG_BLOB_INDEX_FILE = "blobIndexFile";
 
 
 	/**
@@ -30,17 +34,34 @@ public class PbfReaderFactory extends TaskManagerFactory {
 		File file;
 		PbfReader task;
 		int workers;
+		boolean seekable;
+		File blobIndexFile;
 
 		// Get the task arguments.
 		fileName = getStringArgument(taskConfig, ARG_FILE_NAME,
 				getDefaultStringArgument(taskConfig, DEFAULT_FILE_NAME));
 		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		seekable = getBooleanArgument(taskConfig, ARG_SEEKABLE, DEFAULT_SEEKABLE);
+		if (doesArgumentExist(taskConfig, ARG_BLOB_INDEX_FILE)) {
+			blobIndexFile = new File(getStringArgument(taskConfig, ARG_BLOB_INDEX_FILE));
+			seekable = true;
+		} else {
+			blobIndexFile = null;
+		}
 
 		// Create a file object from the file name provided.
 		file = new File(fileName);
 
 		// Build the task object.
-		task = new PbfReader(file, workers);
+		if (seekable) {
+			if (!file.isFile()) {
+				throw new OsmosisRuntimeException("Argument " + ARG_SEEKABLE + " for task " + taskConfig.getId()
+						+ " requires " + file + " to be a regular file.");
+			}
+			task = new PbfReader(file, workers, blobIndexFile);
+		} else {
+			task = new PbfReader(file, workers);
+		}
 
 		return new RunnableSourceManager(taskConfig.getId(), task, taskConfig.getPipeArgs());
 	}
@@ -1,10 +1,6 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 
-import java.util.List;
-
-import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
-
 
 /**
  * Instances of this interface are used to receive results from PBFBlobDecoder.
@@ -18,7 +14,7 @@ public interface PbfBlobDecoderListener {
 	 * @param decodedEntities
 	 *            The decoded entities.
 	 */
-	void complete(List<EntityContainer> decodedEntities);
+	void complete(PbfDecodedBlock decodedEntities);
 
 
 	/**
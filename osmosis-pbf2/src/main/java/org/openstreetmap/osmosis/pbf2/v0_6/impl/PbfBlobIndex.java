@@ -0,0 +1,291 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.osmbinary.Fileformat.BlobHeader;
+
+
+/**
+ * Holds the type, position and size of every blob within a PBF file. The index
+ * is built by scanning the blob headers without reading blob data, and can be
+ * saved to a sidecar file so that later reads of the same file can skip the
+ * scan.
+ */
+public class PbfBlobIndex {
+
+	private static final Logger LOG = Logger.getLogger(PbfBlobIndex.class.getName());
+
+	private static final int INDEX_MAGIC = 0x50424958;
+	private static final int INDEX_VERSION = 1;
+
+	private long fileLength;
+	private long fileLastModified;
+	private List<String> types;
+	private long[] offsets;
+	private int[] sizes;
+	private int blobCount;
+
+
+	private PbfBlobIndex(long fileLength, long fileLastModified) {
+		this.fileLength = fileLength;
+		this.fileLastModified = fileLastModified;
+
+		types = new ArrayList<String>();
+		offsets = new long[64];
+		sizes = new int[64];
+	}
+
+
+	private void add(String type, long offset, int size) {
+		if (blobCount == offsets.length) {
+			offsets = Arrays.copyOf(offsets, blobCount * 2);
+			sizes = Arrays.copyOf(sizes, blobCount * 2);
+		}
+
+		// Most files only contain two distinct types, so re-use the previous
+		// instance where possible.
+		if (blobCount > 0 && types.get(blobCount - 1).equals(type)) {
+			type = types.get(blobCount - 1);
+		}
+		types.add(type);
+		offsets[blobCount] = offset;
+		sizes[blobCount] = size;
+		blobCount++;
+	}
+
+
+	/**
+	 * Reads bytes from the channel at the specified position, failing if the
+	 * end of the file is reached first.
+	 *
+	 * @param channel
+	 *            The channel to read from.
+	 * @param buffer
+	 *            The buffer to be filled.
+	 * @param position
+	 *            The file position to begin reading from.
+	 * @throws IOException
+	 *             if the bytes cannot be read.
+	 */
+	static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int count = channel.read(buffer, position);
+			if (count < 0) {
+				throw new OsmosisRuntimeException("Unexpected end of PBF file at position " + position + ".");
+			}
+			position += count;
+		}
+	}
+
+
+	/**
+	 * Builds an index by scanning the blob headers of a PBF file.
+	 *
+	 * @param file
+	 *            The PBF file.
+	 * @param channel
+	 *            An open channel for the file.
+	 * @return The index.
+	 */
+	public static PbfBlobIndex build(File file, FileChannel channel) {
+		try {
+			PbfBlobIndex index = new PbfBlobIndex(channel.size(), file.lastModified());
+			ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+			long position = 0;
+
+			while (position < index.fileLength) {
+				int headerLength;
+				byte[] headerBytes;
+				BlobHeader blobHeader;
+
+				lengthBuffer.clear();
+				readFully(channel, lengthBuffer, position);
+				headerLength = lengthBuffer.getInt(0);
+				position += 4;
+
+				headerBytes = new byte[headerLength];
+				readFully(channel, ByteBuffer.wrap(headerBytes), position);
+				blobHeader = BlobHeader.parseFrom(headerBytes);
+				position += headerLength;
+
+				index.add(blobHeader.getType(), position, blobHeader.getDatasize());
+				position += blobHeader.getDatasize();
+			}
+
+			if (position != index.fileLength) {
+				throw new OsmosisRuntimeException("PBF file " + file + " is truncated.");
+			}
+
+			return index;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to index PBF file " + file + ".", e);
+		}
+	}
+
+
+	/**
+	 * Loads an index from a sidecar file. The index is only returned if it was
+	 * created for a file of the same size and modification time.
+	 *
+	 * @param indexFile
+	 *            The sidecar file to load.
+	 * @param file
+	 *            The PBF file the index is expected to describe.
+	 * @return The index, or null if the sidecar is missing or out of date.
+	 */
+	public static PbfBlobIndex load(File indexFile, File file) {
+		// An empty file is treated as missing so that a newly created file can
+		// be passed in.
+		if (!indexFile.exists() || indexFile.length() == 0) {
+			return null;
+		}
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			PbfBlobIndex index;
+			int count;
+
+			if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION) {
+				LOG.warning("Ignoring unrecognised PBF blob index file " + indexFile + ".");
+				return null;
+			}
+
+			index = new PbfBlobIndex(input.readLong(), input.readLong());
+			if (index.fileLength != file.length() || index.fileLastModified != file.lastModified()) {
+				LOG.fine("Ignoring out of date PBF blob index file " + indexFile + ".");
+				return null;
+			}
+
+			count = input.readInt();
+			for (int i = 0; i < count; i++) {
+				index.add(input.readUTF(), input.readLong(), input.readInt());
+			}
+
+			return index;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read PBF blob index file " + indexFile + ".", e);
+		}
+	}
+
+
+	/**
+	 * Saves the index to a sidecar file.
+	 *
+	 * @param indexFile
+	 *            The file to write.
+	 */
+	public void save(File indexFile) {
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+				indexFile)))) {
+			output.writeInt(INDEX_MAGIC);
+			output.writeInt(INDEX_VERSION);
+			output.writeLong(fileLength);
+			output.writeLong(fileLastModified);
+			output.writeInt(blobCount);
+			for (int i = 0; i < blobCount; i++) {
+				output.writeUTF(types.get(i));
+				output.writeLong(offsets[i]);
+				output.writeInt(sizes[i]);
+			}
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write PBF blob index file " + indexFile + ".", e);
+		}
+
+		if (LOG.isLoggable(Level.FINE)) {
+			LOG.fine("Saved index of " + blobCount + " blobs to " + indexFile + ".");
+		}
+	}
+
+
+	/**
+	 * Gets the number of blobs in the file.
+	 *
+	 * @return The blob count.
+	 */
+	public int size() {
+		return blobCount;
+	}
+
+
+	/**
+	 * Creates an iterator over all blobs in file order. Blob data is not read
+	 * until {@link PbfRawBlob#getData()} is called, which allows worker threads
+	 * to read their blobs concurrently.
+	 *
+	 * @param channel
+	 *            An open channel for the indexed file.
+	 * @return The blob iterator.
+	 */
+	public Iterator<PbfRawBlob> iterator(FileChannel channel) {
+		BitSet blobs = new BitSet(blobCount);
+
+		blobs.set(0, blobCount);
+
+		return iterator(channel, blobs);
+	}
+
+
+	/**
+	 * Creates an iterator over the selected blobs in file order.
+	 *
+	 * @param channel
+	 *            An open channel for the indexed file.
+	 * @param blobs
+	 *            The positions of the blobs within the index to be returned.
+	 * @return The blob iterator.
+	 */
+	public Iterator<PbfRawBlob> iterator(final FileChannel channel, final BitSet blobs) {
+		return new Iterator<PbfRawBlob>() {
+			private int nextIndex = nextBlob(0);
+
+
+			private int nextBlob(int fromIndex) {
+				int i = blobs.nextSetBit(fromIndex);
+
+				return i < 0 || i >= blobCount ? blobCount : i;
+			}
+
+
+			@Override
+			public boolean hasNext() {
+				return nextIndex < blobCount;
+			}
+
+
+			@Override
+			public PbfRawBlob next() {
+				int i = nextIndex;
+
+				nextIndex = nextBlob(i + 1);
+
+				return new PbfFileBlob(types.get(i), channel, offsets[i], sizes[i]);
+			}
+
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -1,10 +1,6 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 
-import java.util.List;
-
-import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
-
 
 /**
  * Stores the results for a decoded Blob.
@@ -12,7 +8,7 @@ import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
  * @author Brett Henderson
  */
 public class PbfBlobResult {
-	private List<EntityContainer> entities;
+	private PbfDecodedBlock entities;
 	private boolean complete;
 	private boolean success;
 
@@ -32,7 +28,7 @@ public class PbfBlobResult {
 	 * @param decodedEntities
 	 *            The entities from the blob.
 	 */
-	public void storeSuccessResult(List<EntityContainer> decodedEntities) {
+	public void storeSuccessResult(PbfDecodedBlock decodedEntities) {
 		entities = decodedEntities;
 		complete = true;
 		success = true;
@@ -72,9 +68,9 @@ public class PbfBlobResult {
 	 * Gets the entities decoded from the blob. This is only valid after
 	 * complete becomes true, and if success is true.
 	 * 
-	 * @return The list of decoded entities.
+	 * @return The decoded entities.
 	 */
-	public List<EntityContainer> getEntities() {
+	public PbfDecodedBlock getEntities() {
 		return entities;
 	}
 }
@@ -0,0 +1,910 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.osmbinary.Osmformat.HeaderBBox;
+import org.openstreetmap.osmosis.osmbinary.Osmformat.HeaderBlock;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+
+/**
+ * Decodes PBF blobs directly from their serialised form. Blob contents are
+ * inflated into a buffer owned by this decoder, and primitive blocks are read
+ * field by field using a {@link CodedInputStream} without building the
+ * generated protobuf message objects. Repeated fields are decoded into
+ * primitive arrays which are re-used between blocks.
+ * <p>
+ * An instance holds per-block state and must only be used by a single thread
+ * at a time. It is intended to be re-used for many blobs to avoid
+ * re-allocating buffers.
+ */
+public class PbfBlockDecoder {
+
+	private static final Logger LOG = Logger.getLogger(PbfBlockDecoder.class.getName());
+
+	private static final double COORDINATE_SCALING_FACTOR = 0.000000001;
+	private static final int EMPTY_VERSION = -1;
+	private static final Date EMPTY_TIMESTAMP = new Date(0);
+	private static final long EMPTY_CHANGESET = -1;
+	private static final List<String> SUPPORTED_FEATURES = Arrays.asList("OsmSchema-V0.6", "DenseNodes");
+
+	private static final int DEFAULT_GRANULARITY = 100;
+	private static final int DEFAULT_DATE_GRANULARITY = 1000;
+
+	private static final int MEMBER_TYPE_NODE = 0;
+	private static final int MEMBER_TYPE_WAY = 1;
+	private static final int MEMBER_TYPE_RELATION = 2;
+
+	// Blob fields.
+	private static final int BLOB_RAW = 1;
+	private static final int BLOB_RAW_SIZE = 2;
+	private static final int BLOB_ZLIB_DATA = 3;
+
+	// PrimitiveBlock fields.
+	private static final int BLOCK_STRINGTABLE = 1;
+	private static final int BLOCK_PRIMITIVEGROUP = 2;
+	private static final int BLOCK_GRANULARITY = 17;
+	private static final int BLOCK_DATE_GRANULARITY = 18;
+	private static final int BLOCK_LAT_OFFSET = 19;
+	private static final int BLOCK_LON_OFFSET = 20;
+
+	// StringTable fields.
+	private static final int STRINGTABLE_S = 1;
+
+	// PrimitiveGroup fields.
+	private static final int GROUP_NODES = 1;
+	private static final int GROUP_DENSE = 2;
+	private static final int GROUP_WAYS = 3;
+	private static final int GROUP_RELATIONS = 4;
+
+	// Info fields.
+	private static final int INFO_VERSION = 1;
+	private static final int INFO_TIMESTAMP = 2;
+	private static final int INFO_CHANGESET = 3;
+	private static final int INFO_UID = 4;
+	private static final int INFO_USER_SID = 5;
+
+	// Fields shared between Node, Way and Relation.
+	private static final int ENTITY_ID = 1;
+	private static final int ENTITY_KEYS = 2;
+	private static final int ENTITY_VALS = 3;
+	private static final int ENTITY_INFO = 4;
+
+	// Node fields.
+	private static final int NODE_LAT = 8;
+	private static final int NODE_LON = 9;
+
+	// DenseNodes fields.
+	private static final int DENSE_ID = 1;
+	private static final int DENSE_DENSEINFO = 5;
+	private static final int DENSE_LAT = 8;
+	private static final int DENSE_LON = 9;
+	private static final int DENSE_KEYS_VALS = 10;
+
+	// Way fields.
+	private static final int WAY_REFS = 8;
+
+	// Relation fields.
+	private static final int RELATION_ROLES_SID = 8;
+	private static final int RELATION_MEMIDS = 9;
+	private static final int RELATION_TYPES = 10;
+
+	private Inflater inflater;
+	private byte[] inflateBuffer;
+	private byte[] data;
+	private int dataOffset;
+	private int dataLength;
+
+	private List<String> stringList;
+	private IntColumn groupOffsets;
+	private IntColumn groupLengths;
+
+	private IntColumn keys;
+	private IntColumn values;
+	private LongColumn ids;
+	private LongColumn latitudes;
+	private LongColumn longitudes;
+	private IntColumn keysValues;
+	private IntColumn versions;
+	private LongColumn timestamps;
+	private LongColumn changesets;
+	private IntColumn userIds;
+	private IntColumn userSids;
+	private LongColumn references;
+	private IntColumn memberRoles;
+	private IntColumn memberTypes;
+
+	private boolean useNodeBatches;
+
+	private boolean hasInfo;
+	private int infoVersion;
+	private long infoTimestamp;
+	private long infoChangeset;
+	private boolean infoHasUid;
+	private int infoUid;
+	private boolean infoHasUserSid;
+	private int infoUserSid;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public PbfBlockDecoder() {
+		inflater = new Inflater();
+		inflateBuffer = new byte[0];
+
+		stringList = new ArrayList<String>();
+		groupOffsets = new IntColumn();
+		groupLengths = new IntColumn();
+
+		keys = new IntColumn();
+		values = new IntColumn();
+		ids = new LongColumn();
+		latitudes = new LongColumn();
+		longitudes = new LongColumn();
+		keysValues = new IntColumn();
+		versions = new IntColumn();
+		timestamps = new LongColumn();
+		changesets = new LongColumn();
+		userIds = new IntColumn();
+		userSids = new IntColumn();
+		references = new LongColumn();
+		memberRoles = new IntColumn();
+		memberTypes = new IntColumn();
+	}
+
+
+	private static CodedInputStream newInput(byte[] buffer, int offset, int length) {
+		CodedInputStream input = CodedInputStream.newInstance(buffer, offset, length);
+
+		// Blocks may exceed the default limit, the whole buffer is in memory
+		// already so there is nothing to protect against.
+		input.setSizeLimit(Integer.MAX_VALUE);
+
+		return input;
+	}
+
+
+	/**
+	 * Locates the blob content within the raw blob and inflates it if
+	 * necessary. The content is left in the data, dataOffset and dataLength
+	 * fields.
+	 */
+	private void readBlobContent(byte[] rawBlob) throws IOException {
+		CodedInputStream input = newInput(rawBlob, 0, rawBlob.length);
+		int rawOffset = -1;
+		int rawLength = 0;
+		int rawSize = 0;
+		int zlibOffset = -1;
+		int zlibLength = 0;
+		int tag;
+
+		while ((tag = input.readTag()) != 0) {
+			int fieldNumber = WireFormat.getTagFieldNumber(tag);
+
+			if (fieldNumber == BLOB_RAW) {
+				rawLength = input.readRawVarint32();
+				rawOffset = input.getTotalBytesRead();
+				input.skipRawBytes(rawLength);
+			} else if (fieldNumber == BLOB_RAW_SIZE) {
+				rawSize = input.readInt32();
+			} else if (fieldNumber == BLOB_ZLIB_DATA) {
+				zlibLength = input.readRawVarint32();
+				zlibOffset = input.getTotalBytesRead();
+				input.skipRawBytes(zlibLength);
+			} else {
+				input.skipField(tag);
+			}
+		}
+
+		if (rawOffset >= 0) {
+			data = rawBlob;
+			dataOffset = rawOffset;
+			dataLength = rawLength;
+		} else if (zlibOffset >= 0) {
+			if (inflateBuffer.length < rawSize) {
+				inflateBuffer = new byte[rawSize];
+			}
+			inflater.reset();
+			inflater.setInput(rawBlob, zlibOffset, zlibLength);
+			try {
+				dataLength = inflater.inflate(inflateBuffer, 0, rawSize);
+			} catch (DataFormatException e) {
+				throw new OsmosisRuntimeException("Unable to decompress PBF blob.", e);
+			}
+			if (!inflater.finished()) {
+				throw new OsmosisRuntimeException("PBF blob contains incomplete compressed data.");
+			}
+			data = inflateBuffer;
+			dataOffset = 0;
+		} else {
+			throw new OsmosisRuntimeException("PBF blob uses unsupported compression, only raw or zlib may be used.");
+		}
+	}
+
+
+	/**
+	 * Decodes an OSMHeader blob.
+	 *
+	 * @param rawBlob
+	 *            The serialised blob.
+	 * @param decodedEntities
+	 *            The block to add the decoded bound to.
+	 * @throws IOException
+	 *             if the blob cannot be parsed.
+	 */
+	public void decodeHeader(byte[] rawBlob, PbfDecodedBlock decodedEntities) throws IOException {
+		HeaderBlock header;
+
+		readBlobContent(rawBlob);
+
+		// The header is small and only occurs once so there is nothing to be
+		// gained from avoiding the generated message.
+		header = HeaderBlock.parseFrom(newInput(data, dataOffset, dataLength));
+
+		// Build the list of active and unsupported features in the file.
+		List<String> activeFeatures = new ArrayList<String>();
+		List<String> unsupportedFeatures = new ArrayList<String>();
+		for (String feature : header.getRequiredFeaturesList()) {
+			if (SUPPORTED_FEATURES.contains(feature)) {
+				activeFeatures.add(feature);
+			} else {
+				unsupportedFeatures.add(feature);
+			}
+		}
+
+		// We can't continue if there are any unsupported features. We wait
+		// until now so that we can display all unsupported features instead of
+		// just the first one we encounter.
+		if (unsupportedFeatures.size() > 0) {
+			throw new OsmosisRuntimeException("PBF file contains unsupported features " + unsupportedFeatures);
+		}
+
+		// Build a new bound object which corresponds to the header.
+		Bound bound;
+		if (header.hasBbox()) {
+			HeaderBBox bbox = header.getBbox();
+			bound = new Bound(bbox.getRight() * COORDINATE_SCALING_FACTOR, bbox.getLeft() * COORDINATE_SCALING_FACTOR,
+					bbox.getTop() * COORDINATE_SCALING_FACTOR, bbox.getBottom() * COORDINATE_SCALING_FACTOR,
+					header.getSource());
+		} else {
+			bound = new Bound(header.getSource());
+		}
+
+		// Add the bound object to the results.
+		decodedEntities.add(new BoundContainer(bound));
+	}
+
+
+	/**
+	 * Decodes an OSMData blob.
+	 *
+	 * @param rawBlob
+	 *            The serialised blob.
+	 * @param decodedEntities
+	 *            The block to add the decoded entities to.
+	 * @param nodeBatches
+	 *            If true, dense nodes are decoded into node batches instead of
+	 *            individual node containers.
+	 * @throws IOException
+	 *             if the blob cannot be parsed.
+	 */
+	public void decodePrimitives(byte[] rawBlob, PbfDecodedBlock decodedEntities, boolean nodeBatches)
+			throws IOException {
+		CodedInputStream input;
+		PbfFieldDecoder fieldDecoder;
+		int granularity = DEFAULT_GRANULARITY;
+		int dateGranularity = DEFAULT_DATE_GRANULARITY;
+		long latitudeOffset = 0;
+		long longitudeOffset = 0;
+		int tag;
+
+		readBlobContent(rawBlob);
+		useNodeBatches = nodeBatches;
+
+		// The string table and block settings may appear after the groups that
+		// rely on them, so the first pass only records where each group is.
+		stringList.clear();
+		groupOffsets.clear();
+		groupLengths.clear();
+		input = newInput(data, dataOffset, dataLength);
+		while ((tag = input.readTag()) != 0) {
+			int fieldNumber = WireFormat.getTagFieldNumber(tag);
+
+			if (fieldNumber == BLOCK_STRINGTABLE) {
+				readStringTable(input);
+			} else if (fieldNumber == BLOCK_PRIMITIVEGROUP) {
+				int length = input.readRawVarint32();
+				groupOffsets.add(dataOffset + input.getTotalBytesRead());
+				groupLengths.add(length);
+				input.skipRawBytes(length);
+			} else if (fieldNumber == BLOCK_GRANULARITY) {
+				granularity = input.readInt32();
+			} else if (fieldNumber == BLOCK_DATE_GRANULARITY) {
+				dateGranularity = input.readInt32();
+			} else if (fieldNumber == BLOCK_LAT_OFFSET) {
+				latitudeOffset = input.readInt64();
+			} else if (fieldNumber == BLOCK_LON_OFFSET) {
+				longitudeOffset = input.readInt64();
+			} else {
+				input.skipField(tag);
+			}
+		}
+
+		fieldDecoder = new PbfFieldDecoder(stringList.toArray(new String[stringList.size()]), granularity,
+				latitudeOffset, longitudeOffset, dateGranularity);
+
+		for (int i = 0; i < groupOffsets.size; i++) {
+			LOG.finer("Processing OSM primitive group.");
+			processPrimitiveGroup(newInput(data, groupOffsets.values[i], groupLengths.values[i]), fieldDecoder,
+					decodedEntities);
+		}
+	}
+
+
+	private void readStringTable(CodedInputStream input) throws IOException {
+		int limit = input.pushLimit(input.readRawVarint32());
+		int tag;
+
+		while ((tag = input.readTag()) != 0) {
+			if (WireFormat.getTagFieldNumber(tag) == STRINGTABLE_S) {
+				stringList.add(input.readString());
+			} else {
+				input.skipField(tag);
+			}
+		}
+
+		input.popLimit(limit);
+	}
+
+
+	private void processPrimitiveGroup(CodedInputStream input, PbfFieldDecoder fieldDecoder,
+			PbfDecodedBlock decodedEntities) throws IOException {
+		int tag;
+
+		while ((tag = input.readTag()) != 0) {
+			int fieldNumber = WireFormat.getTagFieldNumber(tag);
+
+			if (fieldNumber == GROUP_NODES) {
+				int limit = input.pushLimit(input.readRawVarint32());
+				processNode(input, fieldDecoder, decodedEntities);
+				input.popLimit(limit);
+			} else if (fieldNumber == GROUP_DENSE) {
+				int limit = input.pushLimit(input.readRawVarint32());
+				processDenseNodes(input, fieldDecoder, decodedEntities);
+				input.popLimit(limit);
+			} else if (fieldNumber == GROUP_WAYS) {
+				int limit = input.pushLimit(input.readRawVarint32());
+				processWay(input, fieldDecoder, decodedEntities);
+				input.popLimit(limit);
+			} else if (fieldNumber == GROUP_RELATIONS) {
+				int limit = input.pushLimit(input.readRawVarint32());
+				processRelation(input, fieldDecoder, decodedEntities);
+				input.popLimit(limit);
+			} else {
+				input.skipField(tag);
+			}
+		}
+	}
+
+
+	/**
+	 * Reads a repeated integer field which may be packed or unpacked.
+	 */
+	private static void readInts(CodedInputStream input, int tag, IntColumn column, boolean zigZag)
+			throws IOException {
+		if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+			int limit = input.pushLimit(input.readRawVarint32());
+			while (input.getBytesUntilLimit() > 0) {
+				column.add(zigZag ? input.readSInt32() : input.readInt32());
+			}
+			input.popLimit(limit);
+		} else {
+			column.add(zigZag ? input.readSInt32() : input.readInt32());
+		}
+	}
+
+
+	/**
+	 * Reads a repeated sint64 field which may be packed or unpacked.
+	 */
+	private static void readLongs(CodedInputStream input, int tag, LongColumn column) throws IOException {
+		if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+			int limit = input.pushLimit(input.readRawVarint32());
+			while (input.getBytesUntilLimit() > 0) {
+				column.add(input.readSInt64());
+			}
+			input.popLimit(limit);
+		} else {
+			column.add(input.readSInt64());
+		}
+	}
+
+
+	private void readInfo(CodedInputStream input) throws IOException {
+		int limit = input.pushLimit(input.readRawVarint32());
+		int tag;
+
+		hasInfo = true;
+		while ((tag = input.readTag()) != 0) {
+			int fieldNumber = WireFormat.getTagFieldNumber(tag);
+
+			if (fieldNumber == INFO_VERSION) {
+				infoVersion = input.readInt32();
+			} else if (fieldNumber == INFO_TIMESTAMP) {
+				infoTimestamp = input.readInt64();
+			} else if (fieldNumber == INFO_CHANGESET) {
+				infoChangeset = input.readInt64();
+			} else if (fieldNumber == INFO_UID) {
+				infoUid = input.readInt32();
+				infoHasUid = true;
+			} else if (fieldNumber == INFO_USER_SID) {
+				infoUserSid = input.readUInt32();
+				infoHasUserSid = true;
+			} else {
+				input.skipField(tag);
+			}
+		}
+
+		input.popLimit(limit);
+	}
+
+
+	/**
+	 * Resets the state shared by nodes, ways and relations before reading the
+	 * next entity.
+	 */
+	private void resetEntityFields() {
+		keys.clear();
+		values.clear();
+		hasInfo = false;
+		infoVersion = EMPTY_VERSION;
+		infoTimestamp = 0;
+		infoChangeset = 0;
+		infoHasUid = false;
+		infoUid = 0;
+		infoHasUserSid = false;
+		infoUserSid = 0;
+	}
+
+
+	/**
+	 * Reads a field shared by nodes, ways and relations.
+	 *
+	 * @return False if the field was not recognised and has not been read.
+	 */
+	private boolean readEntityField(CodedInputStream input, int tag, int fieldNumber) throws IOException {
+		if (fieldNumber == ENTITY_KEYS) {
+			readInts(input, tag, keys, false);
+		} else if (fieldNumber == ENTITY_VALS) {
+			readInts(input, tag, values, false);
+		} else if (fieldNumber == ENTITY_INFO) {
+			readInfo(input);
+		} else {
+			return false;
+		}
+
+		return true;
+	}
+
+
+	private CommonEntityData buildCommonEntityData(long entityId, PbfFieldDecoder fieldDecoder) {
+		CommonEntityData entityData;
+
+		if (hasInfo) {
+			OsmUser user;
+
+			// Build the user, but only if one exists.
+			if (infoHasUid && infoUid >= 0 && infoHasUserSid) {
+				user = new OsmUser(infoUid, fieldDecoder.decodeString(infoUserSid));
+			} else {
+				user = OsmUser.NONE;
+			}
+
+			entityData = new CommonEntityData(entityId, infoVersion, fieldDecoder.decodeTimestamp(infoTimestamp), user,
+					infoChangeset);
+		} else {
+			entityData = new CommonEntityData(entityId, EMPTY_VERSION, EMPTY_TIMESTAMP, OsmUser.NONE,
+					EMPTY_CHANGESET);
+		}
+
+		// Ensure parallel lists are of equal size.
+		if (keys.size != values.size) {
+			throw new OsmosisRuntimeException("Number of tag keys (" + keys.size + ") and tag values ("
+					+ values.size + ") don't match");
+		}
+
+		Collection<Tag> tags = entityData.getTags();
+		for (int i = 0; i < keys.size; i++) {
+			tags.add(new Tag(fieldDecoder.decodeString(keys.values[i]), fieldDecoder.decodeString(values.values[i])));
+		}
+
+		return entityData;
+	}
+
+
+	private void processNode(CodedInputStream input, PbfFieldDecoder fieldDecoder,
+			PbfDecodedBlock decodedEntities) throws IOException {
+		long nodeId = 0;
+		long latitude = 0;
+		long longitude = 0;
+		int tag;
+
+		resetEntityFields();
+		while ((tag = input.readTag()) != 0) {
+			int fieldNumber = WireFormat.getTagFieldNumber(tag);
+
+			if (fieldNumber == ENTITY_ID) {
+				nodeId = input.readSInt64();
+			} else if (fieldNumber == NODE_LAT) {
+				latitude = input.readSInt64();
+			} else if (fieldNumber == NODE_LON) {
+				longitude = input.readSInt64();
+			} else if (!readEntityField(input, tag, fieldNumber)) {
+				input.skipField(tag);
+			}
+		}
+
+		decodedEntities.add(new NodeContainer(new Node(buildCommonEntityData(nodeId, fieldDecoder),
+				fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude))));
+	}
+
+
+	private void readDenseInfo(CodedInputStream input) throws IOException {
+		int limit = input.pushLimit(input.readRawVarint32());
+		int tag;
+
+		hasInfo = true;
+		while ((tag = input.readTag()) != 0) {
+			int fieldNumber = WireFormat.getTagFieldNumber(tag);
+
+			if (fieldNumber == INFO_VERSION) {
+				readInts(input, tag, versions, false);
+			} else if (fieldNumber == INFO_TIMESTAMP) {
+				readLongs(input, tag, timestamps);
+			} else if (fieldNumber == INFO_CHANGESET) {
+				readLongs(input, tag, changesets);
+			} else if (fieldNumber == INFO_UID) {
+				readInts(input, tag, userIds, true);
+			} else if (fieldNumber == INFO_USER_SID) {
+				readInts(input, tag, userSids, true);
+			} else {
+				input.skipField(tag);
+			}
+		}
+
+		input.popLimit(limit);
+	}
+
+
+	private void processDenseNodes(CodedInputStream input, PbfFieldDecoder fieldDecoder,
+			PbfDecodedBlock decodedEntities) throws IOException {
+		int tag;
+
+		hasInfo = false;
+		ids.clear();
+		latitudes.clear();
+		longitudes.clear();
+		keysValues.clear();
+		versions.clear();
+		timestamps.clear();
+		changesets.clear();
+		userIds.clear();
+		userSids.clear();
+
+		while ((tag = input.readTag()) != 0) {
+			int fieldNumber = WireFormat.getTagFieldNumber(tag);
+
+			if (fieldNumber == DENSE_ID) {
+				readLongs(input, tag, ids);
+			} else if (fieldNumber == DENSE_DENSEINFO) {
+				readDenseInfo(input);
+			} else if (fieldNumber == DENSE_LAT) {
+				readLongs(input, tag, latitudes);
+			} else if (fieldNumber == DENSE_LON) {
+				readLongs(input, tag, longitudes);
+			} else if (fieldNumber == DENSE_KEYS_VALS) {
+				readInts(input, tag, keysValues, false);
+			} else {
+				input.skipField(tag);
+			}
+		}
+
+		int nodeCount = ids.size;
+
+		// Ensure parallel lists are of equal size.
+		if ((nodeCount != latitudes.size) || (nodeCount != longitudes.size)) {
+			throw new OsmosisRuntimeException("Number of ids (" + nodeCount + "), latitudes (" + latitudes.size
+					+ "), and longitudes (" + longitudes.size + ") don't match");
+		}
+		if (hasInfo
+				&& (versions.size < nodeCount || timestamps.size < nodeCount || changesets.size < nodeCount
+						|| userIds.size < nodeCount || userSids.size < nodeCount)) {
+			throw new OsmosisRuntimeException("The PBF DenseInfo doesn't contain values for all " + nodeCount
+					+ " nodes.");
+		}
+
+		if (useNodeBatches) {
+			decodedEntities.add(buildNodeBatch(nodeCount, fieldDecoder));
+			return;
+		}
+
+		long nodeId = 0;
+		long latitude = 0;
+		long longitude = 0;
+		int userId = 0;
+		int userSid = 0;
+		long timestamp = 0;
+		long changesetId = 0;
+		int keysValuesIndex = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			CommonEntityData entityData;
+
+			// Delta decode node fields.
+			nodeId += ids.values[i];
+			latitude += latitudes.values[i];
+			longitude += longitudes.values[i];
+
+			if (hasInfo) {
+				// Delta decode dense info fields.
+				userId += userIds.values[i];
+				userSid += userSids.values[i];
+				timestamp += timestamps.values[i];
+				changesetId += changesets.values[i];
+
+				// Build the user, but only if one exists.
+				OsmUser user;
+				if (userId >= 0) {
+					user = new OsmUser(userId, fieldDecoder.decodeString(userSid));
+				} else {
+					user = OsmUser.NONE;
+				}
+
+				entityData = new CommonEntityData(nodeId, versions.values[i], fieldDecoder.decodeTimestamp(timestamp),
+						user, changesetId);
+			} else {
+				entityData = new CommonEntityData(nodeId, EMPTY_VERSION, EMPTY_TIMESTAMP, OsmUser.NONE,
+						EMPTY_CHANGESET);
+			}
+
+			// Build the tags. The key and value string indexes are sequential
+			// in the same PBF array. Each set of tags is delimited by an index
+			// with a value of 0.
+			Collection<Tag> tags = entityData.getTags();
+			while (keysValuesIndex < keysValues.size) {
+				int keyIndex = keysValues.values[keysValuesIndex++];
+				if (keyIndex == 0) {
+					break;
+				}
+				if (keysValuesIndex >= keysValues.size) {
+					throw new OsmosisRuntimeException(
+							"The PBF DenseInfo keys/values list contains a key with no corresponding value.");
+				}
+				int valueIndex = keysValues.values[keysValuesIndex++];
+
+				tags.add(new Tag(fieldDecoder.decodeString(keyIndex), fieldDecoder.decodeString(valueIndex)));
+			}
+
+			decodedEntities.add(new NodeContainer(new Node(entityData, fieldDecoder.decodeLatitude(latitude),
+					fieldDecoder.decodeLongitude(longitude))));
+		}
+	}
+
+
+	/**
+	 * Builds a node batch from the dense node columns. The batch refers to the
+	 * block string table so no per-node objects are created.
+	 */
+	private NodeBatchContainer buildNodeBatch(int nodeCount, PbfFieldDecoder fieldDecoder) {
+		NodeBatchContainer batch = new NodeBatchContainer(fieldDecoder.getStrings(), nodeCount);
+		long nodeId = 0;
+		long latitude = 0;
+		long longitude = 0;
+		int userId = 0;
+		int userSid = 0;
+		long timestamp = 0;
+		long changesetId = 0;
+		int keysValuesIndex = 0;
+
+		for (int i = 0; i < nodeCount; i++) {
+			nodeId += ids.values[i];
+			latitude += latitudes.values[i];
+			longitude += longitudes.values[i];
+
+			if (hasInfo) {
+				userId += userIds.values[i];
+				userSid += userSids.values[i];
+				timestamp += timestamps.values[i];
+				changesetId += changesets.values[i];
+
+				batch.addNode(nodeId, fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude),
+						versions.values[i], fieldDecoder.decodeTimestampMillis(timestamp), changesetId,
+						userId >= 0 ? userId : OsmUser.NONE.getId(), userId >= 0 ? userSid : 0);
+			} else {
+				batch.addNode(nodeId, fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude),
+						EMPTY_VERSION, EMPTY_TIMESTAMP.getTime(), EMPTY_CHANGESET, OsmUser.NONE.getId(), 0);
+			}
+
+			while (keysValuesIndex < keysValues.size) {
+				int keyIndex = keysValues.values[keysValuesIndex++];
+				if (keyIndex == 0) {
+					break;
+				}
+				if (keysValuesIndex >= keysValues.size) {
+					throw new OsmosisRuntimeException(
+							"The PBF DenseInfo keys/values list contains a key with no corresponding value.");
+				}
+				batch.addTag(keyIndex, keysValues.values[keysValuesIndex++]);
+			}
+		}
+
+		return batch;
+	}
+
+
+	private void processWay(CodedInputStream input, PbfFieldDecoder fieldDecoder,
+			PbfDecodedBlock decodedEntities) throws IOException {
+		long wayId = 0;
+		int tag;
+
+		resetEntityFields();
+		references.clear();
+		while ((tag = input.readTag()) != 0) {
+			int fieldNumber = WireFormat.getTagFieldNumber(tag);
+
+			if (fieldNumber == ENTITY_ID) {
+				wayId = input.readInt64();
+			} else if (fieldNumber == WAY_REFS) {
+				readLongs(input, tag, references);
+			} else if (!readEntityField(input, tag, fieldNumber)) {
+				input.skipField(tag);
+			}
+		}
+
+		Way way = new Way(buildCommonEntityData(wayId, fieldDecoder));
+
+		// Build up the list of way nodes for the way. The node ids are
+		// delta encoded meaning that each id is stored as a delta against
+		// the previous one.
+		long nodeId = 0;
+		List<WayNode> wayNodes = way.getWayNodes();
+		for (int i = 0; i < references.size; i++) {
+			nodeId += references.values[i];
+			wayNodes.add(new WayNode(nodeId));
+		}
+
+		decodedEntities.add(new WayContainer(way));
+	}
+
+
+	private void processRelation(CodedInputStream input, PbfFieldDecoder fieldDecoder,
+			PbfDecodedBlock decodedEntities) throws IOException {
+		long relationId = 0;
+		int tag;
+
+		resetEntityFields();
+		references.clear();
+		memberRoles.clear();
+		memberTypes.clear();
+		while ((tag = input.readTag()) != 0) {
+			int fieldNumber = WireFormat.getTagFieldNumber(tag);
+
+			if (fieldNumber == ENTITY_ID) {
+				relationId = input.readInt64();
+			} else if (fieldNumber == RELATION_ROLES_SID) {
+				readInts(input, tag, memberRoles, false);
+			} else if (fieldNumber == RELATION_MEMIDS) {
+				readLongs(input, tag, references);
+			} else if (fieldNumber == RELATION_TYPES) {
+				readInts(input, tag, memberTypes, false);
+			} else if (!readEntityField(input, tag, fieldNumber)) {
+				input.skipField(tag);
+			}
+		}
+
+		Relation relation = new Relation(buildCommonEntityData(relationId, fieldDecoder));
+
+		// Ensure parallel lists are of equal size.
+		if ((references.size != memberRoles.size) || (references.size != memberTypes.size)) {
+			throw new OsmosisRuntimeException("Number of member ids (" + references.size + "), member roles ("
+					+ memberRoles.size + "), and member types (" + memberTypes.size + ") don't match");
+		}
+
+		// Build up the list of relation members for the way. The member ids are
+		// delta encoded meaning that each id is stored as a delta against
+		// the previous one.
+		long memberId = 0;
+		List<RelationMember> members = relation.getMembers();
+		for (int i = 0; i < references.size; i++) {
+			int memberType = memberTypes.values[i];
+			EntityType entityType;
+
+			memberId += references.values[i];
+
+			if (memberType == MEMBER_TYPE_NODE) {
+				entityType = EntityType.Node;
+			} else if (memberType == MEMBER_TYPE_WAY) {
+				entityType = EntityType.Way;
+			} else if (memberType == MEMBER_TYPE_RELATION) {
+				entityType = EntityType.Relation;
+			} else {
+				throw new OsmosisRuntimeException("Member type of " + memberType + " is not supported.");
+			}
+
+			members.add(new RelationMember(memberId, entityType, fieldDecoder.decodeString(memberRoles.values[i])));
+		}
+
+		decodedEntities.add(new RelationContainer(relation));
+	}
+
+
+	/**
+	 * A growable array of int values.
+	 */
+	private static class IntColumn {
+		private int[] values = new int[64];
+		private int size;
+
+
+		void clear() {
+			size = 0;
+		}
+
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+
+
+	/**
+	 * A growable array of long values.
+	 */
+	private static class LongColumn {
+		private long[] values = new long[64];
+		private int size;
+
+
+		void clear() {
+			size = 0;
+		}
+
+
+		void add(long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+}
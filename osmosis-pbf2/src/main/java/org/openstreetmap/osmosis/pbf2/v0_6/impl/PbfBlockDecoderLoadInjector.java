@@ -0,0 +1,109 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Very simple class for measuring the single threaded decoding throughput of
+ * {@link PbfBlockDecoder}. All blobs of the specified PBF file (typically a
+ * regional extract) are loaded into memory, then decoded repeatedly so that
+ * file I/O is excluded from the results. The first iterations are treated as
+ * warm-up and are not reported.
+ * <p>
+ * The program arguments are the PBF file name, the number of measured
+ * iterations (default 5), the number of warm-up iterations (default 2) and
+ * whether dense nodes are decoded into node batches (default false).
+ */
+public final class PbfBlockDecoderLoadInjector {
+
+	private List<PbfRawBlob> blobs;
+	private boolean nodeBatches;
+
+
+	private PbfBlockDecoderLoadInjector(List<PbfRawBlob> blobs, boolean nodeBatches) {
+		this.blobs = blobs;
+		this.nodeBatches = nodeBatches;
+	}
+
+
+	/**
+	 * Launches the application.
+	 *
+	 * @param args
+	 *            The program arguments.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		int iterations = 5;
+		int warmupIterations = 2;
+		boolean nodeBatches = false;
+		List<PbfRawBlob> blobs = new ArrayList<PbfRawBlob>();
+
+		if (args.length < 1) {
+			System.err.println("Usage: PbfBlockDecoderLoadInjector <file> [iterations] [warmupIterations] [nodeBatches]");
+			return;
+		}
+		if (args.length > 1) {
+			iterations = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2) {
+			warmupIterations = Integer.parseInt(args[2]);
+		}
+		if (args.length > 3) {
+			nodeBatches = Boolean.parseBoolean(args[3]);
+		}
+
+		try (PbfStreamSplitter splitter = new PbfStreamSplitter(
+				new DataInputStream(new BufferedInputStream(new FileInputStream(args[0]))))) {
+			while (splitter.hasNext()) {
+				blobs.add(splitter.next());
+			}
+		}
+
+		new PbfBlockDecoderLoadInjector(blobs, nodeBatches).run(iterations, warmupIterations);
+	}
+
+
+	private void run(int iterations, int warmupIterations) throws IOException {
+		for (int i = 0; i < warmupIterations; i++) {
+			decodeAll();
+		}
+
+		for (int i = 0; i < iterations; i++) {
+			long startTime = System.nanoTime();
+			long entityCount = decodeAll();
+			long duration = System.nanoTime() - startTime;
+
+			System.out.println("Iteration " + (i + 1) + ": decoded " + blobs.size() + " blobs, " + entityCount
+					+ " entities in " + (duration / 1000000) + "ms, "
+					+ (long) (entityCount / (duration / 1000000000.0)) + " entities/s.");
+		}
+	}
+
+
+	private long decodeAll() throws IOException {
+		PbfBlockDecoder decoder = new PbfBlockDecoder();
+		long entityCount = 0;
+
+		for (PbfRawBlob blob : blobs) {
+			PbfDecodedBlock entities = new PbfDecodedBlock();
+
+			if ("OSMHeader".equals(blob.getType())) {
+				decoder.decodeHeader(blob.getData(), entities);
+			} else if ("OSMData".equals(blob.getType())) {
+				decoder.decodePrimitives(blob.getData(), entities, nodeBatches);
+			}
+
+			entityCount += entities.getEntityCount();
+		}
+
+		return entityCount;
+	}
+}
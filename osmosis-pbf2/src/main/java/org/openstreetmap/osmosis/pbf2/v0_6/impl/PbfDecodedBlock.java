@@ -0,0 +1,96 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Holds the decoded contents of a single PBF blob in their original order.
+ * Contents are a mixture of individual entity containers and node batches.
+ */
+public class PbfDecodedBlock {
+
+	private List<Object> items;
+	private int entityCount;
+	private Set<EntityType> entityTypes;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public PbfDecodedBlock() {
+		items = new ArrayList<Object>();
+		entityTypes = EnumSet.noneOf(EntityType.class);
+	}
+
+
+	/**
+	 * Adds an entity.
+	 *
+	 * @param entityContainer
+	 *            The entity to be added.
+	 */
+	public void add(EntityContainer entityContainer) {
+		items.add(entityContainer);
+		entityCount++;
+		entityTypes.add(entityContainer.getEntity().getType());
+	}
+
+
+	/**
+	 * Adds a batch of nodes.
+	 *
+	 * @param batch
+	 *            The nodes to be added.
+	 */
+	public void add(NodeBatchContainer batch) {
+		items.add(batch);
+		entityCount += batch.size();
+		entityTypes.add(EntityType.Node);
+	}
+
+
+	/**
+	 * Gets the total number of entities including those within node batches.
+	 *
+	 * @return The entity count.
+	 */
+	public int getEntityCount() {
+		return entityCount;
+	}
+
+
+	/**
+	 * Gets the types of all entities in the block.
+	 *
+	 * @return The entity types.
+	 */
+	public Set<EntityType> getEntityTypes() {
+		return entityTypes;
+	}
+
+
+	/**
+	 * Sends all contents to the sink in order.
+	 *
+	 * @param sink
+	 *            The sink to receive the entities.
+	 */
+	public void sendTo(Sink sink) {
+		for (Object item : items) {
+			if (item instanceof NodeBatchContainer) {
+				((NodeBatchContainer) item).process(sink);
+			} else {
+				sink.process((EntityContainer) item);
+			}
+		}
+	}
+}
@@ -1,16 +1,19 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
-import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.task.v0_6.NodeBatchSink;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 
 
@@ -21,21 +24,22 @@ import org.openstreetmap.osmosis.core.task.v0_6.Sink;
  * @author Brett Henderson
  */
 public class PbfDecoder implements Runnable {
-	private PbfStreamSplitter streamSplitter;
+	private Iterator<PbfRawBlob> streamSplitter;
 	private ExecutorService executorService;
 	private int maxPendingBlobs;
 	private Sink sink;
 	private Lock lock;
 	private Condition dataWaitCondition;
 	private Queue<PbfBlobResult> blobResults;
+	private List<Set<EntityType>> blobEntityTypes;
 
 
 	/**
 	 * Creates a new instance.
 	 * 
 	 * @param streamSplitter
-	 *            The PBF stream splitter providing the source of blobs to be
-	 *            decoded.
+	 *            The source of blobs to be decoded in file order, typically a
+	 *            PBF stream splitter or a blob index iterator.
 	 * @param executorService
 	 *            The executor service managing the thread pool.
 	 * @param maxPendingBlobs
@@ -44,7 +48,7 @@ public class PbfDecoder implements Runnable {
 	 * @param sink
 	 *            The sink to send all decoded entities to.
 	 */
-	public PbfDecoder(PbfStreamSplitter streamSplitter, ExecutorService executorService, int maxPendingBlobs,
+	public PbfDecoder(Iterator<PbfRawBlob> streamSplitter, ExecutorService executorService, int maxPendingBlobs,
 			Sink sink) {
 		this.streamSplitter = streamSplitter;
 		this.executorService = executorService;
@@ -60,6 +64,19 @@ public class PbfDecoder implements Runnable {
 	}
 
 
+	/**
+	 * Records the entity types contained in each blob. This allows later
+	 * passes over a seekable file to skip blobs.
+	 *
+	 * @param blobEntityTypes
+	 *            The list to receive the entity types of each decoded blob
+	 *            in file order.
+	 */
+	public void setBlobEntityTypes(List<Set<EntityType>> blobEntityTypes) {
+		this.blobEntityTypes = blobEntityTypes;
+	}
+
+
 	/**
 	 * Any thread can call this method when they wish to wait until an update
 	 * has been performed by another thread.
@@ -97,14 +114,16 @@ public class PbfDecoder implements Runnable {
 				throw new OsmosisRuntimeException("A PBF decoding worker thread failed, aborting.");
 			}
 
+			if (blobEntityTypes != null) {
+				blobEntityTypes.add(blobResult.getEntities().getEntityTypes());
+			}
+
 			// Send the processed entities to the sink. We can release the lock
 			// for the duration of processing to allow worker threads to post
 			// their results.
 			lock.unlock();
 			try {
-				for (EntityContainer entity : blobResult.getEntities()) {
-					sink.process(entity);
-				}
+				blobResult.getEntities().sendTo(sink);
 			} finally {
 				lock.lock();
 			}
@@ -141,7 +160,7 @@ public class PbfDecoder implements Runnable {
 
 
 				@Override
-				public void complete(List<EntityContainer> decodedEntities) {
+				public void complete(PbfDecodedBlock decodedEntities) {
 					lock.lock();
 					try {
 						blobResult.storeSuccessResult(decodedEntities);
@@ -154,7 +173,9 @@ public class PbfDecoder implements Runnable {
 			};
 
 			// Create the blob decoder itself and execute it on a worker thread.
-			PbfBlobDecoder blobDecoder = new PbfBlobDecoder(rawBlob.getType(), rawBlob.getData(), decoderListener);
+			// Nodes are only decoded into batches if the sink can accept them.
+			PbfBlobDecoder blobDecoder = new PbfBlobDecoder(rawBlob, sink instanceof NodeBatchSink,
+					decoderListener);
 			executorService.execute(blobDecoder);
 
 			// If the number of pending blobs has reached capacity we must begin
@@ -44,6 +44,31 @@ public class PbfFieldDecoder {
 	}
 
 
+	/**
+	 * Creates a new instance from values read directly from a serialised
+	 * primitive block.
+	 * 
+	 * @param strings
+	 *            The decoded string table.
+	 * @param coordGranularity
+	 *            The coordinate granularity in nanodegrees.
+	 * @param coordLatitudeOffset
+	 *            The latitude offset in nanodegrees.
+	 * @param coordLongitudeOffset
+	 *            The longitude offset in nanodegrees.
+	 * @param dateGranularity
+	 *            The timestamp granularity in milliseconds.
+	 */
+	public PbfFieldDecoder(String[] strings, int coordGranularity, long coordLatitudeOffset,
+			long coordLongitudeOffset, int dateGranularity) {
+		this.strings = strings;
+		this.coordGranularity = coordGranularity;
+		this.coordLatitudeOffset = coordLatitudeOffset;
+		this.coordLongitudeOffset = coordLongitudeOffset;
+		this.dateGranularity = dateGranularity;
+	}
+
+
 	/**
 	 * Decodes a raw latitude value into degrees.
 	 * 
@@ -76,7 +101,19 @@ public class PbfFieldDecoder {
 	 * @return The timestamp as a Date.
 	 */
 	public Date decodeTimestamp(long rawTimestamp) {
-		return new Date(dateGranularity * rawTimestamp);
+		return new Date(decodeTimestampMillis(rawTimestamp));
+	}
+
+
+	/**
+	 * Decodes a raw timestamp value into milliseconds since the epoch.
+	 * 
+	 * @param rawTimestamp
+	 *            The PBF encoded timestamp.
+	 * @return The timestamp in milliseconds.
+	 */
+	public long decodeTimestampMillis(long rawTimestamp) {
+		return dateGranularity * rawTimestamp;
 	}
 
 
@@ -90,4 +127,14 @@ public class PbfFieldDecoder {
 	public String decodeString(int rawString) {
 		return strings[rawString];
 	}
+
+
+	/**
+	 * Gets the string table of the block.
+	 * 
+	 * @return The strings indexed by their raw PBF encoding.
+	 */
+	public String[] getStrings() {
+		return strings;
+	}
 }
@@ -0,0 +1,62 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * A PBF blob located within a file which is only read when its data is
+ * requested. Reads use positional file access so that many blobs may be read
+ * concurrently from the same channel.
+ */
+public class PbfFileBlob extends PbfRawBlob {
+	private FileChannel channel;
+	private long offset;
+	private int size;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param type
+	 *            The type of data represented by this blob. This corresponds
+	 *            to the type field in the blob header.
+	 * @param channel
+	 *            The channel of the file containing the blob.
+	 * @param offset
+	 *            The file position of the blob data.
+	 * @param size
+	 *            The size of the blob data.
+	 */
+	public PbfFileBlob(String type, FileChannel channel, long offset, int size) {
+		super(type, null);
+
+		this.channel = channel;
+		this.offset = offset;
+		this.size = size;
+	}
+
+
+	/**
+	 * Reads the blob data from the file. Each call reads the data again.
+	 *
+	 * @return The raw contents of the blob in binary protobuf format.
+	 */
+	@Override
+	public byte[] getData() {
+		byte[] data = new byte[size];
+
+		try {
+			PbfBlobIndex.readFully(channel, ByteBuffer.wrap(data), offset);
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read PBF blob at position " + offset + ".", e);
+		}
+
+		return data;
+	}
+}
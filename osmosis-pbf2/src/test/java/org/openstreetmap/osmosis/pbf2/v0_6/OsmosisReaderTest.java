@@ -49,4 +49,88 @@ public class OsmosisReaderTest extends AbstractDataTest {
         // Validate that the output file matches the input file.
         dataUtils.compareFiles(inputXmlFile, outputXmlFile);
 	}
+
+
+	/**
+	 * Tests reading PBF files containing uncompressed blobs and non-dense
+	 * nodes.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testReadUncompressedNonDense() throws IOException {
+		// Generate data files.
+		File inputXmlFile = dataUtils.createDataFile("v0_6/data-snapshot.osm");
+		File pbfFile = dataUtils.newFile();
+		File outputXmlFile = dataUtils.newFile();
+
+		// Read the XML and write to PBF without compression or dense nodes.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputXmlFile.getPath(),
+				"--write-pbf-0.6",
+				"file=" + pbfFile.getPath(),
+				"compress=none",
+				"usedense=no"
+				});
+
+		// Read the PBF using the PBF2 reader with multiple workers and write
+		// to XML.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-pbf-fast-0.6",
+				"file=" + pbfFile.getPath(),
+				"workers=2",
+				"--write-xml-0.6",
+				outputXmlFile.getPath()
+				});
+
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputXmlFile, outputXmlFile);
+	}
+
+
+	/**
+	 * Tests reading blobs directly from the file using a cached blob index.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testSeekableReadWithBlobIndex() throws IOException {
+		// Generate data files.
+		File inputXmlFile = dataUtils.createDataFile("v0_6/data-snapshot.osm");
+		File pbfFile = dataUtils.newFile();
+		File blobIndexFile = dataUtils.newFile();
+		File outputXmlFile = dataUtils.newFile();
+
+		// Write small blocks so that there are several blobs to index.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputXmlFile.getPath(),
+				"--write-pbf-0.6",
+				"file=" + pbfFile.getPath(),
+				"batchlimit=3"
+				});
+
+		// The index file is empty so the first read rebuilds it, and the
+		// second read uses the saved index.
+		for (int i = 0; i < 2; i++) {
+			Osmosis.run(new String[] {
+					"-q",
+					"--read-pbf-fast-0.6",
+					"file=" + pbfFile.getPath(),
+					"workers=2",
+					"blobIndexFile=" + blobIndexFile.getPath(),
+					"--write-xml-0.6",
+					outputXmlFile.getPath()
+					});
+
+			// Validate that the output file matches the input file.
+			dataUtils.compareFiles(inputXmlFile, outputXmlFile);
+		}
+	}
 }
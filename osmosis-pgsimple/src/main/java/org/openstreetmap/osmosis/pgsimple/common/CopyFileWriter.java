@@ -13,7 +13,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
-import org.openstreetmap.osmosis.core.lifecycle.Completable;
 import org.postgis.Geometry;
 import org.postgis.binary.BinaryWriter;
 
@@ -24,7 +23,7 @@ import org.postgis.binary.BinaryWriter;
  * 
  * @author Brett Henderson
  */
-public class CopyFileWriter implements Completable {
+public class CopyFileWriter implements CopyWriter {
 	
 	private static Logger log = Logger.getLogger(CopyFileWriter.class.getName());
 	
@@ -74,6 +73,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(boolean data) {
 		initialize();
 		
@@ -98,6 +98,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(int data) {
 		initialize();
 		
@@ -118,6 +119,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(long data) {
 		initialize();
 		
@@ -193,6 +195,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(String data) {
 		initialize();
 		
@@ -213,6 +216,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(Date data) {
 		initialize();
 		
@@ -233,6 +237,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(Geometry data) {
 		initialize();
 		
@@ -254,6 +259,7 @@ public class CopyFileWriter implements Completable {
 	/**
 	 * Writes a new line in the output file.
 	 */
+	@Override
 	public void endRecord() {
 		try {
 			writer.newLine();
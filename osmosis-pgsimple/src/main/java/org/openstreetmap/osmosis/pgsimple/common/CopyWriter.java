@@ -0,0 +1,74 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsimple.common;
+
+import java.util.Date;
+
+import org.openstreetmap.osmosis.core.lifecycle.Completable;
+import org.postgis.Geometry;
+
+
+/**
+ * Writes the records of a single table in a format suitable for loading with
+ * the database COPY statement.
+ */
+public interface CopyWriter extends Completable {
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(boolean data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(int data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(long data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written, may be null.
+	 */
+	void writeField(String data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(Date data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written, may be null.
+	 */
+	void writeField(Geometry data);
+
+
+	/**
+	 * Ends the current record.
+	 */
+	void endRecord();
+}
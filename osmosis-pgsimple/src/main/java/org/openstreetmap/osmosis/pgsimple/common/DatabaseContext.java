@@ -342,6 +342,23 @@ public class DatabaseContext implements AutoCloseable {
 	}
 	
 	
+	/**
+	 * Rolls back any outstanding transaction.
+	 */
+	public void rollback() {
+		if (connection != null) {
+			try {
+				LOG.finest("Rolling back changes.");
+				
+				connection.rollback();
+				
+			} catch (SQLException e) {
+				throw new OsmosisRuntimeException("Unable to rollback changes.", e);
+			}
+		}
+	}
+	
+	
 	/**
 	 * Releases all database resources. This method is guaranteed not to throw transactions
 	 * and should always be called in a finally or try-with-resources block whenever this
@@ -10,6 +10,7 @@ import org.openstreetmap.osmosis.core.database.DatabasePreferences;
 import org.openstreetmap.osmosis.pgsimple.common.DatabaseContext;
 import org.openstreetmap.osmosis.pgsimple.common.NodeLocationStoreType;
 import org.openstreetmap.osmosis.pgsimple.v0_6.impl.CopyFilesetLoader;
+import org.openstreetmap.osmosis.pgsimple.v0_6.impl.CopyStreamLoader;
 import org.openstreetmap.osmosis.pgsimple.v0_6.impl.DatabaseCapabilityChecker;
 import org.openstreetmap.osmosis.pgsimple.v0_6.impl.CopyFilesetBuilder;
 import org.openstreetmap.osmosis.pgsimple.v0_6.impl.TempCopyFileset;
@@ -28,12 +29,14 @@ public class PostgreSqlCopyWriter implements Sink {
 	
 	private CopyFilesetBuilder copyFilesetBuilder;
 	private CopyFilesetLoader copyFilesetLoader;
+	private CopyStreamLoader copyStreamLoader;
 	private TempCopyFileset copyFileset;
 	private DatabaseLoginCredentials loginCredentials;
 	private DatabasePreferences preferences;
 	private NodeLocationStoreType storeType;
 	private boolean populateBbox;
 	private boolean populateLinestring;
+	private boolean streamCopy;
 	private boolean initialized;
 	
 	
@@ -46,13 +49,18 @@ public class PostgreSqlCopyWriter implements Sink {
 	 *            Contains preferences configuring database behaviour.
 	 * @param storeType
 	 *            The node location storage type used by the geometry builders.
+	 * @param streamCopy
+	 *            If true, data is streamed directly into the database using
+	 *            the binary COPY format instead of being written to temporary
+	 *            files and loaded once all data has been received.
 	 */
 	public PostgreSqlCopyWriter(
 			DatabaseLoginCredentials loginCredentials, DatabasePreferences preferences,
-			NodeLocationStoreType storeType) {
+			NodeLocationStoreType storeType, boolean streamCopy) {
 		this.loginCredentials = loginCredentials;
 		this.preferences = preferences;
 		this.storeType = storeType;
+		this.streamCopy = streamCopy;
 		
 		copyFileset = new TempCopyFileset();
 	}
@@ -67,7 +75,17 @@ public class PostgreSqlCopyWriter implements Sink {
 
 				populateBbox = capabilityChecker.isWayBboxSupported();
 				populateLinestring = capabilityChecker.isWayLinestringSupported();				
-
+			}
+			
+			if (streamCopy) {
+				copyStreamLoader = new CopyStreamLoader(loginCredentials, preferences);
+				
+				copyFilesetBuilder =
+					new CopyFilesetBuilder(copyStreamLoader, populateBbox, populateLinestring, storeType);
+				
+				LOG.fine("Processing input data, building geometries and streaming into the database.");
+				
+			} else {
 				copyFilesetBuilder =
 					new CopyFilesetBuilder(copyFileset, populateBbox, populateLinestring, storeType);
 				
@@ -107,7 +125,11 @@ public class PostgreSqlCopyWriter implements Sink {
 		
 		LOG.fine("All data has been received, beginning database load.");
 		copyFilesetBuilder.complete();
-		copyFilesetLoader.run();
+		if (streamCopy) {
+			copyStreamLoader.complete();
+		} else {
+			copyFilesetLoader.run();
+		}
 		
 		LOG.fine("Processing complete.");
 	}
@@ -117,7 +139,14 @@ public class PostgreSqlCopyWriter implements Sink {
 	 * Releases all database resources.
 	 */
 	public void close() {
-		copyFilesetBuilder.close();
+		if (copyFilesetBuilder != null) {
+			copyFilesetBuilder.close();
+			copyFilesetBuilder = null;
+		}
+		if (copyStreamLoader != null) {
+			copyStreamLoader.close();
+			copyStreamLoader = null;
+		}
 		copyFileset.close();
 		
 		initialized = false;
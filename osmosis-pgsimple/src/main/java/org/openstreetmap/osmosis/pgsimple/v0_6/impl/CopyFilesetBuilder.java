@@ -20,6 +20,7 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.lifecycle.CompletableContainer;
 import org.openstreetmap.osmosis.pgsimple.common.CopyFileWriter;
+import org.openstreetmap.osmosis.pgsimple.common.CopyWriter;
 import org.openstreetmap.osmosis.pgsimple.common.NodeLocationStoreType;
 import org.openstreetmap.osmosis.pgsimple.common.PointBuilder;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
@@ -38,15 +39,15 @@ public class CopyFilesetBuilder implements Sink, EntityProcessor {
 	private WayGeometryBuilder wayGeometryBuilder;
 	private CompletableContainer writerContainer;
 	private MemberTypeValueMapper memberTypeValueMapper;
-	private CopyFileWriter userWriter;
-	private CopyFileWriter nodeWriter;
-	private CopyFileWriter nodeTagWriter;
-	private CopyFileWriter wayWriter;
-	private CopyFileWriter wayTagWriter;
-	private CopyFileWriter wayNodeWriter;
-	private CopyFileWriter relationWriter;
-	private CopyFileWriter relationTagWriter;
-	private CopyFileWriter relationMemberWriter;
+	private CopyWriter userWriter;
+	private CopyWriter nodeWriter;
+	private CopyWriter nodeTagWriter;
+	private CopyWriter wayWriter;
+	private CopyWriter wayTagWriter;
+	private CopyWriter wayNodeWriter;
+	private CopyWriter relationWriter;
+	private CopyWriter relationTagWriter;
+	private CopyWriter relationMemberWriter;
 	private PointBuilder pointBuilder;
 	private Set<Integer> userSet;
 	
@@ -72,10 +73,7 @@ public class CopyFilesetBuilder implements Sink, EntityProcessor {
 	public CopyFilesetBuilder(
 			CopyFileset copyFileset, boolean enableBboxBuilder,
 			boolean enableLinestringBuilder, NodeLocationStoreType storeType) {
-		this.enableBboxBuilder = enableBboxBuilder;
-		this.enableLinestringBuilder = enableLinestringBuilder;
-		
-		writerContainer = new CompletableContainer();
+		this(enableBboxBuilder, enableLinestringBuilder, storeType);
 		
 		userWriter = writerContainer.add(new CopyFileWriter(copyFileset.getUserFile()));
 		nodeWriter = writerContainer.add(new CopyFileWriter(copyFileset.getNodeFile()));
@@ -86,11 +84,51 @@ public class CopyFilesetBuilder implements Sink, EntityProcessor {
 		relationWriter = writerContainer.add(new CopyFileWriter(copyFileset.getRelationFile()));
 		relationTagWriter = writerContainer.add(new CopyFileWriter(copyFileset.getRelationTagFile()));
 		relationMemberWriter = writerContainer.add(new CopyFileWriter(copyFileset.getRelationMemberFile()));
+	}
+	
+	
+	/**
+	 * Creates a new instance writing directly to the database instead of to
+	 * COPY files. Completing this builder completes the writers, the loader
+	 * must then be completed to commit the data.
+	 * 
+	 * @param copyStreamLoader
+	 *            Provides the writers streaming data into each table.
+	 * @param enableBboxBuilder
+	 *            If true, the way bbox geometry is built during processing.
+	 * @param enableLinestringBuilder
+	 *            If true, the way linestring geometry is built during
+	 *            processing.
+	 * @param storeType
+	 *            The node location storage type used by the geometry builders.
+	 */
+	public CopyFilesetBuilder(
+			CopyStreamLoader copyStreamLoader, boolean enableBboxBuilder,
+			boolean enableLinestringBuilder, NodeLocationStoreType storeType) {
+		this(enableBboxBuilder, enableLinestringBuilder, storeType);
+		
+		userWriter = writerContainer.add(copyStreamLoader.getUserWriter());
+		nodeWriter = writerContainer.add(copyStreamLoader.getNodeWriter());
+		nodeTagWriter = writerContainer.add(copyStreamLoader.getNodeTagWriter());
+		wayWriter = writerContainer.add(copyStreamLoader.getWayWriter());
+		wayTagWriter = writerContainer.add(copyStreamLoader.getWayTagWriter());
+		wayNodeWriter = writerContainer.add(copyStreamLoader.getWayNodeWriter());
+		relationWriter = writerContainer.add(copyStreamLoader.getRelationWriter());
+		relationTagWriter = writerContainer.add(copyStreamLoader.getRelationTagWriter());
+		relationMemberWriter = writerContainer.add(copyStreamLoader.getRelationMemberWriter());
+	}
+	
+	
+	private CopyFilesetBuilder(
+			boolean enableBboxBuilder, boolean enableLinestringBuilder, NodeLocationStoreType storeType) {
+		this.enableBboxBuilder = enableBboxBuilder;
+		this.enableLinestringBuilder = enableLinestringBuilder;
+		
+		writerContainer = new CompletableContainer();
 		
 		pointBuilder = new PointBuilder();
 		wayGeometryBuilder = new WayGeometryBuilder(storeType);
 		memberTypeValueMapper = new MemberTypeValueMapper();
-		memberTypeValueMapper = new MemberTypeValueMapper();
 		
 		userSet = new HashSet<Integer>();
 	}
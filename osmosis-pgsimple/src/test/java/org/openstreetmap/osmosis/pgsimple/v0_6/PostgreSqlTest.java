@@ -133,6 +133,63 @@ public class PostgreSqlTest extends AbstractDataTest {
 	}
 	
 	
+	/**
+	 * A test loading an osm file into a pgsql database by streaming binary COPY
+	 * data, then dumping it again and verifying that it is identical.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testStreamLoadAndDump() throws IOException {
+		File authFile;
+		File inputFile;
+		File outputFile;
+		
+		// Generate input files.
+		authFile = getAuthFile();
+		inputFile = dataUtils.createDataFile("v0_6/db-snapshot.osm");
+		outputFile = dataUtils.newFile();
+		
+		// Remove all existing data from the database.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--truncate-pgsimp-0.6",
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Load the database with a dataset.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--fast-write-pgsimp-0.6",
+				"authFile=" + authFile.getPath(),
+				"streamCopy=yes"
+			}
+		);
+		
+		// Dump the database to an osm file.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-pgsimp-0.6",
+				"authFile=" + authFile.getPath(),
+				"--dataset-dump-0.6",
+				"--tag-sort-0.6",
+				"--write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputFile, outputFile);
+	}
+	
+	
 	/**
 	 * A test loading an osm file into a pgsql database, then applying a
 	 * changeset, then dumping it again and verifying the output is as expected.
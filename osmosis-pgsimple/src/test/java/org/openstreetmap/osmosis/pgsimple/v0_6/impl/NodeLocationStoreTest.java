@@ -5,6 +5,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import org.openstreetmap.osmosis.pgsimple.common.InMemoryNodeLocationStore;
+import org.openstreetmap.osmosis.pgsimple.common.MappedNodeLocationStore;
 import org.openstreetmap.osmosis.pgsimple.common.NodeLocation;
 import org.openstreetmap.osmosis.pgsimple.common.NodeLocationStore;
 import org.openstreetmap.osmosis.pgsimple.common.PersistentNodeLocationStore;
@@ -76,4 +77,13 @@ public class NodeLocationStoreTest {
 	public void testInMemory() {
 		testStoreImplementation(new InMemoryNodeLocationStore());
 	}
+	
+	
+	/**
+	 * Tests the memory-mapped file implementation.
+	 */
+	@Test
+	public void testMappedFile() {
+		testStoreImplementation(new MappedNodeLocationStore());
+	}
 }
@@ -0,0 +1,361 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.hstore.PGHStore;
+import org.postgis.Geometry;
+import org.postgis.binary.BinaryWriter;
+import org.postgresql.util.PGobject;
+
+
+/**
+ * Writes the records of a single table to a stream in the PostgreSQL binary
+ * COPY format. Unlike the text format no escaping or number formatting is
+ * required, but each value must exactly match the binary representation of
+ * its column type. Data is buffered and passed to the stream in blocks of
+ * complete records.
+ */
+public class BinaryCopyWriter implements CopyWriter {
+
+	private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+	private static final int FLUSH_THRESHOLD = 65536;
+	private static final int BIGINT_OID = 20;
+	/**
+	 * The number of seconds between the java epoch (1970-01-01) and the
+	 * PostgreSQL epoch (2000-01-01).
+	 */
+	private static final long POSTGRES_EPOCH_SECONDS = 946684800L;
+
+
+	private OutputStream outputStream;
+	private TimeZone timeZone;
+	private BinaryWriter postgisBinaryWriter;
+	private byte[] buffer;
+	private int position;
+	private int recordStart;
+	private int fieldCount;
+	private boolean midRecord;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param outputStream
+	 *            The stream to write to. It remains owned by the caller and
+	 *            is not closed by this writer.
+	 */
+	public BinaryCopyWriter(OutputStream outputStream) {
+		this.outputStream = outputStream;
+
+		// Timestamps are loaded into columns without a time zone so the local
+		// time is written in the same way as the text COPY format.
+		timeZone = TimeZone.getDefault();
+		postgisBinaryWriter = new BinaryWriter();
+		buffer = new byte[FLUSH_THRESHOLD * 2];
+
+		// Write the header consisting of the signature, the flags field and
+		// the header extension length.
+		writeBytes(SIGNATURE);
+		writeInt(0);
+		writeInt(0);
+	}
+
+
+	private void ensureCapacity(int length) {
+		if (position + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+		}
+	}
+
+
+	private void writeShort(int value) {
+		ensureCapacity(2);
+		buffer[position++] = (byte) (value >>> 8);
+		buffer[position++] = (byte) value;
+	}
+
+
+	private void writeInt(int value) {
+		ensureCapacity(4);
+		buffer[position++] = (byte) (value >>> 24);
+		buffer[position++] = (byte) (value >>> 16);
+		buffer[position++] = (byte) (value >>> 8);
+		buffer[position++] = (byte) value;
+	}
+
+
+	private void writeLong(long value) {
+		writeInt((int) (value >>> 32));
+		writeInt((int) value);
+	}
+
+
+	private void writeBytes(byte[] value) {
+		ensureCapacity(value.length);
+		System.arraycopy(value, 0, buffer, position, value.length);
+		position += value.length;
+	}
+
+
+	private void writeLengthPrefixed(byte[] value) {
+		writeInt(value.length);
+		writeBytes(value);
+	}
+
+
+	/**
+	 * Starts a new field, and a new record if none is in progress.
+	 */
+	private void beginField() {
+		if (!midRecord) {
+			recordStart = position;
+			// The field count is filled in when the record is ended.
+			writeShort(0);
+			fieldCount = 0;
+			midRecord = true;
+		}
+
+		fieldCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(boolean data) {
+		beginField();
+
+		writeInt(1);
+		ensureCapacity(1);
+		buffer[position++] = (byte) (data ? 1 : 0);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(int data) {
+		beginField();
+
+		writeInt(4);
+		writeInt(data);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(long data) {
+		beginField();
+
+		writeInt(8);
+		writeLong(data);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(String data) {
+		beginField();
+
+		if (data == null) {
+			writeInt(-1);
+		} else {
+			writeLengthPrefixed(data.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(Date data) {
+		long localMillis;
+		long seconds;
+
+		beginField();
+
+		// The text format only includes whole seconds.
+		localMillis = data.getTime() + timeZone.getOffset(data.getTime());
+		seconds = Math.floorDiv(localMillis, 1000);
+
+		writeInt(8);
+		writeLong((seconds - POSTGRES_EPOCH_SECONDS) * 1000000);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(Geometry data) {
+		beginField();
+
+		if (data == null) {
+			writeInt(-1);
+		} else {
+			writeLengthPrefixed(postgisBinaryWriter.writeBinary(data));
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(PGobject data) {
+		if (!(data instanceof PGHStore)) {
+			throw new OsmosisRuntimeException(
+					"The binary COPY format does not support values of type " + data.getType() + ".");
+		}
+
+		writeField((PGHStore) data);
+	}
+
+
+	private void writeField(PGHStore data) {
+		int lengthPosition;
+
+		beginField();
+
+		lengthPosition = position;
+		writeInt(0);
+
+		writeInt(data.size());
+		for (Map.Entry<String, String> entry : data.entrySet()) {
+			writeLengthPrefixed(entry.getKey().getBytes(StandardCharsets.UTF_8));
+			if (entry.getValue() == null) {
+				writeInt(-1);
+			} else {
+				writeLengthPrefixed(entry.getValue().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		patchLength(lengthPosition);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeField(List<Long> data) {
+		beginField();
+
+		// The array header consists of the number of dimensions, a flags field
+		// indicating if nulls are present and the element type, followed by
+		// the size and lower bound of each dimension. Empty arrays have no
+		// dimensions.
+		if (data.isEmpty()) {
+			writeInt(12);
+			writeInt(0);
+			writeInt(0);
+			writeInt(BIGINT_OID);
+			return;
+		}
+
+		writeInt(20 + data.size() * 12);
+		writeInt(1);
+		writeInt(0);
+		writeInt(BIGINT_OID);
+		writeInt(data.size());
+		writeInt(1);
+
+		for (Long value : data) {
+			writeInt(8);
+			writeLong(value);
+		}
+	}
+
+
+	/**
+	 * Fills in the length of a variable length field now that its data has
+	 * been written.
+	 *
+	 * @param lengthPosition
+	 *            The position of the length within the buffer.
+	 */
+	private void patchLength(int lengthPosition) {
+		int length = position - lengthPosition - 4;
+
+		buffer[lengthPosition] = (byte) (length >>> 24);
+		buffer[lengthPosition + 1] = (byte) (length >>> 16);
+		buffer[lengthPosition + 2] = (byte) (length >>> 8);
+		buffer[lengthPosition + 3] = (byte) length;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endRecord() {
+		if (!midRecord) {
+			throw new OsmosisRuntimeException("No fields have been written to the current record.");
+		}
+
+		buffer[recordStart] = (byte) (fieldCount >>> 8);
+		buffer[recordStart + 1] = (byte) fieldCount;
+		midRecord = false;
+
+		if (position >= FLUSH_THRESHOLD) {
+			flushBuffer();
+		}
+	}
+
+
+	private void flushBuffer() {
+		try {
+			outputStream.write(buffer, 0, position);
+			position = 0;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write to the COPY stream.", e);
+		}
+	}
+
+
+	/**
+	 * Writes the file trailer and any buffered data to the stream.
+	 */
+	@Override
+	public void complete() {
+		if (midRecord) {
+			throw new OsmosisRuntimeException("The current record has not been ended.");
+		}
+
+		writeShort(-1);
+		flushBuffer();
+
+		try {
+			outputStream.flush();
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to complete writing to the COPY stream.", e);
+		}
+	}
+
+
+	/**
+	 * Discards any buffered data.
+	 */
+	@Override
+	public void close() {
+		position = 0;
+		midRecord = false;
+	}
+}
@@ -14,7 +14,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
-import org.openstreetmap.osmosis.core.lifecycle.Completable;
 import org.postgis.Geometry;
 import org.postgis.binary.BinaryWriter;
 import org.postgresql.util.PGobject;
@@ -26,7 +25,7 @@ import org.postgresql.util.PGobject;
  * 
  * @author Brett Henderson
  */
-public class CopyFileWriter implements Completable {
+public class CopyFileWriter implements CopyWriter {
 	
 	private static Logger log = Logger.getLogger(CopyFileWriter.class.getName());
 	
@@ -76,6 +75,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(boolean data) {
 		initialize();
 		
@@ -100,6 +100,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(int data) {
 		initialize();
 		
@@ -120,6 +121,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(long data) {
 		initialize();
 		
@@ -195,6 +197,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(String data) {
 		initialize();
 		
@@ -215,6 +218,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(Date data) {
 		initialize();
 		
@@ -235,6 +239,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(Geometry data) {
 		initialize();
 		
@@ -259,6 +264,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(PGobject data) {
 		initialize();
 		
@@ -279,6 +285,7 @@ public class CopyFileWriter implements Completable {
 	 * @param data
 	 *            The data to be written.
 	 */
+	@Override
 	public void writeField(List<Long> data) {
 		initialize();
 		
@@ -303,6 +310,7 @@ public class CopyFileWriter implements Completable {
 	/**
 	 * Writes a new line in the output file.
 	 */
+	@Override
 	public void endRecord() {
 		try {
 			writer.newLine();
@@ -0,0 +1,94 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import java.util.Date;
+import java.util.List;
+
+import org.openstreetmap.osmosis.core.lifecycle.Completable;
+import org.postgis.Geometry;
+import org.postgresql.util.PGobject;
+
+
+/**
+ * Writes the records of a single table in a format suitable for loading with
+ * the database COPY statement.
+ */
+public interface CopyWriter extends Completable {
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(boolean data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(int data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(long data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written, may be null.
+	 */
+	void writeField(String data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(Date data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written, may be null.
+	 */
+	void writeField(Geometry data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(PGobject data);
+
+
+	/**
+	 * Writes a field of the current record.
+	 *
+	 * @param data
+	 *            The data to be written.
+	 */
+	void writeField(List<Long> data);
+
+
+	/**
+	 * Ends the current record.
+	 */
+	void endRecord();
+}
@@ -14,7 +14,9 @@ import javax.sql.DataSource;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
+import org.postgresql.PGConnection;
 import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.postgresql.core.BaseConnection;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
@@ -186,19 +188,7 @@ public class DatabaseContext implements AutoCloseable {
     }
 
 
-	/**
-	 * Loads a table from a COPY file.
-	 * 
-	 * @param copyFile
-	 *            The file to be loaded.
-	 * @param tableName
-	 *            The table to load the data into.
-	 * @param columns
-	 *            The columns to be loaded (optional).
-	 */
-    public void loadCopyFile(File copyFile, String tableName, String ... columns) {
-    	CopyManager copyManager;
-
+	private String buildCopyStatement(String tableName, String[] columns, String options) {
 		StringBuilder copyStatement = new StringBuilder();
 		copyStatement.append("COPY ");
 		copyStatement.append(tableName);
@@ -213,13 +203,31 @@ public class DatabaseContext implements AutoCloseable {
 			copyStatement.append(')');
 		}
 		copyStatement.append(" FROM STDIN");
+		copyStatement.append(options);
+		
+		return copyStatement.toString();
+	}
+
+
+	/**
+	 * Loads a table from a COPY file.
+	 * 
+	 * @param copyFile
+	 *            The file to be loaded.
+	 * @param tableName
+	 *            The table to load the data into.
+	 * @param columns
+	 *            The columns to be loaded (optional).
+	 */
+    public void loadCopyFile(File copyFile, String tableName, String ... columns) {
+    	CopyManager copyManager;
 		
 		try (BufferedInputStream inStream = new BufferedInputStream(new FileInputStream(copyFile), 65536)) {
     		Connection conn = DataSourceUtils.getConnection(dataSource);
     		try {
 	    		copyManager = new CopyManager(conn.unwrap(BaseConnection.class));
 	    		
-	    		copyManager.copyIn(copyStatement.toString(), inStream);
+	    		copyManager.copyIn(buildCopyStatement(tableName, columns, ""), inStream);
     		} catch (SQLException e) {
         		throw new OsmosisRuntimeException("Unable to process COPY file " + copyFile + ".", e);
         	} finally {
@@ -229,6 +237,37 @@ public class DatabaseContext implements AutoCloseable {
     		throw new OsmosisRuntimeException("Unable to process COPY file " + copyFile + ".", e);
     	}
     }
+
+
+	/**
+	 * Begins loading a table from a stream in the binary COPY format. The load
+	 * is performed within the current transaction which must remain open until
+	 * the stream has been closed. Closing the stream completes the COPY
+	 * statement, cancelling the stream abandons it.
+	 * 
+	 * @param tableName
+	 *            The table to load the data into.
+	 * @param columns
+	 *            The columns to be loaded (optional).
+	 * @return The stream to write the table data to.
+	 */
+    public PGCopyOutputStream openBinaryCopyStream(String tableName, String ... columns) {
+    	if (transaction == null) {
+    		throw new OsmosisRuntimeException("A transaction must be active to stream COPY data.");
+    	}
+    	
+    	// The connection is bound to the transaction so remains open after
+    	// being released.
+    	Connection conn = DataSourceUtils.getConnection(dataSource);
+    	try {
+    		return new PGCopyOutputStream(
+    				conn.unwrap(PGConnection.class), buildCopyStatement(tableName, columns, " BINARY"), 65536);
+    	} catch (SQLException e) {
+    		throw new OsmosisRuntimeException("Unable to begin COPY into table " + tableName + ".", e);
+    	} finally {
+    		DataSourceUtils.releaseConnection(conn, dataSource);
+    	}
+    }
     
 
     /**
@@ -0,0 +1,58 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import org.openstreetmap.osmosis.core.store.MappedCoordinateStore;
+
+
+/**
+ * A node location store implementation holding all locations in a sparse
+ * memory-mapped temporary file indexed directly by node id. Locations are kept
+ * off the JVM heap and are cached by the operating system, making this suitable
+ * for planet sized datasets without a large heap.
+ */
+public class MappedNodeLocationStore implements NodeLocationStore {
+	
+	private MappedCoordinateStore coordinateStore;
+	private NodeLocation invalidNodeLocation;
+	
+	
+	/**
+	 * Creates a new instance.
+	 */
+	public MappedNodeLocationStore() {
+		coordinateStore = new MappedCoordinateStore();
+		
+		invalidNodeLocation = new NodeLocation();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addLocation(long nodeId, NodeLocation nodeLocation) {
+		coordinateStore.setLocation(nodeId, nodeLocation.getLongitude(), nodeLocation.getLatitude());
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeLocation getNodeLocation(long nodeId) {
+		if (coordinateStore.contains(nodeId)) {
+			return new NodeLocation(coordinateStore.getLongitude(nodeId), coordinateStore.getLatitude(nodeId));
+		} else {
+			return invalidNodeLocation;
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		coordinateStore.close();
+	}
+}
@@ -24,5 +24,13 @@ public enum NodeLocationStoreType {
 	 * temporary file on disk. This is optimised for small datasets, and is less
 	 * efficient for large datasets.
 	 */
-	CompactTempFile
+	CompactTempFile,
+	
+	/**
+	 * A memory-mapped file based node location store holds all information in a
+	 * sparse temporary file indexed by node id and accessed through the
+	 * operating system page cache. This avoids JVM heap usage and is the most
+	 * efficient option for very large datasets on a 64-bit JVM.
+	 */
+	MappedFile
 }
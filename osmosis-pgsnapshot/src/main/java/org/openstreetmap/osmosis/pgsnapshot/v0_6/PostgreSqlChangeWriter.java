@@ -13,7 +13,9 @@ import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
 import org.openstreetmap.osmosis.pgsnapshot.common.SchemaVersionValidator;
 import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.ActionChangeWriter;
+import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.BatchedChangeWriter;
 import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.ChangeWriter;
+import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.EntityChangeWriter;
 
 
 /**
@@ -25,7 +27,7 @@ import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.ChangeWriter;
  */
 public class PostgreSqlChangeWriter implements ChangeSink {
 	
-	private ChangeWriter changeWriter;
+	private EntityChangeWriter changeWriter;
 	private Map<ChangeAction, ActionChangeWriter> actionWriterMap;
 	private DatabaseContext dbCtx;
 	private SchemaVersionValidator schemaVersionValidator;
@@ -43,11 +45,19 @@ public class PostgreSqlChangeWriter implements ChangeSink {
 	 *            If true, zero and single node ways are kept. Otherwise they are
 	 *            silently dropped to avoid putting invalid geometries into the 
 	 *            database which can cause problems with postgis functions.
+	 * @param batchChanges
+	 *            If true, all changes are staged and applied to the database
+	 *            using set based statements once the change stream is
+	 *            complete. Otherwise each change is applied as it is received.
 	 */
 	public PostgreSqlChangeWriter(DatabaseLoginCredentials loginCredentials, 
-			DatabasePreferences preferences, boolean keepInvalidWays) {
+			DatabasePreferences preferences, boolean keepInvalidWays, boolean batchChanges) {
 		dbCtx = new DatabaseContext(loginCredentials);
-		changeWriter = new ChangeWriter(dbCtx);
+		if (batchChanges) {
+			changeWriter = new BatchedChangeWriter(dbCtx);
+		} else {
+			changeWriter = new ChangeWriter(dbCtx);
+		}
 		actionWriterMap = new HashMap<ChangeAction, ActionChangeWriter>();
 		actionWriterMap.put(ChangeAction.Create, 
 				new ActionChangeWriter(changeWriter, ChangeAction.Create, keepInvalidWays));
@@ -18,6 +18,8 @@ public class PostgreSqlChangeWriterFactory extends DatabaseTaskManagerFactory {
 	
 	private static final String ARG_KEEP_INVALID_WAYS = "keepInvalidWays";
 	private static final boolean DEFAULT_KEEP_INVALID_WAYS = true;
+	private static final String ARG_BATCH_CHANGES = "batchChanges";
+	private static final boolean DEFAULT_BATCH_CHANGES = false;
 	
 	/**
 	 * {@inheritDoc}
@@ -32,13 +34,15 @@ public class PostgreSqlChangeWriterFactory extends DatabaseTaskManagerFactory {
 		preferences = getDatabasePreferences(taskConfig);
 		
 		boolean keepInvalidWays = getBooleanArgument(taskConfig, ARG_KEEP_INVALID_WAYS, DEFAULT_KEEP_INVALID_WAYS);
+		boolean batchChanges = getBooleanArgument(taskConfig, ARG_BATCH_CHANGES, DEFAULT_BATCH_CHANGES);
 		
 		return new ChangeSinkManager(
 			taskConfig.getId(),
 			new PostgreSqlChangeWriter(
 				loginCredentials,
 				preferences,
-				keepInvalidWays
+				keepInvalidWays,
+				batchChanges
 			),
 			taskConfig.getPipeArgs()
 		);
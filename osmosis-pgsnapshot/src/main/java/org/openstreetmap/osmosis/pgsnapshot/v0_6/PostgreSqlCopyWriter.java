@@ -12,6 +12,7 @@ import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
 import org.openstreetmap.osmosis.pgsnapshot.common.NodeLocationStoreType;
 import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.CopyFilesetBuilder;
 import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.CopyFilesetLoader;
+import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.CopyStreamLoader;
 import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.DatabaseCapabilityChecker;
 import org.openstreetmap.osmosis.pgsnapshot.v0_6.impl.TempCopyFileset;
 
@@ -28,6 +29,7 @@ public class PostgreSqlCopyWriter implements Sink {
 	
 	private CopyFilesetBuilder copyFilesetBuilder;
 	private CopyFilesetLoader copyFilesetLoader;
+	private CopyStreamLoader copyStreamLoader;
 	private TempCopyFileset copyFileset;
 	private DatabaseLoginCredentials loginCredentials;
 	private DatabasePreferences preferences;
@@ -35,6 +37,7 @@ public class PostgreSqlCopyWriter implements Sink {
 	private boolean populateBbox;
 	private boolean populateLinestring;
 	private boolean keepInvalidWays;
+	private boolean streamCopy;
 	private boolean initialized;
 	
 	
@@ -51,14 +54,19 @@ public class PostgreSqlCopyWriter implements Sink {
 	 *            If true, zero and single node ways are kept. Otherwise they are
 	 *            silently dropped to avoid putting invalid geometries into the 
 	 *            database which can cause problems with postgis functions.
+	 * @param streamCopy
+	 *            If true, data is streamed directly into the database using
+	 *            the binary COPY format instead of being written to temporary
+	 *            files and loaded once all data has been received.
 	 */
 	public PostgreSqlCopyWriter(
 			DatabaseLoginCredentials loginCredentials, DatabasePreferences preferences,
-			NodeLocationStoreType storeType, boolean keepInvalidWays) {
+			NodeLocationStoreType storeType, boolean keepInvalidWays, boolean streamCopy) {
 		this.loginCredentials = loginCredentials;
 		this.preferences = preferences;
 		this.storeType = storeType;
 		this.keepInvalidWays = keepInvalidWays;
+		this.streamCopy = streamCopy;
 		
 		copyFileset = new TempCopyFileset();
 	}
@@ -75,12 +83,22 @@ public class PostgreSqlCopyWriter implements Sink {
 				populateLinestring = capabilityChecker.isWayLinestringSupported();
 			}
 
-			copyFilesetBuilder =
-				new CopyFilesetBuilder(copyFileset, populateBbox, populateLinestring, storeType, keepInvalidWays);
-			
-			copyFilesetLoader = new CopyFilesetLoader(loginCredentials, preferences, copyFileset);
-			
-			LOG.fine("Processing input data, building geometries and creating database load files.");
+			if (streamCopy) {
+				copyStreamLoader = new CopyStreamLoader(loginCredentials, preferences);
+				
+				copyFilesetBuilder = new CopyFilesetBuilder(
+						copyStreamLoader, populateBbox, populateLinestring, storeType, keepInvalidWays);
+				
+				LOG.fine("Processing input data, building geometries and streaming into the database.");
+				
+			} else {
+				copyFilesetBuilder =
+					new CopyFilesetBuilder(copyFileset, populateBbox, populateLinestring, storeType, keepInvalidWays);
+				
+				copyFilesetLoader = new CopyFilesetLoader(loginCredentials, preferences, copyFileset);
+				
+				LOG.fine("Processing input data, building geometries and creating database load files.");
+			}
 			
 			initialized = true;
 		}
@@ -113,8 +131,13 @@ public class PostgreSqlCopyWriter implements Sink {
 		
 		copyFilesetBuilder.complete();
 		
-		LOG.fine("All data has been received, beginning database load.");
-		copyFilesetLoader.run();
+		if (streamCopy) {
+			LOG.fine("All data has been received, completing database load.");
+			copyStreamLoader.complete();
+		} else {
+			LOG.fine("All data has been received, beginning database load.");
+			copyFilesetLoader.run();
+		}
 		
 		LOG.fine("Processing complete.");
 	}
@@ -128,6 +151,10 @@ public class PostgreSqlCopyWriter implements Sink {
 			copyFilesetBuilder.close();
 			copyFilesetBuilder = null;
 		}
+		if (copyStreamLoader != null) {
+			copyStreamLoader.close();
+			copyStreamLoader = null;
+		}
 		copyFileset.close();
 		
 		initialized = false;
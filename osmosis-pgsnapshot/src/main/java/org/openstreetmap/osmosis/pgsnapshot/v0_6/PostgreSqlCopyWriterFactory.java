@@ -20,6 +20,8 @@ public class PostgreSqlCopyWriterFactory extends DatabaseTaskManagerFactory {
 	private static final String DEFAULT_NODE_LOCATION_STORE_TYPE = "CompactTempFile";
 	private static final String ARG_KEEP_INVALID_WAYS = "keepInvalidWays";
 	private static final boolean DEFAULT_KEEP_INVALID_WAYS = true;
+	private static final String ARG_STREAM_COPY = "streamCopy";
+	private static final boolean DEFAULT_STREAM_COPY = false;
 	
 	/**
 	 * {@inheritDoc}
@@ -30,6 +32,7 @@ public class PostgreSqlCopyWriterFactory extends DatabaseTaskManagerFactory {
 		DatabasePreferences preferences;
 		NodeLocationStoreType storeType;
 		boolean keepInvalidWays;
+		boolean streamCopy;
 		
 		// Get the task arguments.
 		loginCredentials = getDatabaseLoginCredentials(taskConfig);
@@ -38,10 +41,11 @@ public class PostgreSqlCopyWriterFactory extends DatabaseTaskManagerFactory {
 				NodeLocationStoreType.class,
 				getStringArgument(taskConfig, ARG_NODE_LOCATION_STORE_TYPE, DEFAULT_NODE_LOCATION_STORE_TYPE));
 		keepInvalidWays = getBooleanArgument(taskConfig, ARG_KEEP_INVALID_WAYS, DEFAULT_KEEP_INVALID_WAYS);
+		streamCopy = getBooleanArgument(taskConfig, ARG_STREAM_COPY, DEFAULT_STREAM_COPY);
 		
 		return new SinkManager(
 			taskConfig.getId(),
-			new PostgreSqlCopyWriter(loginCredentials, preferences,	storeType, keepInvalidWays),
+			new PostgreSqlCopyWriter(loginCredentials, preferences,	storeType, keepInvalidWays, streamCopy),
 			taskConfig.getPipeArgs()
 		);
 	}
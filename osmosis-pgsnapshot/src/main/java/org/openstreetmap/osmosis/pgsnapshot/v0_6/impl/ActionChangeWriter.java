@@ -15,7 +15,7 @@ import org.openstreetmap.osmosis.core.task.common.ChangeAction;
  * @author Brett Henderson
  */
 public class ActionChangeWriter implements EntityProcessor {
-	private ChangeWriter changeWriter;
+	private EntityChangeWriter changeWriter;
 	private ChangeAction action;
 	private boolean keepInvalidWays;
 	
@@ -32,7 +32,7 @@ public class ActionChangeWriter implements EntityProcessor {
 	 *            silently dropped to avoid putting invalid geometries into the 
 	 *            database which can cause problems with postgis functions.
 	 */
-	public ActionChangeWriter(ChangeWriter changeWriter, ChangeAction action, boolean keepInvalidWays) {
+	public ActionChangeWriter(EntityChangeWriter changeWriter, ChangeAction action, boolean keepInvalidWays) {
 		this.changeWriter = changeWriter;
 		this.action = action;
 		this.keepInvalidWays = keepInvalidWays;
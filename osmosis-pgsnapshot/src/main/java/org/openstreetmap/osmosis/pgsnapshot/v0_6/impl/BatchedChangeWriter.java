@@ -0,0 +1,453 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.lifecycle.CompletableContainer;
+import org.openstreetmap.osmosis.core.task.common.ChangeAction;
+import org.openstreetmap.osmosis.hstore.PGHStore;
+import org.openstreetmap.osmosis.pgsnapshot.common.CopyFileWriter;
+import org.openstreetmap.osmosis.pgsnapshot.common.CopyWriter;
+import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
+import org.openstreetmap.osmosis.pgsnapshot.common.PointBuilder;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameter;
+
+
+/**
+ * Writes changes to a database in a single batch. All changes are staged in
+ * COPY files while they are received, loaded into temporary tables on
+ * completion, then applied with a few set based statements per entity type.
+ * The resulting table contents are the same as those produced by
+ * {@link ChangeWriter} when each entity appears at most once in the change
+ * stream, if an entity appears multiple times only its last change is
+ * applied. As with the row based writer, way geometries are calculated from
+ * the node locations after all node changes have been applied.
+ */
+public class BatchedChangeWriter implements EntityChangeWriter {
+
+	private static final Logger LOG = Logger.getLogger(BatchedChangeWriter.class.getName());
+
+	/**
+	 * The staged change creates or replaces the entity.
+	 */
+	private static final String KIND_UPSERT = "U";
+	/**
+	 * The staged change deletes the entity.
+	 */
+	private static final String KIND_DELETE = "D";
+	/**
+	 * The staged change is an invalid way which is removed if it exists.
+	 */
+	private static final String KIND_INVALID = "I";
+
+	private static final String ENTITY_COLUMNS = "id, version, user_id, tstamp, changeset_id, tags";
+	private static final String STAGED_ENTITY_COLUMNS =
+		"seq bigint, kind character(1), id bigint, version int, user_id int, tstamp timestamp without time zone,"
+		+ " changeset_id bigint, tags hstore";
+
+	private static final String[] STAGING_TABLES = {
+		"change_users", "change_nodes", "change_ways", "change_way_nodes", "change_relations",
+		"change_relation_members"
+	};
+	private static final String[] SQL_CREATE_STAGING_TABLES = {
+		"CREATE TEMPORARY TABLE change_users (id int, name text) ON COMMIT DROP",
+		"CREATE TEMPORARY TABLE change_nodes (" + STAGED_ENTITY_COLUMNS + ", geom geometry) ON COMMIT DROP",
+		"CREATE TEMPORARY TABLE change_ways (" + STAGED_ENTITY_COLUMNS + ", nodes bigint[]) ON COMMIT DROP",
+		"CREATE TEMPORARY TABLE change_way_nodes (seq bigint, way_id bigint, node_id bigint, sequence_id int)"
+			+ " ON COMMIT DROP",
+		"CREATE TEMPORARY TABLE change_relations (" + STAGED_ENTITY_COLUMNS + ") ON COMMIT DROP",
+		"CREATE TEMPORARY TABLE change_relation_members (seq bigint, relation_id bigint, member_id bigint,"
+			+ " member_type character(1), member_role text, sequence_id int) ON COMMIT DROP"
+	};
+
+	private static final String SQL_INSERT_USER_ACTIONS =
+		"INSERT INTO actions (data_type, action, id)"
+		+ " SELECT '" + ActionDataType.USER.getDatabaseValue() + "',"
+		+ " CASE WHEN u.id IS NULL THEN '" + ChangesetAction.CREATE.getDatabaseValue() + "'"
+		+ " ELSE '" + ChangesetAction.MODIFY.getDatabaseValue() + "' END, c.id"
+		+ " FROM change_users c LEFT OUTER JOIN users u ON u.id = c.id"
+		+ " WHERE u.id IS NULL OR u.name <> c.name";
+	private static final String SQL_UPDATE_USERS =
+		"UPDATE users u SET name = c.name FROM change_users c WHERE u.id = c.id AND u.name <> c.name";
+	private static final String SQL_INSERT_USERS =
+		"INSERT INTO users (id, name) SELECT c.id, c.name FROM change_users c"
+		+ " WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.id = c.id)";
+
+	private static final String SQL_UPDATE_WAY_BBOX =
+		"UPDATE ways w SET bbox = g.bbox FROM ("
+		+ " SELECT wn.way_id, ST_Envelope(ST_Collect(n.geom)) AS bbox"
+		+ " FROM change_ways c"
+		+ " JOIN way_nodes wn ON wn.way_id = c.id"
+		+ " JOIN nodes n ON n.id = wn.node_id"
+		+ " WHERE c.kind = '" + KIND_UPSERT + "'"
+		+ " GROUP BY wn.way_id"
+		+ " ) g"
+		+ " WHERE w.id = g.way_id";
+	private static final String SQL_UPDATE_WAY_LINESTRING =
+		"UPDATE ways w SET linestring = g.linestring FROM ("
+		+ " SELECT wn.way_id, ST_MakeLine(n.geom ORDER BY wn.sequence_id) AS linestring"
+		+ " FROM change_ways c"
+		+ " JOIN way_nodes wn ON wn.way_id = c.id"
+		+ " JOIN nodes n ON n.id = wn.node_id"
+		+ " WHERE c.kind = '" + KIND_UPSERT + "'"
+		+ " GROUP BY wn.way_id"
+		+ " ) g"
+		+ " WHERE w.id = g.way_id";
+
+
+	private DatabaseContext dbCtx;
+	private JdbcTemplate jdbcTemplate;
+	private DatabaseCapabilityChecker capabilityChecker;
+	private ActionDao actionDao;
+	private TempCopyFileset copyFileset;
+	private CompletableContainer writerContainer;
+	private CopyWriter userWriter;
+	private CopyWriter nodeWriter;
+	private CopyWriter wayWriter;
+	private CopyWriter wayNodeWriter;
+	private CopyWriter relationWriter;
+	private CopyWriter relationMemberWriter;
+	private PointBuilder pointBuilder;
+	private MemberTypeValueMapper memberTypeValueMapper;
+	private Set<Integer> userSet;
+	private long sequence;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param dbCtx
+	 *            The database context to use for accessing the database.
+	 */
+	public BatchedChangeWriter(DatabaseContext dbCtx) {
+		this.dbCtx = dbCtx;
+
+		jdbcTemplate = dbCtx.getJdbcTemplate();
+		capabilityChecker = new DatabaseCapabilityChecker(dbCtx);
+		actionDao = new ActionDao(dbCtx);
+
+		copyFileset = new TempCopyFileset();
+		writerContainer = new CompletableContainer();
+		userWriter = writerContainer.add(new CopyFileWriter(copyFileset.getUserFile()));
+		nodeWriter = writerContainer.add(new CopyFileWriter(copyFileset.getNodeFile()));
+		wayWriter = writerContainer.add(new CopyFileWriter(copyFileset.getWayFile()));
+		wayNodeWriter = writerContainer.add(new CopyFileWriter(copyFileset.getWayNodeFile()));
+		relationWriter = writerContainer.add(new CopyFileWriter(copyFileset.getRelationFile()));
+		relationMemberWriter = writerContainer.add(new CopyFileWriter(copyFileset.getRelationMemberFile()));
+
+		pointBuilder = new PointBuilder();
+		memberTypeValueMapper = new MemberTypeValueMapper();
+		userSet = new HashSet<Integer>();
+	}
+
+
+	/**
+	 * Stages the specified user if it hasn't already been seen.
+	 *
+	 * @param user
+	 *            The user to write.
+	 */
+	private void writeUser(OsmUser user) {
+		// Entities without a user assigned should not be written, and users
+		// are only updated in the database once per changeset run.
+		if (!OsmUser.NONE.equals(user) && userSet.add(user.getId())) {
+			userWriter.writeField(user.getId());
+			userWriter.writeField(user.getName());
+			userWriter.endRecord();
+		}
+	}
+
+
+	private PGHStore buildTags(Entity entity) {
+		PGHStore tags;
+
+		tags = new PGHStore();
+		for (Tag tag : entity.getTags()) {
+			tags.put(tag.getKey(), tag.getValue());
+		}
+
+		return tags;
+	}
+
+
+	/**
+	 * Writes the columns common to all entity types, and the user of the
+	 * entity.
+	 *
+	 * @return The sequence number identifying the change.
+	 */
+	private long writeEntity(CopyWriter writer, Entity entity, String kind) {
+		// We can't write an entity with a null timestamp.
+		if (entity.getTimestamp() == null) {
+			throw new OsmosisRuntimeException("Entity(" + entity.getType()
+					+ ") " + entity.getId() + " does not have a timestamp set.");
+		}
+
+		writeUser(entity.getUser());
+
+		writer.writeField(++sequence);
+		writer.writeField(kind);
+		writer.writeField(entity.getId());
+		writer.writeField(entity.getVersion());
+		writer.writeField(entity.getUser().getId());
+		writer.writeField(entity.getTimestamp());
+		writer.writeField(entity.getChangesetId());
+		writer.writeField(buildTags(entity));
+
+		return sequence;
+	}
+
+
+	private boolean isUpsert(ChangeAction action) {
+		return ChangeAction.Create.equals(action) || ChangeAction.Modify.equals(action);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(Node node, ChangeAction action) {
+		if (isUpsert(action)) {
+			writeEntity(nodeWriter, node, KIND_UPSERT);
+			nodeWriter.writeField(pointBuilder.createPoint(node.getLatitude(), node.getLongitude()));
+		} else {
+			writeEntity(nodeWriter, node, KIND_DELETE);
+			nodeWriter.writeField((String) null);
+		}
+		nodeWriter.endRecord();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(Way way, ChangeAction action, boolean keepInvalidWays) {
+		if (isUpsert(action)) {
+			if (way.getWayNodes().size() >= 2 || keepInvalidWays) {
+				List<Long> nodeIds;
+				long seq;
+				int sequenceId;
+
+				nodeIds = new ArrayList<Long>(way.getWayNodes().size());
+				for (WayNode wayNode : way.getWayNodes()) {
+					nodeIds.add(wayNode.getNodeId());
+				}
+
+				seq = writeEntity(wayWriter, way, KIND_UPSERT);
+				wayWriter.writeField(nodeIds);
+
+				sequenceId = 0;
+				for (WayNode wayNode : way.getWayNodes()) {
+					wayNodeWriter.writeField(seq);
+					wayNodeWriter.writeField(way.getId());
+					wayNodeWriter.writeField(wayNode.getNodeId());
+					wayNodeWriter.writeField(sequenceId++);
+					wayNodeWriter.endRecord();
+				}
+
+			} else {
+				writeEntity(wayWriter, way, KIND_INVALID);
+				wayWriter.writeField((String) null);
+			}
+
+		} else {
+			writeEntity(wayWriter, way, KIND_DELETE);
+			wayWriter.writeField((String) null);
+		}
+		wayWriter.endRecord();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(Relation relation, ChangeAction action) {
+		if (isUpsert(action)) {
+			long seq;
+			int sequenceId;
+
+			seq = writeEntity(relationWriter, relation, KIND_UPSERT);
+
+			sequenceId = 0;
+			for (RelationMember member : relation.getMembers()) {
+				relationMemberWriter.writeField(seq);
+				relationMemberWriter.writeField(relation.getId());
+				relationMemberWriter.writeField(member.getMemberId());
+				relationMemberWriter.writeField(memberTypeValueMapper.getMemberType(member.getMemberType()));
+				relationMemberWriter.writeField(member.getMemberRole());
+				relationMemberWriter.writeField(sequenceId++);
+				relationMemberWriter.endRecord();
+			}
+
+		} else {
+			writeEntity(relationWriter, relation, KIND_DELETE);
+		}
+		relationWriter.endRecord();
+	}
+
+
+	private void update(String sql) {
+		LOG.finer("SQL: " + sql);
+		jdbcTemplate.update(sql);
+	}
+
+
+	/**
+	 * Removes all but the last change of each entity.
+	 */
+	private void removeSupersededChanges(String stagingTable) {
+		update("DELETE FROM " + stagingTable + " c"
+				+ " USING (SELECT id, max(seq) AS seq FROM " + stagingTable + " GROUP BY id HAVING count(*) > 1) l"
+				+ " WHERE c.id = l.id AND c.seq < l.seq");
+	}
+
+
+	/**
+	 * Records the actions applied to an entity type. Upserts are recorded as
+	 * modifications if the entity exists and creations otherwise, invalid ways
+	 * are only recorded as deletions if they exist.
+	 */
+	private void addActions(ActionDataType dataType, String table, String stagingTable) {
+		if (capabilityChecker.isActionSupported()) {
+			String exists = "EXISTS (SELECT 1 FROM " + table + " e WHERE e.id = c.id)";
+
+			update("INSERT INTO actions (data_type, action, id)"
+					+ " SELECT '" + dataType.getDatabaseValue() + "',"
+					+ " CASE WHEN c.kind <> '" + KIND_UPSERT + "' THEN '" + ChangesetAction.DELETE.getDatabaseValue()
+					+ "' WHEN " + exists + " THEN '" + ChangesetAction.MODIFY.getDatabaseValue()
+					+ "' ELSE '" + ChangesetAction.CREATE.getDatabaseValue() + "' END, c.id"
+					+ " FROM " + stagingTable + " c"
+					+ " WHERE c.kind <> '" + KIND_INVALID + "' OR " + exists);
+		}
+	}
+
+
+	private void applyUsers() {
+		if (capabilityChecker.isActionSupported()) {
+			update(SQL_INSERT_USER_ACTIONS);
+		}
+		update(SQL_UPDATE_USERS);
+		update(SQL_INSERT_USERS);
+	}
+
+
+	private void applyNodes() {
+		removeSupersededChanges("change_nodes");
+		addActions(ActionDataType.NODE, "nodes", "change_nodes");
+
+		update("DELETE FROM nodes e USING change_nodes c WHERE e.id = c.id");
+		update("INSERT INTO nodes (" + ENTITY_COLUMNS + ", geom)"
+				+ " SELECT " + ENTITY_COLUMNS + ", geom FROM change_nodes WHERE kind = '" + KIND_UPSERT + "'");
+	}
+
+
+	private void applyWays() {
+		removeSupersededChanges("change_ways");
+		addActions(ActionDataType.WAY, "ways", "change_ways");
+
+		update("DELETE FROM way_nodes e USING change_ways c WHERE e.way_id = c.id");
+		update("DELETE FROM ways e USING change_ways c WHERE e.id = c.id");
+		update("INSERT INTO ways (" + ENTITY_COLUMNS + ", nodes)"
+				+ " SELECT " + ENTITY_COLUMNS + ", nodes FROM change_ways WHERE kind = '" + KIND_UPSERT + "'");
+		update("INSERT INTO way_nodes (way_id, node_id, sequence_id)"
+				+ " SELECT wn.way_id, wn.node_id, wn.sequence_id"
+				+ " FROM change_way_nodes wn JOIN change_ways c ON c.seq = wn.seq"
+				+ " WHERE c.kind = '" + KIND_UPSERT + "'");
+
+		if (capabilityChecker.isWayBboxSupported()) {
+			update(SQL_UPDATE_WAY_BBOX);
+		}
+		if (capabilityChecker.isWayLinestringSupported()) {
+			update(SQL_UPDATE_WAY_LINESTRING);
+		}
+	}
+
+
+	private void applyRelations() {
+		removeSupersededChanges("change_relations");
+		addActions(ActionDataType.RELATION, "relations", "change_relations");
+
+		update("DELETE FROM relation_members e USING change_relations c WHERE e.relation_id = c.id");
+		update("DELETE FROM relations e USING change_relations c WHERE e.id = c.id");
+		update("INSERT INTO relations (" + ENTITY_COLUMNS + ")"
+				+ " SELECT " + ENTITY_COLUMNS + " FROM change_relations WHERE kind = '" + KIND_UPSERT + "'");
+		update("INSERT INTO relation_members (relation_id, member_id, member_type, member_role, sequence_id)"
+				+ " SELECT rm.relation_id, rm.member_id, rm.member_type, rm.member_role, rm.sequence_id"
+				+ " FROM change_relation_members rm JOIN change_relations c ON c.seq = rm.seq"
+				+ " WHERE c.kind = '" + KIND_UPSERT + "'");
+	}
+
+
+	/**
+	 * Loads the staged changes into the database, applies them, then performs
+	 * post-change database updates.
+	 */
+	@Override
+	public void complete() {
+		writerContainer.complete();
+
+		LOG.fine("Loading staged changes.");
+		for (String sql : SQL_CREATE_STAGING_TABLES) {
+			update(sql);
+		}
+		dbCtx.loadCopyFile(copyFileset.getUserFile(), "change_users");
+		dbCtx.loadCopyFile(copyFileset.getNodeFile(), "change_nodes");
+		dbCtx.loadCopyFile(copyFileset.getWayFile(), "change_ways");
+		dbCtx.loadCopyFile(copyFileset.getWayNodeFile(), "change_way_nodes");
+		dbCtx.loadCopyFile(copyFileset.getRelationFile(), "change_relations");
+		dbCtx.loadCopyFile(copyFileset.getRelationMemberFile(), "change_relation_members");
+
+		// Temporary tables are never analyzed automatically.
+		for (String stagingTable : STAGING_TABLES) {
+			update("ANALYZE " + stagingTable);
+		}
+
+		LOG.fine("Applying staged changes.");
+		applyUsers();
+		applyNodes();
+		applyWays();
+		applyRelations();
+
+		jdbcTemplate.call(
+				new CallableStatementCreator() {
+					@Override
+					public CallableStatement createCallableStatement(Connection con) throws SQLException {
+						return con.prepareCall("{call osmosisUpdate()}");
+					}
+				}, new ArrayList<SqlParameter>());
+
+		// Clear all action records.
+		actionDao.truncate();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void release() {
+		writerContainer.close();
+		copyFileset.close();
+	}
+}
@@ -26,7 +26,7 @@ import org.springframework.jdbc.core.SqlParameter;
  * 
  * @author Brett Henderson
  */
-public class ChangeWriter {
+public class ChangeWriter implements EntityChangeWriter {
 	
 	private DatabaseContext dbCtx;
 	private ActionDao actionDao;
@@ -113,6 +113,7 @@ public class ChangeWriter {
 	 * @param action
 	 *            The change to be applied.
 	 */
+	@Override
 	public void write(Node node, ChangeAction action) {
 		processEntityPrerequisites(node);
 
@@ -147,6 +148,7 @@ public class ChangeWriter {
 	 *            silently dropped to avoid putting invalid geometries into the 
 	 *            database which can cause problems with postgis functions.
 	 */
+	@Override
 	public void write(Way way, ChangeAction action, boolean keepInvalidWays) {
 		processEntityPrerequisites(way);
 		
@@ -183,6 +185,7 @@ public class ChangeWriter {
 	 * @param action
 	 *            The change to be applied.
 	 */
+	@Override
 	public void write(Relation relation, ChangeAction action) {
 		processEntityPrerequisites(relation);
 
@@ -208,6 +211,7 @@ public class ChangeWriter {
 	/**
 	 * Performs post-change database updates.
 	 */
+	@Override
 	public void complete() {
 		dbCtx.getJdbcTemplate().call(
 				new CallableStatementCreator() {
@@ -225,6 +229,7 @@ public class ChangeWriter {
 	/**
 	 * Releases all resources.
 	 */
+	@Override
 	public void release() {
 		// Nothing to do.
 	}
@@ -23,6 +23,7 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.lifecycle.CompletableContainer;
 import org.openstreetmap.osmosis.pgsnapshot.common.CopyFileWriter;
+import org.openstreetmap.osmosis.pgsnapshot.common.CopyWriter;
 import org.openstreetmap.osmosis.pgsnapshot.common.NodeLocationStoreType;
 import org.openstreetmap.osmosis.pgsnapshot.common.PointBuilder;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
@@ -43,12 +44,12 @@ public class CopyFilesetBuilder implements Sink, EntityProcessor {
 	private WayGeometryBuilder wayGeometryBuilder;
 	private CompletableContainer writerContainer;
 	private MemberTypeValueMapper memberTypeValueMapper;
-	private CopyFileWriter userWriter;
-	private CopyFileWriter nodeWriter;
-	private CopyFileWriter wayWriter;
-	private CopyFileWriter wayNodeWriter;
-	private CopyFileWriter relationWriter;
-	private CopyFileWriter relationMemberWriter;
+	private CopyWriter userWriter;
+	private CopyWriter nodeWriter;
+	private CopyWriter wayWriter;
+	private CopyWriter wayNodeWriter;
+	private CopyWriter relationWriter;
+	private CopyWriter relationMemberWriter;
 	private PointBuilder pointBuilder;
 	private Set<Integer> userSet;
 	
@@ -79,11 +80,7 @@ public class CopyFilesetBuilder implements Sink, EntityProcessor {
 			CopyFileset copyFileset, boolean enableBboxBuilder,
 			boolean enableLinestringBuilder, NodeLocationStoreType storeType,
 			boolean keepInvalidWays) {
-		this.enableBboxBuilder = enableBboxBuilder;
-		this.enableLinestringBuilder = enableLinestringBuilder;
-		this.keepInvalidWays = keepInvalidWays;
-		
-		writerContainer = new CompletableContainer();
+		this(enableBboxBuilder, enableLinestringBuilder, storeType, keepInvalidWays);
 		
 		userWriter = writerContainer.add(new CopyFileWriter(copyFileset.getUserFile()));
 		nodeWriter = writerContainer.add(new CopyFileWriter(copyFileset.getNodeFile()));
@@ -91,11 +88,53 @@ public class CopyFilesetBuilder implements Sink, EntityProcessor {
 		wayNodeWriter = writerContainer.add(new CopyFileWriter(copyFileset.getWayNodeFile()));
 		relationWriter = writerContainer.add(new CopyFileWriter(copyFileset.getRelationFile()));
 		relationMemberWriter = writerContainer.add(new CopyFileWriter(copyFileset.getRelationMemberFile()));
+	}
+	
+	
+	/**
+	 * Creates a new instance writing directly to the database instead of to
+	 * COPY files. Completing this builder completes the writers, the loader
+	 * must then be completed to commit the data.
+	 * 
+	 * @param copyStreamLoader
+	 *            Provides the writers streaming data into each table.
+	 * @param enableBboxBuilder
+	 *            If true, the way bbox geometry is built during processing.
+	 * @param enableLinestringBuilder
+	 *            If true, the way linestring geometry is built during
+	 *            processing.
+	 * @param storeType
+	 *            The node location storage type used by the geometry builders.
+	 * @param keepInvalidWays
+	 *            If true, zero and single node ways are kept.
+	 */
+	public CopyFilesetBuilder(
+			CopyStreamLoader copyStreamLoader, boolean enableBboxBuilder,
+			boolean enableLinestringBuilder, NodeLocationStoreType storeType,
+			boolean keepInvalidWays) {
+		this(enableBboxBuilder, enableLinestringBuilder, storeType, keepInvalidWays);
+		
+		userWriter = writerContainer.add(copyStreamLoader.getUserWriter());
+		nodeWriter = writerContainer.add(copyStreamLoader.getNodeWriter());
+		wayWriter = writerContainer.add(copyStreamLoader.getWayWriter());
+		wayNodeWriter = writerContainer.add(copyStreamLoader.getWayNodeWriter());
+		relationWriter = writerContainer.add(copyStreamLoader.getRelationWriter());
+		relationMemberWriter = writerContainer.add(copyStreamLoader.getRelationMemberWriter());
+	}
+	
+	
+	private CopyFilesetBuilder(
+			boolean enableBboxBuilder, boolean enableLinestringBuilder, NodeLocationStoreType storeType,
+			boolean keepInvalidWays) {
+		this.enableBboxBuilder = enableBboxBuilder;
+		this.enableLinestringBuilder = enableLinestringBuilder;
+		this.keepInvalidWays = keepInvalidWays;
+		
+		writerContainer = new CompletableContainer();
 		
 		pointBuilder = new PointBuilder();
 		wayGeometryBuilder = new WayGeometryBuilder(storeType);
 		memberTypeValueMapper = new MemberTypeValueMapper();
-		memberTypeValueMapper = new MemberTypeValueMapper();
 		
 		userSet = new HashSet<Integer>();
 	}
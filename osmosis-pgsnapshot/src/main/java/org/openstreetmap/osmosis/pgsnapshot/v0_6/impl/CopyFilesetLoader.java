@@ -33,9 +33,32 @@ public class CopyFilesetLoader implements Runnable {
 	
 	
 	private static final String[] COMMON_COLUMNS = {"id", "version", "user_id", "tstamp", "changeset_id", "tags"};
-	private static final String[] NODE_COLUMNS = appendColumn(COMMON_COLUMNS, "geom");
+	static final String[] NODE_COLUMNS = appendColumn(COMMON_COLUMNS, "geom");
 	private static final String[] WAY_COLUMNS = appendColumn(COMMON_COLUMNS, "nodes");
-	private static final String[] RELATION_COLUMNS = COMMON_COLUMNS;
+	static final String[] RELATION_COLUMNS = COMMON_COLUMNS;
+	
+	
+	/**
+	 * Gets the columns of the way table to be loaded, these depend on the
+	 * optional geometry columns present in the database.
+	 * 
+	 * @param capabilityChecker
+	 *            Identifies the optional columns supported by the database.
+	 * @return The way columns.
+	 */
+	static String[] getWayColumns(DatabaseCapabilityChecker capabilityChecker) {
+		String[] wayColumns;
+		
+		wayColumns = WAY_COLUMNS;
+		if (capabilityChecker.isWayBboxSupported()) {
+			wayColumns = appendColumn(wayColumns, "bbox");
+		}
+		if (capabilityChecker.isWayLinestringSupported()) {
+			wayColumns = appendColumn(wayColumns, "linestring");
+		}
+		
+		return wayColumns;
+	}
 	
 	
 	private DatabaseLoginCredentials loginCredentials;
@@ -76,13 +99,7 @@ public class CopyFilesetLoader implements Runnable {
 			new SchemaVersionValidator(dbCtx.getJdbcTemplate(), preferences)
 				.validateVersion(PostgreSqlVersionConstants.SCHEMA_VERSION);
 			
-			wayColumns = WAY_COLUMNS;
-			if (capabilityChecker.isWayBboxSupported()) {
-				wayColumns = appendColumn(wayColumns, "bbox");
-			}
-			if (capabilityChecker.isWayLinestringSupported()) {
-				wayColumns = appendColumn(wayColumns, "linestring");
-			}
+			wayColumns = getWayColumns(capabilityChecker);
     		
     		indexManager = new IndexManager(dbCtx, false, false);
     		
@@ -0,0 +1,346 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.database.DatabaseLoginCredentials;
+import org.openstreetmap.osmosis.core.database.DatabasePreferences;
+import org.openstreetmap.osmosis.core.lifecycle.Completable;
+import org.openstreetmap.osmosis.pgsnapshot.common.BinaryCopyWriter;
+import org.openstreetmap.osmosis.pgsnapshot.common.CopyWriter;
+import org.openstreetmap.osmosis.pgsnapshot.common.DatabaseContext;
+import org.openstreetmap.osmosis.pgsnapshot.common.SchemaVersionValidator;
+import org.openstreetmap.osmosis.pgsnapshot.v0_6.PostgreSqlVersionConstants;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+
+
+/**
+ * Loads data directly into a database without the use of intermediate COPY
+ * files. A COPY statement in the binary format is started for each table on
+ * its own connection, and the writers provided by this class stream records
+ * into them as they are produced. Indexes and constraints are dropped before
+ * the load begins and recreated once all tables have been loaded.
+ * <p>
+ * Every COPY is ended before any table is committed, so a data error in any
+ * table leaves all tables unchanged. The dropped indexes are restored if the
+ * load fails or the JVM shuts down before it completes. If they cannot be
+ * restored, or the process is killed outright, the next load refuses to start
+ * until they have been recreated.
+ */
+public class CopyStreamLoader implements Completable {
+
+	private static final Logger LOG = Logger.getLogger(CopyStreamLoader.class.getName());
+
+
+	private DatabaseLoginCredentials loginCredentials;
+	private DatabaseContext controlCtx;
+	private IndexManager indexManager;
+	private boolean indexesDropped;
+	private List<DatabaseContext> tableContexts;
+	private List<PGCopyOutputStream> copyStreams;
+	private List<Integer> backendPids;
+	private Thread shutdownHook;
+	private CopyWriter userWriter;
+	private CopyWriter nodeWriter;
+	private CopyWriter wayWriter;
+	private CopyWriter wayNodeWriter;
+	private CopyWriter relationWriter;
+	private CopyWriter relationMemberWriter;
+
+
+	/**
+	 * Creates a new instance. The database is prepared for loading and the
+	 * COPY statements are started immediately.
+	 *
+	 * @param loginCredentials
+	 *            Contains all information required to connect to the database.
+	 * @param preferences
+	 *            Contains preferences configuring database behaviour.
+	 */
+	public CopyStreamLoader(DatabaseLoginCredentials loginCredentials, DatabasePreferences preferences) {
+		this.loginCredentials = loginCredentials;
+
+		tableContexts = new ArrayList<DatabaseContext>();
+		copyStreams = new ArrayList<PGCopyOutputStream>();
+		backendPids = new ArrayList<Integer>();
+
+		try {
+			DatabaseCapabilityChecker capabilityChecker;
+
+			controlCtx = new DatabaseContext(loginCredentials);
+			capabilityChecker = new DatabaseCapabilityChecker(controlCtx);
+
+			controlCtx.beginTransaction();
+			new SchemaVersionValidator(controlCtx.getJdbcTemplate(), preferences)
+				.validateVersion(PostgreSqlVersionConstants.SCHEMA_VERSION);
+			verifyPrimaryKeys();
+
+			shutdownHook = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					abortLoad();
+				}
+			}, "copy-stream-loader-shutdown");
+			Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+			dropIndexes();
+
+			userWriter = openTable("users");
+			nodeWriter = openTable("nodes", CopyFilesetLoader.NODE_COLUMNS);
+			wayWriter = openTable("ways", CopyFilesetLoader.getWayColumns(capabilityChecker));
+			wayNodeWriter = openTable("way_nodes");
+			relationWriter = openTable("relations", CopyFilesetLoader.RELATION_COLUMNS);
+			relationMemberWriter = openTable("relation_members");
+
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+
+	private void verifyPrimaryKeys() {
+		int keyCount = controlCtx.getJdbcTemplate().queryForObject(
+				"SELECT count(*) FROM pg_constraint WHERE conrelid = 'nodes'::regclass AND contype = 'p'",
+				Integer.class);
+
+		if (keyCount == 0) {
+			throw new OsmosisRuntimeException(
+					"The nodes table has no primary key, a previous load may have been interrupted before"
+					+ " restoring its indexes. Recreate the constraints and indexes from the schema script"
+					+ " before loading.");
+		}
+	}
+
+
+	private synchronized void dropIndexes() {
+		// The tables are loaded on other connections so the indexes must be
+		// dropped in a separate transaction to avoid lock conflicts.
+		indexManager = new IndexManager(controlCtx, false, false);
+		indexManager.prepareForLoad();
+		controlCtx.commitTransaction();
+		indexesDropped = true;
+	}
+
+
+	private synchronized void restoreIndexes() {
+		// The transaction is rolled back on failure so that another attempt
+		// can be made when the loader is closed.
+		controlCtx.executeWithinTransaction(new TransactionCallback<Object>() {
+			@Override
+			public Object doInTransaction(TransactionStatus status) {
+				indexManager.completeAfterLoad();
+				return null;
+			}
+		});
+		indexesDropped = false;
+	}
+
+
+	private synchronized CopyWriter openTable(String tableName, String ... columns) {
+		DatabaseContext dbCtx;
+		PGCopyOutputStream copyStream;
+
+		LOG.finer("Beginning load of table " + tableName + ".");
+
+		dbCtx = new DatabaseContext(loginCredentials);
+		tableContexts.add(dbCtx);
+
+		dbCtx.beginTransaction();
+		backendPids.add(dbCtx.getJdbcTemplate().queryForObject("SELECT pg_backend_pid()", Integer.class));
+		copyStream = dbCtx.openBinaryCopyStream(tableName, columns);
+		copyStreams.add(copyStream);
+
+		return new BinaryCopyWriter(copyStream);
+	}
+
+
+	/**
+	 * Gets the writer for the users table.
+	 *
+	 * @return The writer.
+	 */
+	public CopyWriter getUserWriter() {
+		return userWriter;
+	}
+
+
+	/**
+	 * Gets the writer for the nodes table.
+	 *
+	 * @return The writer.
+	 */
+	public CopyWriter getNodeWriter() {
+		return nodeWriter;
+	}
+
+
+	/**
+	 * Gets the writer for the ways table.
+	 *
+	 * @return The writer.
+	 */
+	public CopyWriter getWayWriter() {
+		return wayWriter;
+	}
+
+
+	/**
+	 * Gets the writer for the way nodes table.
+	 *
+	 * @return The writer.
+	 */
+	public CopyWriter getWayNodeWriter() {
+		return wayNodeWriter;
+	}
+
+
+	/**
+	 * Gets the writer for the relations table.
+	 *
+	 * @return The writer.
+	 */
+	public CopyWriter getRelationWriter() {
+		return relationWriter;
+	}
+
+
+	/**
+	 * Gets the writer for the relation members table.
+	 *
+	 * @return The writer.
+	 */
+	public CopyWriter getRelationMemberWriter() {
+		return relationMemberWriter;
+	}
+
+
+	/**
+	 * Commits the loaded tables and rebuilds the indexes. All writers must
+	 * have been completed before this is called.
+	 */
+	@Override
+	public void complete() {
+		commitLoad();
+
+		LOG.fine("Clustering database.");
+		controlCtx.getJdbcTemplate().update("CLUSTER");
+
+		LOG.fine("Vacuuming database.");
+		controlCtx.getJdbcTemplate().update("VACUUM ANALYZE");
+
+		LOG.fine("Complete.");
+	}
+
+
+	private synchronized void commitLoad() {
+		if (!indexesDropped) {
+			throw new OsmosisRuntimeException("The load has been aborted.");
+		}
+
+		// End every COPY before committing anything so that an error in any
+		// table is reported while all tables can still be rolled back.
+		LOG.finer("Ending table loads.");
+		for (PGCopyOutputStream copyStream : copyStreams) {
+			try {
+				copyStream.endCopy();
+			} catch (SQLException e) {
+				throw new OsmosisRuntimeException("Unable to complete COPY.", e);
+			}
+		}
+
+		LOG.finer("Committing table loads.");
+		for (DatabaseContext dbCtx : tableContexts) {
+			dbCtx.commitTransaction();
+		}
+
+		LOG.fine("Data load complete.");
+
+		// Add all constraints and indexes.
+		restoreIndexes();
+	}
+
+
+	/**
+	 * Invoked if the JVM shuts down during the load. The table loads are
+	 * terminated on the server because their connections may be in use by the
+	 * loading thread, and the indexes are then restored.
+	 */
+	private synchronized void abortLoad() {
+		if (!indexesDropped) {
+			return;
+		}
+
+		LOG.warning("Shutting down before the load completed, restoring indexes.");
+		try {
+			for (int backendPid : backendPids) {
+				controlCtx.getJdbcTemplate().queryForObject(
+						"SELECT pg_terminate_backend(?)", Boolean.class, backendPid);
+			}
+			restoreIndexes();
+
+		} catch (RuntimeException e) {
+			LOG.log(Level.SEVERE, "Unable to restore indexes, they must be recreated before the next load.", e);
+		}
+	}
+
+
+	/**
+	 * Abandons any incomplete load and releases all database resources. If the
+	 * load didn't complete the dropped indexes are recreated.
+	 */
+	@Override
+	public synchronized void close() {
+		if (shutdownHook != null) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException e) {
+				// The JVM is already shutting down, the hook has nothing left to do.
+			}
+			shutdownHook = null;
+		}
+
+		for (PGCopyOutputStream copyStream : copyStreams) {
+			try {
+				if (copyStream.isActive()) {
+					copyStream.cancelCopy();
+				}
+			} catch (SQLException | RuntimeException e) {
+				LOG.log(Level.WARNING, "Unable to cancel COPY.", e);
+			}
+		}
+		copyStreams.clear();
+
+		for (DatabaseContext dbCtx : tableContexts) {
+			try {
+				dbCtx.close();
+			} catch (RuntimeException e) {
+				LOG.log(Level.WARNING, "Unable to close table connection.", e);
+			}
+		}
+		tableContexts.clear();
+		backendPids.clear();
+
+		if (controlCtx != null) {
+			try {
+				if (indexesDropped) {
+					LOG.warning("The load did not complete, restoring indexes.");
+					restoreIndexes();
+				}
+			} catch (RuntimeException e) {
+				throw new OsmosisRuntimeException(
+						"Unable to restore indexes after an incomplete load, they must be recreated manually.", e);
+			} finally {
+				controlCtx.close();
+				controlCtx = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,62 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.v0_6.impl;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.task.common.ChangeAction;
+
+
+/**
+ * Applies entity changes to a database.
+ */
+public interface EntityChangeWriter {
+
+	/**
+	 * Writes the specified node change to the database.
+	 * 
+	 * @param node
+	 *            The node to be written.
+	 * @param action
+	 *            The change to be applied.
+	 */
+	void write(Node node, ChangeAction action);
+
+
+	/**
+	 * Writes the specified way change to the database.
+	 * 
+	 * @param way
+	 *            The way to be written.
+	 * @param action
+	 *            The change to be applied.
+	 * @param keepInvalidWays
+	 *            If true, zero and single node ways are kept. Otherwise they are
+	 *            silently dropped to avoid putting invalid geometries into the 
+	 *            database which can cause problems with postgis functions.
+	 */
+	void write(Way way, ChangeAction action, boolean keepInvalidWays);
+
+
+	/**
+	 * Writes the specified relation change to the database.
+	 * 
+	 * @param relation
+	 *            The relation to be written.
+	 * @param action
+	 *            The change to be applied.
+	 */
+	void write(Relation relation, ChangeAction action);
+
+
+	/**
+	 * Performs post-change database updates.
+	 */
+	void complete();
+
+
+	/**
+	 * Releases all resources.
+	 */
+	void release();
+}
@@ -0,0 +1,131 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.hstore.PGHStore;
+
+
+/**
+ * Tests the binary COPY writer.
+ */
+public class BinaryCopyWriterTest {
+
+	private static final byte[] SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+
+
+	private ByteBuffer readHeader(ByteArrayOutputStream out) {
+		ByteBuffer data = ByteBuffer.wrap(out.toByteArray());
+		byte[] signature = new byte[SIGNATURE.length];
+
+		data.get(signature);
+		Assert.assertArrayEquals("Incorrect signature.", SIGNATURE, signature);
+		Assert.assertEquals("Incorrect flags.", 0, data.getInt());
+		Assert.assertEquals("Incorrect header extension length.", 0, data.getInt());
+
+		return data;
+	}
+
+
+	private String readString(ByteBuffer data, int length) {
+		byte[] bytes = new byte[length];
+
+		data.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Verifies that simple values are encoded correctly.
+	 */
+	@Test
+	public void testSimpleFields() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryCopyWriter writer = new BinaryCopyWriter(out);
+		Calendar calendar = Calendar.getInstance();
+		ByteBuffer data;
+
+		// Timestamps are written as the local time.
+		calendar.clear();
+		calendar.set(2000, Calendar.JANUARY, 1, 0, 0, 1);
+
+		writer.writeField(true);
+		writer.writeField(3);
+		writer.writeField(4000000000L);
+		writer.writeField("é\t");
+		writer.writeField((String) null);
+		writer.writeField(calendar.getTime());
+		writer.endRecord();
+		writer.complete();
+
+		data = readHeader(out);
+		Assert.assertEquals("Incorrect field count.", 6, data.getShort());
+		Assert.assertEquals(1, data.getInt());
+		Assert.assertEquals(1, data.get());
+		Assert.assertEquals(4, data.getInt());
+		Assert.assertEquals(3, data.getInt());
+		Assert.assertEquals(8, data.getInt());
+		Assert.assertEquals(4000000000L, data.getLong());
+		Assert.assertEquals(3, data.getInt());
+		Assert.assertEquals("é\t", readString(data, 3));
+		Assert.assertEquals("Null should have a negative length.", -1, data.getInt());
+		Assert.assertEquals(8, data.getInt());
+		Assert.assertEquals("Incorrect timestamp.", 1000000, data.getLong());
+		Assert.assertEquals("Incorrect trailer.", -1, data.getShort());
+		Assert.assertFalse("Unexpected data after the trailer.", data.hasRemaining());
+	}
+
+
+	/**
+	 * Verifies that hstore and array values are encoded correctly.
+	 */
+	@Test
+	public void testCompositeFields() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryCopyWriter writer = new BinaryCopyWriter(out);
+		ByteBuffer data;
+
+		writer.writeField(new PGHStore(Collections.singletonMap("name", "x")));
+		writer.writeField(Arrays.asList(5L, 6L));
+		writer.endRecord();
+		writer.writeField(Collections.<Long>emptyList());
+		writer.endRecord();
+		writer.complete();
+
+		data = readHeader(out);
+		Assert.assertEquals(2, data.getShort());
+		Assert.assertEquals("Incorrect hstore length.", 17, data.getInt());
+		Assert.assertEquals("Incorrect hstore size.", 1, data.getInt());
+		Assert.assertEquals(4, data.getInt());
+		Assert.assertEquals("name", readString(data, 4));
+		Assert.assertEquals(1, data.getInt());
+		Assert.assertEquals("x", readString(data, 1));
+		Assert.assertEquals("Incorrect array length.", 44, data.getInt());
+		Assert.assertEquals("Incorrect dimension count.", 1, data.getInt());
+		Assert.assertEquals(0, data.getInt());
+		Assert.assertEquals("Incorrect element type.", 20, data.getInt());
+		Assert.assertEquals("Incorrect array size.", 2, data.getInt());
+		Assert.assertEquals("Incorrect lower bound.", 1, data.getInt());
+		Assert.assertEquals(8, data.getInt());
+		Assert.assertEquals(5, data.getLong());
+		Assert.assertEquals(8, data.getInt());
+		Assert.assertEquals(6, data.getLong());
+
+		Assert.assertEquals(1, data.getShort());
+		Assert.assertEquals("Incorrect empty array length.", 12, data.getInt());
+		Assert.assertEquals("Empty arrays have no dimensions.", 0, data.getInt());
+		Assert.assertEquals(0, data.getInt());
+		Assert.assertEquals(20, data.getInt());
+
+		Assert.assertEquals("Incorrect trailer.", -1, data.getShort());
+		Assert.assertFalse("Unexpected data after the trailer.", data.hasRemaining());
+	}
+}
@@ -77,6 +77,63 @@ public class PostgreSqlTest extends AbstractDataTest {
 	}
 	
 	
+	/**
+	 * A test loading an osm file into a pgsql database by streaming binary COPY
+	 * data, then dumping it again and verifying that it is identical.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testStreamLoadAndDump() throws IOException {
+		File authFile;
+		File inputFile;
+		File outputFile;
+		
+		// Generate input files.
+		authFile = getAuthFile("v0_6/pgsql-authfile.txt");
+		inputFile = dataUtils.createDataFile("v0_6/db-snapshot.osm");
+		outputFile = dataUtils.newFile();
+		
+		// Remove all existing data from the database.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--truncate-pgsql-0.6",
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Load the database with a dataset.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--write-pgsql-0.6",
+				"authFile=" + authFile.getPath(),
+				"streamCopy=yes"
+			}
+		);
+		
+		// Dump the database to an osm file.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-pgsql-0.6",
+				"authFile=" + authFile.getPath(),
+				"--dataset-dump-0.6",
+				"--tag-sort-0.6",
+				"--write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputFile, outputFile);
+	}
+	
+	
 	/**
 	 * A test loading an osm file into a pgsql database, then applying a
 	 * changeset, then dumping it again and verifying the output is as expected.
@@ -149,6 +206,80 @@ public class PostgreSqlTest extends AbstractDataTest {
 	}
 
 
+	/**
+	 * A test loading an osm file into a pgsql database, then applying a
+	 * changeset in batched mode, then dumping it again and verifying the output is
+	 * the same as when changes are applied individually.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testChangesetBatched() throws IOException {
+		File authFile;
+		File snapshotFile;
+		File changesetFile;
+		File expectedResultFile;
+		File actualResultFile;
+		
+		// Generate input files.
+		authFile = getAuthFile("v0_6/pgsql-authfile.txt");
+		snapshotFile = dataUtils.createDataFile("v0_6/db-snapshot.osm");
+		changesetFile = dataUtils.createDataFile("v0_6/db-changeset.osc");
+		expectedResultFile = dataUtils.createDataFile("v0_6/db-changeset-expected.osm");
+		actualResultFile = dataUtils.newFile();
+		
+		// Remove all existing data from the database.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--truncate-pgsql-0.6",
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Load the database with the snapshot file.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				snapshotFile.getPath(),
+				"--write-pgsql-0.6",
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Apply the changeset file to the database.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-change-0.6",
+				changesetFile.getPath(),
+				"--write-pgsql-change-0.6",
+				"keepInvalidWays=false", 
+				"batchChanges=true", 
+				"authFile=" + authFile.getPath()
+			}
+		);
+		
+		// Dump the database to an osm file.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-pgsql-0.6",
+				"authFile=" + authFile.getPath(),
+				"--dataset-dump-0.6",
+				"--tag-sort-0.6",
+				"--write-xml-0.6",
+				actualResultFile.getPath()
+			}
+		);
+		
+		// Validate that the dumped file matches the expected result.
+		dataUtils.compareFiles(expectedResultFile, actualResultFile);
+	}
+
+
 	/**
 	 * A test loading an osm file into a pgsql database, then making some modifications via the
 	 * dataset api, then dumping it again and verifying the output is as expected.
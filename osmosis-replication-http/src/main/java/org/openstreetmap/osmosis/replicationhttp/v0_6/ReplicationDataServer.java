@@ -28,10 +28,12 @@ public class ReplicationDataServer implements RunnableTask {
 	private int notificationPort;
 	private File dataDirectory;
 	private int port;
+	private long cacheSize;
 
 
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance. Replication data is not cached and is sent
+	 * directly from disk.
 	 * 
 	 * @param notificationPort
 	 *            The port to connect to for notification updates.
@@ -41,9 +43,28 @@ public class ReplicationDataServer implements RunnableTask {
 	 *            The port to listen on.
 	 */
 	public ReplicationDataServer(int notificationPort, File dataDirectory, int port) {
+		this(notificationPort, dataDirectory, port, 0);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param notificationPort
+	 *            The port to connect to for notification updates.
+	 * @param dataDirectory
+	 *            The location of the replication data and state files.
+	 * @param port
+	 *            The port to listen on.
+	 * @param cacheSize
+	 *            The maximum number of bytes of recently served replication
+	 *            data to hold in memory.
+	 */
+	public ReplicationDataServer(int notificationPort, File dataDirectory, int port, long cacheSize) {
 		this.notificationPort = notificationPort;
 		this.dataDirectory = dataDirectory;
 		this.port = port;
+		this.cacheSize = cacheSize;
 	}
 
 
@@ -70,7 +91,7 @@ public class ReplicationDataServer implements RunnableTask {
 	public void run() {
 		// Instantiate the replication data server.
 		final SequenceServer server = new SequenceServer(port, new ReplicationDataServerChannelPipelineFactory(
-				dataDirectory));
+				dataDirectory, cacheSize));
 
 		// Configure a listener to send sequence number events from the
 		// client to the server.
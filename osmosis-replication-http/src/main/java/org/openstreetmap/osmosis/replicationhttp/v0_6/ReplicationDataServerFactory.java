@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.replicationhttp.v0_6;
 
 import java.io.File;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.pipeline.common.RunnableTaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
@@ -18,9 +19,11 @@ public class ReplicationDataServerFactory extends TaskManagerFactory {
 	private static final String ARG_NOTIFICATION_PORT = "notificationPort";
 	private static final String ARG_DATA_DIRECTORY = "dataDirectory";
 	private static final String ARG_PORT = "port";
+	private static final String ARG_CACHE_SIZE_MB = "cacheSizeMB";
 	private static final int DEFAULT_NOTIFICATION_PORT = 0;
 	private static final String DEFAULT_DATA_DIRECTORY = "./";
 	private static final int DEFAULT_PORT = 0;
+	private static final int DEFAULT_CACHE_SIZE_MB = 0;
 
 
 	/**
@@ -32,19 +35,25 @@ public class ReplicationDataServerFactory extends TaskManagerFactory {
 		String dataDirectoryString;
 		File dataDirectory;
 		int notificationPort;
+		int cacheSizeMB;
 
 		// Get the task arguments.
 		port = getIntegerArgument(taskConfig, ARG_PORT, DEFAULT_PORT);
 		dataDirectoryString = getStringArgument(taskConfig, ARG_DATA_DIRECTORY,
 				getDefaultStringArgument(taskConfig, DEFAULT_DATA_DIRECTORY));
 		notificationPort = getIntegerArgument(taskConfig, ARG_NOTIFICATION_PORT, DEFAULT_NOTIFICATION_PORT);
+		cacheSizeMB = getIntegerArgument(taskConfig, ARG_CACHE_SIZE_MB, DEFAULT_CACHE_SIZE_MB);
+		if (cacheSizeMB < 0) {
+			throw new OsmosisRuntimeException("Argument " + ARG_CACHE_SIZE_MB + " for task " + taskConfig.getId()
+					+ " must be zero or greater.");
+		}
 
 		// Convert argument strings to strongly typed objects.
 		dataDirectory = new File(dataDirectoryString);
 
 		return new RunnableTaskManager(
 			taskConfig.getId(),
-			new ReplicationDataServer(notificationPort, dataDirectory, port),
+			new ReplicationDataServer(notificationPort, dataDirectory, port, cacheSizeMB * 1024L * 1024L),
 			taskConfig.getPipeArgs()
 		);
 	}
@@ -11,7 +11,7 @@ import java.io.File;
  */
 public class ReplicationDataServerChannelPipelineFactory extends SequenceServerChannelPipelineFactory {
 	
-	private File dataDirectory;
+	private ReplicationFileCache fileCache;
 
 
 	/**
@@ -19,14 +19,18 @@ public class ReplicationDataServerChannelPipelineFactory extends SequenceServerC
 	 * 
 	 * @param dataDirectory
 	 *            The location of the replication data files.
+	 * @param cacheSize
+	 *            The maximum number of bytes of replication data to cache in
+	 *            memory.
 	 */
-	public ReplicationDataServerChannelPipelineFactory(File dataDirectory) {
-		this.dataDirectory = dataDirectory;
+	public ReplicationDataServerChannelPipelineFactory(File dataDirectory, long cacheSize) {
+		// A single cache is shared by all connections.
+		fileCache = new ReplicationFileCache(dataDirectory, cacheSize);
 	}
 
 
 	@Override
 	protected SequenceServerHandler createHandler(SequenceServerControl control) {
-		return new ReplicationDataServerHandler(control, dataDirectory);
+		return new ReplicationDataServerHandler(control, fileCache);
 	}
 }
@@ -5,7 +5,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -24,21 +23,19 @@ import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.Channels;
-import org.jboss.netty.channel.WriteCompletionEvent;
+import org.jboss.netty.channel.DefaultFileRegion;
 import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.util.CharsetUtil;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
-import org.openstreetmap.osmosis.core.util.PropertiesPersister;
-import org.openstreetmap.osmosis.replication.common.ReplicationSequenceFormatter;
-import org.openstreetmap.osmosis.replication.common.ReplicationState;
 
 
 /**
  * A sequence server handler implementation that sends the replication data
- * associated with sequence numbers.
+ * associated with sequence numbers. Recently used files are served from a
+ * cache shared with other connections, and data files too large to be cached
+ * are transferred directly from the file system to the socket.
  * 
  * @author Brett Henderson
  */
@@ -46,14 +43,9 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 
 	private static final Logger LOG = Logger.getLogger(ReplicationDataServerHandler.class.getName());
 	private static final String REQUEST_DATE_FORMAT = "yyyy-MM-dd-HH-mm-ss";
-	private static final int CHUNK_SIZE = 4096;
 
-	private File dataDirectory;
-	private ReplicationSequenceFormatter sequenceFormatter;
-	private FileChannel chunkedFileChannel;
-	private boolean fileSizeSent;
+	private ReplicationFileCache fileCache;
 	private boolean includeData;
-	private ChannelFuture sequenceFuture;
 
 
 	/**
@@ -61,15 +53,13 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 	 * 
 	 * @param control
 	 *            Provides the Netty handlers with access to the controller.
-	 * @param dataDirectory
-	 *            The directory containing the replication data files.
+	 * @param fileCache
+	 *            Provides access to the replication data files.
 	 */
-	public ReplicationDataServerHandler(SequenceServerControl control, File dataDirectory) {
+	public ReplicationDataServerHandler(SequenceServerControl control, ReplicationFileCache fileCache) {
 		super(control);
 
-		this.dataDirectory = dataDirectory;
-
-		sequenceFormatter = new ReplicationSequenceFormatter(9, 3);
+		this.fileCache = fileCache;
 	}
 
 
@@ -82,31 +72,13 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 	}
 
 
-	private File getStateFile(long sequenceNumber) {
-		return new File(dataDirectory, sequenceFormatter.getFormattedName(sequenceNumber, ".state.txt"));
-	}
-
-
-	private File getDataFile(long sequenceNumber) {
-		return new File(dataDirectory, sequenceFormatter.getFormattedName(sequenceNumber, ".osc.gz"));
-	}
-
-
-	private ReplicationState getReplicationState(long sequenceNumber) {
-		PropertiesPersister persister = new PropertiesPersister(getStateFile(sequenceNumber));
-		ReplicationState state = new ReplicationState();
-		state.load(persister.loadMap());
-
-		return state;
-	}
-
-
 	/**
 	 * Search through the replication state records and find the nearest
 	 * replication number with a timestamp earlier or equal to the requested
 	 * date. It is not sufficient to find the minimum known sequence record with
 	 * a timestamp greater than the requested date because there may be missing
-	 * replication records in between.
+	 * replication records in between. Timestamps are held in the shared cache
+	 * so repeated searches rarely need to read state files.
 	 * 
 	 * @param lastDate
 	 *            The last date known by the client.
@@ -120,7 +92,7 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 		// timestamp we should return our latest sequence number so that the
 		// client will start receiving all new records as they arrive with
 		// possibly some duplicated change records.
-		if (lastDate.compareTo(getReplicationState(endBound).getTimestamp()) >= 0) {
+		if (lastDate.compareTo(fileCache.getTimestamp(endBound)) >= 0) {
 			return endBound;
 		}
 
@@ -132,14 +104,15 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 
 			// If the midpoint doesn't exist we need to reset the start bound to
 			// the midpoint and search again.
-			if (!getStateFile(midPoint).exists()) {
+			Date midPointTimestamp = fileCache.getTimestamp(midPoint);
+			if (midPointTimestamp == null) {
 				startBound = midPoint;
 				continue;
 			}
 
 			// If the midpoint timestamp is greater we search in the lower half,
 			// otherwise the higher half.
-			int comparison = lastDate.compareTo(getReplicationState(midPoint).getTimestamp());
+			int comparison = lastDate.compareTo(midPointTimestamp);
 			if (comparison == 0) {
 				// We have an exact match so stop processing now.
 				return midPoint;
@@ -161,8 +134,8 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 		// We only have one possibility remaining which is the start bound. This
 		// is the requested record if it exists and has a timestamp less than or
 		// equal to that requested.
-		if (getStateFile(startBound).exists()
-				&& lastDate.compareTo(getReplicationState(startBound).getTimestamp()) >= 0) {
+		Date startBoundTimestamp = fileCache.getTimestamp(startBound);
+		if (startBoundTimestamp != null && lastDate.compareTo(startBoundTimestamp) >= 0) {
 			return startBound;
 		} else {
 			// We cannot find any replication records with an early enough date.
@@ -182,88 +155,36 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 	}
 
 
-	private ChannelBuffer readFromFile(FileChannel fileChannel, int bytesToRead) {
-		try {
-			// Allocate a buffer for the data to be read.
-			byte[] rawBuffer = new byte[bytesToRead];
-
-			// Copy data into the buffer using NIO.
-			ByteBuffer nioBuffer = ByteBuffer.wrap(rawBuffer);
-			for (int bytesRead = 0; bytesRead < bytesToRead;) {
-				int lastBytesRead = fileChannel.read(nioBuffer);
-
-				// We always expect to read data.
-				if (lastBytesRead < 0) {
-					throw new OsmosisRuntimeException("Unexpectedly reached the end of the replication data file");
-				}
-				if (lastBytesRead == 0) {
-					throw new OsmosisRuntimeException("Last read of the replication data file returned 0 bytes");
-				}
-
-				bytesRead += lastBytesRead;
-			}
-
-			// Create and return a Netty buffer.
-			return ChannelBuffers.wrappedBuffer(rawBuffer);
-
-		} catch (IOException e) {
-			throw new OsmosisRuntimeException("Unable to read from the replication data file", e);
-		}
+	private ChannelBuffer buildChunkHeader(long chunkSize) {
+		return ChannelBuffers.copiedBuffer(Long.toString(chunkSize) + "\r\n", CharsetUtil.UTF_8);
 	}
 
 
-	private ChannelBuffer loadFile(File file) {
-		try (FileChannel fileChannel = openFileChannel(file)) {
-			if (fileChannel.size() > Integer.MAX_VALUE) {
-				throw new OsmosisRuntimeException("Maximum file size supported is " + Integer.MAX_VALUE + " bytes");
-			}
-
-			// Determine the size of the file.
-			int fileSize = (int) fileChannel.size();
-
-			// Read the entire file.
-			ChannelBuffer buffer = readFromFile(fileChannel, fileSize);
-
-			// We no longer need access to the file.
-			fileChannel.close();
-
-			return buffer;
+	/**
+	 * Writes a data file as a single HTTP chunk using a file region so that
+	 * the data is transferred without being copied into the heap. File
+	 * regions bypass the HTTP encoder so the chunk framing is written
+	 * directly.
+	 */
+	private void writeFileRegion(ChannelHandlerContext ctx, ChannelFuture future, File file) {
+		FileChannel fileChannel = openFileChannel(file);
+		long fileSize;
 
+		try {
+			fileSize = fileChannel.size();
 		} catch (IOException e) {
+			try {
+				fileChannel.close();
+			} catch (IOException ex) {
+				LOG.log(Level.WARNING, "Unable to close the replication data file.", ex);
+			}
 			throw new OsmosisRuntimeException("Unable to read from file " + file, e);
 		}
-	}
-
-
-	private ChannelBuffer getFileChunk() {
-		try {
-			// Determine how many bytes are left in the file.
-			long remaining = chunkedFileChannel.size() - chunkedFileChannel.position();
-
-			// We will only send up to our maximum chunk size.
-			if (remaining > CHUNK_SIZE) {
-				remaining = CHUNK_SIZE;
-			}
-
-			// Read the next data for the next chunk.
-			ChannelBuffer buffer = readFromFile(chunkedFileChannel, (int) remaining);
-
-			// Close the file if we've reached the end.
-			if (chunkedFileChannel.position() >= chunkedFileChannel.size()) {
-				chunkedFileChannel.close();
-				chunkedFileChannel = null;
-			}
 
-			return buffer;
-
-		} catch (IOException e) {
-			throw new OsmosisRuntimeException("Unable to read from the replication data file", e);
-		}
-	}
-	
-	
-	private ChannelBuffer buildChunkHeader(long chunkSize) {
-		return ChannelBuffers.copiedBuffer(Long.toString(chunkSize) + "\r\n", CharsetUtil.UTF_8);
+		Channels.write(ctx, Channels.future(ctx.getChannel()),
+				ChannelBuffers.copiedBuffer(Long.toHexString(fileSize) + "\r\n", CharsetUtil.US_ASCII));
+		Channels.write(ctx, Channels.future(ctx.getChannel()), new DefaultFileRegion(fileChannel, 0, fileSize, true));
+		Channels.write(ctx, future, ChannelBuffers.copiedBuffer("\r\n", CharsetUtil.US_ASCII));
 	}
 
 
@@ -361,100 +282,41 @@ public class ReplicationDataServerHandler extends SequenceServerHandler {
 
 	@Override
 	protected void writeSequence(ChannelHandlerContext ctx, ChannelFuture future, long sequenceNumber) {
-		// We do not support sending new replication data until the previous
-		// send has completed.
-		if (chunkedFileChannel != null) {
-			throw new OsmosisRuntimeException(
-					"We cannot send new replication data until the previous write has completed");
-		}
-		
 		if (LOG.isLoggable(Level.FINEST)) {
 			LOG.finest("Sequence being written, includeData=" + includeData + ", sequenceNumber="
 					+ sequenceNumber);
 		}
-		
-		// We must save the future to attach to the final write.
-		sequenceFuture = future;
 
-		// Get the name of the replication data file.
-		File stateFile = getStateFile(sequenceNumber);
-		File dataFile = getDataFile(sequenceNumber);
-
-		// Load the contents of the state file.
-		ChannelBuffer stateFileBuffer = loadFile(stateFile);
-		
-		// Add a chunk length header.
-		stateFileBuffer = ChannelBuffers.wrappedBuffer(buildChunkHeader(stateFileBuffer.readableBytes()),
-				stateFileBuffer);
+		// Load the contents of the state file and add a chunk length header.
+		byte[] stateFileData = fileCache.getStateFileData(sequenceNumber);
+		ChannelBuffer stateFileBuffer = ChannelBuffers.wrappedBuffer(buildChunkHeader(stateFileData.length),
+				ChannelBuffers.wrappedBuffer(stateFileData));
 
 		// Only include replication data if initially requested by the client
 		// and if this is not sequence 0.
-		if (includeData && sequenceNumber > 0) {
-			// Open the data file read for sending.
-			chunkedFileChannel = openFileChannel(dataFile);
-			fileSizeSent = false;
+		if (!includeData || sequenceNumber <= 0) {
+			Channels.write(ctx, future, new DefaultHttpChunk(stateFileBuffer));
+			return;
 		}
 
 		/*
-		 * Send the state file to the client. If replication data is to be sent
-		 * we will continue when we receive completion information via the
-		 * writeComplete method. We must create a new future now if we have more
-		 * data coming because we don't want the future of the current event to
+		 * Send the state file, the data file size, and the data file to the
+		 * client. Writes are queued by Netty and sent in order. The future of
+		 * the current event is attached to the final write so that it doesn't
 		 * fire until we're completely finished processing.
 		 */
-		ChannelFuture writeFuture;
-		if (chunkedFileChannel != null) {
-			writeFuture = Channels.future(ctx.getChannel());
+		Channels.write(ctx, Channels.future(ctx.getChannel()), new DefaultHttpChunk(stateFileBuffer));
+
+		File dataFile = fileCache.getDataFile(sequenceNumber);
+		byte[] data = fileCache.getDataFileData(sequenceNumber);
+		if (data != null) {
+			ChannelBuffer dataBuffer = ChannelBuffers.wrappedBuffer(buildChunkHeader(data.length),
+					ChannelBuffers.wrappedBuffer(data));
+			Channels.write(ctx, future, new DefaultHttpChunk(dataBuffer));
 		} else {
-			writeFuture = sequenceFuture;
-		}
-		Channels.write(ctx, writeFuture, new DefaultHttpChunk(stateFileBuffer));
-	}
-
-
-	@Override
-	public void writeComplete(ChannelHandlerContext ctx, WriteCompletionEvent e) throws Exception {
-		if (chunkedFileChannel != null) {
-			// We have an open file channel so we are still sending replication
-			// data.
-			ChannelBuffer buffer;
-			ChannelFuture future;
-			if (!fileSizeSent) {
-				// Send a chunk header containing the size of the file.
-				ChannelBuffer fileSizeBuffer = buildChunkHeader(chunkedFileChannel.size());
-				fileSizeSent = true;
-				future = Channels.future(ctx.getChannel());
-				buffer = fileSizeBuffer;
-			} else {
-				// Send the next chunk to the client.
-				buffer = getFileChunk();
-				if (chunkedFileChannel != null) {
-					future = Channels.future(ctx.getChannel());
-				} else {
-					// This is the last write for this sequence so attach the original future.
-					future = sequenceFuture;
-				}
-			}
-			
-			// Write the data to the channel.
-			Channels.write(ctx, future, new DefaultHttpChunk(buffer));
-		} else {
-			super.writeComplete(ctx, e);
-		}
-	}
-
-
-	@Override
-	public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
-		// Close the in-progress chunk file channel if it exists.
-		if (chunkedFileChannel != null) {
-			try {
-				chunkedFileChannel.close();
-			} catch (IOException ex) {
-				LOG.log(Level.WARNING, "Unable to close the replication data file.", ex);
-			}
-			chunkedFileChannel = null;
+			Channels.write(ctx, Channels.future(ctx.getChannel()),
+					new DefaultHttpChunk(buildChunkHeader(dataFile.length())));
+			writeFileRegion(ctx, future, dataFile);
 		}
-		super.channelClosed(ctx, e);
 	}
 }
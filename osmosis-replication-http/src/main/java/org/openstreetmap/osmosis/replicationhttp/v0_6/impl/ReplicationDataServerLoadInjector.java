@@ -0,0 +1,229 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replicationhttp.v0_6.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.replication.common.ServerStateReader;
+
+
+/**
+ * Very simple class for measuring the throughput of the replication data
+ * server. A server is started on a local port against an existing replication
+ * directory, and a number of client threads repeatedly request the replication
+ * data following a recent sequence number, as polling downstream replicas do.
+ * The first data files received by each client are compared against the
+ * files on disk.
+ * <p>
+ * The program arguments are the replication directory, the number of client
+ * threads (default 8), the number of requests per client (default 1000), the
+ * number of recent sequences requested (default 10), and the cache size in
+ * megabytes (default 64, or 0 to send all data files directly from disk).
+ */
+public final class ReplicationDataServerLoadInjector {
+
+	private ReplicationDataServerLoadInjector() {
+		// This class cannot be instantiated.
+	}
+
+
+	/**
+	 * Requests a sequence and returns the body of the response. The server
+	 * closes the connection after a single sequence without ending the chunked
+	 * response, so the response is read until the end of the stream and the
+	 * HTTP chunks are decoded here.
+	 */
+	private static byte[] readResponse(int port, long sequenceNumber) throws IOException {
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] response;
+		int[] position = new int[1];
+
+		try (Socket socket = new Socket("localhost", port)) {
+			OutputStream outputStream = socket.getOutputStream();
+			InputStream inputStream = socket.getInputStream();
+			byte[] buffer = new byte[65536];
+			int count;
+
+			outputStream.write(("GET /replicationData/" + sequenceNumber + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+					.getBytes(StandardCharsets.US_ASCII));
+			outputStream.flush();
+
+			while ((count = inputStream.read(buffer)) >= 0) {
+				received.write(buffer, 0, count);
+			}
+		}
+		response = received.toByteArray();
+
+		// Skip the headers.
+		while (!(response[position[0]] == '\r' && response[position[0] + 1] == '\n'
+				&& response[position[0] + 2] == '\r' && response[position[0] + 3] == '\n')) {
+			position[0]++;
+		}
+		position[0] += 4;
+
+		while (position[0] < response.length) {
+			int chunkLength = readLength(response, position, 16);
+
+			body.write(response, position[0], chunkLength);
+			position[0] += chunkLength + 2;
+		}
+
+		return body.toByteArray();
+	}
+
+
+	private static int readLength(byte[] response, int[] position, int radix) {
+		int start = position[0];
+		int end = start;
+
+		while (response[end] != '\r') {
+			end++;
+		}
+		position[0] = end + 2;
+
+		return Integer.parseInt(new String(response, start, end - start, StandardCharsets.US_ASCII), radix);
+	}
+
+
+	/**
+	 * Checks each data file in the response against the file on disk.
+	 */
+	private static void verifyResponse(ReplicationFileCache files, byte[] response) throws IOException {
+		int[] position = new int[1];
+
+		while (position[0] < response.length) {
+			int stateLength = readLength(response, position, 10);
+			String state = new String(response, position[0], stateLength, StandardCharsets.UTF_8);
+			long sequenceNumber = -1;
+			position[0] += stateLength;
+
+			for (String line : state.split("\n")) {
+				if (line.startsWith("sequenceNumber=")) {
+					sequenceNumber = Long.parseLong(line.substring("sequenceNumber=".length()).trim());
+				}
+			}
+
+			int dataLength = readLength(response, position, 10);
+			byte[] expected = Files.readAllBytes(files.getDataFile(sequenceNumber).toPath());
+			if (!Arrays.equals(expected, Arrays.copyOfRange(response, position[0], position[0] + dataLength))) {
+				throw new OsmosisRuntimeException("Data for sequence " + sequenceNumber + " is incorrect.");
+			}
+			position[0] += dataLength;
+		}
+	}
+
+
+	/**
+	 * Launches the application.
+	 *
+	 * @param args
+	 *            The program arguments.
+	 * @throws Exception
+	 *             if the server fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		final File dataDirectory;
+		final int requestCount;
+		final int window;
+		final long latestSequenceNumber;
+		final AtomicLong bytesReceived = new AtomicLong();
+		final AtomicLong failures = new AtomicLong();
+		int clientCount = 8;
+		int windowArg = 10;
+		int requestArg = 1000;
+		long cacheSize = 64L * 1024 * 1024;
+		SequenceServer server;
+		Thread[] clients;
+		long startTime;
+		long duration;
+
+		if (args.length < 1) {
+			System.err.println(
+					"Usage: ReplicationDataServerLoadInjector <dataDirectory> [clients] [requests] [window] [cacheMB]");
+			return;
+		}
+		dataDirectory = new File(args[0]);
+		if (args.length > 1) {
+			clientCount = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2) {
+			requestArg = Integer.parseInt(args[2]);
+		}
+		if (args.length > 3) {
+			windowArg = Integer.parseInt(args[3]);
+		}
+		if (args.length > 4) {
+			cacheSize = Long.parseLong(args[4]) * 1024 * 1024;
+		}
+		requestCount = requestArg;
+		window = windowArg;
+
+		latestSequenceNumber = new ServerStateReader().getServerState(dataDirectory.toURI().toURL())
+				.getSequenceNumber();
+		final ReplicationFileCache files = new ReplicationFileCache(dataDirectory, 0);
+
+		server = new SequenceServer(0, new ReplicationDataServerChannelPipelineFactory(dataDirectory, cacheSize));
+		server.start(latestSequenceNumber);
+		final int port = server.getPort();
+
+		try {
+			clients = new Thread[clientCount];
+			for (int i = 0; i < clientCount; i++) {
+				final Random random = new Random(i);
+
+				clients[i] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (int j = 0; j < requestCount; j++) {
+							long sequenceNumber = Math.max(0, latestSequenceNumber - 1 - random.nextInt(window));
+
+							try {
+								byte[] response = readResponse(port, sequenceNumber);
+
+								// Only check the first responses to avoid
+								// skewing the results.
+								if (j < 10) {
+									verifyResponse(files, response);
+								}
+								bytesReceived.addAndGet(response.length);
+
+							} catch (IOException | RuntimeException e) {
+								e.printStackTrace();
+								failures.incrementAndGet();
+							}
+						}
+					}
+				});
+			}
+
+			startTime = System.nanoTime();
+			for (Thread client : clients) {
+				client.start();
+			}
+			for (Thread client : clients) {
+				client.join();
+			}
+			duration = System.nanoTime() - startTime;
+
+		} finally {
+			server.stop();
+		}
+
+		System.out.println((clientCount * requestCount) + " requests with " + failures.get() + " failures in "
+				+ (duration / 1000000) + "ms.");
+		System.out.println("Requests per second: " + (clientCount * requestCount * 1000000000L / duration));
+		System.out.println("Megabytes per second: "
+				+ (bytesReceived.get() * 1000000000L / duration / (1024 * 1024)));
+	}
+}
@@ -0,0 +1,222 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replicationhttp.v0_6.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.util.PropertiesPersister;
+import org.openstreetmap.osmosis.replication.common.ReplicationSequenceFormatter;
+import org.openstreetmap.osmosis.replication.common.ReplicationState;
+
+
+/**
+ * Caches the contents of recently served replication files, shared by all
+ * connections to a replication data server. Replication files never change
+ * once the sequence number has been published, so entries never need to be
+ * invalidated. Most clients request the same few recent sequences, which are
+ * then served from memory.
+ * <p>
+ * Three least recently used caches are maintained. State file contents are
+ * limited by count, data file contents are limited by their total size, and
+ * state timestamps are held in a much larger index used to resolve requests
+ * by date without reading state files.
+ */
+public class ReplicationFileCache {
+
+	private static final int MAX_STATE_FILES = 1024;
+	private static final int MAX_TIMESTAMPS = 100000;
+	// A single data file may use no more than this fraction of the cache.
+	private static final int MAX_DATA_FILE_FRACTION = 8;
+
+	private File dataDirectory;
+	private ReplicationSequenceFormatter sequenceFormatter;
+	private long maxDataBytes;
+	private long dataBytes;
+	private Map<Long, byte[]> stateFiles;
+	private Map<Long, byte[]> dataFiles;
+	private Map<Long, Date> timestamps;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param dataDirectory
+	 *            The directory containing the replication data files.
+	 * @param maxDataBytes
+	 *            The maximum number of bytes of data file contents to hold.
+	 *            If 0, data files are never cached.
+	 */
+	public ReplicationFileCache(File dataDirectory, long maxDataBytes) {
+		this.dataDirectory = dataDirectory;
+		this.maxDataBytes = maxDataBytes;
+
+		sequenceFormatter = new ReplicationSequenceFormatter(9, 3);
+
+		stateFiles = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+				return size() > MAX_STATE_FILES;
+			}
+		};
+		timestamps = new LinkedHashMap<Long, Date>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Date> eldest) {
+				return size() > MAX_TIMESTAMPS;
+			}
+		};
+		dataFiles = new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+	}
+
+
+	/**
+	 * Gets the state file for a sequence number.
+	 *
+	 * @param sequenceNumber
+	 *            The sequence number.
+	 * @return The state file.
+	 */
+	public File getStateFile(long sequenceNumber) {
+		return new File(dataDirectory, sequenceFormatter.getFormattedName(sequenceNumber, ".state.txt"));
+	}
+
+
+	/**
+	 * Gets the data file for a sequence number.
+	 *
+	 * @param sequenceNumber
+	 *            The sequence number.
+	 * @return The data file.
+	 */
+	public File getDataFile(long sequenceNumber) {
+		return new File(dataDirectory, sequenceFormatter.getFormattedName(sequenceNumber, ".osc.gz"));
+	}
+
+
+	private static byte[] readFile(File file) {
+		try {
+			return Files.readAllBytes(file.toPath());
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read from file " + file, e);
+		}
+	}
+
+
+	/**
+	 * Gets the contents of the state file for a sequence number. The returned
+	 * array is shared and must not be modified.
+	 *
+	 * @param sequenceNumber
+	 *            The sequence number.
+	 * @return The state file contents.
+	 */
+	public byte[] getStateFileData(long sequenceNumber) {
+		byte[] data;
+
+		synchronized (stateFiles) {
+			data = stateFiles.get(sequenceNumber);
+		}
+
+		if (data == null) {
+			data = readFile(getStateFile(sequenceNumber));
+
+			synchronized (stateFiles) {
+				stateFiles.put(sequenceNumber, data);
+			}
+		}
+
+		return data;
+	}
+
+
+	/**
+	 * Gets the timestamp of a sequence number.
+	 *
+	 * @param sequenceNumber
+	 *            The sequence number.
+	 * @return The timestamp, or null if no state file exists for the sequence.
+	 */
+	public Date getTimestamp(long sequenceNumber) {
+		Date timestamp;
+		File stateFile;
+		ReplicationState state;
+
+		synchronized (timestamps) {
+			timestamp = timestamps.get(sequenceNumber);
+		}
+		if (timestamp != null) {
+			return timestamp;
+		}
+
+		// Missing files are not remembered because they may be created later.
+		stateFile = getStateFile(sequenceNumber);
+		if (!stateFile.exists()) {
+			return null;
+		}
+
+		state = new ReplicationState();
+		state.load(new PropertiesPersister(stateFile).loadMap());
+		timestamp = state.getTimestamp();
+
+		synchronized (timestamps) {
+			timestamps.put(sequenceNumber, timestamp);
+		}
+
+		return timestamp;
+	}
+
+
+	/**
+	 * Gets the contents of the data file for a sequence number if it is small
+	 * enough to be cached. The returned array is shared and must not be
+	 * modified.
+	 *
+	 * @param sequenceNumber
+	 *            The sequence number.
+	 * @return The data file contents, or null if the file is too large to be
+	 *         cached and should be read directly from disk.
+	 */
+	public byte[] getDataFileData(long sequenceNumber) {
+		byte[] data;
+		File dataFile;
+
+		synchronized (dataFiles) {
+			data = dataFiles.get(sequenceNumber);
+		}
+		if (data != null) {
+			return data;
+		}
+
+		dataFile = getDataFile(sequenceNumber);
+		if (dataFile.length() > maxDataBytes / MAX_DATA_FILE_FRACTION) {
+			return null;
+		}
+		data = readFile(dataFile);
+
+		synchronized (dataFiles) {
+			// Another thread may have loaded the same file in the meantime.
+			if (!dataFiles.containsKey(sequenceNumber)) {
+				dataFiles.put(sequenceNumber, data);
+				dataBytes += data.length;
+
+				for (Iterator<byte[]> i = dataFiles.values().iterator(); dataBytes > maxDataBytes;) {
+					dataBytes -= i.next().length;
+					i.remove();
+				}
+			}
+		}
+
+		return data;
+	}
+}
@@ -64,13 +64,17 @@ public class ReplicationTest extends AbstractDataTest {
 
 
 	/**
-	 * Single end to end test.
+	 * Runs replication data from a source through a HTTP data server and
+	 * client, and verifies that it reaches the destination.
 	 * 
+	 * @param cached
+	 *            If true, the data server caches recently served replication
+	 *            data in memory. Otherwise the default configuration is used
+	 *            which sends data files directly from disk.
 	 * @throws Exception
 	 *             if an error occurs during processing.
 	 */
-	@Test
-	public void test() throws Exception {
+	private void runEndToEnd(boolean cached) throws Exception {
 		final int sequenceCount = 100;
 		long timerStart;
 
@@ -103,7 +107,12 @@ public class ReplicationTest extends AbstractDataTest {
 		// Create a HTTP replication data server using the data from the
 		// replication writer, and receive sequence number updates from the
 		// sequence server.
-		ReplicationDataServer dataServer = new ReplicationDataServer(sequenceServer.getPort(), workingDir1, 0);
+		ReplicationDataServer dataServer;
+		if (cached) {
+			dataServer = new ReplicationDataServer(sequenceServer.getPort(), workingDir1, 0, 64L * 1024 * 1024);
+		} else {
+			dataServer = new ReplicationDataServer(sequenceServer.getPort(), workingDir1, 0);
+		}
 
 		// Start the HTTP data server.
 		TaskRunner serverRunner = new TaskRunner(dataServer, "data-server");
@@ -157,4 +166,30 @@ public class ReplicationTest extends AbstractDataTest {
 		serverRunner.join();
 		source.release();
 	}
+
+
+	/**
+	 * End to end test using the default server configuration which sends data
+	 * files directly from disk.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs during processing.
+	 */
+	@Test
+	public void test() throws Exception {
+		runEndToEnd(false);
+	}
+
+
+	/**
+	 * End to end test with the replication file cache enabled so that data
+	 * files are sent from memory.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs during processing.
+	 */
+	@Test
+	public void testCached() throws Exception {
+		runEndToEnd(true);
+	}
 }
@@ -0,0 +1,102 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replicationhttp.v0_6.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.util.PropertiesPersister;
+import org.openstreetmap.osmosis.replication.common.ReplicationState;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+
+
+/**
+ * Tests the replication file cache.
+ */
+public class ReplicationFileCacheTest extends AbstractDataTest {
+
+	private void writeSequence(ReplicationFileCache cache, long sequenceNumber, int dataSize) throws IOException {
+		File stateFile = cache.getStateFile(sequenceNumber);
+
+		stateFile.getParentFile().mkdirs();
+		new PropertiesPersister(stateFile).store(
+				new ReplicationState(new Date(sequenceNumber * 60000), sequenceNumber).store());
+		Files.write(cache.getDataFile(sequenceNumber).toPath(), new byte[dataSize]);
+	}
+
+
+	/**
+	 * Verifies that timestamps are read from state files and remain available
+	 * from the cache.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testTimestamps() throws IOException {
+		ReplicationFileCache cache = new ReplicationFileCache(dataUtils.newFolder(), 1024);
+
+		writeSequence(cache, 5, 10);
+
+		Assert.assertNull(cache.getTimestamp(4));
+		Assert.assertEquals(new Date(5 * 60000), cache.getTimestamp(5));
+
+		Assert.assertTrue(cache.getStateFile(5).delete());
+		Assert.assertEquals(new Date(5 * 60000), cache.getTimestamp(5));
+	}
+
+
+	/**
+	 * Verifies that only small data files are cached, and that the cache is
+	 * limited to its maximum size.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testDataFiles() throws IOException {
+		ReplicationFileCache cache = new ReplicationFileCache(dataUtils.newFolder(), 800);
+		byte[] firstData;
+
+		for (int i = 1; i <= 10; i++) {
+			writeSequence(cache, i, 100);
+		}
+		writeSequence(cache, 11, 101);
+
+		// Files larger than an eighth of the cache are sent from disk.
+		Assert.assertNull(cache.getDataFileData(11));
+
+		firstData = cache.getDataFileData(1);
+		Assert.assertEquals(100, firstData.length);
+		Assert.assertSame(firstData, cache.getDataFileData(1));
+
+		// Loading more files than the cache holds evicts the first.
+		for (int i = 2; i <= 10; i++) {
+			cache.getDataFileData(i);
+		}
+		Assert.assertNotSame(firstData, cache.getDataFileData(1));
+		Assert.assertArrayEquals(firstData, cache.getDataFileData(1));
+	}
+
+
+	/**
+	 * Verifies that state file contents are cached.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testStateFiles() throws IOException {
+		ReplicationFileCache cache = new ReplicationFileCache(dataUtils.newFolder(), 0);
+		byte[] stateData;
+
+		writeSequence(cache, 1, 10);
+
+		stateData = cache.getStateFileData(1);
+		Assert.assertArrayEquals(Files.readAllBytes(cache.getStateFile(1).toPath()), stateData);
+		Assert.assertSame(stateData, cache.getStateFileData(1));
+	}
+}
@@ -8,7 +8,8 @@ import java.util.Locale;
 
 
 /**
- * Formats replication sequence numbers into file names.
+ * Formats replication sequence numbers into file names. Instances may be
+ * shared between threads.
  */
 public class ReplicationSequenceFormatter {
 	
@@ -60,7 +61,7 @@ public class ReplicationSequenceFormatter {
 	 *            The suffix to append to the end of the file name.
 	 * @return The formatted file name.
 	 */
-	public String getFormattedName(long sequenceNumber, String fileNameSuffix) {
+	public synchronized String getFormattedName(long sequenceNumber, String fileNameSuffix) {
 		String fileName;
 		
 		fileName = sequenceFormat.format(sequenceNumber) + fileNameSuffix;
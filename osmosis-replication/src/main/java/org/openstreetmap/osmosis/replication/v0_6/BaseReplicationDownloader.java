@@ -6,13 +6,23 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.OsmosisConstants;
@@ -31,6 +41,11 @@ import org.openstreetmap.osmosis.xml.v0_6.XmlChangeReader;
  * This class downloads a set of replication files from a HTTP server and tracks the progress of
  * which files have already been processed. The actual processing of changeset files is performed by
  * sub-classes. This class forms the basis of a replication mechanism.
+ * <p>
+ * If the configuration defines a prefetch count, the following replication
+ * files are downloaded and decompressed by background threads while the
+ * current file is processed. Files are always processed in sequence order, and
+ * the local state is only updated once all processing has completed.
  * 
  * @author Brett Henderson
  */
@@ -79,10 +94,14 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 	 *            The name of the file to download.
 	 * @param baseUrl
 	 *            The url of the directory containing change files.
+	 * @param decompress
+	 *            If true, the gzip compressed file is decompressed while it is
+	 *            written.
 	 * @return The temporary file containing the downloaded data.
 	 */
-	private File downloadReplicationFile(String fileName, URL baseUrl) {
+	private File downloadReplicationFile(String fileName, URL baseUrl, boolean decompress) {
 		URL changesetUrl;
+		File outputFile = null;
 		
 		try {
 			changesetUrl = new URL(baseUrl, fileName);
@@ -91,15 +110,13 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 		}
 		
 		try {
-			File outputFile;
-			
 			// Open an input stream for the changeset file on the server.
 			URLConnection connection = changesetUrl.openConnection();
 			connection.setReadTimeout(15 * 60 * 1000); // timeout 15 minutes
 			connection.setConnectTimeout(15 * 60 * 1000); // timeout 15 minutes
 			connection.setRequestProperty("User-Agent", "Osmosis/" + OsmosisConstants.VERSION);
 			
-			try (BufferedInputStream source = new BufferedInputStream(connection.getInputStream(), 65536)) {
+			try (InputStream source = openSource(connection, decompress)) {
 				// Create a temporary file to write the data to.
 				outputFile = File.createTempFile("change", null);
 
@@ -116,26 +133,100 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 			return outputFile;
 			
 		} catch (IOException e) {
+			// Don't leave a partial file behind.
+			if (outputFile != null) {
+				deleteReplicationFile(outputFile);
+			}
 			throw new OsmosisRuntimeException("Unable to read the changeset file " + fileName + " from the server.", e);
 		}
 	}
 	
 	
-	private void processReplicationFile(File replicationFile, ReplicationState replicationState) {
+	private InputStream openSource(URLConnection connection, boolean decompress) throws IOException {
+		InputStream source = new BufferedInputStream(connection.getInputStream(), 65536);
+		
+		if (decompress) {
+			try {
+				source = new GZIPInputStream(source, 65536);
+			} catch (IOException e) {
+				source.close();
+				throw e;
+			}
+		}
+		
+		return source;
+	}
+	
+	
+	private void deleteReplicationFile(File replicationFile) {
+		if (!replicationFile.delete()) {
+			LOG.warning("Unable to delete file " + replicationFile.getName());
+		}
+	}
+	
+	
+	/**
+	 * Downloads the state of a sequence from the server, followed by its
+	 * replication file if it will be processed. The replication file is not
+	 * required if the sequence lies beyond the maximum timestamp, unless it is
+	 * the first sequence of this invocation.
+	 * 
+	 * @param baseUrl
+	 *            The url of the directory containing change files.
+	 * @param sequenceNumber
+	 *            The sequence to be downloaded.
+	 * @param firstSequence
+	 *            True if this is the first sequence of this invocation.
+	 * @param maximumTimestamp
+	 *            The maximum timestamp of data to be downloaded.
+	 * @param decompress
+	 *            If true, the replication file is decompressed while it is
+	 *            downloaded.
+	 * @return The downloaded sequence.
+	 */
+	private DownloadedSequence downloadSequence(URL baseUrl, long sequenceNumber, boolean firstSequence,
+			Date maximumTimestamp, boolean decompress) {
+		ReplicationState state;
+		File replicationFile;
+		
+		// Get the state associated with the next file.
+		state = serverStateReader.getServerState(baseUrl, sequenceNumber);
+		
+		// Ensure that the next state is within the allowable timestamp
+		// range. We must stop if the next data takes us beyond the maximum
+		// timestamp. This will either occur if a maximum download time
+		// duration limit has been imposed, or if a time-aligned boundary
+		// has been reached.
+		// We will always allow at least one replication interval
+		// through to deal with the case where a single interval exceeds
+		// the maximum duration. This can happen if the source data has
+		// a long time gap between two intervals due to system downtime.
+		if (state.getTimestamp().compareTo(maximumTimestamp) > 0 && !firstSequence) {
+			replicationFile = null;
+		} else {
+			// Download the next replication file to a temporary file.
+			replicationFile = downloadReplicationFile(
+					sequenceFormatter.getFormattedName(sequenceNumber, ".osc.gz"), baseUrl, decompress);
+		}
+		
+		return new DownloadedSequence(state, replicationFile);
+	}
+	
+	
+	private void processReplicationFile(File replicationFile, CompressionMethod compressionMethod,
+			ReplicationState replicationState) {
 		try {
 			XmlChangeReader xmlReader;
 			
 			// Send the contents of the replication file to the sink but suppress the complete
 			// and release methods.
-			xmlReader = new XmlChangeReader(replicationFile, true, CompressionMethod.GZip);
+			xmlReader = new XmlChangeReader(replicationFile, true, compressionMethod);
 			
 			// Delegate to the sub-class to process the xml.
 			processChangeset(xmlReader, replicationState);
 			
 		} finally {
-			if (!replicationFile.delete()) {
-				LOG.warning("Unable to delete file " + replicationFile.getName());
-			}
+			deleteReplicationFile(replicationFile);
 		}
 	}
 
@@ -179,6 +270,10 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 		URL baseUrl;
 		ReplicationState localState;
 		Date maximumDownloadTimestamp;
+		int prefetchCount;
+		ExecutorService executorService;
+		Deque<Future<DownloadedSequence>> prefetchedSequences;
+		long nextPrefetchSequenceNumber;
 		
 		localState = initialLocalState;
 		
@@ -190,55 +285,131 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 			calculateMaximumTimestamp(configuration, serverState.getTimestamp(), localState.getTimestamp());
 		LOG.fine("The maximum timestamp to be downloaded is " + maximumDownloadTimestamp + ".");
 		
-		// Download all files and send their contents to the sink.
-		while (localState.getSequenceNumber() < serverState.getSequenceNumber()) {
-			File replicationFile;
-			long sequenceNumber;
-			ReplicationState fileReplicationState;
-			
-			// Check to see if our local state has already reached the maximum
-			// allowable timestamp. This will typically occur if a job is run
-			// again before new data becomes available, or if an implementation
-			// of this class (eg. ReplicationFileMerger) is waiting for a full
-			// time period of data to become available before processing.
-			if (localState.getTimestamp().compareTo(maximumDownloadTimestamp) >= 0) {
-				break;
-			}
-			
-			// Calculate the next sequence number.
-			sequenceNumber = localState.getSequenceNumber() + 1;
-			LOG.finer("Processing replication sequence " + sequenceNumber + ".");
-			
-			// Get the state associated with the next file.
-			fileReplicationState = serverStateReader.getServerState(baseUrl, sequenceNumber);
-			
-			// Ensure that the next state is within the allowable timestamp
-			// range. We must stop if the next data takes us beyond the maximum
-			// timestamp. This will either occur if a maximum download time
-			// duration limit has been imposed, or if a time-aligned boundary
-			// has been reached.
-			if (fileReplicationState.getTimestamp().compareTo(maximumDownloadTimestamp) > 0) {
-				// We will always allow at least one replication interval
-				// through to deal with the case where a single interval exceeds
-				// the maximum duration. This can happen if the source data has
-				// a long time gap between two intervals due to system downtime.
-				if (localState.getSequenceNumber() != initialLocalState.getSequenceNumber()) {
+		// Create the threads used to download files ahead of processing.
+		prefetchCount = configuration.getPrefetchCount();
+		if (prefetchCount > 0) {
+			executorService = Executors.newFixedThreadPool(prefetchCount);
+		} else {
+			executorService = null;
+		}
+		prefetchedSequences = new ArrayDeque<Future<DownloadedSequence>>();
+		nextPrefetchSequenceNumber = initialLocalState.getSequenceNumber() + 1;
+		
+		try {
+			// Download all files and send their contents to the sink.
+			while (localState.getSequenceNumber() < serverState.getSequenceNumber()) {
+				long sequenceNumber;
+				DownloadedSequence downloadedSequence;
+				
+				// Check to see if our local state has already reached the maximum
+				// allowable timestamp. This will typically occur if a job is run
+				// again before new data becomes available, or if an implementation
+				// of this class (eg. ReplicationFileMerger) is waiting for a full
+				// time period of data to become available before processing.
+				if (localState.getTimestamp().compareTo(maximumDownloadTimestamp) >= 0) {
+					break;
+				}
+				
+				// Calculate the next sequence number.
+				sequenceNumber = localState.getSequenceNumber() + 1;
+				LOG.finer("Processing replication sequence " + sequenceNumber + ".");
+				
+				if (executorService != null) {
+					// Keep the current sequence and up to prefetchCount following
+					// sequences downloading.
+					while (nextPrefetchSequenceNumber <= serverState.getSequenceNumber()
+							&& nextPrefetchSequenceNumber <= sequenceNumber + prefetchCount) {
+						prefetchedSequences.add(executorService.submit(
+								new SequenceDownloadTask(baseUrl, nextPrefetchSequenceNumber,
+										nextPrefetchSequenceNumber == initialLocalState.getSequenceNumber() + 1,
+										maximumDownloadTimestamp)));
+						nextPrefetchSequenceNumber++;
+					}
+					
+					downloadedSequence = getDownloadedSequence(prefetchedSequences.removeFirst());
+					
+				} else {
+					downloadedSequence = downloadSequence(baseUrl, sequenceNumber,
+							localState.getSequenceNumber() == initialLocalState.getSequenceNumber(),
+							maximumDownloadTimestamp, false);
+				}
+				
+				// Stop if the sequence lies beyond the maximum timestamp.
+				if (downloadedSequence.getReplicationFile() == null) {
 					break;
 				}
+				
+				// Process the file and send its contents to the sink.
+				processReplicationFile(downloadedSequence.getReplicationFile(),
+						executorService != null ? CompressionMethod.None : CompressionMethod.GZip,
+						downloadedSequence.getState());
+				
+				// Update the local state to reflect the file state just processed.
+				localState = downloadedSequence.getState();
 			}
 			
-			// Download the next replication file to a temporary file.
-			replicationFile =
-				downloadReplicationFile(sequenceFormatter.getFormattedName(sequenceNumber, ".osc.gz"), baseUrl);
+		} finally {
+			if (executorService != null) {
+				releasePrefetchedSequences(executorService, prefetchedSequences);
+			}
+		}
+		
+		return localState;
+	}
+	
+	
+	/**
+	 * Waits for a prefetched sequence to be downloaded and returns it.
+	 */
+	private DownloadedSequence getDownloadedSequence(Future<DownloadedSequence> future) {
+		try {
+			return future.get();
 			
-			// Process the file and send its contents to the sink.
-			processReplicationFile(replicationFile, fileReplicationState);
+		} catch (InterruptedException e) {
+			throw new OsmosisRuntimeException("Thread was interrupted.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
 			
-			// Update the local state to reflect the file state just processed.
-			localState = fileReplicationState;
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new OsmosisRuntimeException("Unable to download the replication sequence.", cause);
+		}
+	}
+	
+	
+	/**
+	 * Stops the prefetch threads and deletes any files downloaded but not
+	 * processed. Downloads not yet started are abandoned, but those in progress
+	 * must complete before their files can be deleted.
+	 */
+	private void releasePrefetchedSequences(ExecutorService executorService,
+			Deque<Future<DownloadedSequence>> prefetchedSequences) {
+		executorService.shutdownNow();
+		
+		try {
+			while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOG.fine("Waiting for replication file downloads to complete.");
+			}
+		} catch (InterruptedException e) {
+			throw new OsmosisRuntimeException("Thread was interrupted.", e);
 		}
 		
-		return localState;
+		for (Future<DownloadedSequence> future : prefetchedSequences) {
+			if (future.isDone()) {
+				try {
+					File replicationFile = future.get().getReplicationFile();
+					
+					if (replicationFile != null) {
+						deleteReplicationFile(replicationFile);
+					}
+				} catch (InterruptedException | ExecutionException e) {
+					// The download failed so there is no file to delete.
+					LOG.finer("Abandoned download failed: " + e.getMessage());
+				}
+			}
+		}
+		prefetchedSequences.clear();
 	}
 	
 	
@@ -355,4 +526,58 @@ public abstract class BaseReplicationDownloader implements RunnableTask {
 			fileLock.close();
 		}
 	}
+	
+	
+	/**
+	 * A sequence state and its downloaded replication file.
+	 */
+	private static class DownloadedSequence {
+		private ReplicationState state;
+		private File replicationFile;
+		
+		
+		DownloadedSequence(ReplicationState state, File replicationFile) {
+			this.state = state;
+			this.replicationFile = replicationFile;
+		}
+		
+		
+		ReplicationState getState() {
+			return state;
+		}
+		
+		
+		/**
+		 * Gets the replication file, or null if the sequence lies beyond the
+		 * maximum timestamp and should not be processed.
+		 */
+		File getReplicationFile() {
+			return replicationFile;
+		}
+	}
+	
+	
+	/**
+	 * Downloads and decompresses a sequence on a prefetch thread.
+	 */
+	private class SequenceDownloadTask implements Callable<DownloadedSequence> {
+		private URL baseUrl;
+		private long sequenceNumber;
+		private boolean firstSequence;
+		private Date maximumTimestamp;
+		
+		
+		SequenceDownloadTask(URL baseUrl, long sequenceNumber, boolean firstSequence, Date maximumTimestamp) {
+			this.baseUrl = baseUrl;
+			this.sequenceNumber = sequenceNumber;
+			this.firstSequence = firstSequence;
+			this.maximumTimestamp = maximumTimestamp;
+		}
+		
+		
+		@Override
+		public DownloadedSequence call() {
+			return downloadSequence(baseUrl, sequenceNumber, firstSequence, maximumTimestamp, true);
+		}
+	}
 }
@@ -18,6 +18,7 @@ import org.openstreetmap.osmosis.core.util.PropertiesPersister;
 public class ReplicationDownloaderConfiguration {
 	private static final String KEY_BASE_URL = "baseUrl";
 	private static final String KEY_MAX_INTERVAL = "maxInterval";
+	private static final String KEY_PREFETCH_COUNT = "prefetchCount";
 	
 	
 	private Properties properties;
@@ -65,4 +66,29 @@ public class ReplicationDownloaderConfiguration {
 	public int getMaxInterval() {
 		return Integer.parseInt(properties.getProperty(KEY_MAX_INTERVAL)) * 1000;
 	}
+	
+	
+	/**
+	 * Returns the number of replication files to download ahead of the file
+	 * currently being processed. This is optional and defaults to 0 for
+	 * configuration files created before it existed.
+	 * 
+	 * @return The number of files to prefetch, 0 to download files one at a time.
+	 */
+	public int getPrefetchCount() {
+		String prefetchCount;
+		int result;
+		
+		prefetchCount = properties.getProperty(KEY_PREFETCH_COUNT);
+		if (prefetchCount == null) {
+			return 0;
+		}
+		
+		result = Integer.parseInt(prefetchCount.trim());
+		if (result < 0) {
+			throw new OsmosisRuntimeException("The " + KEY_PREFETCH_COUNT + " property cannot be negative.");
+		}
+		
+		return result;
+	}
 }
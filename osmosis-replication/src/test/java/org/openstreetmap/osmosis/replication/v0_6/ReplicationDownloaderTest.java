@@ -0,0 +1,128 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.replication.v0_6;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.util.PropertiesPersister;
+import org.openstreetmap.osmosis.replication.common.ReplicationSequenceFormatter;
+import org.openstreetmap.osmosis.replication.common.ReplicationState;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.v0_6.XmlChangeWriter;
+
+
+/**
+ * Tests the replication downloader against a replication directory accessed
+ * through file URLs.
+ */
+public class ReplicationDownloaderTest extends AbstractDataTest {
+
+	private static final int SEQUENCE_COUNT = 20;
+
+
+	private static Date getSequenceTimestamp(long sequenceNumber) {
+		return new Date(sequenceNumber * 60000);
+	}
+
+
+	private File buildServerDirectory() throws IOException {
+		File serverDirectory = dataUtils.newFolder();
+		ReplicationSequenceFormatter formatter = new ReplicationSequenceFormatter(9, 3);
+
+		for (int i = 1; i <= SEQUENCE_COUNT; i++) {
+			File stateFile = new File(serverDirectory, formatter.getFormattedName(i, ".state.txt"));
+			File dataFile = new File(serverDirectory, formatter.getFormattedName(i, ".osc.gz"));
+
+			stateFile.getParentFile().mkdirs();
+			new PropertiesPersister(stateFile).store(new ReplicationState(getSequenceTimestamp(i), i).store());
+
+			try (Writer writer = new OutputStreamWriter(
+					new GZIPOutputStream(new FileOutputStream(dataFile)), StandardCharsets.UTF_8)) {
+				writer.write("<?xml version='1.0' encoding='UTF-8'?>\n"
+						+ "<osmChange version=\"0.6\" generator=\"test\">\n"
+						+ "  <modify>\n"
+						+ "    <node id=\"" + i + "\" version=\"2\" timestamp=\"2010-01-01T00:00:00Z\""
+						+ " lat=\"" + i + "\" lon=\"" + i + "\"/>\n"
+						+ "  </modify>\n"
+						+ "</osmChange>\n");
+			}
+		}
+
+		new PropertiesPersister(new File(serverDirectory, "state.txt")).store(
+				new ReplicationState(getSequenceTimestamp(SEQUENCE_COUNT), SEQUENCE_COUNT).store());
+
+		return serverDirectory;
+	}
+
+
+	private long runDownloader(File serverDirectory, int maxInterval, int prefetchCount, File outputFile)
+			throws IOException {
+		File workingDirectory = dataUtils.newFolder();
+		PropertiesPersister localStatePersister = new PropertiesPersister(new File(workingDirectory, "state.txt"));
+		ReplicationDownloader downloader;
+		ReplicationState localState;
+
+		try (Writer writer = new OutputStreamWriter(
+				new FileOutputStream(new File(workingDirectory, "configuration.txt")), StandardCharsets.UTF_8)) {
+			writer.write("baseUrl=" + serverDirectory.toURI() + "\n");
+			writer.write("maxInterval=" + maxInterval + "\n");
+			writer.write("prefetchCount=" + prefetchCount + "\n");
+		}
+		localStatePersister.store(new ReplicationState(getSequenceTimestamp(0), 0).store());
+
+		downloader = new ReplicationDownloader(workingDirectory);
+		downloader.setChangeSink(new XmlChangeWriter(outputFile, CompressionMethod.None));
+		downloader.run();
+
+		localState = new ReplicationState(localStatePersister.loadMap());
+
+		return localState.getSequenceNumber();
+	}
+
+
+	private void assertPrefetchMatchesSequential(int maxInterval, long expectedSequenceNumber) throws IOException {
+		File serverDirectory = buildServerDirectory();
+		File sequentialFile = dataUtils.newFile();
+		File prefetchFile = dataUtils.newFile();
+
+		Assert.assertEquals(expectedSequenceNumber, runDownloader(serverDirectory, maxInterval, 0, sequentialFile));
+		Assert.assertEquals(expectedSequenceNumber, runDownloader(serverDirectory, maxInterval, 4, prefetchFile));
+
+		dataUtils.compareFiles(sequentialFile, prefetchFile);
+	}
+
+
+	/**
+	 * Verifies that prefetching files produces the same changes and final state
+	 * as downloading them one at a time.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testPrefetchAll() throws IOException {
+		assertPrefetchMatchesSequential(0, SEQUENCE_COUNT);
+	}
+
+
+	/**
+	 * Verifies that prefetching stops at the maximum download interval even
+	 * though later files are available.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testPrefetchMaxInterval() throws IOException {
+		assertPrefetchMatchesSequential(300, 5);
+	}
+}
@@ -7,6 +7,7 @@ import java.util.Map;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.SortedDeltaChangePipeValidator;
@@ -16,8 +17,12 @@ import org.openstreetmap.osmosis.core.task.common.ChangeAction;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.MultiSinkMultiChangeSinkRunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.set.v0_6.impl.ChangeTypePartitionSink;
 import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxChangeSink;
 import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxSink;
+import org.openstreetmap.osmosis.set.v0_6.impl.EntityTypePartitionRunner;
+import org.openstreetmap.osmosis.set.v0_6.impl.EntityTypePartitionSink;
+import org.openstreetmap.osmosis.set.v0_6.impl.EntityTypePartitions;
 
 
 /**
@@ -28,9 +33,12 @@ import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxSink;
 public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
 	
 	private Sink sink;
+	private int bufferCapacity;
 	private DataPostbox<EntityContainer> basePostbox;
+	private EntityTypePartitions<EntityContainer> basePartitions;
 	private SortedEntityPipeValidator sortedEntityValidator;
 	private DataPostbox<ChangeContainer> changePostbox;
+	private EntityTypePartitions<ChangeContainer> changePartitions;
 	private SortedDeltaChangePipeValidator sortedChangeValidator;
 	
 	
@@ -41,12 +49,35 @@ public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
 	 *            The size of the buffers to use for input sources.
 	 */
 	public ChangeApplier(int inputBufferCapacity) {
-		basePostbox = new DataPostbox<EntityContainer>(inputBufferCapacity);
+		this(inputBufferCapacity, false);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param inputBufferCapacity
+	 *            The size of the buffers to use for input sources.
+	 * @param parallel
+	 *            If true, each entity type is processed on its own thread.
+	 */
+	public ChangeApplier(int inputBufferCapacity, boolean parallel) {
+		bufferCapacity = inputBufferCapacity;
+		
 		sortedEntityValidator = new SortedEntityPipeValidator();
-		sortedEntityValidator.setSink(new DataPostboxSink(basePostbox));
-		changePostbox = new DataPostbox<ChangeContainer>(inputBufferCapacity);
 		sortedChangeValidator = new SortedDeltaChangePipeValidator();
-		sortedChangeValidator.setChangeSink(new DataPostboxChangeSink(changePostbox));
+		
+		if (parallel) {
+			basePartitions = new EntityTypePartitions<EntityContainer>(inputBufferCapacity);
+			sortedEntityValidator.setSink(new EntityTypePartitionSink(basePartitions));
+			changePartitions = new EntityTypePartitions<ChangeContainer>(inputBufferCapacity);
+			sortedChangeValidator.setChangeSink(new ChangeTypePartitionSink(changePartitions));
+		} else {
+			basePostbox = new DataPostbox<EntityContainer>(inputBufferCapacity);
+			sortedEntityValidator.setSink(new DataPostboxSink(basePostbox));
+			changePostbox = new DataPostbox<ChangeContainer>(inputBufferCapacity);
+			sortedChangeValidator.setChangeSink(new DataPostboxChangeSink(changePostbox));
+		}
 	}
 	
 	
@@ -110,11 +141,13 @@ public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
 	 * 
 	 * @param entityContainer
 	 *            The entity to be processed.
+	 * @param output
+	 *            The sink receiving the updated data.
 	 */
-	private void processBaseOnlyEntity(EntityContainer entityContainer) {
+	private void processBaseOnlyEntity(EntityContainer entityContainer, Sink output) {
 		// The base entity doesn't exist on the change source therefore we
 		// simply pass it through.
-		sink.process(entityContainer);
+		output.process(entityContainer);
 	}
 	
 	
@@ -124,8 +157,10 @@ public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
 	 * 
 	 * @param changeContainer
 	 *            The change to be processed.
+	 * @param output
+	 *            The sink receiving the updated data.
 	 */
-	private void processChangeOnlyEntity(ChangeContainer changeContainer) {
+	private void processChangeOnlyEntity(ChangeContainer changeContainer, Sink output) {
 		// This entity doesn't exist in the "base" source therefore
 		// we would normally expect a create.
 		// But to cover cases where the change is being re-applied or it is a
@@ -136,7 +171,7 @@ public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
 		if (changeContainer.getAction().equals(ChangeAction.Create)
 				|| changeContainer.getAction().equals(ChangeAction.Modify)) {
 			
-			sink.process(changeContainer.getEntityContainer());
+			output.process(changeContainer.getEntityContainer());
 		}
 	}
 	
@@ -147,88 +182,127 @@ public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
 	 * 
 	 * @param changeContainer
 	 *            The change to be processed.
+	 * @param output
+	 *            The sink receiving the updated data.
 	 */
-	private void processBothSourceEntity(EntityContainer entityContainer, ChangeContainer changeContainer) {
+	private void processBothSourceEntity(EntityContainer entityContainer, ChangeContainer changeContainer,
+			Sink output) {
 		// The same entity exists in both sources therefore we are
 		// expecting a modify or delete. However a create is possible if the
 		// data is being re-applied so we need to be lenient.
 		if (changeContainer.getAction().equals(ChangeAction.Create)
 				|| changeContainer.getAction().equals(ChangeAction.Modify)) {
 			
-			sink.process(changeContainer.getEntityContainer());
+			output.process(changeContainer.getEntityContainer());
 		}
 	}
 
 
 	/**
-	 * Processes the input sources and sends the updated data stream to the
-	 * sink.
+	 * Combines the metadata from both inputs. The change stream metadata is
+	 * applied second and overrides any values with the same key.
+	 * 
+	 * @param basePostbox
+	 *            The postbox holding the base data.
+	 * @param changePostbox
+	 *            The postbox holding the changes.
+	 * @return The combined metadata.
 	 */
-	public void run() {
-		try {
-			EntityContainerComparator comparator;
-			EntityContainer base = null;
-			ChangeContainer change = null;
-			Map<String, Object> metaData;
+	private Map<String, Object> initializeInputs(
+			DataPostbox<EntityContainer> basePostbox, DataPostbox<ChangeContainer> changePostbox) {
+		Map<String, Object> metaData;
+		
+		metaData = new HashMap<String, Object>();
+		metaData.putAll(basePostbox.outputInitialize());
+		metaData.putAll(changePostbox.outputInitialize());
+		
+		return metaData;
+	}
+	
+	
+	/**
+	 * Applies all changes from the change postbox to the base postbox data.
+	 * 
+	 * @param basePostbox
+	 *            The postbox holding the base data.
+	 * @param changePostbox
+	 *            The postbox holding the changes.
+	 * @param output
+	 *            The sink receiving the updated data.
+	 */
+	private void applyChanges(
+			DataPostbox<EntityContainer> basePostbox, DataPostbox<ChangeContainer> changePostbox, Sink output) {
+		EntityContainerComparator comparator;
+		EntityContainer base = null;
+		ChangeContainer change = null;
+		
+		// Create a comparator for comparing two entities by type and identifier.
+		comparator = new EntityContainerComparator(new EntityByTypeThenIdComparator());
+		
+		// We continue in the comparison loop while both sources still have data.
+		while ((base != null || basePostbox.hasNext()) && (change != null || changePostbox.hasNext())) {
+			int comparisonResult;
 			
-			// Create a comparator for comparing two entities by type and identifier.
-			comparator = new EntityContainerComparator(new EntityByTypeThenIdComparator());
+			// Get the next input data where required.
+			if (base == null) {
+				base = basePostbox.getNext();
+			}
+			if (change == null) {
+				change = changePostbox.getNext();
+			}
 			
-			// Initialise the pipeline with a combination of the metadata from
-			// both inputs. The change stream metadata will be applied second
-			// and will override any values with the same key.
-			metaData = new HashMap<String, Object>();
-			metaData.putAll(basePostbox.outputInitialize());
-			metaData.putAll(changePostbox.outputInitialize());
-			sink.initialize(metaData);
+			// Compare the two sources.
+			comparisonResult = comparator.compare(base, change.getEntityContainer());
 			
-			// We continue in the comparison loop while both sources still have data.
-			while ((base != null || basePostbox.hasNext()) && (change != null || changePostbox.hasNext())) {
-				int comparisonResult;
-				
-				// Get the next input data where required.
-				if (base == null) {
-					base = basePostbox.getNext();
-				}
-				if (change == null) {
-					change = changePostbox.getNext();
-				}
+			if (comparisonResult < 0) {
+				processBaseOnlyEntity(base, output);
+				base = null;
 				
-				// Compare the two sources.
-				comparisonResult = comparator.compare(base, change.getEntityContainer());
+			} else if (comparisonResult > 0) {
+				processChangeOnlyEntity(change, output);
+				change = null;
 				
-				if (comparisonResult < 0) {
-					processBaseOnlyEntity(base);
-					base = null;
-					
-				} else if (comparisonResult > 0) {
-					processChangeOnlyEntity(change);
-					change = null;
-					
-				} else {
-					processBothSourceEntity(base, change);
-					base = null;
-					change = null;
-				}
-			}
-			
-			// Any remaining "base" entities are unmodified.
-			while (base != null || basePostbox.hasNext()) {
-				if (base == null) {
-					base = basePostbox.getNext();
-				}
-				processBaseOnlyEntity(base);
+			} else {
+				processBothSourceEntity(base, change, output);
 				base = null;
-			}
-			
-			// Process any remaining "change" entities.
-			while (change != null || changePostbox.hasNext()) {
-				if (change == null) {
-					change = changePostbox.getNext();
-				}
-				processChangeOnlyEntity(change);
 				change = null;
 			}
+		}
+		
+		// Any remaining "base" entities are unmodified.
+		while (base != null || basePostbox.hasNext()) {
+			if (base == null) {
+				base = basePostbox.getNext();
+			}
+			processBaseOnlyEntity(base, output);
+			base = null;
+		}
+		
+		// Process any remaining "change" entities.
+		while (change != null || changePostbox.hasNext()) {
+			if (change == null) {
+				change = changePostbox.getNext();
+			}
+			processChangeOnlyEntity(change, output);
+			change = null;
+		}
+	}
+
+
+	/**
+	 * Processes the input sources and sends the updated data stream to the
+	 * sink.
+	 */
+	public void run() {
+		if (basePartitions != null) {
+			runParallel();
+			return;
+		}
+		
+		try {
+			sink.initialize(initializeInputs(basePostbox, changePostbox));
+			
+			applyChanges(basePostbox, changePostbox, sink);
 			
 			sink.complete();
 			basePostbox.outputComplete();
@@ -241,4 +315,41 @@ public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
 			changePostbox.outputRelease();
 		}
 	}
+	
+	
+	/**
+	 * Applies the changes of each entity type on a separate thread and sends
+	 * the results to the sink in type order.
+	 */
+	private void runParallel() {
+		try {
+			new EntityTypePartitionRunner(bufferCapacity).run(new EntityTypePartitionRunner.PartitionProcessor() {
+				@Override
+				public void process(EntityType entityType, Sink output) {
+					DataPostbox<EntityContainer> typeBasePostbox = basePartitions.getPartition(entityType);
+					DataPostbox<ChangeContainer> typeChangePostbox = changePartitions.getPartition(entityType);
+					
+					output.initialize(initializeInputs(typeBasePostbox, typeChangePostbox));
+					
+					applyChanges(typeBasePostbox, typeChangePostbox, output);
+					
+					// Complete the inputs first so that upstream tasks can move
+					// on to the next entity type.
+					typeBasePostbox.outputComplete();
+					typeChangePostbox.outputComplete();
+					output.complete();
+				}
+				
+				
+				@Override
+				public void release(EntityType entityType) {
+					basePartitions.getPartition(entityType).outputRelease();
+					changePartitions.getPartition(entityType).outputRelease();
+				}
+			}, sink);
+			
+		} finally {
+			sink.close();
+		}
+	}
 }
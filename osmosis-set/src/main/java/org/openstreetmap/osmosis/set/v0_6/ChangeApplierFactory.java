@@ -16,6 +16,8 @@ public class ChangeApplierFactory extends TaskManagerFactory {
 
 	private static final String ARG_BUFFER_CAPACITY = "bufferCapacity";
 	private static final int DEFAULT_BUFFER_CAPACITY = 20;
+	private static final String ARG_PARALLEL = "parallel";
+	private static final boolean DEFAULT_PARALLEL = false;
 	
 	/**
 	 * {@inheritDoc}
@@ -29,9 +31,11 @@ public class ChangeApplierFactory extends TaskManagerFactory {
 				getDefaultIntegerArgument(taskConfig, DEFAULT_BUFFER_CAPACITY)
 			);
 		
+		boolean parallel = getBooleanArgument(taskConfig, ARG_PARALLEL, DEFAULT_PARALLEL);
+		
 		return new MultiSinkMultiChangeSinkRunnableSourceManager(
 			taskConfig.getId(),
-			new ChangeApplier(bufferCapacity),
+			new ChangeApplier(bufferCapacity, parallel),
 			taskConfig.getPipeArgs()
 		);
 	}
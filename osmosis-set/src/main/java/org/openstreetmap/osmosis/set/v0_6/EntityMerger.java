@@ -17,6 +17,9 @@ import org.openstreetmap.osmosis.core.store.DataPostbox;
 import org.openstreetmap.osmosis.core.task.v0_6.MultiSinkRunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxSink;
+import org.openstreetmap.osmosis.set.v0_6.impl.EntityTypePartitionRunner;
+import org.openstreetmap.osmosis.set.v0_6.impl.EntityTypePartitionSink;
+import org.openstreetmap.osmosis.set.v0_6.impl.EntityTypePartitions;
 
 
 /**
@@ -31,9 +34,12 @@ public class EntityMerger implements MultiSinkRunnableSource {
 	private static final Logger LOG = Logger.getLogger(EntityMerger.class.getName());
 
 	private Sink sink;
+	private int bufferCapacity;
 	private DataPostbox<EntityContainer> postbox0;
+	private EntityTypePartitions<EntityContainer> partitions0;
 	private SortedEntityPipeValidator sortedEntityValidator0;
 	private DataPostbox<EntityContainer> postbox1;
+	private EntityTypePartitions<EntityContainer> partitions1;
 	private SortedEntityPipeValidator sortedEntityValidator1;
 	private ConflictResolutionMethod conflictResolutionMethod;
 	private BoundRemovedAction boundRemovedAction;
@@ -52,16 +58,44 @@ public class EntityMerger implements MultiSinkRunnableSource {
 	 */
 	public EntityMerger(ConflictResolutionMethod conflictResolutionMethod, int inputBufferCapacity, 
 			BoundRemovedAction boundRemovedAction) {
+		this(conflictResolutionMethod, inputBufferCapacity, boundRemovedAction, false);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param conflictResolutionMethod
+	 *            The method to used to resolve conflict when two sources
+	 *            contain the same entity.
+	 * @param inputBufferCapacity
+	 *            The size of the buffers to use for input sources.
+	 * @param boundRemovedAction
+	 *            The action to take if the merge operation removes 
+	 *            a bound entity.
+	 * @param parallel
+	 *            If true, each entity type is merged on its own thread.
+	 */
+	public EntityMerger(ConflictResolutionMethod conflictResolutionMethod, int inputBufferCapacity, 
+			BoundRemovedAction boundRemovedAction, boolean parallel) {
 		
 		this.conflictResolutionMethod = conflictResolutionMethod;
+		bufferCapacity = inputBufferCapacity;
 		
-		postbox0 = new DataPostbox<EntityContainer>(inputBufferCapacity);
 		sortedEntityValidator0 = new SortedEntityPipeValidator();
-		sortedEntityValidator0.setSink(new DataPostboxSink(postbox0));
-		
-		postbox1 = new DataPostbox<EntityContainer>(inputBufferCapacity);
 		sortedEntityValidator1 = new SortedEntityPipeValidator();
-		sortedEntityValidator1.setSink(new DataPostboxSink(postbox1));
+		
+		if (parallel) {
+			partitions0 = new EntityTypePartitions<EntityContainer>(inputBufferCapacity);
+			sortedEntityValidator0.setSink(new EntityTypePartitionSink(partitions0));
+			partitions1 = new EntityTypePartitions<EntityContainer>(inputBufferCapacity);
+			sortedEntityValidator1.setSink(new EntityTypePartitionSink(partitions1));
+		} else {
+			postbox0 = new DataPostbox<EntityContainer>(inputBufferCapacity);
+			sortedEntityValidator0.setSink(new DataPostboxSink(postbox0));
+			postbox1 = new DataPostbox<EntityContainer>(inputBufferCapacity);
+			sortedEntityValidator1.setSink(new DataPostboxSink(postbox1));
+		}
 	}
 	
 	
@@ -104,14 +138,15 @@ public class EntityMerger implements MultiSinkRunnableSource {
 	 * {@inheritDoc}
 	 */
 	public void run() {
+		if (partitions0 != null) {
+			runParallel();
+			return;
+		}
+		
 		try {
-			EntityContainerComparator comparator;
 			EntityContainer entityContainer0 = null;
 			EntityContainer entityContainer1 = null;
 			
-			// Create a comparator for comparing two entities by type and identifier.
-			comparator = new EntityContainerComparator(new EntityByTypeThenIdComparator());
-			
 			// We can't get meaningful data from the initialize data on the
 			// input streams, so pass empty meta data to the sink and discard
 			// the input meta data.
@@ -142,117 +177,207 @@ public class EntityMerger implements MultiSinkRunnableSource {
 					entityContainer1 = nextOrNull(postbox1);
 				}
 
-				// Only post a bound downstream if both upstream sources had a bound.
-				// (Otherwise there's either nothing to post or the posted bound is going
-				// to be smaller than the actual data, which is bad)
-				if (bound0 != null && bound1 != null) {
-					sink.process(new BoundContainer(bound0.union(bound1)));
-				} else if ((bound0 != null && bound1 == null)
-						|| (bound0 == null && bound1 != null)) {
-					handleBoundRemoved(bound0 == null);
-				}
+				processBounds(bound0, bound1, sink);
 			}
 			
 			// END bound special handling
 			
-			// We continue in the comparison loop while both sources still have data.
-			while (
-					(entityContainer0 != null || postbox0.hasNext())
-					&& (entityContainer1 != null || postbox1.hasNext())) {
-				long comparisonResult;
-				
-				// Get the next input data where required.
-				if (entityContainer0 == null) {
-					entityContainer0 = postbox0.getNext();
-				}
-				if (entityContainer1 == null) {
-					entityContainer1 = postbox1.getNext();
-				}
-				
-				// Compare the two entities.
-				comparisonResult = comparator.compare(entityContainer0, entityContainer1);
-				
-				if (comparisonResult < 0) {
-					// Entity 0 doesn't exist on the other source and can be
-					// sent straight through.
-					sink.process(entityContainer0);
-					entityContainer0 = null;
-				} else if (comparisonResult > 0) {
-					// Entity 1 doesn't exist on the other source and can be
-					// sent straight through.
-					sink.process(entityContainer1);
-					entityContainer1 = null;
-				} else {
-					// The entity exists on both sources so we must resolve the conflict.
-					if (conflictResolutionMethod.equals(ConflictResolutionMethod.Timestamp)) {
-						int timestampComparisonResult;
+			merge(postbox0, entityContainer0, postbox1, entityContainer1, sink);
+			
+			sink.complete();
+			
+			postbox0.outputComplete();
+			postbox1.outputComplete();
+			
+		} finally {
+			sink.close();
+			
+			postbox0.outputRelease();
+			postbox1.outputRelease();
+		}
+	}
+	
+	
+	/**
+	 * Merges each entity type on a separate thread and sends the results to
+	 * the sink in type order.
+	 */
+	private void runParallel() {
+		try {
+			new EntityTypePartitionRunner(bufferCapacity).run(new EntityTypePartitionRunner.PartitionProcessor() {
+				@Override
+				public void process(EntityType entityType, Sink output) {
+					DataPostbox<EntityContainer> typePostbox0 = partitions0.getPartition(entityType);
+					DataPostbox<EntityContainer> typePostbox1 = partitions1.getPartition(entityType);
+					EntityContainer entityContainer0 = null;
+					EntityContainer entityContainer1 = null;
+					
+					typePostbox0.outputInitialize();
+					typePostbox1.outputInitialize();
+					output.initialize(Collections.<String, Object>emptyMap());
+					
+					if (entityType == EntityType.Bound) {
+						boolean hasData0;
+						boolean hasData1;
 						
-						timestampComparisonResult =
-							entityContainer0.getEntity().getTimestamp()
-								.compareTo(entityContainer1.getEntity().getTimestamp());
+						entityContainer0 = nextOrNull(typePostbox0);
+						entityContainer1 = nextOrNull(typePostbox1);
 						
-						if (timestampComparisonResult < 0) {
-							sink.process(entityContainer1);
-						} else if (timestampComparisonResult > 0) {
-							sink.process(entityContainer0);
-						} else {
-							// If both have identical timestamps, use the second source.
-							sink.process(entityContainer1);
-						}
+						// Bounds only need special processing if both streams
+						// contain data. Once the bound partitions are exhausted
+						// the partitions know whether any later data exists.
+						hasData0 = entityContainer0 != null || partitions0.isDataReceived();
+						hasData1 = entityContainer1 != null || partitions1.isDataReceived();
 						
-					} else if (conflictResolutionMethod.equals(ConflictResolutionMethod.LatestSource)) {
-						sink.process(entityContainer1);
-					} else if (conflictResolutionMethod.equals(ConflictResolutionMethod.Version)) {
-						int version0 = entityContainer0.getEntity().getVersion();
-						int version1 = entityContainer1.getEntity().getVersion();
-						if (version0 < version1) {
-							sink.process(entityContainer1);
-						} else if (version0 > version1) {
-							sink.process(entityContainer0);
-						} else {
-							// If both have identical versions, use the second source.
-							sink.process(entityContainer1);
+						if (hasData0 && hasData1) {
+							Bound bound0 = null;
+							Bound bound1 = null;
+							
+							if (entityContainer0 != null) {
+								bound0 = (Bound) entityContainer0.getEntity();
+								entityContainer0 = nextOrNull(typePostbox0);
+							}
+							if (entityContainer1 != null) {
+								bound1 = (Bound) entityContainer1.getEntity();
+								entityContainer1 = nextOrNull(typePostbox1);
+							}
+							
+							processBounds(bound0, bound1, output);
 						}
-
-					} else {
-						throw new OsmosisRuntimeException(
-								"Conflict resolution method " + conflictResolutionMethod + " is not recognized.");
 					}
 					
-					entityContainer0 = null;
-					entityContainer1 = null;
+					merge(typePostbox0, entityContainer0, typePostbox1, entityContainer1, output);
+					
+					// Complete the inputs first so that upstream tasks can move
+					// on to the next entity type.
+					typePostbox0.outputComplete();
+					typePostbox1.outputComplete();
+					output.complete();
+				}
+				
+				
+				@Override
+				public void release(EntityType entityType) {
+					partitions0.getPartition(entityType).outputRelease();
+					partitions1.getPartition(entityType).outputRelease();
 				}
+			}, sink);
+			
+		} finally {
+			sink.close();
+		}
+	}
+	
+	
+	private void processBounds(Bound bound0, Bound bound1, Sink output) {
+		// Only post a bound downstream if both upstream sources had a bound.
+		// (Otherwise there's either nothing to post or the posted bound is going
+		// to be smaller than the actual data, which is bad)
+		if (bound0 != null && bound1 != null) {
+			output.process(new BoundContainer(bound0.union(bound1)));
+		} else if ((bound0 != null && bound1 == null)
+				|| (bound0 == null && bound1 != null)) {
+			handleBoundRemoved(bound0 == null);
+		}
+	}
+	
+	
+	private void merge(DataPostbox<EntityContainer> postbox0, EntityContainer firstEntityContainer0,
+			DataPostbox<EntityContainer> postbox1, EntityContainer firstEntityContainer1, Sink output) {
+		EntityContainerComparator comparator;
+		EntityContainer entityContainer0 = firstEntityContainer0;
+		EntityContainer entityContainer1 = firstEntityContainer1;
+		
+		// Create a comparator for comparing two entities by type and identifier.
+		comparator = new EntityContainerComparator(new EntityByTypeThenIdComparator());
+		
+		// We continue in the comparison loop while both sources still have data.
+		while (
+				(entityContainer0 != null || postbox0.hasNext())
+				&& (entityContainer1 != null || postbox1.hasNext())) {
+			long comparisonResult;
+			
+			// Get the next input data where required.
+			if (entityContainer0 == null) {
+				entityContainer0 = postbox0.getNext();
+			}
+			if (entityContainer1 == null) {
+				entityContainer1 = postbox1.getNext();
 			}
 			
-			// Any remaining entities on either source can be sent straight through.
-			while (entityContainer0 != null || postbox0.hasNext()) {
-				if (entityContainer0 == null) {
-					entityContainer0 = postbox0.getNext();
-				}
-				sink.process(entityContainer0);
+			// Compare the two entities.
+			comparisonResult = comparator.compare(entityContainer0, entityContainer1);
+			
+			if (comparisonResult < 0) {
+				// Entity 0 doesn't exist on the other source and can be
+				// sent straight through.
+				output.process(entityContainer0);
 				entityContainer0 = null;
-			}
-			while (entityContainer1 != null || postbox1.hasNext()) {
-				if (entityContainer1 == null) {
-					entityContainer1 = postbox1.getNext();
+			} else if (comparisonResult > 0) {
+				// Entity 1 doesn't exist on the other source and can be
+				// sent straight through.
+				output.process(entityContainer1);
+				entityContainer1 = null;
+			} else {
+				// The entity exists on both sources so we must resolve the conflict.
+				if (conflictResolutionMethod.equals(ConflictResolutionMethod.Timestamp)) {
+					int timestampComparisonResult;
+					
+					timestampComparisonResult =
+						entityContainer0.getEntity().getTimestamp()
+							.compareTo(entityContainer1.getEntity().getTimestamp());
+					
+					if (timestampComparisonResult < 0) {
+						output.process(entityContainer1);
+					} else if (timestampComparisonResult > 0) {
+						output.process(entityContainer0);
+					} else {
+						// If both have identical timestamps, use the second source.
+						output.process(entityContainer1);
+					}
+					
+				} else if (conflictResolutionMethod.equals(ConflictResolutionMethod.LatestSource)) {
+					output.process(entityContainer1);
+				} else if (conflictResolutionMethod.equals(ConflictResolutionMethod.Version)) {
+					int version0 = entityContainer0.getEntity().getVersion();
+					int version1 = entityContainer1.getEntity().getVersion();
+					if (version0 < version1) {
+						output.process(entityContainer1);
+					} else if (version0 > version1) {
+						output.process(entityContainer0);
+					} else {
+						// If both have identical versions, use the second source.
+						output.process(entityContainer1);
+					}
+
+				} else {
+					throw new OsmosisRuntimeException(
+							"Conflict resolution method " + conflictResolutionMethod + " is not recognized.");
 				}
-				sink.process(entityContainer1);
+				
+				entityContainer0 = null;
 				entityContainer1 = null;
 			}
-			
-			sink.complete();
-			
-			postbox0.outputComplete();
-			postbox1.outputComplete();
-			
-		} finally {
-			sink.close();
-			
-			postbox0.outputRelease();
-			postbox1.outputRelease();
 		}
-	}
 		
+		// Any remaining entities on either source can be sent straight through.
+		while (entityContainer0 != null || postbox0.hasNext()) {
+			if (entityContainer0 == null) {
+				entityContainer0 = postbox0.getNext();
+			}
+			output.process(entityContainer0);
+			entityContainer0 = null;
+		}
+		while (entityContainer1 != null || postbox1.hasNext()) {
+			if (entityContainer1 == null) {
+				entityContainer1 = postbox1.getNext();
+			}
+			output.process(entityContainer1);
+			entityContainer1 = null;
+		}
+	}
+
+
 	private void handleBoundRemoved(boolean source0BoundMissing) {
 		
 		if (boundRemovedAction == BoundRemovedAction.Ignore) {
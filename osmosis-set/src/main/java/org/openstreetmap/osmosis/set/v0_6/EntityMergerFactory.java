@@ -30,6 +30,8 @@ public class EntityMergerFactory extends TaskManagerFactory {
 	
 	private static final String ARG_BUFFER_CAPACITY = "bufferCapacity";
 	private static final int DEFAULT_BUFFER_CAPACITY = 20;
+	private static final String ARG_PARALLEL = "parallel";
+	private static final boolean DEFAULT_PARALLEL = false;
 	
 	static {
 		CONFLICT_RESOLUTION_METHOD_MAP.put(
@@ -62,6 +64,8 @@ public class EntityMergerFactory extends TaskManagerFactory {
 				getDefaultIntegerArgument(taskConfig, DEFAULT_BUFFER_CAPACITY)
 			);
 		
+		boolean parallel = getBooleanArgument(taskConfig, ARG_PARALLEL, DEFAULT_PARALLEL);
+		
 		if (!CONFLICT_RESOLUTION_METHOD_MAP.containsKey(conflictResolutionMethod)) {
 			throw new OsmosisRuntimeException(
 					"Argument " + ARG_CONFLICT_RESOLUTION_METHOD + " for task " + taskConfig.getId()
@@ -71,7 +75,7 @@ public class EntityMergerFactory extends TaskManagerFactory {
 		return new MultiSinkRunnableSourceManager(
 			taskConfig.getId(),
 			new EntityMerger(CONFLICT_RESOLUTION_METHOD_MAP.get(conflictResolutionMethod),  bufferCapacity,
-					boundRemovedAction),
+					boundRemovedAction, parallel),
 			taskConfig.getPipeArgs()
 		);
 	}
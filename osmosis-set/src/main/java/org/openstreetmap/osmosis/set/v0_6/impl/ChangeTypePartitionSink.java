@@ -0,0 +1,63 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.set.v0_6.impl;
+
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
+import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
+
+
+/**
+ * A change sink that writes its data to a separate postbox for each entity type
+ * to be read by other threads. The incoming changes must be sorted by type.
+ */
+public class ChangeTypePartitionSink implements ChangeSink {
+	private EntityTypePartitions<ChangeContainer> partitions;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param partitions
+	 *            The postboxes to write all incoming changes into.
+	 */
+	public ChangeTypePartitionSink(EntityTypePartitions<ChangeContainer> partitions) {
+		this.partitions = partitions;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		partitions.initialize(metaData);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(ChangeContainer change) {
+		partitions.put(change.getEntityContainer().getEntity().getType(), change);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		partitions.complete();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		partitions.release();
+	}
+}
@@ -0,0 +1,166 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.set.v0_6.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskRunner;
+import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Processes the data of each entity type on its own thread and passes the
+ * results to a sink on the calling thread in entity type order. Each thread
+ * writes its results into a buffer so that later entity types can be processed
+ * while the results of earlier types are still being passed to the sink.
+ */
+public class EntityTypePartitionRunner {
+
+	/**
+	 * Processes the data of a single entity type.
+	 */
+	public interface PartitionProcessor {
+		/**
+		 * Processes all data of an entity type. This is called on a separate
+		 * thread for each entity type. The implementation must call the
+		 * initialize, process and complete methods of the output sink, but
+		 * not close.
+		 *
+		 * @param entityType
+		 *            The entity type to process.
+		 * @param output
+		 *            The sink receiving the results.
+		 */
+		void process(EntityType entityType, Sink output);
+
+
+		/**
+		 * Releases any resources used to process an entity type. This is
+		 * called on the processing thread once the output has been released,
+		 * regardless of success or failure.
+		 *
+		 * @param entityType
+		 *            The entity type which was processed.
+		 */
+		void release(EntityType entityType);
+	}
+
+
+	private int bufferCapacity;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param bufferCapacity
+	 *            The size of the buffer holding the results of each entity type.
+	 */
+	public EntityTypePartitionRunner(int bufferCapacity) {
+		this.bufferCapacity = bufferCapacity;
+	}
+
+
+	/**
+	 * Processes all entity types and sends the results to the sink. The sink
+	 * is initialised and completed but the caller remains responsible for
+	 * closing it. Whichever of the processing threads and the sink fails first
+	 * determines the exception thrown.
+	 *
+	 * @param processor
+	 *            The processor for the entity types.
+	 * @param sink
+	 *            The sink receiving the results.
+	 */
+	public void run(final PartitionProcessor processor, Sink sink) {
+		final AtomicReference<RuntimeException> firstFailure;
+		List<DataPostbox<EntityContainer>> outputs;
+		List<TaskRunner> workers;
+
+		firstFailure = new AtomicReference<RuntimeException>();
+
+		outputs = new ArrayList<DataPostbox<EntityContainer>>();
+		workers = new ArrayList<TaskRunner>();
+		for (final EntityType entityType : EntityType.values()) {
+			final DataPostbox<EntityContainer> output = new DataPostbox<EntityContainer>(bufferCapacity);
+
+			outputs.add(output);
+			workers.add(new TaskRunner(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						processor.process(entityType, new DataPostboxSink(output));
+					} catch (RuntimeException e) {
+						// Failures must be recorded before the output is
+						// released.
+						firstFailure.compareAndSet(null, e);
+						throw e;
+					} finally {
+						try {
+							output.close();
+						} finally {
+							processor.release(entityType);
+						}
+					}
+				}
+			}, "Partition-" + entityType));
+		}
+		for (TaskRunner worker : workers) {
+			worker.start();
+		}
+
+		try {
+			Map<String, Object> metaData = null;
+
+			// All outputs are initialised before any results are read so that
+			// every entity type can be processed immediately.
+			for (DataPostbox<EntityContainer> output : outputs) {
+				Map<String, Object> outputMetaData = output.outputInitialize();
+
+				if (metaData == null) {
+					metaData = outputMetaData;
+				}
+			}
+			sink.initialize(metaData);
+
+			for (DataPostbox<EntityContainer> output : outputs) {
+				while (output.hasNext()) {
+					sink.process(output.getNext());
+				}
+				output.outputComplete();
+			}
+
+			sink.complete();
+
+		} catch (RuntimeException e) {
+			firstFailure.compareAndSet(null, e);
+		} finally {
+			for (DataPostbox<EntityContainer> output : outputs) {
+				output.outputRelease();
+			}
+		}
+
+		for (TaskRunner worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				throw new OsmosisRuntimeException("Thread was interrupted.", e);
+			}
+		}
+
+		if (firstFailure.get() != null) {
+			throw firstFailure.get();
+		}
+		for (TaskRunner worker : workers) {
+			if (!worker.isSuccessful()) {
+				throw new OsmosisRuntimeException(
+						"Thread " + worker.getName() + " failed.", worker.getException());
+			}
+		}
+	}
+}
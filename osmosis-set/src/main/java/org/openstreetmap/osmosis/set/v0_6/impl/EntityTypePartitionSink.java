@@ -0,0 +1,63 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.set.v0_6.impl;
+
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * A sink that writes its data to a separate postbox for each entity type to be
+ * read by other threads. The incoming data must be sorted by type.
+ */
+public class EntityTypePartitionSink implements Sink {
+	private EntityTypePartitions<EntityContainer> partitions;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param partitions
+	 *            The postboxes to write all incoming data into.
+	 */
+	public EntityTypePartitionSink(EntityTypePartitions<EntityContainer> partitions) {
+		this.partitions = partitions;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		partitions.initialize(metaData);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(EntityContainer entityContainer) {
+		partitions.put(entityContainer.getEntity().getType(), entityContainer);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		partitions.complete();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		partitions.release();
+	}
+}
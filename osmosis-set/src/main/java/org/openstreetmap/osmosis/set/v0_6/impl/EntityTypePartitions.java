@@ -0,0 +1,127 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.set.v0_6.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.store.DataPostbox;
+
+
+/**
+ * Splits a stream sorted by entity type into a separate postbox for each entity
+ * type so that each type can be consumed by its own thread. Because the input
+ * is sorted, the postboxes for all earlier types are completed as soon as data
+ * for a later type arrives.
+ *
+ * @param <T>
+ *            The type of data being split.
+ */
+public class EntityTypePartitions<T> {
+	private List<DataPostbox<T>> partitions;
+	private int currentPartition;
+	private volatile boolean dataReceived;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param bufferCapacity
+	 *            The size of the buffer used for each entity type.
+	 */
+	public EntityTypePartitions(int bufferCapacity) {
+		partitions = new ArrayList<DataPostbox<T>>();
+		for (int i = 0; i < EntityType.values().length; i++) {
+			partitions.add(new DataPostbox<T>(bufferCapacity));
+		}
+	}
+
+
+	/**
+	 * Gets the postbox holding the data of a single entity type.
+	 *
+	 * @param entityType
+	 *            The entity type.
+	 * @return The postbox.
+	 */
+	public DataPostbox<T> getPartition(EntityType entityType) {
+		return partitions.get(entityType.ordinal());
+	}
+
+
+	/**
+	 * Indicates if any data has been received. Once the postbox for an entity
+	 * type has been completed, this reflects all data received before any data
+	 * of later types.
+	 *
+	 * @return True if data has been received.
+	 */
+	public boolean isDataReceived() {
+		return dataReceived;
+	}
+
+
+	/**
+	 * Initialises the postboxes of all entity types.
+	 *
+	 * @param metaData
+	 *            The metadata passed to each postbox.
+	 */
+	public void initialize(Map<String, Object> metaData) {
+		currentPartition = 0;
+		dataReceived = false;
+
+		for (DataPostbox<T> partition : partitions) {
+			partition.initialize(metaData);
+		}
+	}
+
+
+	/**
+	 * Adds data to the postbox of its entity type.
+	 *
+	 * @param entityType
+	 *            The entity type of the data.
+	 * @param data
+	 *            The data to be added.
+	 */
+	public void put(EntityType entityType, T data) {
+		int partition = entityType.ordinal();
+
+		// This must be set before earlier partitions are completed.
+		dataReceived = true;
+
+		// The input is sorted by type so all data of earlier types has been
+		// received.
+		while (currentPartition < partition) {
+			partitions.get(currentPartition++).complete();
+		}
+
+		partitions.get(partition).put(data);
+	}
+
+
+	/**
+	 * Completes the postboxes of all remaining entity types.
+	 */
+	public void complete() {
+		while (currentPartition < partitions.size()) {
+			partitions.get(currentPartition++).complete();
+		}
+	}
+
+
+	/**
+	 * Releases the postboxes of all entity types. Each release blocks until the
+	 * consumer of that postbox has released it, and consumers of completed
+	 * types may be waiting on consumers of later types. The incomplete
+	 * postboxes are therefore released first so that their consumers are
+	 * notified of any failure before waiting on the completed ones.
+	 */
+	public void release() {
+		for (int i = 0; i < partitions.size(); i++) {
+			partitions.get((currentPartition + i) % partitions.size()).close();
+		}
+	}
+}
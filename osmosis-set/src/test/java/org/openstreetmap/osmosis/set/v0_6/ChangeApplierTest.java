@@ -195,9 +195,91 @@ public class ChangeApplierTest extends AbstractDataTest {
 				"v0_6/apply_change/apply-change-base-node-only.osm");
 	}
 
+	
+	/**
+	 * Test the creation of a node with each entity type processed on its own
+	 * thread.
+	 * 
+	 * @throws Exception
+	 *             if something goes wrong
+	 */
+	@Test
+	public void parallelCreateNode() throws Exception {
+		applyChange("v0_6/apply_change/apply-change-base.osm",
+				"v0_6/apply_change/change-create.osc",
+				"v0_6/apply_change/apply-change-create.osm",
+				true);
+	}
+	
+	/**
+	 * Test the deletion of a node with each entity type processed on its own
+	 * thread.
+	 * 
+	 * @throws Exception
+	 *             if something goes wrong
+	 */
+	@Test
+	public void parallelDeleteNode() throws Exception {
+		applyChange("v0_6/apply_change/apply-change-base.osm",
+				"v0_6/apply_change/change-delete.osc",
+				"v0_6/apply_change/apply-change-delete.osm",
+				true);
+	}
+	
+	/**
+	 * Test the application of a non-empty change to an empty stream with each
+	 * entity type processed on its own thread.
+	 * 
+	 * @throws Exception
+	 *             if something goes wrong
+	 */
+	@Test
+	public void parallelEmptyBase() throws Exception {
+		applyChange("v0_6/empty-entity.osm",
+				"v0_6/apply_change/change-delete.osc",
+				"v0_6/empty-entity.osm",
+				true);
+	}
+	
+	/**
+	 * Test the case when the change is longer than the source stream with each
+	 * entity type processed on its own thread.
+	 * 
+	 * @throws Exception
+	 *             if something goes wrong
+	 */
+	@Test
+	public void parallelLongChangeCreate() throws Exception {
+		applyChange("v0_6/apply_change/apply-change-base-node-only.osm", 
+				"v0_6/apply_change/change-big-create.osc", 
+				"v0_6/apply_change/apply-change-big.osm",
+				true);
+	}
+	
+	/**
+	 * Test that a failure in the change stream is reported when entity types
+	 * are processed on their own threads.
+	 * 
+	 * @throws Exception
+	 *             if something goes wrong
+	 */
+	@Test(expected = OsmosisRuntimeException.class)
+	public void parallelCreateModifyDelete() throws Exception {
+		applyChange("v0_6/apply_change/apply-change-base.osm",
+				"v0_6/apply_change/change-create-modify-delete.osc",
+				"v0_6/apply_change/apply-change-base.osm",
+				true);
+	}
+
 
 	private void applyChange(String sourceFileName, String changeFileName, 
 			String expectedOutputFileName) throws IOException {
+		applyChange(sourceFileName, changeFileName, expectedOutputFileName, false);
+	}
+
+
+	private void applyChange(String sourceFileName, String changeFileName, 
+			String expectedOutputFileName, boolean parallel) throws IOException {
 		File sourceFile;
 		File changeFile;
 		File expectedOutputFile;
@@ -213,7 +295,7 @@ public class ChangeApplierTest extends AbstractDataTest {
 					"-q",
 					"--read-xml-change-0.6", changeFile.getPath(),
 					"--read-xml-0.6", sourceFile.getPath(),
-					"--apply-change-0.6",
+					"--apply-change-0.6", "parallel=" + parallel,
 					"--write-xml-0.6", actualOutputFile.getPath()
 				}
 			);
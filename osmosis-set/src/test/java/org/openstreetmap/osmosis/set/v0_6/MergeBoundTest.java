@@ -178,6 +178,80 @@ public class MergeBoundTest {
 		Assert.assertEquals(bound1, mergedList.get(0).getEntity());
 		Assert.assertEquals(EntityType.Node, mergedList.get(1).getEntity().getType());
 	}
+	
+	/**
+	 * Test the proper computation of the union bound when each entity type is
+	 * merged on its own thread.
+	 * 
+	 * @throws Exception if something goes wrong
+	 */
+	@Test
+	public void testParallelBothHaveBounds() throws Exception {
+		Bound bound0 = new Bound(1, 2, 4, 3, "source1");
+		RunnableSource source0 = new BoundSource(bound0, true);
+
+		Bound bound1 = new Bound(5, 6, 8, 7, "source2");
+		RunnableSource source1 = new BoundSource(bound1, true);
+
+		EntityMerger merger = new EntityMerger(ConflictResolutionMethod.LatestSource, 1,
+				BoundRemovedAction.Ignore, true);
+		
+		SinkEntityInspector merged = RunTaskUtilities.run(merger, source0, source1);
+		List<EntityContainer> mergedList = createList(merged.getProcessedEntities());
+		Assert.assertEquals(3, mergedList.size());
+		Assert.assertEquals(bound0.union(bound1), mergedList.get(0).getEntity());
+
+		for (int i = 1; i < mergedList.size(); i++) {
+			Assert.assertEquals(EntityType.Node, mergedList.get(i).getEntity().getType());
+		}
+	}
+	
+	/**
+	 * Tests whether merge will delete the declared bound if only one source
+	 * has a declared bound when each entity type is merged on its own thread.
+	 * 
+	 * @throws Exception if something goes wrong
+	 */
+	@Test
+	public void testParallelSource0HasBound() throws Exception {
+		RunnableSource source0 = new BoundSource(new Bound(1, 2, 4, 3, "source0"), true);
+		RunnableSource source1 = new BoundSource(new Bound(5, 6, 8, 7, "source1"), false);
+
+		EntityMerger merger = new EntityMerger(ConflictResolutionMethod.LatestSource, 1,
+				BoundRemovedAction.Ignore, true);
+		
+		SinkEntityInspector merged = RunTaskUtilities.run(merger, source0, source1);
+		List<EntityContainer> mergedList = createList(merged.getProcessedEntities());
+		
+		Assert.assertEquals(2, mergedList.size());
+		for (EntityContainer entityContainer : mergedList) {
+			Assert.assertEquals(EntityType.Node, entityContainer.getEntity().getType());
+		}
+	}
+	
+	/**
+	 * Tests that the bound of a single non-empty source is kept when each
+	 * entity type is merged on its own thread.
+	 * 
+	 * @throws Exception if something goes wrong
+	 */
+	@Test
+	public void testParallelOneSourceEmpty() throws Exception {
+		RunnableSource source0 = new EmptyReader();
+
+		Bound bound1 = new Bound(5, 6, 8, 7, "source2");
+		RunnableSource source1 = new BoundSource(bound1, true);
+		
+		EntityMerger merger = new EntityMerger(ConflictResolutionMethod.LatestSource, 1,
+				BoundRemovedAction.Ignore, true);
+		
+		SinkEntityInspector merged = RunTaskUtilities.run(merger, source0, source1);
+		List<EntityContainer> mergedList = createList(merged.getProcessedEntities());
+		
+		Assert.assertEquals(2, mergedList.size());
+		Assert.assertEquals(bound1, mergedList.get(0).getEntity());
+		Assert.assertEquals(EntityType.Node, mergedList.get(1).getEntity().getType());
+	}
 
 	private static <T> List<T> createList(Iterable<T> t) {
 		List<T> list = new ArrayList<T>();
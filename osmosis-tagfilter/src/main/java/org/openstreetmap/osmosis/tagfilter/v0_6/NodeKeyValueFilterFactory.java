@@ -2,10 +2,15 @@
 package org.openstreetmap.osmosis.tagfilter.v0_6;
 
 import java.io.File;
+import java.util.function.Supplier;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.parallel.v0_6.ParallelSinkSource;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
+import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
 
 
 /**
@@ -18,25 +23,43 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
 public class NodeKeyValueFilterFactory extends TaskManagerFactory {
     private static final String ARG_KEY_VALUE_LIST = "keyValueList";
     private static final String ARG_KEY_VALUE_LIST_FILE = "keyValueListFile";
+    private static final String ARG_WORKERS = "workers";
+    private static final int DEFAULT_WORKERS = 1;
     
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
-		NodeKeyValueFilter nodeKeyValueFilter;
+		final String keyValueList;
+		final File keyValueListFile;
+		int workers;
 
 		if (doesArgumentExist(taskConfig, ARG_KEY_VALUE_LIST)) {
-			String keyValueList = getStringArgument(taskConfig, ARG_KEY_VALUE_LIST);
-			nodeKeyValueFilter = new NodeKeyValueFilter(keyValueList);
+			keyValueList = getStringArgument(taskConfig, ARG_KEY_VALUE_LIST);
+			keyValueListFile = null;
 		} else {
-			String keyValueListFile = getStringArgument(taskConfig, ARG_KEY_VALUE_LIST_FILE);
-			nodeKeyValueFilter = new NodeKeyValueFilter(new File(keyValueListFile));
+			keyValueList = null;
+			keyValueListFile = new File(getStringArgument(taskConfig, ARG_KEY_VALUE_LIST_FILE));
+		}
+		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		if (workers < 1) {
+			throw new OsmosisRuntimeException(
+					"Argument " + ARG_WORKERS + " for task " + taskConfig.getId() + " must be at least 1.");
 		}
 		
 		return new SinkSourceManager(
 			taskConfig.getId(),
-			nodeKeyValueFilter,
+			ParallelSinkSource.create(workers, new Supplier<SinkSource>() {
+				@Override
+				public SinkSource get() {
+					if (keyValueList != null) {
+						return new NodeKeyValueFilter(keyValueList);
+					} else {
+						return new NodeKeyValueFilter(keyValueListFile);
+					}
+				}
+			}),
 			taskConfig.getPipeArgs()
 		);
 	}
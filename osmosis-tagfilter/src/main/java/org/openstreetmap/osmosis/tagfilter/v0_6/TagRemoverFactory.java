@@ -1,11 +1,15 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.tagfilter.v0_6;
 
+import java.util.function.Supplier;
+
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.parallel.v0_6.ParallelSinkSource;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
+import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
 
 
 /**
@@ -15,28 +19,47 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
  * @author Jochen Topf
  */
 public class TagRemoverFactory extends TaskManagerFactory {
+	private static final String ARG_WORKERS = "workers";
+	private static final int DEFAULT_WORKERS = 1;
+	
+	
 	/**
      * {@inheritDoc}
      */
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
-		String keys;
-		String keyPrefixes;
+		final String keys;
+		final String keyPrefixes;
+		String keyArg;
+		String keyPrefixArg;
+		int workers;
 		
 		try {
-			keys = getStringArgument(taskConfig, "keys");
+			keyArg = getStringArgument(taskConfig, "keys");
 		} catch (OsmosisRuntimeException e) {
-			keys = "";
+			keyArg = "";
 		}
 		try {
-			keyPrefixes = getStringArgument(taskConfig, "keyPrefixes");
+			keyPrefixArg = getStringArgument(taskConfig, "keyPrefixes");
 		} catch (OsmosisRuntimeException e) {
-			keyPrefixes = "";
+			keyPrefixArg = "";
+		}
+		keys = keyArg;
+		keyPrefixes = keyPrefixArg;
+		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		if (workers < 1) {
+			throw new OsmosisRuntimeException(
+					"Argument " + ARG_WORKERS + " for task " + taskConfig.getId() + " must be at least 1.");
 		}
 		
 		return new SinkSourceManager(
 			taskConfig.getId(),
-			new TagRemover(keys, keyPrefixes),
+			ParallelSinkSource.create(workers, new Supplier<SinkSource>() {
+				@Override
+				public SinkSource get() {
+					return new TagRemover(keys, keyPrefixes);
+				}
+			}),
 			taskConfig.getPipeArgs()
 		);
 	}
@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.tagfilter.v0_6;
 
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerFactory;
 import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
@@ -16,6 +17,7 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
  * @author Christoph Sommer
  */
 public class UsedNodeFilterFactory extends TaskManagerFactory {
+	private static final String ARG_ID_TRACKER_TYPE = "idTrackerType";
 	private static final IdTrackerType DEFAULT_ID_TRACKER_TYPE = IdTrackerType.Dynamic;
 	
 	
@@ -29,8 +31,8 @@ public class UsedNodeFilterFactory extends TaskManagerFactory {
 	 */
 	protected IdTrackerType getIdTrackerType(
 			TaskConfiguration taskConfig) {
-		
-		return DEFAULT_ID_TRACKER_TYPE;
+		return IdTrackerFactory.parseSelectableType(
+				getStringArgument(taskConfig, ARG_ID_TRACKER_TYPE, DEFAULT_ID_TRACKER_TYPE.name()), taskConfig.getId());
 	}
 
 	/**
@@ -82,4 +82,39 @@ public class TagRemoverTest extends AbstractDataTest {
 		// Validate that the output file matches the input file.
 		dataUtils.compareFiles(expectedResultFile, outputFile);
 	}
+	
+	
+	/**
+	 * Tests tag removal functionality using multiple workers.
+	 * 
+	 * @throws IOException
+	 *             if file manipulation fails.
+	 */
+	@Test
+	public void testKeyParallel() throws IOException {
+		File inputFile;
+		File outputFile;
+		File expectedResultFile;
+		
+		inputFile = dataUtils.createDataFile("v0_6/tag-remove-snapshot.osm");
+		expectedResultFile = dataUtils.createDataFile("v0_6/tag-remove-expected.osm");
+		outputFile = dataUtils.newFile();
+		
+		// Remove all created_by tags.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--remove-tags-0.6",
+				"keys=created_by",
+				"workers=2",
+				"--write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(expectedResultFile, outputFile);
+	}
 }
@@ -28,6 +28,16 @@ public class AndMatcher implements Matcher {
 	}
 
 
+	/**
+	 * Gets the matchers that must all match, in the order they are evaluated.
+	 *
+	 * @return The matchers.
+	 */
+	Collection<Matcher> getMatchers() {
+		return matchers;
+	}
+
+
 	@Override
 	public Collection<Match> match(Map<String, String> tags, TTEntityType entityType, String entityUname,
 			int entityUid) {
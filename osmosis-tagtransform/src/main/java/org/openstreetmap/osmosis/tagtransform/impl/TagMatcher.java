@@ -7,7 +7,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.MatchResult;
-import java.util.regex.Pattern;
 
 import org.openstreetmap.osmosis.tagtransform.Match;
 import org.openstreetmap.osmosis.tagtransform.Matcher;
@@ -17,15 +16,25 @@ import org.openstreetmap.osmosis.tagtransform.TTEntityType;
 public class TagMatcher implements Matcher {
 
 	private String matchID;
-	private Pattern keyPattern;
-	private Pattern valuePattern;
+	private TagPattern keyPattern;
+	private TagPattern valuePattern;
 	private long matchHits = 0;
 
 
 	public TagMatcher(String matchID, String keyPattern, String valuePattern) {
 		this.matchID = matchID;
-		this.keyPattern = Pattern.compile(keyPattern);
-		this.valuePattern = Pattern.compile(valuePattern);
+		this.keyPattern = new TagPattern(keyPattern);
+		this.valuePattern = new TagPattern(valuePattern);
+	}
+
+
+	/**
+	 * Gets the key that must be present for this matcher to match.
+	 *
+	 * @return The key, or null if the key pattern is a regular expression.
+	 */
+	String getLiteralKey() {
+		return keyPattern.getLiteral();
 	}
 
 
@@ -33,14 +42,17 @@ public class TagMatcher implements Matcher {
 	public Collection<Match> match(Map<String, String> tags, TTEntityType type, String uname, int uid) {
 		List<Match> matches = new ArrayList<Match>();
 
-		// loop through the tags to find matches
-		for (Entry<String, String> tag : tags.entrySet()) {
-			java.util.regex.Matcher keyMatch = keyPattern.matcher(tag.getKey());
-			java.util.regex.Matcher valueMatch = valuePattern.matcher(tag.getValue());
-			if (keyMatch.matches() && valueMatch.matches()) {
-				MatchResult keyRes = keyMatch.toMatchResult();
-				MatchResult valueRes = valueMatch.toMatchResult();
-				matches.add(new MatchResultMatch(matchID, keyRes, valueRes));
+		if (keyPattern.getLiteral() != null) {
+			// only a single tag can match so look it up directly
+			String key = keyPattern.getLiteral();
+			String value = tags.get(key);
+			if (value != null) {
+				addMatch(matches, key, value);
+			}
+		} else {
+			// loop through the tags to find matches
+			for (Entry<String, String> tag : tags.entrySet()) {
+				addMatch(matches, tag.getKey(), tag.getValue());
 			}
 		}
 
@@ -49,6 +61,17 @@ public class TagMatcher implements Matcher {
 	}
 
 
+	private void addMatch(List<Match> matches, String key, String value) {
+		MatchResult keyRes = keyPattern.match(key);
+		if (keyRes != null) {
+			MatchResult valueRes = valuePattern.match(value);
+			if (valueRes != null) {
+				matches.add(new MatchResultMatch(matchID, keyRes, valueRes));
+			}
+		}
+	}
+
+
 	@Override
 	public void outputStats(StringBuilder output, String indent) {
 		output.append(indent);
@@ -0,0 +1,165 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.tagtransform.impl;
+
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+
+/**
+ * A tag key or value pattern. Most patterns in translation files are plain
+ * strings, so patterns without any regular expression syntax are compared
+ * directly instead of running a regex matcher.
+ */
+public class TagPattern {
+
+	private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+	private Pattern pattern;
+	private String literal;
+
+
+	public TagPattern(String pattern) {
+		this.pattern = Pattern.compile(pattern);
+
+		if (isLiteral(pattern)) {
+			literal = pattern;
+		}
+	}
+
+
+	private static boolean isLiteral(String pattern) {
+		for (int i = 0; i < pattern.length(); i++) {
+			if (REGEX_METACHARACTERS.indexOf(pattern.charAt(i)) >= 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Gets the string matched by this pattern if it contains no regular
+	 * expression syntax.
+	 *
+	 * @return The literal string, or null if this is a regular expression.
+	 */
+	public String getLiteral() {
+		return literal;
+	}
+
+
+	/**
+	 * Matches the entire input against this pattern.
+	 *
+	 * @param input
+	 *            The string to be matched.
+	 * @return The match result, or null if the input doesn't match.
+	 */
+	public MatchResult match(String input) {
+		if (literal != null) {
+			if (literal.equals(input)) {
+				return new LiteralMatchResult(input);
+			}
+			return null;
+		}
+
+		java.util.regex.Matcher matcher = pattern.matcher(input);
+		if (matcher.matches()) {
+			return matcher.toMatchResult();
+		}
+		return null;
+	}
+
+
+	/**
+	 * Checks if the entire input matches this pattern.
+	 *
+	 * @param input
+	 *            The string to be matched.
+	 * @return True if the input matches.
+	 */
+	public boolean matches(String input) {
+		if (literal != null) {
+			return literal.equals(input);
+		}
+
+		return pattern.matcher(input).matches();
+	}
+
+
+	/**
+	 * Gets the source of this pattern.
+	 *
+	 * @return The pattern as specified in the translation file.
+	 */
+	public String pattern() {
+		return pattern.pattern();
+	}
+
+
+	/**
+	 * The result of matching a literal pattern, which consists of the entire
+	 * input and has no capturing groups.
+	 */
+	private static class LiteralMatchResult implements MatchResult {
+		private String input;
+
+
+		LiteralMatchResult(String input) {
+			this.input = input;
+		}
+
+
+		@Override
+		public int start() {
+			return 0;
+		}
+
+
+		@Override
+		public int start(int group) {
+			checkGroup(group);
+			return 0;
+		}
+
+
+		@Override
+		public int end() {
+			return input.length();
+		}
+
+
+		@Override
+		public int end(int group) {
+			checkGroup(group);
+			return input.length();
+		}
+
+
+		@Override
+		public String group() {
+			return input;
+		}
+
+
+		@Override
+		public String group(int group) {
+			checkGroup(group);
+			return input;
+		}
+
+
+		@Override
+		public int groupCount() {
+			return 0;
+		}
+
+
+		private void checkGroup(int group) {
+			if (group != 0) {
+				throw new IndexOutOfBoundsException("No group " + group);
+			}
+		}
+	}
+}
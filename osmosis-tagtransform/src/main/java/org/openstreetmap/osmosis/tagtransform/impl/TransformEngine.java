@@ -0,0 +1,260 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.tagtransform.impl;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.osmosis.tagtransform.Match;
+import org.openstreetmap.osmosis.tagtransform.Matcher;
+import org.openstreetmap.osmosis.tagtransform.Output;
+import org.openstreetmap.osmosis.tagtransform.TTEntityType;
+import org.openstreetmap.osmosis.tagtransform.Translation;
+
+
+/**
+ * Applies a list of translations to the tags of entities.
+ * <p>
+ * Translations that can only match when a tag with a specific key is present
+ * are indexed by that key, so for each entity only the translations relevant
+ * to its tags are evaluated. Translations are still applied in the order they
+ * are defined.
+ * <p>
+ * Most entities share a limited number of distinct tag combinations, so the
+ * results for recently seen tag sets are kept in a bounded least recently used
+ * cache. Cached results bypass the matchers and therefore their hit counts, so
+ * the cache must be disabled when statistics are required.
+ */
+public class TransformEngine {
+
+	/**
+	 * Cached result indicating that the entity is dropped.
+	 */
+	private static final Map<String, String> DROPPED = new HashMap<String, String>();
+
+
+	private List<Translation> translations;
+	private BitSet unindexedTranslations;
+	private Map<String, BitSet> keyIndex;
+	private boolean userDependent;
+	private Map<ResultKey, Map<String, String>> resultCache;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param translations
+	 *            The translations to be applied in order.
+	 * @param userDependent
+	 *            If true, the translations depend on the user of the entity
+	 *            in addition to its type and tags.
+	 * @param cacheSize
+	 *            The maximum number of results to cache. Caching is disabled if
+	 *            0.
+	 */
+	public TransformEngine(List<Translation> translations, boolean userDependent, final int cacheSize) {
+		this.translations = translations;
+		this.userDependent = userDependent;
+
+		unindexedTranslations = new BitSet();
+		keyIndex = new HashMap<String, BitSet>();
+		for (int i = 0; i < translations.size(); i++) {
+			String requiredKey = getRequiredKey(translations.get(i));
+
+			if (requiredKey != null) {
+				BitSet keyTranslations = keyIndex.get(requiredKey);
+				if (keyTranslations == null) {
+					keyTranslations = new BitSet();
+					keyIndex.put(requiredKey, keyTranslations);
+				}
+				keyTranslations.set(i);
+			} else {
+				unindexedTranslations.set(i);
+			}
+		}
+
+		if (cacheSize > 0) {
+			resultCache = new LinkedHashMap<ResultKey, Map<String, String>>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<ResultKey, Map<String, String>> eldest) {
+					return size() > cacheSize;
+				}
+			};
+		}
+	}
+
+
+	/**
+	 * Determines the key of a tag that must exist for the translation to match.
+	 * Only translations where the first matcher evaluated requires the key are
+	 * indexed, because skipping any other translation could change the match
+	 * statistics of matchers evaluated before the failing one.
+	 *
+	 * @param translation
+	 *            The translation.
+	 * @return The key, or null if the translation must always be evaluated.
+	 */
+	private static String getRequiredKey(Translation translation) {
+		Matcher matcher;
+		Iterator<Matcher> children;
+
+		if (!(translation instanceof TranslationImpl)) {
+			return null;
+		}
+
+		matcher = ((TranslationImpl) translation).getMatcher();
+		if (!(matcher instanceof AndMatcher)) {
+			return null;
+		}
+
+		children = ((AndMatcher) matcher).getMatchers().iterator();
+		if (!children.hasNext()) {
+			return null;
+		}
+
+		matcher = children.next();
+		if (matcher instanceof TagMatcher) {
+			return ((TagMatcher) matcher).getLiteralKey();
+		}
+
+		return null;
+	}
+
+
+	private BitSet getCandidates(Map<String, String> tags) {
+		BitSet candidates = (BitSet) unindexedTranslations.clone();
+
+		for (String key : tags.keySet()) {
+			BitSet keyTranslations = keyIndex.get(key);
+			if (keyTranslations != null) {
+				candidates.or(keyTranslations);
+			}
+		}
+
+		return candidates;
+	}
+
+
+	/**
+	 * Transforms a set of tags.
+	 *
+	 * @param tags
+	 *            The tags of the entity. The map is not modified.
+	 * @param type
+	 *            The type of the entity.
+	 * @param uname
+	 *            The user name of the entity.
+	 * @param uid
+	 *            The user id of the entity.
+	 * @return The transformed tags, or null if the entity is to be dropped. The
+	 *         returned map must not be modified.
+	 */
+	public Map<String, String> transform(Map<String, String> tags, TTEntityType type, String uname, int uid) {
+		ResultKey resultKey;
+		Map<String, String> result;
+
+		if (resultCache == null) {
+			return applyTranslations(tags, type, uname, uid);
+		}
+
+		if (userDependent) {
+			resultKey = new ResultKey(tags, type, uname, uid);
+		} else {
+			resultKey = new ResultKey(tags, type, null, 0);
+		}
+
+		result = resultCache.get(resultKey);
+		if (result == null) {
+			result = applyTranslations(tags, type, uname, uid);
+			if (result == null) {
+				result = DROPPED;
+			}
+			resultCache.put(resultKey, result);
+		}
+
+		if (result == DROPPED) {
+			return null;
+		}
+		return result;
+	}
+
+
+	private Map<String, String> applyTranslations(Map<String, String> tags, TTEntityType type, String uname,
+			int uid) {
+		Map<String, String> tagMap = tags;
+		BitSet candidates = getCandidates(tagMap);
+
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			Translation translation = translations.get(i);
+
+			Collection<Match> matches = translation.match(tagMap, type, uname, uid);
+			if (matches == null || matches.isEmpty()) {
+				continue;
+			}
+			if (translation.isDropOnMatch()) {
+				return null;
+			}
+
+			Map<String, String> newTags = new HashMap<String, String>();
+			for (Output output : translation.getOutputs()) {
+				output.apply(tagMap, newTags, matches);
+			}
+			tagMap = newTags;
+
+			// the remaining translations depend on the new tags
+			candidates = getCandidates(tagMap);
+		}
+
+		return tagMap;
+	}
+
+
+	/**
+	 * Identifies the inputs determining a transformation result.
+	 */
+	private static class ResultKey {
+		private Map<String, String> tags;
+		private TTEntityType type;
+		private String uname;
+		private int uid;
+		private int hashCode;
+
+
+		ResultKey(Map<String, String> tags, TTEntityType type, String uname, int uid) {
+			this.tags = tags;
+			this.type = type;
+			this.uname = uname;
+			this.uid = uid;
+
+			hashCode = tags.hashCode() * 31 + (type != null ? type.hashCode() : 0);
+			hashCode = hashCode * 31 + (uname != null ? uname.hashCode() : 0);
+			hashCode = hashCode * 31 + uid;
+		}
+
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof ResultKey)) {
+				return false;
+			}
+
+			ResultKey other = (ResultKey) o;
+			return hashCode == other.hashCode && type == other.type && uid == other.uid
+					&& (uname == null ? other.uname == null : uname.equals(other.uname))
+					&& tags.equals(other.tags);
+		}
+
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
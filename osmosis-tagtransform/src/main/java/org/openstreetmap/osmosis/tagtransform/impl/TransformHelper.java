@@ -20,8 +20,6 @@ import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 import org.openstreetmap.osmosis.core.task.common.Task;
 import org.openstreetmap.osmosis.core.task.v0_6.Initializable;
-import org.openstreetmap.osmosis.tagtransform.Match;
-import org.openstreetmap.osmosis.tagtransform.Output;
 import org.openstreetmap.osmosis.tagtransform.StatsSaveException;
 import org.openstreetmap.osmosis.tagtransform.TTEntityType;
 import org.openstreetmap.osmosis.tagtransform.Translation;
@@ -39,20 +37,49 @@ import org.openstreetmap.osmosis.xml.common.XmlTimestampFormat;
  *            is a sink type.
  */
 public abstract class TransformHelper<T extends Task & Initializable> implements Initializable {
+	/**
+	 * The default number of distinct tag sets to cache transformation results
+	 * for.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 10000;
+
 	protected Logger logger = Logger.getLogger(this.getClass().getName());
 
 	protected T sink;
 	protected String statsFile;
 	protected String configFile;
 	protected List<Translation> translations;
+	protected TransformEngine engine;
 	protected static TimestampFormat timestampFormat = new XmlTimestampFormat();
 
 
 	public TransformHelper(String configFile, String statsFile) {
+		this(configFile, statsFile, DEFAULT_CACHE_SIZE);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param configFile
+	 *            The translation file.
+	 * @param statsFile
+	 *            The file to write match statistics to, or null for none.
+	 * @param cacheSize
+	 *            The maximum number of distinct tag sets to cache results
+	 *            for, or 0 to disable caching. Caching is always disabled
+	 *            when statistics are written because cached results don't
+	 *            update the match counts.
+	 */
+	public TransformHelper(String configFile, String statsFile, int cacheSize) {
 		logger.log(Level.FINE, "Transform configured with " + configFile + " and " + statsFile);
-		translations = new TransformLoader().load(configFile);
+		TransformLoader loader = new TransformLoader();
+		translations = loader.load(configFile);
 		this.statsFile = statsFile;
 		this.configFile = configFile;
+
+		boolean writeStats = statsFile != null && !statsFile.isEmpty();
+		engine = new TransformEngine(translations, loader.isUserDependent(), writeStats ? 0 : cacheSize);
 	}
 
 
@@ -125,21 +152,10 @@ public abstract class TransformHelper<T extends Task & Initializable> implements
 		}
 
 		// Apply tag transformations.
-		for (Translation translation : translations) {
-			Collection<Match> matches = translation.match(tagMap, TTEntityType.fromEntityType06(entityType), entity
-					.getUser().getName(), entity.getUser().getId());
-			if (matches == null || matches.isEmpty()) {
-				continue;
-			}
-			if (translation.isDropOnMatch()) {
-				return null;
-			}
-
-			Map<String, String> newTags = new HashMap<String, String>();
-			for (Output output : translation.getOutputs()) {
-				output.apply(tagMap, newTags, matches);
-			}
-			tagMap = newTags;
+		tagMap = engine.transform(tagMap, TTEntityType.fromEntityType06(entityType), entity.getUser().getName(),
+				entity.getUser().getId());
+		if (tagMap == null) {
+			return null;
 		}
 
 		// Replace the entity tags with the transformed values.
@@ -21,6 +21,8 @@ import org.w3c.dom.NodeList;
 public class TransformLoader {
 	private static final Logger LOG = Logger.getLogger(TransformLoader.class.getName());
 
+	private boolean userDependent;
+
 
 	public List<Translation> load(String configFile) {
 		List<Translation> translations = new ArrayList<Translation>();
@@ -44,6 +46,17 @@ public class TransformLoader {
 	}
 
 
+	/**
+	 * Indicates if any of the loaded translations only match entities of
+	 * specific users.
+	 *
+	 * @return True if the translation result depends on the entity user.
+	 */
+	public boolean isUserDependent() {
+		return userDependent;
+	}
+
+
 	private Translation parseTranslation(Element element) {
 		String name = "";
 		String description = "";
@@ -129,9 +142,11 @@ public class TransformLoader {
 			TTEntityType type = getType(matcher.getAttribute("type"));
 			if (matcher.getAttribute("user") != "") {
 				uname = matcher.getAttribute("user");
+				userDependent = true;
 			}
 			if (matcher.getAttribute("uid") != "") {
 				uid = Integer.parseInt(matcher.getAttribute("uid"));
+				userDependent = true;
 			}
 			String mode;
 			if (name.equals("find")) {
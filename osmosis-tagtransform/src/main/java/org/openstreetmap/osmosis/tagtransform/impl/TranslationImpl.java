@@ -31,6 +31,16 @@ public class TranslationImpl implements Translation {
 	}
 
 
+	/**
+	 * Gets the matcher deciding whether this translation applies.
+	 *
+	 * @return The matcher.
+	 */
+	Matcher getMatcher() {
+		return matcher;
+	}
+
+
 	@Override
 	public Collection<Output> getOutputs() {
 		return output;
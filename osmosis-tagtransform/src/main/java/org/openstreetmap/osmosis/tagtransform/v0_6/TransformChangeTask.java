@@ -16,6 +16,11 @@ public class TransformChangeTask extends TransformHelper<ChangeSink> implements
 	}
 
 
+	public TransformChangeTask(String configFile, String statsFile, int cacheSize) {
+		super(configFile, statsFile, cacheSize);
+	}
+
+
 	@Override
 	public void process(ChangeContainer changeContainer) {
 		if (!ChangeAction.Delete.equals(changeContainer.getAction())) {
@@ -5,6 +5,7 @@ import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.ChangeSinkChangeSourceManager;
+import org.openstreetmap.osmosis.tagtransform.impl.TransformHelper;
 
 
 public class TransformChangeTaskFactory extends TaskManagerFactory {
@@ -14,8 +15,9 @@ public class TransformChangeTaskFactory extends TaskManagerFactory {
 		String configFile =
 				getStringArgument(taskConfig, "file", getDefaultStringArgument(taskConfig, "transform.xml"));
 		String statsFile = getStringArgument(taskConfig, "stats", null);
-		return new ChangeSinkChangeSourceManager(taskConfig.getId(), new TransformChangeTask(configFile, statsFile),
-				taskConfig.getPipeArgs());
+		int cacheSize = getIntegerArgument(taskConfig, "cacheSize", TransformHelper.DEFAULT_CACHE_SIZE);
+		return new ChangeSinkChangeSourceManager(taskConfig.getId(),
+				new TransformChangeTask(configFile, statsFile, cacheSize), taskConfig.getPipeArgs());
 	}
 
 }
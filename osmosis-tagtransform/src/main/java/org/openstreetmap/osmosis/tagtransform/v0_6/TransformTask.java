@@ -14,6 +14,11 @@ public class TransformTask extends TransformHelper<Sink> implements SinkSource {
 	}
 
 
+	public TransformTask(String configFile, String statsFile, int cacheSize) {
+		super(configFile, statsFile, cacheSize);
+	}
+
+
 	@Override
 	public void process(EntityContainer entityContainer) {
 		EntityContainer output = processEntityContainer(entityContainer);
@@ -1,22 +1,47 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.tagtransform.v0_6;
 
+import java.util.function.Supplier;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.parallel.v0_6.ParallelSinkSource;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
+import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
+import org.openstreetmap.osmosis.tagtransform.impl.TransformHelper;
 
 
 public class TransformTaskFactory extends TaskManagerFactory {
 
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
-		String configFile =
+		final String configFile =
 				getStringArgument(taskConfig, "file", getDefaultStringArgument(taskConfig, "transform.xml"));
-		String statsFile =
+		final String statsFile =
 				getStringArgument(taskConfig, "stats", null);
-		return new SinkSourceManager(taskConfig.getId(), new TransformTask(configFile, statsFile),
-				taskConfig.getPipeArgs());
+		final int cacheSize = getIntegerArgument(taskConfig, "cacheSize", TransformHelper.DEFAULT_CACHE_SIZE);
+		int workers = getIntegerArgument(taskConfig, "workers", 1);
+		if (workers < 1) {
+			throw new OsmosisRuntimeException(
+					"Argument workers for task " + taskConfig.getId() + " must be at least 1.");
+		}
+
+		// Each worker counts matches separately so the statistics would be
+		// incomplete.
+		if (workers > 1 && statsFile != null) {
+			throw new OsmosisRuntimeException("Task " + taskConfig.getId()
+					+ " cannot write statistics when using multiple workers.");
+		}
+
+		SinkSource task = ParallelSinkSource.create(workers, new Supplier<SinkSource>() {
+			@Override
+			public SinkSource get() {
+				return new TransformTask(configFile, statsFile, cacheSize);
+			}
+		});
+		return new SinkSourceManager(taskConfig.getId(), task, taskConfig.getPipeArgs());
 	}
 
 }
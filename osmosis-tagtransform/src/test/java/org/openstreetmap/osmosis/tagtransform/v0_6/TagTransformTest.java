@@ -52,4 +52,82 @@ public class TagTransformTest extends AbstractDataTest {
 		// Validate that the output file matches the expected result.
 		dataUtils.compareFiles(expectedOutputFile, actualOutputFile);
 	}
+
+
+	/**
+	 * Tests transforming all tags in a single OSM file without caching results.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testTransformUncached() throws IOException {
+		File sourceFile;
+		File translationFile;
+		File expectedOutputFile;
+		File actualOutputFile;
+
+		// Generate files.
+		sourceFile = dataUtils.createDataFile("v0_6/test-in.osm");
+		translationFile = dataUtils.createDataFile("v0_6/translation.xml");
+		expectedOutputFile = dataUtils.createDataFile("v0_6/test-out.osm");
+		actualOutputFile = dataUtils.newFile();
+
+		// Append the two source files into the destination file.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-xml-0.6",
+				sourceFile.getPath(),
+				"--tag-transform-0.6",
+				"file=" + translationFile,
+				"cacheSize=0",
+				"--tag-sort-0.6",
+				"--write-xml-0.6",
+				actualOutputFile.getPath()
+			}
+		);
+
+		// Validate that the output file matches the expected result.
+		dataUtils.compareFiles(expectedOutputFile, actualOutputFile);
+	}
+	
+	
+	/**
+	 * Tests transforming all tags in a single OSM file using multiple workers.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testTransformParallel() throws IOException {
+		File sourceFile;
+		File translationFile;
+		File expectedOutputFile;
+		File actualOutputFile;
+
+		// Generate files.
+		sourceFile = dataUtils.createDataFile("v0_6/test-in.osm");
+		translationFile = dataUtils.createDataFile("v0_6/translation.xml");
+		expectedOutputFile = dataUtils.createDataFile("v0_6/test-out.osm");
+		actualOutputFile = dataUtils.newFile();
+
+		// Append the two source files into the destination file.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-xml-0.6",
+				sourceFile.getPath(),
+				"--tag-transform-0.6",
+				"file=" + translationFile,
+				"workers=2",
+				"--tag-sort-0.6",
+				"--write-xml-0.6",
+				actualOutputFile.getPath()
+			}
+		);
+
+		// Validate that the output file matches the expected result.
+		dataUtils.compareFiles(expectedOutputFile, actualOutputFile);
+	}
 }
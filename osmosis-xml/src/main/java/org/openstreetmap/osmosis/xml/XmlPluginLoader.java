@@ -7,6 +7,7 @@ import java.util.Map;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
 import org.openstreetmap.osmosis.core.plugin.PluginLoader;
 import org.openstreetmap.osmosis.xml.v0_6.FastXmlReaderFactory;
+import org.openstreetmap.osmosis.xml.v0_6.FastXmlWriterFactory;
 import org.openstreetmap.osmosis.xml.v0_6.XmlChangeReaderFactory;
 import org.openstreetmap.osmosis.xml.v0_6.XmlChangeUploaderFactory;
 import org.openstreetmap.osmosis.xml.v0_6.XmlChangeWriterFactory;
@@ -39,6 +40,7 @@ public class XmlPluginLoader implements PluginLoader {
 		factoryMap.put("rxc", new XmlChangeReaderFactory());
 		factoryMap.put("write-xml", new XmlWriterFactory());
 		factoryMap.put("wx", new XmlWriterFactory());
+		factoryMap.put("fast-write-xml", new FastXmlWriterFactory());
 		factoryMap.put("write-xml-change", new XmlChangeWriterFactory());
 		factoryMap.put("wxc", new XmlChangeWriterFactory());
 		factoryMap.put("read-api", new XmlDownloaderFactory());
@@ -48,6 +50,7 @@ public class XmlPluginLoader implements PluginLoader {
 		factoryMap.put("fast-read-xml-0.6", new FastXmlReaderFactory());
 		factoryMap.put("read-xml-change-0.6", new XmlChangeReaderFactory());
 		factoryMap.put("write-xml-0.6", new XmlWriterFactory());
+		factoryMap.put("fast-write-xml-0.6", new FastXmlWriterFactory());
 		factoryMap.put("write-xml-change-0.6", new XmlChangeWriterFactory());
 		factoryMap.put("read-api-0.6", new XmlDownloaderFactory());
 		
@@ -99,4 +99,32 @@ public class CompressionActivator {
 					"Unable to instantiate a " + compressionMethod + " compression stream.", e);
 		}
 	}
+	
+	
+	/**
+	 * Wraps a compression stream around the source stream based upon the
+	 * requested compression method, decompressing on separate threads. Data is
+	 * decompressed ahead of the consumer on a dedicated thread, and bzip2 blocks
+	 * are decoded in parallel. If this method returns successfully, the input
+	 * source stream does not require closing after use because it will be
+	 * closed when the returned input stream is closed.
+	 * 
+	 * @param sourceStream
+	 *            The source stream for providing compressed data.
+	 * @param workers
+	 *            The number of threads used to decompress data. If 1, data is
+	 *            decompressed on the calling thread.
+	 * @return A stream for reading decompressed data from the source stream.
+	 */
+	public InputStream createCompressionInputStream(InputStream sourceStream, int workers) {
+		if (workers <= 1) {
+			return createCompressionInputStream(sourceStream);
+		}
+		
+		if (CompressionMethod.BZip2.equals(compressionMethod)) {
+			return new ReadAheadInputStream(new ParallelBZip2InputStream(sourceStream, workers));
+		}
+		
+		return new ReadAheadInputStream(createCompressionInputStream(sourceStream));
+	}
 }
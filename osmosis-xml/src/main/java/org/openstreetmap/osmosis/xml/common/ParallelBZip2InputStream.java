@@ -0,0 +1,547 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+
+/**
+ * A bzip2 input stream decoding blocks on multiple threads. Each bzip2 block is
+ * self contained and starts with a known 48-bit marker, so the compressed data
+ * is scanned for block boundaries and each block is decoded independently as a
+ * single block stream. Decoded blocks are returned in order. Concatenated bzip2
+ * streams such as those produced by parallel bzip2 compressors are supported.
+ * <p>
+ * The block marker may also occur by chance within compressed data. A block
+ * which fails to decode is therefore merged with the data following it and
+ * decoded again before the stream is considered to be corrupt.
+ */
+public class ParallelBZip2InputStream extends InputStream {
+
+	private static final long BLOCK_MAGIC = 0x314159265359L;
+	private static final long END_OF_STREAM_MAGIC = 0x177245385090L;
+	private static final long MAGIC_MASK = 0xFFFFFFFFFFFFL;
+	private static final int MAGIC_BITS = 48;
+	private static final int CRC_BITS = 32;
+	private static final int MIN_BLOCK_BITS = MAGIC_BITS + CRC_BITS;
+	private static final int READ_SIZE = 65536;
+
+	/**
+	 * The largest amount of compressed data which may be searched for a block
+	 * boundary or merged when recovering from a false boundary. This is well
+	 * above the largest compressed block at any compression level.
+	 */
+	private static final int MAX_CHUNK_BYTES = 4 * 1024 * 1024;
+
+
+	private InputStream source;
+	private ExecutorService executor;
+	private int maxPendingBlocks;
+	private Deque<Chunk> pendingChunks;
+	private int pendingBlockCount;
+
+	private byte[] buffer;
+	private int bufferLength;
+	private int scanPosition;
+	private long window;
+	private long chunkStart;
+	private boolean chunkIsBlock;
+	private int streamLevel;
+	private boolean headerChecked;
+	private boolean inputEnded;
+	private boolean truncated;
+
+	private byte[] output;
+	private int outputPosition;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param source
+	 *            The stream providing bzip2 compressed data. This is closed
+	 *            when this stream is closed.
+	 * @param workers
+	 *            The number of threads used to decode blocks.
+	 */
+	public ParallelBZip2InputStream(InputStream source, int workers) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Worker count must be at least 1, not " + workers);
+		}
+
+		this.source = source;
+
+		executor = Executors.newFixedThreadPool(workers);
+		// Allow a block to wait for each worker so they never sit idle.
+		maxPendingBlocks = workers * 2;
+		pendingChunks = new ArrayDeque<Chunk>();
+
+		buffer = new byte[READ_SIZE * 2];
+		output = new byte[0];
+		streamLevel = 9;
+	}
+
+
+	/**
+	 * Decodes a single block by wrapping it in a stream containing only that
+	 * block. The combined CRC of a single block stream is the block CRC.
+	 */
+	private static byte[] decodeBlock(byte[] data, long bitLength, int level) throws IOException {
+		BitBuffer stream;
+		long blockCrc;
+		ByteArrayOutputStream decoded;
+		byte[] readBuffer;
+
+		if (bitLength < MIN_BLOCK_BITS) {
+			throw new IOException("Block of " + bitLength + " bits is too short.");
+		}
+
+		// The block CRC immediately follows the block marker and is byte aligned
+		// within the chunk.
+		blockCrc = 0;
+		for (int i = 6; i < 10; i++) {
+			blockCrc = (blockCrc << 8) | (data[i] & 0xFF);
+		}
+
+		stream = new BitBuffer((int) (bitLength >>> 3) + 20);
+		stream.writeBits(0x425A6830L + level, 32);
+		stream.writeBits(data, 0, bitLength);
+		stream.writeBits(END_OF_STREAM_MAGIC, MAGIC_BITS);
+		stream.writeBits(blockCrc, CRC_BITS);
+
+		decoded = new ByteArrayOutputStream(level * 100000);
+		readBuffer = new byte[READ_SIZE];
+		try (InputStream blockStream = new BZip2CompressorInputStream(
+				new ByteArrayInputStream(stream.data, 0, stream.getByteLength()), false)) {
+			int count;
+
+			while ((count = blockStream.read(readBuffer)) >= 0) {
+				decoded.write(readBuffer, 0, count);
+			}
+		}
+
+		return decoded.toByteArray();
+	}
+
+
+	private void checkHeader() throws IOException {
+		while (bufferLength < 4) {
+			if (!readInput()) {
+				break;
+			}
+		}
+
+		if (bufferLength < 4 || buffer[0] != 'B' || buffer[1] != 'Z' || buffer[2] != 'h' || buffer[3] < '1'
+				|| buffer[3] > '9') {
+			throw new IOException("Stream is not in the BZip2 format.");
+		}
+		streamLevel = buffer[3] - '0';
+
+		headerChecked = true;
+	}
+
+
+	/**
+	 * Reads more compressed data into the scan buffer.
+	 *
+	 * @return False if the end of the input has been reached.
+	 */
+	private boolean readInput() throws IOException {
+		int count;
+
+		if (bufferLength + READ_SIZE > buffer.length) {
+			if (bufferLength > MAX_CHUNK_BYTES) {
+				throw new IOException("No bzip2 block boundary found within " + MAX_CHUNK_BYTES + " bytes.");
+			}
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+
+		do {
+			count = source.read(buffer, bufferLength, READ_SIZE);
+		} while (count == 0);
+
+		if (count < 0) {
+			return false;
+		}
+		bufferLength += count;
+
+		return true;
+	}
+
+
+	/**
+	 * Scans the input until the current chunk is complete and adds it to the
+	 * pending chunks.
+	 */
+	private void scanChunk() throws IOException {
+		while (true) {
+			int shift;
+
+			if (scanPosition == bufferLength) {
+				if (!readInput()) {
+					finishInput();
+					return;
+				}
+			}
+
+			window = (window << 8) | (buffer[scanPosition++] & 0xFF);
+
+			// Markers are not byte aligned so check every bit offset ending
+			// within the byte just added.
+			for (shift = 7; shift >= 0; shift--) {
+				long candidate = (window >>> shift) & MAGIC_MASK;
+
+				if (candidate == BLOCK_MAGIC || candidate == END_OF_STREAM_MAGIC) {
+					long magicStart = (long) scanPosition * 8 - shift - MAGIC_BITS;
+
+					if (magicStart > chunkStart) {
+						completeChunk(magicStart, candidate == BLOCK_MAGIC);
+						return;
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Completes the current chunk at the start of a newly found marker.
+	 */
+	private void completeChunk(long magicStart, boolean nextIsBlock) {
+		Chunk chunk;
+		int keepFrom;
+
+		chunk = new Chunk(chunkIsBlock, streamLevel);
+		chunk.bits.writeBits(buffer, chunkStart, magicStart - chunkStart);
+		addChunk(chunk);
+
+		// A block following the header of a concatenated stream uses the block
+		// size of that stream.
+		if (nextIsBlock && !chunkIsBlock && (magicStart & 7) == 0 && magicStart >= chunkStart + 32) {
+			int headerStart = (int) (magicStart >>> 3) - 4;
+
+			if (buffer[headerStart] == 'B' && buffer[headerStart + 1] == 'Z' && buffer[headerStart + 2] == 'h'
+					&& buffer[headerStart + 3] >= '1' && buffer[headerStart + 3] <= '9') {
+				streamLevel = buffer[headerStart + 3] - '0';
+			}
+		}
+
+		// Discard data which is no longer required.
+		keepFrom = (int) (magicStart >>> 3);
+		System.arraycopy(buffer, keepFrom, buffer, 0, bufferLength - keepFrom);
+		bufferLength -= keepFrom;
+		scanPosition -= keepFrom;
+		chunkStart = magicStart - keepFrom * 8L;
+		chunkIsBlock = nextIsBlock;
+	}
+
+
+	/**
+	 * Handles the end of the input. Data following the last end of stream
+	 * marker is ignored, but a block without an end of stream marker means the
+	 * input was truncated.
+	 */
+	private void finishInput() {
+		inputEnded = true;
+
+		if (chunkIsBlock) {
+			truncated = true;
+		}
+		bufferLength = 0;
+		scanPosition = 0;
+	}
+
+
+	private void addChunk(final Chunk chunk) {
+		if (chunk.isBlock) {
+			chunk.result = executor.submit(new Callable<byte[]>() {
+				@Override
+				public byte[] call() throws IOException {
+					return decodeBlock(chunk.bits.data, chunk.bits.bitLength, chunk.level);
+				}
+			});
+			pendingBlockCount++;
+		}
+
+		pendingChunks.add(chunk);
+	}
+
+
+	/**
+	 * Scans ahead until enough blocks are queued to keep all workers busy.
+	 */
+	private void fillPendingChunks() throws IOException {
+		if (!headerChecked) {
+			checkHeader();
+		}
+
+		while (pendingBlockCount < maxPendingBlocks && !inputEnded) {
+			scanChunk();
+		}
+	}
+
+
+	private Chunk removeChunk() {
+		Chunk chunk = pendingChunks.removeFirst();
+
+		if (chunk.isBlock) {
+			pendingBlockCount--;
+		}
+
+		return chunk;
+	}
+
+
+	/**
+	 * Makes the next decoded block current.
+	 *
+	 * @return False if the end of the stream has been reached.
+	 */
+	private boolean nextBlock() throws IOException {
+		while (true) {
+			Chunk chunk;
+
+			fillPendingChunks();
+
+			if (pendingChunks.isEmpty()) {
+				if (truncated) {
+					throw new IOException("Unexpected end of bzip2 stream.");
+				}
+				return false;
+			}
+
+			chunk = removeChunk();
+			if (chunk.isBlock) {
+				output = getDecodedBlock(chunk);
+				outputPosition = 0;
+
+				if (output.length > 0) {
+					return true;
+				}
+			}
+		}
+	}
+
+
+	private byte[] getDecodedBlock(Chunk chunk) throws IOException {
+		try {
+			return chunk.result.get();
+
+		} catch (InterruptedException e) {
+			InterruptedIOException ioe = new InterruptedIOException("Interrupted while decoding a block.");
+			ioe.initCause(e);
+			throw ioe;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			return recoverBlock(chunk, cause);
+		}
+	}
+
+
+	/**
+	 * Attempts to decode a block which failed to decode on its own by merging
+	 * it with the chunks following it. This handles block markers occurring by
+	 * chance within compressed data.
+	 */
+	private byte[] recoverBlock(Chunk chunk, Throwable failure) throws IOException {
+		BitBuffer merged = chunk.bits;
+
+		while (true) {
+			Chunk nextChunk;
+
+			fillPendingChunks();
+			if (pendingChunks.isEmpty() || merged.bitLength > MAX_CHUNK_BYTES * 8L) {
+				throw new IOException("Unable to decode bzip2 block.", failure);
+			}
+
+			nextChunk = removeChunk();
+			if (nextChunk.result != null) {
+				nextChunk.result.cancel(true);
+			}
+			merged.writeBits(nextChunk.bits.data, 0, nextChunk.bits.bitLength);
+
+			try {
+				return decodeBlock(merged.data, merged.bitLength, chunk.level);
+			} catch (IOException | RuntimeException e) {
+				// Include more data and try again.
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		if (outputPosition == output.length) {
+			if (!nextBlock()) {
+				return -1;
+			}
+		}
+
+		return output[outputPosition++] & 0xFF;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int count;
+
+		if (len == 0) {
+			return 0;
+		}
+
+		if (outputPosition == output.length) {
+			if (!nextBlock()) {
+				return -1;
+			}
+		}
+
+		count = Math.min(len, output.length - outputPosition);
+		System.arraycopy(output, outputPosition, b, off, count);
+		outputPosition += count;
+
+		return count;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int available() {
+		return output.length - outputPosition;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			executor.shutdownNow();
+			pendingChunks.clear();
+		} finally {
+			source.close();
+		}
+	}
+
+
+	/**
+	 * A contiguous range of compressed data which is either a block or the
+	 * data between blocks.
+	 */
+	private static final class Chunk {
+		private boolean isBlock;
+		private int level;
+		private BitBuffer bits;
+		private Future<byte[]> result;
+
+
+		Chunk(boolean isBlock, int level) {
+			this.isBlock = isBlock;
+			this.level = level;
+
+			bits = new BitBuffer(1024);
+		}
+	}
+
+
+	/**
+	 * A growable buffer of bits written most significant bit first.
+	 */
+	private static final class BitBuffer {
+		private byte[] data;
+		private long bitLength;
+
+
+		BitBuffer(int capacity) {
+			data = new byte[capacity];
+		}
+
+
+		int getByteLength() {
+			return (int) ((bitLength + 7) >>> 3);
+		}
+
+
+		private void ensureCapacity(long bits) {
+			int bytes = (int) ((bits + 7) >>> 3);
+
+			if (bytes > data.length) {
+				data = Arrays.copyOf(data, Math.max(bytes, data.length * 2));
+			}
+		}
+
+
+		private void writeBit(int bit) {
+			if (bit != 0) {
+				data[(int) (bitLength >>> 3)] |= 0x80 >>> (int) (bitLength & 7);
+			}
+			bitLength++;
+		}
+
+
+		void writeBits(long value, int count) {
+			ensureCapacity(bitLength + count);
+
+			for (int i = count - 1; i >= 0; i--) {
+				writeBit((int) (value >>> i) & 1);
+			}
+		}
+
+
+		void writeBits(byte[] source, long startBit, long count) {
+			ensureCapacity(bitLength + count);
+
+			// Copy whole bytes while the destination is byte aligned, which is
+			// always the case except when merging chunks.
+			if ((bitLength & 7) == 0) {
+				int sourceIndex = (int) (startBit >>> 3);
+				int sourceShift = (int) (startBit & 7);
+				int destinationIndex = (int) (bitLength >>> 3);
+				int byteCount = (int) (count >>> 3);
+
+				if (sourceShift == 0) {
+					System.arraycopy(source, sourceIndex, data, destinationIndex, byteCount);
+				} else {
+					for (int i = 0; i < byteCount; i++) {
+						data[destinationIndex + i] = (byte) ((source[sourceIndex + i] << sourceShift)
+								| ((source[sourceIndex + i + 1] & 0xFF) >>> (8 - sourceShift)));
+					}
+				}
+
+				bitLength += byteCount * 8L;
+				startBit += byteCount * 8L;
+				count -= byteCount * 8L;
+			}
+
+			for (long i = 0; i < count; i++) {
+				long position = startBit + i;
+
+				writeBit((source[(int) (position >>> 3)] >>> (7 - (int) (position & 7))) & 1);
+			}
+		}
+	}
+}
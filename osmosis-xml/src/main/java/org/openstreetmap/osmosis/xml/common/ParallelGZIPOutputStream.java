@@ -0,0 +1,233 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * A gzip output stream compressing data on multiple threads. Data is split
+ * into fixed size blocks, each of which is compressed into an independent gzip
+ * member. Members are written in order, so the output is a valid multi-member
+ * gzip file which can be read by standard gzip tools and by
+ * {@link org.openstreetmap.osmosis.core.util.MultiMemberGZIPInputStream}.
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+	/**
+	 * The default amount of uncompressed data in each gzip member. Large blocks
+	 * keep the compression ratio close to that of a single member.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	private OutputStream outputStream;
+	private ExecutorService executor;
+	private int blockSize;
+	private int maxPendingBlocks;
+	private Deque<Future<byte[]>> pendingBlocks;
+	private byte[] block;
+	private int blockPosition;
+	private boolean memberWritten;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param outputStream
+	 *            The stream to receive compressed data. This is closed when
+	 *            this stream is closed.
+	 * @param workers
+	 *            The number of threads used to compress blocks.
+	 */
+	public ParallelGZIPOutputStream(OutputStream outputStream, int workers) {
+		this(outputStream, workers, DEFAULT_BLOCK_SIZE);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param outputStream
+	 *            The stream to receive compressed data. This is closed when
+	 *            this stream is closed.
+	 * @param workers
+	 *            The number of threads used to compress blocks.
+	 * @param blockSize
+	 *            The amount of uncompressed data in each gzip member.
+	 */
+	public ParallelGZIPOutputStream(OutputStream outputStream, int workers, int blockSize) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Worker count must be at least 1, not " + workers);
+		}
+
+		this.outputStream = outputStream;
+		this.blockSize = blockSize;
+
+		executor = Executors.newFixedThreadPool(workers);
+		// Allow a block to wait for each worker so they never sit idle.
+		maxPendingBlocks = workers * 2;
+		pendingBlocks = new ArrayDeque<Future<byte[]>>();
+		block = new byte[blockSize];
+	}
+
+
+	private static byte[] compress(byte[] data, int length) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 4 + 64);
+
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed, 65536)) {
+			gzipStream.write(data, 0, length);
+		}
+
+		return compressed.toByteArray();
+	}
+
+
+	/**
+	 * Queues the current block for compression and starts a new block.
+	 */
+	private void submitBlock() throws IOException {
+		final byte[] data = block;
+		final int length = blockPosition;
+
+		// Limit the number of blocks held in memory.
+		while (pendingBlocks.size() >= maxPendingBlocks) {
+			writeOldestPendingBlock();
+		}
+
+		pendingBlocks.add(executor.submit(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws IOException {
+				return compress(data, length);
+			}
+		}));
+		memberWritten = true;
+
+		block = new byte[blockSize];
+		blockPosition = 0;
+	}
+
+
+	/**
+	 * Waits for the oldest block to be compressed and writes it.
+	 */
+	private void writeOldestPendingBlock() throws IOException {
+		byte[] compressed;
+
+		try {
+			compressed = pendingBlocks.removeFirst().get();
+		} catch (InterruptedException e) {
+			InterruptedIOException ioe = new InterruptedIOException("Interrupted while compressing a block.");
+			ioe.initCause(e);
+			throw ioe;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException("Unable to compress block.", cause);
+		}
+
+		outputStream.write(compressed);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		if (blockPosition == blockSize) {
+			submitBlock();
+		}
+		block[blockPosition++] = (byte) b;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(byte[] data, int offset, int length) throws IOException {
+		while (length > 0) {
+			int count;
+
+			if (blockPosition == blockSize) {
+				submitBlock();
+			}
+
+			count = Math.min(length, blockSize - blockPosition);
+			System.arraycopy(data, offset, block, blockPosition, count);
+			blockPosition += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+
+	/**
+	 * Writes all blocks already submitted for compression. Data in the current
+	 * partial block is retained so that members remain full sized.
+	 *
+	 * @throws IOException
+	 *             if the data cannot be written.
+	 */
+	@Override
+	public void flush() throws IOException {
+		while (!pendingBlocks.isEmpty()) {
+			writeOldestPendingBlock();
+		}
+		outputStream.flush();
+	}
+
+
+	/**
+	 * Compresses and writes all remaining data without closing the underlying
+	 * stream. No further data may be written.
+	 *
+	 * @throws IOException
+	 *             if the data cannot be written.
+	 */
+	public void finish() throws IOException {
+		if (executor == null) {
+			return;
+		}
+
+		try {
+			// Always write at least one member so that the output is a valid
+			// gzip file.
+			if (blockPosition > 0 || !memberWritten) {
+				submitBlock();
+			}
+			flush();
+		} finally {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			outputStream.close();
+		}
+	}
+}
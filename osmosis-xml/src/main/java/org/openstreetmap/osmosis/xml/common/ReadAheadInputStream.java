@@ -0,0 +1,260 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Reads from an underlying stream on a dedicated thread ahead of the consumer.
+ * This allows the work performed by the underlying stream, typically
+ * decompression, to run in parallel with processing of the data already read.
+ * Data is passed between threads in large buffers which are re-used.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	private static final Logger LOG = Logger.getLogger(ReadAheadInputStream.class.getName());
+
+	private static final int DEFAULT_BUFFER_SIZE = 65536;
+	private static final int DEFAULT_BUFFER_COUNT = 16;
+
+
+	private InputStream source;
+	private Thread readerThread;
+	private BlockingQueue<Buffer> filledBuffers;
+	private BlockingQueue<Buffer> emptyBuffers;
+	private Buffer currentBuffer;
+	private int currentPosition;
+	private boolean endOfStream;
+	private volatile boolean closed;
+
+
+	/**
+	 * Creates a new instance and starts reading from the source.
+	 *
+	 * @param source
+	 *            The stream to read from. This is closed when this stream is
+	 *            closed.
+	 */
+	public ReadAheadInputStream(InputStream source) {
+		this(source, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+	}
+
+
+	/**
+	 * Creates a new instance and starts reading from the source.
+	 *
+	 * @param source
+	 *            The stream to read from. This is closed when this stream is
+	 *            closed.
+	 * @param bufferSize
+	 *            The size of each buffer passed between threads.
+	 * @param bufferCount
+	 *            The number of buffers that may be read ahead of the consumer.
+	 */
+	public ReadAheadInputStream(InputStream source, int bufferSize, int bufferCount) {
+		this.source = source;
+
+		filledBuffers = new ArrayBlockingQueue<Buffer>(bufferCount + 1);
+		emptyBuffers = new ArrayBlockingQueue<Buffer>(bufferCount);
+		for (int i = 0; i < bufferCount; i++) {
+			emptyBuffers.add(new Buffer(bufferSize));
+		}
+
+		readerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				readAll();
+			}
+		}, "ReadAhead");
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+
+	/**
+	 * Fills buffers from the source until the end of the stream, an error, or
+	 * the stream is closed.
+	 */
+	private void readAll() {
+		try {
+			while (true) {
+				Buffer buffer = emptyBuffers.take();
+
+				buffer.length = 0;
+				while (buffer.length < buffer.data.length) {
+					int count = source.read(buffer.data, buffer.length, buffer.data.length - buffer.length);
+
+					if (count < 0) {
+						break;
+					}
+					buffer.length += count;
+				}
+
+				if (buffer.length == 0) {
+					filledBuffers.put(Buffer.END);
+					return;
+				}
+				filledBuffers.put(buffer);
+			}
+
+		} catch (InterruptedException e) {
+			// The stream has been closed.
+		} catch (IOException | RuntimeException e) {
+			if (!closed) {
+				// The queue has a spare slot for the failure so this won't block.
+				filledBuffers.add(new Buffer(e));
+			}
+		}
+	}
+
+
+	/**
+	 * Makes the next buffer from the reader thread current, returning the
+	 * previous buffer for re-use.
+	 *
+	 * @return False if the end of the stream has been reached.
+	 */
+	private boolean nextBuffer() throws IOException {
+		if (endOfStream) {
+			return false;
+		}
+		if (closed) {
+			throw new IOException("The stream has been closed.");
+		}
+
+		if (currentBuffer != null) {
+			emptyBuffers.add(currentBuffer);
+			currentBuffer = null;
+		}
+
+		Buffer buffer;
+		try {
+			buffer = filledBuffers.take();
+		} catch (InterruptedException e) {
+			InterruptedIOException ioe = new InterruptedIOException("Interrupted while waiting for data.");
+			ioe.initCause(e);
+			throw ioe;
+		}
+
+		if (buffer.failure != null) {
+			endOfStream = true;
+			throw new IOException("Unable to read from the underlying stream.", buffer.failure);
+		}
+		if (buffer == Buffer.END) {
+			endOfStream = true;
+			return false;
+		}
+
+		currentBuffer = buffer;
+		currentPosition = 0;
+
+		return true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		if (currentBuffer == null || currentPosition == currentBuffer.length) {
+			if (!nextBuffer()) {
+				return -1;
+			}
+		}
+
+		return currentBuffer.data[currentPosition++] & 0xFF;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int count;
+
+		if (len == 0) {
+			return 0;
+		}
+
+		if (currentBuffer == null || currentPosition == currentBuffer.length) {
+			if (!nextBuffer()) {
+				return -1;
+			}
+		}
+
+		count = Math.min(len, currentBuffer.length - currentPosition);
+		System.arraycopy(currentBuffer.data, currentPosition, b, off, count);
+		currentPosition += count;
+
+		return count;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int available() {
+		if (currentBuffer == null) {
+			return 0;
+		}
+
+		return currentBuffer.length - currentPosition;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		// Closing the source releases a reader thread blocked reading it, and
+		// the interrupt releases one waiting for an empty buffer.
+		readerThread.interrupt();
+		try {
+			source.close();
+		} finally {
+			try {
+				readerThread.join();
+			} catch (InterruptedException e) {
+				LOG.log(Level.WARNING, "Interrupted while waiting for the reader thread to stop.", e);
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+
+	/**
+	 * A buffer of data passed from the reader thread.
+	 */
+	private static final class Buffer {
+		private static final Buffer END = new Buffer(0);
+
+		private byte[] data;
+		private int length;
+		private Exception failure;
+
+
+		Buffer(int size) {
+			data = new byte[size];
+		}
+
+
+		Buffer(Exception failure) {
+			this.failure = failure;
+		}
+	}
+}
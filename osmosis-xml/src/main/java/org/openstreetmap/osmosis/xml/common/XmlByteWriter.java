@@ -0,0 +1,439 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.domain.common.TimestampFormat;
+
+
+/**
+ * Writes xml directly as UTF-8 bytes into a reusable buffer. This produces the
+ * same output as {@link ElementWriter} writing to a UTF-8 character stream,
+ * but avoids building intermediate strings for escaped text and numbers.
+ * <p>
+ * Escaping is driven by a table of the replacement for every ASCII character,
+ * and numbers, coordinates and timestamps are formatted directly into the
+ * buffer. Values outside the ranges handled by the fast paths fall back to the
+ * same formatting as {@link ElementWriter}.
+ */
+public class XmlByteWriter {
+
+	private static final int DEFAULT_BUFFER_SIZE = 65536;
+	private static final int INDENT_SPACES_PER_LEVEL = 2;
+	// The longest replacement of a single character is "&quot;".
+	private static final int MAX_BYTES_PER_CHAR = 6;
+
+	/**
+	 * The bytes to write for each ASCII character, or null if the character is
+	 * written unchanged.
+	 */
+	private static final byte[][] ASCII_ENCODING;
+
+	static {
+		ASCII_ENCODING = new byte[128][];
+
+		// Non-xml compatible control characters will not be written
+		// with the exception of tab, carriage return and line feed.
+		for (int i = 0; i <= 0x1F; i++) {
+			if (i != 0x9 && i != 0xA && i != 0xD) {
+				ASCII_ENCODING[i] = new byte[0];
+			}
+		}
+		ASCII_ENCODING[0x7F] = new byte[0];
+
+		ASCII_ENCODING['<'] = toAscii("&lt;");
+		ASCII_ENCODING['>'] = toAscii("&gt;");
+		ASCII_ENCODING['"'] = toAscii("&quot;");
+		ASCII_ENCODING['\''] = toAscii("&apos;");
+		ASCII_ENCODING['&'] = toAscii("&amp;");
+		ASCII_ENCODING['\n'] = toAscii("&#xA;");
+		ASCII_ENCODING['\r'] = toAscii("&#xD;");
+		ASCII_ENCODING['\t'] = toAscii("&#x9;");
+	}
+
+	// Coordinates are written with up to 7 decimal places.
+	private static final double COORDINATE_SCALE = 10000000;
+	private static final int COORDINATE_DECIMALS = 7;
+	// Scaled coordinates larger than this could lose integer precision.
+	private static final double MAX_SCALED_COORDINATE = 1L << 52;
+
+	// Timestamps from 1970 up to the end of 9999 are formatted directly.
+	private static final long MAX_DIRECT_TIMESTAMP = 253402300800000L;
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	private OutputStream outputStream;
+	private byte[] buffer;
+	private int position;
+	private byte[] lineSeparator;
+	private NumberFormat coordinateFormat;
+	private TimestampFormat timestampFormat;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param outputStream
+	 *            The stream to write to. This is not closed by this class.
+	 */
+	public XmlByteWriter(OutputStream outputStream) {
+		this.outputStream = outputStream;
+
+		buffer = new byte[DEFAULT_BUFFER_SIZE];
+		lineSeparator = toAscii(System.getProperty("line.separator"));
+		coordinateFormat = new DecimalFormat("0.#######;-0.#######", new DecimalFormatSymbols(Locale.US));
+		timestampFormat = new XmlTimestampFormat();
+	}
+
+
+	private static byte[] toAscii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+
+	/**
+	 * Ensures that the buffer has room for the specified number of bytes,
+	 * writing the existing buffer contents to the output stream if required.
+	 */
+	private void ensureCapacity(int length) {
+		if (position + length > buffer.length) {
+			flushBuffer();
+
+			if (length > buffer.length) {
+				buffer = new byte[length];
+			}
+		}
+	}
+
+
+	private void flushBuffer() {
+		try {
+			outputStream.write(buffer, 0, position);
+			position = 0;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write data.", e);
+		}
+	}
+
+
+	/**
+	 * Writes all buffered data to the output stream and flushes it.
+	 */
+	public void flush() {
+		flushBuffer();
+
+		try {
+			outputStream.flush();
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write data.", e);
+		}
+	}
+
+
+	/**
+	 * Writes a string containing only ASCII characters that don't require
+	 * escaping, such as element and attribute names.
+	 *
+	 * @param value
+	 *            The value to be written.
+	 */
+	public void writeAscii(String value) {
+		int length = value.length();
+
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			buffer[position++] = (byte) value.charAt(i);
+		}
+	}
+
+
+	/**
+	 * Writes a single ASCII character.
+	 *
+	 * @param value
+	 *            The character to be written.
+	 */
+	public void writeAscii(char value) {
+		ensureCapacity(1);
+		buffer[position++] = (byte) value;
+	}
+
+
+	/**
+	 * Writes a line separator.
+	 */
+	public void writeLineSeparator() {
+		ensureCapacity(lineSeparator.length);
+		System.arraycopy(lineSeparator, 0, buffer, position, lineSeparator.length);
+		position += lineSeparator.length;
+	}
+
+
+	/**
+	 * Writes the spaces indenting an element at the specified level.
+	 *
+	 * @param indentLevel
+	 *            The indent level of the element.
+	 */
+	public void writeIndent(int indentLevel) {
+		int indentSpaceCount = indentLevel * INDENT_SPACES_PER_LEVEL;
+
+		ensureCapacity(indentSpaceCount);
+		for (int i = 0; i < indentSpaceCount; i++) {
+			buffer[position++] = ' ';
+		}
+	}
+
+
+	/**
+	 * Writes text escaped for use within an attribute value, encoded as UTF-8.
+	 *
+	 * @param value
+	 *            The text to be written.
+	 */
+	public void writeEscaped(String value) {
+		int length = value.length();
+
+		ensureCapacity(length * MAX_BYTES_PER_CHAR);
+
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+
+			if (c < 0x80) {
+				byte[] replacement = ASCII_ENCODING[c];
+
+				if (replacement == null) {
+					buffer[position++] = (byte) c;
+				} else {
+					for (int j = 0; j < replacement.length; j++) {
+						buffer[position++] = replacement[j];
+					}
+				}
+
+			} else if (c < 0x800) {
+				buffer[position++] = (byte) (0xC0 | (c >> 6));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+					buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+					buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+				} else {
+					// Unpaired surrogates are replaced as the UTF-8 encoder of
+					// a character stream would.
+					buffer[position++] = '?';
+				}
+
+			} else {
+				buffer[position++] = (byte) (0xE0 | (c >> 12));
+				buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+
+	/**
+	 * Writes a number in decimal form.
+	 *
+	 * @param value
+	 *            The number to be written.
+	 */
+	public void writeLong(long value) {
+		int start;
+		int end;
+
+		if (value == Long.MIN_VALUE) {
+			writeAscii(Long.toString(value));
+			return;
+		}
+
+		ensureCapacity(20);
+		if (value < 0) {
+			buffer[position++] = '-';
+			value = -value;
+		}
+
+		// Write the digits in reverse order then swap them into place.
+		start = position;
+		do {
+			buffer[position++] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value != 0);
+
+		for (end = position - 1; start < end; start++, end--) {
+			byte digit = buffer[start];
+			buffer[start] = buffer[end];
+			buffer[end] = digit;
+		}
+	}
+
+
+	/**
+	 * Writes a coordinate with up to 7 decimal places and no trailing zeros.
+	 *
+	 * @param value
+	 *            The coordinate to be written.
+	 */
+	public void writeCoordinate(double value) {
+		double scaled = value * COORDINATE_SCALE;
+		long fixed;
+		long fraction;
+		int decimals;
+
+		fixed = Math.round(scaled);
+
+		// The fast path only handles values close to a 7 decimal place value,
+		// which is always the case for OSM data, because these round the same
+		// way as the decimal format. Zero is also left to the decimal format
+		// because it writes small negative values as "-0".
+		if (Math.abs(scaled) >= MAX_SCALED_COORDINATE || Math.abs(scaled - fixed) >= 0.25 || fixed == 0) {
+			writeAscii(coordinateFormat.format(value));
+			return;
+		}
+
+		if (fixed < 0) {
+			writeAscii('-');
+			fixed = -fixed;
+		}
+		writeLong(fixed / (long) COORDINATE_SCALE);
+
+		fraction = fixed % (long) COORDINATE_SCALE;
+		if (fraction != 0) {
+			decimals = COORDINATE_DECIMALS;
+			while (fraction % 10 == 0) {
+				fraction /= 10;
+				decimals--;
+			}
+
+			ensureCapacity(decimals + 1);
+			buffer[position++] = '.';
+			for (int i = decimals - 1; i >= 0; i--) {
+				buffer[position + i] = (byte) ('0' + (fraction % 10));
+				fraction /= 10;
+			}
+			position += decimals;
+		}
+	}
+
+
+	private void writeTwoDigits(int value) {
+		buffer[position++] = (byte) ('0' + value / 10);
+		buffer[position++] = (byte) ('0' + value % 10);
+	}
+
+
+	/**
+	 * Writes a timestamp in the format used by OSM xml files.
+	 *
+	 * @param timestamp
+	 *            The timestamp in milliseconds since the epoch.
+	 */
+	public void writeTimestamp(long timestamp) {
+		long days;
+		int secondOfDay;
+		long era;
+		long dayOfEra;
+		long yearOfEra;
+		long dayOfYear;
+		long shiftedMonth;
+		long year;
+		int month;
+		int day;
+
+		if (timestamp < 0 || timestamp >= MAX_DIRECT_TIMESTAMP) {
+			writeAscii(timestampFormat.formatTimestamp(new Date(timestamp)));
+			return;
+		}
+
+		days = timestamp / MILLIS_PER_DAY;
+		secondOfDay = (int) ((timestamp % MILLIS_PER_DAY) / 1000);
+
+		// Convert the day number to a civil date using the proleptic Gregorian
+		// calendar with years beginning in March.
+		days += 719468;
+		era = days / 146097;
+		dayOfEra = days - era * 146097;
+		yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		shiftedMonth = (5 * dayOfYear + 2) / 153;
+		day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+		month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+		year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+		ensureCapacity(20);
+		writeTwoDigits((int) (year / 100));
+		writeTwoDigits((int) (year % 100));
+		buffer[position++] = '-';
+		writeTwoDigits(month);
+		buffer[position++] = '-';
+		writeTwoDigits(day);
+		buffer[position++] = 'T';
+		writeTwoDigits(secondOfDay / 3600);
+		buffer[position++] = ':';
+		writeTwoDigits((secondOfDay / 60) % 60);
+		buffer[position++] = ':';
+		writeTwoDigits(secondOfDay % 60);
+		buffer[position++] = 'Z';
+	}
+
+
+	/**
+	 * Writes an attribute with an escaped text value, including the leading
+	 * space.
+	 *
+	 * @param name
+	 *            The name of the attribute.
+	 * @param value
+	 *            The value of the attribute.
+	 */
+	public void writeAttribute(String name, String value) {
+		writeAttributeName(name);
+		writeEscaped(value);
+		writeAscii('"');
+	}
+
+
+	/**
+	 * Writes an attribute with a numeric value, including the leading space.
+	 *
+	 * @param name
+	 *            The name of the attribute.
+	 * @param value
+	 *            The value of the attribute.
+	 */
+	public void writeAttribute(String name, long value) {
+		writeAttributeName(name);
+		writeLong(value);
+		writeAscii('"');
+	}
+
+
+	/**
+	 * Writes the leading space, name, and opening quote of an attribute. The
+	 * caller must write the value followed by a closing quote.
+	 *
+	 * @param name
+	 *            The name of the attribute.
+	 */
+	public void writeAttributeName(String name) {
+		ensureCapacity(name.length() + 3);
+		buffer[position++] = ' ';
+		writeAscii(name);
+		buffer[position++] = '=';
+		buffer[position++] = '"';
+	}
+}
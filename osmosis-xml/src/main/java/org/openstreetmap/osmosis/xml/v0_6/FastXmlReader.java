@@ -10,6 +10,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
@@ -17,6 +18,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.xml.common.CompressionActivator;
 import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.v0_6.impl.EntityHandOff;
 import org.openstreetmap.osmosis.xml.v0_6.impl.FastXmlParser;
 
 
@@ -35,6 +37,7 @@ public class FastXmlReader implements RunnableSource {
 		private final File file;
 		private final boolean enableDateParsing;
 		private final CompressionMethod compressionMethod;
+		private final int workers;
 		
 		
 		/**
@@ -49,9 +52,31 @@ public class FastXmlReader implements RunnableSource {
 		 *            Specifies the compression method to employ.
 		 */
 		public FastXmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod) {
+			this(file, enableDateParsing, compressionMethod, 1);
+		}
+		
+		
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param file
+		 *            The file to read.
+		 * @param enableDateParsing
+		 *            If true, dates will be parsed from xml data, else the current
+		 *            date will be used thus saving parsing time.
+		 * @param compressionMethod
+		 *            Specifies the compression method to employ.
+		 * @param workers
+		 *            The number of threads used to read the file. If more than 1,
+		 *            decompression and parsing run on separate threads to the
+		 *            downstream tasks and bzip2 blocks are decoded in parallel.
+		 */
+		public FastXmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod,
+				int workers) {
 			this.file = file;
 			this.enableDateParsing = enableDateParsing;
 			this.compressionMethod = compressionMethod;
+			this.workers = workers;
 		}
 		
 		
@@ -64,12 +89,30 @@ public class FastXmlReader implements RunnableSource {
 		
 				
 		
+		/**
+		 * Parses the xml, sending all entities to the target sink.
+		 * 
+		 * @param inputStream
+		 *            The stream providing the xml.
+		 * @param target
+		 *            The sink receiving the entities.
+		 */
+		private void parse(InputStream inputStream, Sink target) throws XMLStreamException {
+	        XMLInputFactory factory = XMLInputFactory.newInstance();
+	        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+	        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+	        factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+	        XMLStreamReader xpp = factory.createXMLStreamReader(inputStream);
+			
+			new FastXmlParser(target, xpp, enableDateParsing).readOsm();
+		}
+		
+		
 		/**
 		 * Reads all data from the file and send it to the sink.
 		 */
 		public void run() {
 			InputStream inputStream = null;
-			FastXmlParser parser = null;
 			
 			try {
 				sink.initialize(Collections.<String, Object>emptyMap());
@@ -84,17 +127,23 @@ public class FastXmlReader implements RunnableSource {
 				
 				inputStream =
 					new CompressionActivator(compressionMethod).
-						createCompressionInputStream(inputStream);
-				
-		        XMLInputFactory factory = XMLInputFactory.newInstance();
-		        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
-		        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
-		        factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
-		        XMLStreamReader xpp = factory.createXMLStreamReader(inputStream);
+						createCompressionInputStream(inputStream, workers);
 				
-				parser = new FastXmlParser(sink, xpp, enableDateParsing);
-				
-				parser.readOsm();
+				if (workers > 1) {
+					// Parse on a separate thread so that entity creation overlaps
+					// with the downstream tasks.
+					final InputStream parserInputStream = inputStream;
+					
+					new EntityHandOff(EntityHandOff.DEFAULT_BUFFER_CAPACITY).run(
+						new EntityHandOff.Producer<XMLStreamException>() {
+							@Override
+							public void produce(Sink target) throws XMLStreamException {
+								parse(parserInputStream, target);
+							}
+						}, sink);
+				} else {
+					parse(inputStream, sink);
+				}
 				
 				sink.complete();
 				
@@ -0,0 +1,208 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DeflaterOutputStream;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
+import org.openstreetmap.osmosis.core.task.v0_6.NodeBatchSink;
+import org.openstreetmap.osmosis.xml.common.CompressionActivator;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.common.ParallelGZIPOutputStream;
+import org.openstreetmap.osmosis.xml.common.XmlByteWriter;
+import org.openstreetmap.osmosis.xml.v0_6.impl.FastOsmWriter;
+
+
+/**
+ * An OSM data sink for storing all data to an xml file. This produces the same
+ * output as {@link XmlWriter}, but encodes the xml directly into UTF-8 bytes
+ * and can compress gzip output on multiple threads.
+ */
+public class FastXmlWriter implements NodeBatchSink {
+
+	private static Logger log = Logger.getLogger(FastXmlWriter.class.getName());
+
+
+	private File file;
+	private CompressionMethod compressionMethod;
+	private int workers;
+	private FastOsmWriter osmWriter;
+	private boolean initialized;
+	private boolean closeRequired;
+	private OutputStream outputStream;
+	private XmlByteWriter xmlByteWriter;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param file
+	 *            The file to write.
+	 * @param compressionMethod
+	 *            Specifies the compression method to employ.
+	 * @param legacyBound
+	 *            If true, write the legacy {@literal <bound>} element instead
+	 *            of the correct {@literal <bounds>} one.
+	 * @param workers
+	 *            The number of threads used to compress gzip output. If more
+	 *            than 1, the output is written as a series of independent gzip
+	 *            members.
+	 */
+	public FastXmlWriter(File file, CompressionMethod compressionMethod, boolean legacyBound, int workers) {
+		this.file = file;
+		this.compressionMethod = compressionMethod;
+		this.workers = workers;
+
+		osmWriter = new FastOsmWriter(legacyBound);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		// Do nothing.
+	}
+
+
+	/**
+	 * Opens the output file for writing. This may be called multiple times
+	 * without adverse affect.
+	 */
+	private void initialize() {
+		if (!initialized) {
+			OutputStream outStream = null;
+
+			try {
+				// make "-" an alias for /dev/stdout
+				if (file.getName().equals("-")) {
+					outStream = System.out;
+
+					// We don't want to close stdout because we'll need to
+					// re-use it if we receive multiple streams.
+					closeRequired = false;
+				} else {
+					outStream = new FileOutputStream(file);
+					closeRequired = true;
+				}
+
+				if (CompressionMethod.GZip.equals(compressionMethod) && workers > 1) {
+					outStream = new ParallelGZIPOutputStream(outStream, workers);
+				} else {
+					outStream = new CompressionActivator(compressionMethod).createCompressionOutputStream(outStream);
+				}
+
+				outputStream = outStream;
+				outStream = null;
+
+			} catch (IOException e) {
+				throw new OsmosisRuntimeException("Unable to open file for writing.", e);
+			} finally {
+				if (outStream != null && closeRequired) {
+					try {
+						outStream.close();
+					} catch (Exception e) {
+						log.log(Level.SEVERE, "Unable to close output stream.", e);
+					}
+				}
+			}
+
+			xmlByteWriter = new XmlByteWriter(outputStream);
+			osmWriter.setWriter(xmlByteWriter);
+
+			initialized = true;
+
+			osmWriter.begin();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(EntityContainer entityContainer) {
+		initialize();
+
+		osmWriter.process(entityContainer);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(NodeBatchContainer batch) {
+		initialize();
+
+		osmWriter.process(batch);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		// We need to call this here so that we create empty files if no records
+		// are available.
+		initialize();
+
+		osmWriter.end();
+		xmlByteWriter.flush();
+
+		try {
+			if (closeRequired) {
+				outputStream.close();
+			} else if (outputStream instanceof ParallelGZIPOutputStream) {
+				// Compression must be completed even though stdout isn't closed.
+				((ParallelGZIPOutputStream) outputStream).finish();
+			} else if (outputStream instanceof DeflaterOutputStream) {
+				((DeflaterOutputStream) outputStream).finish();
+			}
+			outputStream = null;
+			xmlByteWriter = null;
+
+			initialized = false;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to complete writing to the xml stream.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		try {
+			if (outputStream != null) {
+				try {
+					if (closeRequired) {
+						outputStream.close();
+					} else if (outputStream instanceof ParallelGZIPOutputStream) {
+						// Stdout isn't closed but the compression threads must
+						// still be released.
+						((ParallelGZIPOutputStream) outputStream).finish();
+					}
+				} catch (IOException e) {
+					log.log(Level.SEVERE, "Unable to close output stream.", e);
+				}
+			}
+		} finally {
+			outputStream = null;
+			xmlByteWriter = null;
+			initialized = false;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6;
+
+import java.io.File;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
+import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkManager;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.common.XmlTaskManagerFactory;
+
+
+/**
+ * The task manager factory for a fast xml writer.
+ */
+public class FastXmlWriterFactory extends XmlTaskManagerFactory {
+	private static final String ARG_FILE_NAME = "file";
+	private static final String DEFAULT_FILE_NAME = "dump.osm";
+	private static final String ARG_LEGACY_BOUND = "useLegacyBound";
+	private static final boolean DEFAULT_LEGACY_BOUND = false;
+	private static final String ARG_WORKERS = "workers";
+	private static final int DEFAULT_WORKERS = 1;
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
+		String fileName;
+		File file;
+		CompressionMethod compressionMethod;
+		boolean legacyBound;
+		int workers;
+		FastXmlWriter task;
+		
+		// Get the task arguments.
+		fileName = getStringArgument(
+			taskConfig,
+			ARG_FILE_NAME,
+			getDefaultStringArgument(taskConfig, DEFAULT_FILE_NAME)
+		);
+		compressionMethod = getCompressionMethodArgument(taskConfig, fileName);
+		legacyBound = getBooleanArgument(taskConfig, ARG_LEGACY_BOUND, DEFAULT_LEGACY_BOUND);
+		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		if (workers < 1) {
+			throw new OsmosisRuntimeException(
+					"Argument " + ARG_WORKERS + " for task " + taskConfig.getId() + " must be at least 1.");
+		}
+		
+		// Create a file object from the file name provided.
+		file = new File(fileName);
+		
+		// Build the task object.
+		task = new FastXmlWriter(file, compressionMethod, legacyBound, workers);
+		
+		return new SinkManager(taskConfig.getId(), task, taskConfig.getPipeArgs());
+	}
+}
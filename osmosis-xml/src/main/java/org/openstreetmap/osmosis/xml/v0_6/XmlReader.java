@@ -7,6 +7,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.xml.common.CompressionActivator;
 import org.openstreetmap.osmosis.xml.common.CompressionMethod;
 import org.openstreetmap.osmosis.xml.common.SaxParserFactory;
+import org.openstreetmap.osmosis.xml.v0_6.impl.EntityHandOff;
 import org.openstreetmap.osmosis.xml.v0_6.impl.OsmHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
@@ -35,6 +36,7 @@ public class XmlReader implements RunnableSource {
 	private File file;
 	private boolean enableDateParsing;
 	private CompressionMethod compressionMethod;
+	private int workers;
 	
 	
 	/**
@@ -49,9 +51,30 @@ public class XmlReader implements RunnableSource {
 	 *            Specifies the compression method to employ.
 	 */
 	public XmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod) {
+		this(file, enableDateParsing, compressionMethod, 1);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param file
+	 *            The file to read.
+	 * @param enableDateParsing
+	 *            If true, dates will be parsed from xml data, else the current
+	 *            date will be used thus saving parsing time.
+	 * @param compressionMethod
+	 *            Specifies the compression method to employ.
+	 * @param workers
+	 *            The number of threads used to read the file. If more than 1,
+	 *            decompression and parsing run on separate threads to the
+	 *            downstream tasks and bzip2 blocks are decoded in parallel.
+	 */
+	public XmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod, int workers) {
 		this.file = file;
 		this.enableDateParsing = enableDateParsing;
 		this.compressionMethod = compressionMethod;
+		this.workers = workers;
 	}
 	
 	
@@ -63,6 +86,38 @@ public class XmlReader implements RunnableSource {
 	}
 	
 	
+	/**
+	 * Parses the xml, sending all entities to the target sink.
+	 * 
+	 * @param inputStream
+	 *            The stream providing the xml.
+	 * @param target
+	 *            The sink receiving the entities.
+	 */
+	private void parse(InputStream inputStream, Sink target) {
+		try {
+			SAXParser parser;
+			
+			parser = SaxParserFactory.createParser();
+			
+			parser.parse(inputStream, new OsmHandler(target, enableDateParsing));
+			
+		} catch (SAXParseException e) {
+			throw new OsmosisRuntimeException(
+				"Unable to parse xml file " + file
+				+ ".  publicId=(" + e.getPublicId()
+				+ "), systemId=(" + e.getSystemId()
+				+ "), lineNumber=" + e.getLineNumber()
+				+ ", columnNumber=" + e.getColumnNumber() + ".",
+				e);
+		} catch (SAXException e) {
+			throw new OsmosisRuntimeException("Unable to parse XML.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read XML file " + file + ".", e);
+		}
+	}
+	
+	
 	/**
 	 * Reads all data from the file and send it to the sink.
 	 */
@@ -70,8 +125,6 @@ public class XmlReader implements RunnableSource {
 		InputStream inputStream = null;
 		
 		try {
-			SAXParser parser;
-			
 			sink.initialize(Collections.<String, Object>emptyMap());
 			
 			// make "-" an alias for /dev/stdin
@@ -83,24 +136,26 @@ public class XmlReader implements RunnableSource {
 
 			inputStream =
 				new CompressionActivator(compressionMethod).
-					createCompressionInputStream(inputStream);
-
-			parser = SaxParserFactory.createParser();
+					createCompressionInputStream(inputStream, workers);
 			
-			parser.parse(inputStream, new OsmHandler(sink, enableDateParsing));
+			if (workers > 1) {
+				// Parse on a separate thread so that entity creation overlaps
+				// with the downstream tasks.
+				final InputStream parserInputStream = inputStream;
+				
+				new EntityHandOff(EntityHandOff.DEFAULT_BUFFER_CAPACITY).run(
+					new EntityHandOff.Producer<RuntimeException>() {
+						@Override
+						public void produce(Sink target) {
+							parse(parserInputStream, target);
+						}
+					}, sink);
+			} else {
+				parse(inputStream, sink);
+			}
 			
 			sink.complete();
 			
-		} catch (SAXParseException e) {
-			throw new OsmosisRuntimeException(
-				"Unable to parse xml file " + file
-				+ ".  publicId=(" + e.getPublicId()
-				+ "), systemId=(" + e.getSystemId()
-				+ "), lineNumber=" + e.getLineNumber()
-				+ ", columnNumber=" + e.getColumnNumber() + ".",
-				e);
-		} catch (SAXException e) {
-			throw new OsmosisRuntimeException("Unable to parse XML.", e);
 		} catch (IOException e) {
 			throw new OsmosisRuntimeException("Unable to read XML file " + file + ".", e);
 		} finally {
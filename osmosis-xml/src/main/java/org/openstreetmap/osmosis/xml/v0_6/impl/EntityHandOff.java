@@ -0,0 +1,176 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskRunner;
+import org.openstreetmap.osmosis.core.store.Postbox;
+import org.openstreetmap.osmosis.core.store.PostboxFactory;
+import org.openstreetmap.osmosis.core.store.PostboxType;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Runs an entity producer such as an xml parser on its own thread and passes
+ * the entities it creates to a sink on the calling thread. Entities are passed
+ * between threads in batches so that the producer and the downstream tasks run
+ * in parallel with little synchronisation overhead.
+ */
+public class EntityHandOff {
+
+	/**
+	 * The default number of entities which may be buffered between threads.
+	 */
+	public static final int DEFAULT_BUFFER_CAPACITY = 10000;
+
+
+	/**
+	 * Creates entities and sends them to a sink.
+	 *
+	 * @param <E>
+	 *            The checked exception thrown by the producer.
+	 */
+	public interface Producer<E extends Exception> {
+		/**
+		 * Sends all entities to the sink. Only the process method of the sink
+		 * may be called.
+		 *
+		 * @param sink
+		 *            The sink receiving the entities.
+		 * @throws E
+		 *             if the entities cannot be produced.
+		 */
+		void produce(Sink sink) throws E;
+	}
+
+
+	private int bufferCapacity;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param bufferCapacity
+	 *            The number of entities which may be buffered between threads.
+	 */
+	public EntityHandOff(int bufferCapacity) {
+		this.bufferCapacity = bufferCapacity;
+	}
+
+
+	/**
+	 * Runs the producer on a new thread and sends all of its entities to the
+	 * sink on the calling thread. The sink lifecycle methods remain the
+	 * responsibility of the caller. Whichever of the producer and the sink fails first
+	 * determines the exception thrown, so a producer failure is reported
+	 * instead of the downstream failure it causes and vice versa.
+	 *
+	 * @param <E>
+	 *            The checked exception thrown by the producer.
+	 * @param producer
+	 *            The producer creating the entities.
+	 * @param sink
+	 *            The sink receiving the entities.
+	 * @throws E
+	 *             if the producer fails.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Exception> void run(final Producer<E> producer, Sink sink) throws E {
+		final Postbox<EntityContainer> postbox;
+		final AtomicReference<Exception> firstFailure;
+		TaskRunner producerThread;
+		Exception failure;
+
+		postbox = PostboxFactory.createInstance(PostboxType.Locking, bufferCapacity);
+		firstFailure = new AtomicReference<Exception>();
+
+		producerThread = new TaskRunner(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postbox.initialize(Collections.<String, Object>emptyMap());
+					producer.produce(new PostboxSink(postbox));
+					postbox.complete();
+				} catch (Exception e) {
+					firstFailure.compareAndSet(null, e);
+				} finally {
+					// Failures must be recorded before this releases the sink
+					// side.
+					postbox.close();
+				}
+			}
+		}, "EntityProducer");
+		producerThread.start();
+
+		try {
+			postbox.outputInitialize();
+			while (postbox.hasNext()) {
+				sink.process(postbox.getNext());
+			}
+			postbox.outputComplete();
+		} catch (RuntimeException e) {
+			firstFailure.compareAndSet(null, e);
+		} finally {
+			postbox.outputRelease();
+		}
+
+		try {
+			producerThread.join();
+		} catch (InterruptedException e) {
+			throw new OsmosisRuntimeException("Thread was interrupted.", e);
+		}
+
+		failure = firstFailure.get();
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure != null) {
+			// Only the producer can throw checked exceptions.
+			throw (E) failure;
+		}
+		if (!producerThread.isSuccessful()) {
+			throw new OsmosisRuntimeException("The entity producer failed.", producerThread.getException());
+		}
+	}
+
+
+	/**
+	 * Passes entities from the producer into the postbox.
+	 */
+	private static class PostboxSink implements Sink {
+		private Postbox<EntityContainer> postbox;
+
+
+		PostboxSink(Postbox<EntityContainer> postbox) {
+			this.postbox = postbox;
+		}
+
+
+		@Override
+		public void initialize(Map<String, Object> metaData) {
+			// The caller manages the downstream sink lifecycle.
+		}
+
+
+		@Override
+		public void process(EntityContainer entityContainer) {
+			postbox.put(entityContainer);
+		}
+
+
+		@Override
+		public void complete() {
+			// The caller manages the downstream sink lifecycle.
+		}
+
+
+		@Override
+		public void close() {
+			// The caller manages the downstream sink lifecycle.
+		}
+	}
+}
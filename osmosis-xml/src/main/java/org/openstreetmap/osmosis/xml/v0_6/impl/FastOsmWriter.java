@@ -0,0 +1,385 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+
+import org.openstreetmap.osmosis.core.OsmosisConstants;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityProcessor;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.common.SimpleTimestampContainer;
+import org.openstreetmap.osmosis.core.domain.common.TimestampContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.xml.common.XmlByteWriter;
+import org.openstreetmap.osmosis.xml.common.XmlTimestampFormat;
+
+
+/**
+ * Renders OSM data types as xml directly into bytes. The output is identical
+ * to that of {@link OsmWriter} writing the top level osm element.
+ */
+public class FastOsmWriter implements EntityProcessor {
+
+	private static final int ENTITY_INDENT_LEVEL = 1;
+	private static final int CHILD_INDENT_LEVEL = 2;
+
+	private XmlByteWriter writer;
+	private boolean legacyBound;
+	private MemberTypeRenderer memberTypeRenderer;
+	private XmlTimestampFormat timestampFormat;
+	private boolean boundWritten;
+	private boolean entitiesWritten;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param legacyBound
+	 *            If true, write the legacy {@literal <bound>} element instead
+	 *            of the correct {@literal <bounds>} one.
+	 */
+	public FastOsmWriter(boolean legacyBound) {
+		this.legacyBound = legacyBound;
+
+		memberTypeRenderer = new MemberTypeRenderer();
+		timestampFormat = new XmlTimestampFormat();
+	}
+
+
+	/**
+	 * Sets the writer receiving all xml.
+	 *
+	 * @param xmlByteWriter
+	 *            The writer.
+	 */
+	public void setWriter(XmlByteWriter xmlByteWriter) {
+		writer = xmlByteWriter;
+
+		// Reset the flags indicating which data has been written.
+		boundWritten = false;
+		entitiesWritten = false;
+	}
+
+
+	/**
+	 * Writes the xml declaration and opens the osm element.
+	 */
+	public void begin() {
+		writer.writeAscii("<?xml version='1.0' encoding='UTF-8'?>");
+		writer.writeLineSeparator();
+		writer.writeAscii("<osm");
+		writer.writeAttribute("version", XmlConstants.OSM_VERSION);
+		writer.writeAttribute("generator", "Osmosis " + OsmosisConstants.VERSION);
+		writer.writeAscii('>');
+		writer.writeLineSeparator();
+	}
+
+
+	/**
+	 * Closes the osm element.
+	 */
+	public void end() {
+		writer.writeAscii("</osm>");
+		writer.writeLineSeparator();
+	}
+
+
+	/**
+	 * Writes the element in the container.
+	 *
+	 * @param entityContainer
+	 *            The container holding the entity.
+	 */
+	public void process(EntityContainer entityContainer) {
+		entityContainer.process(this);
+	}
+
+
+	private void beginElement(int indentLevel, String elementName) {
+		writer.writeIndent(indentLevel);
+		writer.writeAscii('<');
+		writer.writeAscii(elementName);
+	}
+
+
+	private void endOpenElement(boolean closeElement) {
+		if (closeElement) {
+			writer.writeAscii("/>");
+		} else {
+			writer.writeAscii('>');
+		}
+		writer.writeLineSeparator();
+	}
+
+
+	private void closeElement(String elementName) {
+		writer.writeIndent(ENTITY_INDENT_LEVEL);
+		writer.writeAscii("</");
+		writer.writeAscii(elementName);
+		writer.writeAscii('>');
+		writer.writeLineSeparator();
+	}
+
+
+	private void writeCommonAttributes(Entity entity) {
+		TimestampContainer timestampContainer;
+		OsmUser user;
+
+		writer.writeAttribute("id", entity.getId());
+		writer.writeAttribute("version", entity.getVersion());
+
+		// Timestamps read from xml may still be held as text.
+		timestampContainer = entity.getTimestampContainer();
+		if (timestampContainer instanceof SimpleTimestampContainer) {
+			writer.writeAttributeName("timestamp");
+			writer.writeTimestamp(timestampContainer.getTimestamp().getTime());
+			writer.writeAscii('"');
+		} else {
+			writer.writeAttribute("timestamp", entity.getFormattedTimestamp(timestampFormat));
+		}
+
+		user = entity.getUser();
+		if (!user.equals(OsmUser.NONE)) {
+			writer.writeAttribute("uid", user.getId());
+			writer.writeAttribute("user", user.getName());
+		}
+
+		if (entity.getChangesetId() != 0) {
+			writer.writeAttribute("changeset", entity.getChangesetId());
+		}
+	}
+
+
+	private void writeMetatags(Entity entity) {
+		for (Entry<String, Object> metaTag : entity.getMetaTags().entrySet()) {
+			writer.writeAttribute(metaTag.getKey(), metaTag.getValue().toString());
+		}
+	}
+
+
+	private void writeTag(String key, String value) {
+		beginElement(CHILD_INDENT_LEVEL, "tag");
+		writer.writeAttribute("k", key);
+		writer.writeAttribute("v", value);
+		endOpenElement(true);
+	}
+
+
+	private void writeTags(Collection<Tag> tags) {
+		for (Tag tag : tags) {
+			writeTag(tag.getKey(), tag.getValue());
+		}
+	}
+
+
+	private void writeCoordinates(double latitude, double longitude) {
+		if (!Double.isNaN(latitude)) {
+			writer.writeAttributeName("lat");
+			writer.writeCoordinate(latitude);
+			writer.writeAscii('"');
+		}
+
+		if (!Double.isNaN(longitude)) {
+			writer.writeAttributeName("lon");
+			writer.writeCoordinate(longitude);
+			writer.writeAscii('"');
+		}
+	}
+
+
+	/**
+	 * Writes all nodes in a batch without creating node objects.
+	 *
+	 * @param batch
+	 *            The nodes to be written.
+	 */
+	public void process(NodeBatchContainer batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			int tagStart = batch.getTagStart(i);
+			int tagEnd = batch.getTagEnd(i);
+			int userId = batch.getUserId(i);
+
+			beginElement(ENTITY_INDENT_LEVEL, "node");
+			writer.writeAttribute("id", batch.getId(i));
+			writer.writeAttribute("version", batch.getVersion(i));
+			writer.writeAttributeName("timestamp");
+			writer.writeTimestamp(batch.getTimestamp(i));
+			writer.writeAscii('"');
+			if (userId != OsmUser.NONE.getId()) {
+				writer.writeAttribute("uid", userId);
+				writer.writeAttribute("user", batch.getUserName(i));
+			}
+			if (batch.getChangesetId(i) != 0) {
+				writer.writeAttribute("changeset", batch.getChangesetId(i));
+			}
+			writeCoordinates(batch.getLatitude(i), batch.getLongitude(i));
+
+			if (tagEnd > tagStart) {
+				endOpenElement(false);
+				for (int j = tagStart; j < tagEnd; j++) {
+					writeTag(batch.getTagKey(j), batch.getTagValue(j));
+				}
+				closeElement("node");
+			} else {
+				endOpenElement(true);
+			}
+		}
+
+		if (batch.size() > 0) {
+			entitiesWritten = true;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(NodeContainer nodeContainer) {
+		Node node = nodeContainer.getEntity();
+		Collection<Tag> tags;
+
+		beginElement(ENTITY_INDENT_LEVEL, "node");
+		writeCommonAttributes(node);
+		writeCoordinates(node.getLatitude(), node.getLongitude());
+		writeMetatags(node);
+
+		tags = node.getTags();
+		if (tags.size() > 0) {
+			endOpenElement(false);
+			writeTags(tags);
+			closeElement("node");
+		} else {
+			endOpenElement(true);
+		}
+
+		entitiesWritten = true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(WayContainer wayContainer) {
+		Way way = wayContainer.getEntity();
+		List<WayNode> wayNodes;
+		Collection<Tag> tags;
+
+		beginElement(ENTITY_INDENT_LEVEL, "way");
+		writeCommonAttributes(way);
+		writeMetatags(way);
+
+		wayNodes = way.getWayNodes();
+		tags = way.getTags();
+		if (wayNodes.size() > 0 || tags.size() > 0) {
+			endOpenElement(false);
+
+			for (WayNode wayNode : wayNodes) {
+				beginElement(CHILD_INDENT_LEVEL, "nd");
+				writer.writeAttribute("ref", wayNode.getNodeId());
+				endOpenElement(true);
+			}
+			writeTags(tags);
+
+			closeElement("way");
+		} else {
+			endOpenElement(true);
+		}
+
+		entitiesWritten = true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(RelationContainer relationContainer) {
+		Relation relation = relationContainer.getEntity();
+		List<RelationMember> members;
+		Collection<Tag> tags;
+
+		beginElement(ENTITY_INDENT_LEVEL, "relation");
+		writeCommonAttributes(relation);
+		writeMetatags(relation);
+
+		members = relation.getMembers();
+		tags = relation.getTags();
+		if (members.size() > 0 || tags.size() > 0) {
+			endOpenElement(false);
+
+			for (RelationMember member : members) {
+				beginElement(CHILD_INDENT_LEVEL, "member");
+				writer.writeAttribute("type", memberTypeRenderer.render(member.getMemberType()));
+				writer.writeAttribute("ref", member.getMemberId());
+				writer.writeAttribute("role", member.getMemberRole());
+				endOpenElement(true);
+			}
+			writeTags(tags);
+
+			closeElement("relation");
+		} else {
+			endOpenElement(true);
+		}
+
+		entitiesWritten = true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(BoundContainer boundContainer) {
+		Bound bound = boundContainer.getEntity();
+
+		if (boundWritten) {
+			throw new OsmosisRuntimeException("Bound element already written and only one allowed.");
+		}
+		if (entitiesWritten) {
+			throw new OsmosisRuntimeException("Can't write bound element after other entities.");
+		}
+
+		if (legacyBound) {
+			// Only add the Bound if the origin string isn't empty.
+			if (!"".equals(bound.getOrigin())) {
+				beginElement(ENTITY_INDENT_LEVEL, "bound");
+				writer.writeAttribute("box", String.format(Locale.US, "%.5f,%.5f,%.5f,%.5f",
+						bound.getBottom(), bound.getLeft(), bound.getTop(), bound.getRight()));
+				writer.writeAttribute("origin", bound.getOrigin());
+				endOpenElement(true);
+			}
+		} else {
+			beginElement(ENTITY_INDENT_LEVEL, "bounds");
+			writer.writeAttribute(XmlConstants.ATTRIBUTE_NAME_MINLON, String.format(Locale.US, "%.5f", bound.getLeft()));
+			writer.writeAttribute(XmlConstants.ATTRIBUTE_NAME_MINLAT,
+					String.format(Locale.US, "%.5f", bound.getBottom()));
+			writer.writeAttribute(XmlConstants.ATTRIBUTE_NAME_MAXLON,
+					String.format(Locale.US, "%.5f", bound.getRight()));
+			writer.writeAttribute(XmlConstants.ATTRIBUTE_NAME_MAXLAT, String.format(Locale.US, "%.5f", bound.getTop()));
+			if (bound.getOrigin() != null) {
+				writer.writeAttribute("origin", bound.getOrigin());
+			}
+			endOpenElement(true);
+		}
+
+		boundWritten = true;
+	}
+}
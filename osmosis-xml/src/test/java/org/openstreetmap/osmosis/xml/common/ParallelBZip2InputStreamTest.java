@@ -0,0 +1,126 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the parallel bzip2 input stream.
+ */
+public class ParallelBZip2InputStreamTest {
+
+	private static byte[] createData(int length, long seed) {
+		byte[] data = new byte[length];
+		Random random = new Random(seed);
+
+		// Use a small alphabet so that the data compresses like text.
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) ('a' + random.nextInt(16));
+		}
+
+		return data;
+	}
+
+
+	private static byte[] compress(byte[] data, int blockSize) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+		try (BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(compressed, blockSize)) {
+			outputStream.write(data);
+		}
+
+		return compressed.toByteArray();
+	}
+
+
+	private static byte[] decompress(byte[] compressed, int workers) throws IOException {
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+
+		try (InputStream inputStream = new ParallelBZip2InputStream(new ByteArrayInputStream(compressed), workers)) {
+			byte[] buffer = new byte[4096];
+			int count;
+
+			// Mix single byte and array reads.
+			decompressed.write(inputStream.read());
+			while ((count = inputStream.read(buffer)) >= 0) {
+				decompressed.write(buffer, 0, count);
+			}
+		}
+
+		return decompressed.toByteArray();
+	}
+
+
+	/**
+	 * Verifies that a stream containing many blocks is decoded correctly.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testMultipleBlocks() throws IOException {
+		byte[] data = createData(1000000, 1);
+
+		Assert.assertArrayEquals(data, decompress(compress(data, 1), 3));
+	}
+
+
+	/**
+	 * Verifies that concatenated streams with different block sizes are
+	 * decoded correctly.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testConcatenatedStreams() throws IOException {
+		byte[] first = createData(250000, 2);
+		byte[] second = createData(300000, 3);
+		byte[] compressedFirst = compress(first, 1);
+		byte[] compressedSecond = compress(second, 2);
+		byte[] compressed;
+		byte[] expected;
+
+		compressed = Arrays.copyOf(compressedFirst, compressedFirst.length + compressedSecond.length);
+		System.arraycopy(compressedSecond, 0, compressed, compressedFirst.length, compressedSecond.length);
+		expected = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, expected, first.length, second.length);
+
+		Assert.assertArrayEquals(expected, decompress(compressed, 2));
+	}
+
+
+	/**
+	 * Verifies that a truncated stream is reported as an error.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test(expected = IOException.class)
+	public void testTruncated() throws IOException {
+		byte[] compressed = compress(createData(300000, 4), 1);
+
+		decompress(Arrays.copyOf(compressed, compressed.length / 2), 2);
+	}
+
+
+	/**
+	 * Verifies that data not in the bzip2 format is reported as an error.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test(expected = IOException.class)
+	public void testNotBZip2() throws IOException {
+		decompress(createData(1000, 5), 2);
+	}
+}
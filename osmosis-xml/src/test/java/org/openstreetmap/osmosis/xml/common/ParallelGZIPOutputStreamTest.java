@@ -0,0 +1,80 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.util.MultiMemberGZIPInputStream;
+
+
+/**
+ * Tests the parallel gzip output stream.
+ */
+public class ParallelGZIPOutputStreamTest {
+
+	private byte[] roundTrip(byte[] data, int blockSize) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+
+		try (ParallelGZIPOutputStream outputStream = new ParallelGZIPOutputStream(compressed, 3, blockSize)) {
+			// Write using a mix of single bytes and arrays spanning blocks.
+			int position = 0;
+			while (position < data.length) {
+				if (position % 7 == 0) {
+					outputStream.write(data[position++]);
+				} else {
+					int count = Math.min(data.length - position, position % 1000);
+					outputStream.write(data, position, count);
+					position += count;
+				}
+			}
+		}
+
+		try (InputStream inputStream = new MultiMemberGZIPInputStream(
+				new ByteArrayInputStream(compressed.toByteArray()))) {
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = inputStream.read(buffer)) >= 0) {
+				decompressed.write(buffer, 0, count);
+			}
+		}
+
+		return decompressed.toByteArray();
+	}
+
+
+	/**
+	 * Verifies that data spanning many gzip members is read back unchanged.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testMultipleMembers() throws IOException {
+		byte[] data = new byte[100000];
+		Random random = new Random(1);
+
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) ('a' + random.nextInt(4));
+		}
+
+		Assert.assertArrayEquals(data, roundTrip(data, 4096));
+	}
+
+
+	/**
+	 * Verifies that an empty stream produces a valid gzip file.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testEmpty() throws IOException {
+		Assert.assertEquals(0, roundTrip(new byte[0], 4096).length);
+	}
+}
@@ -0,0 +1,155 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.time.DateFormatter;
+
+
+/**
+ * Tests the byte level xml writer.
+ */
+public class XmlByteWriterTest {
+
+	/**
+	 * Writes text using the byte writer.
+	 */
+	private static String writeBytes(Action action) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		XmlByteWriter writer = new XmlByteWriter(outputStream);
+
+		action.write(writer);
+		writer.flush();
+
+		return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Verifies that escaped text matches the element writer, including
+	 * control characters and multi-byte characters.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testEscapedText() throws IOException {
+		final String value = "a<b>c\"d'e&f\ng\rh\ti" + (char) 0x02 + (char) 0x7F + "é中😀"
+				+ "\ud800x";
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		OutputStreamWriter expectedWriter = new OutputStreamWriter(expected, StandardCharsets.UTF_8);
+		MyElementWriter elementWriter = new MyElementWriter();
+
+		elementWriter.setWriter(expectedWriter);
+		elementWriter.buildContent(value);
+		expectedWriter.close();
+
+		Assert.assertEquals(new String(expected.toByteArray(), StandardCharsets.UTF_8), writeBytes(new Action() {
+			@Override
+			public void write(XmlByteWriter writer) {
+				writer.writeAscii("<e");
+				writer.writeAttribute("v", value);
+				writer.writeAscii("/>");
+				writer.writeLineSeparator();
+			}
+		}));
+	}
+
+
+	/**
+	 * Verifies that coordinates are formatted the same way as the decimal
+	 * format used by the node writer.
+	 */
+	@Test
+	public void testCoordinates() {
+		final DecimalFormat format = new DecimalFormat("0.#######;-0.#######", new DecimalFormatSymbols(Locale.US));
+		Random random = new Random(1);
+
+		for (int i = 0; i < 10000; i++) {
+			final double value;
+
+			if (i % 2 == 0) {
+				value = ((long) (random.nextDouble() * 3600000000L) - 1800000000L) / 1e7;
+			} else {
+				value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 8);
+			}
+
+			assertCoordinate(format, value);
+		}
+
+		for (double value : new double[] {0, -0.0, 1, -1, 0.5, -0.00000001, 0.00000005, 180, -180, 1e20}) {
+			assertCoordinate(format, value);
+		}
+	}
+
+
+	private void assertCoordinate(DecimalFormat format, final double value) {
+		Assert.assertEquals("Incorrect value for " + value, format.format(value), writeBytes(new Action() {
+			@Override
+			public void write(XmlByteWriter writer) {
+				writer.writeCoordinate(value);
+			}
+		}));
+	}
+
+
+	/**
+	 * Verifies that timestamps and numbers are formatted the same way as the
+	 * element writers.
+	 */
+	@Test
+	public void testTimestampsAndNumbers() {
+		DateFormatter dateFormatter = new DateFormatter();
+		Random random = new Random(2);
+
+		for (int i = 0; i < 10000; i++) {
+			final long timestamp = (random.nextLong() % 400000000000000L);
+			final long number = random.nextLong() >> random.nextInt(64);
+
+			Assert.assertEquals(dateFormatter.format(new Date(timestamp)), writeBytes(new Action() {
+				@Override
+				public void write(XmlByteWriter writer) {
+					writer.writeTimestamp(timestamp);
+				}
+			}));
+			Assert.assertEquals(Long.toString(number), writeBytes(new Action() {
+				@Override
+				public void write(XmlByteWriter writer) {
+					writer.writeLong(number);
+				}
+			}));
+		}
+	}
+
+
+	private static class MyElementWriter extends ElementWriter {
+		MyElementWriter() {
+			super("e", 0);
+		}
+
+
+		public void buildContent(String value) {
+			beginOpenElement();
+			addAttribute("v", value);
+			endOpenElement(true);
+		}
+	}
+
+
+	/**
+	 * Writes data to a byte writer.
+	 */
+	private interface Action {
+		void write(XmlByteWriter writer);
+	}
+}
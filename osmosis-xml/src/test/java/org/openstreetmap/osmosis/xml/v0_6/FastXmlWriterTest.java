@@ -0,0 +1,204 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.Osmosis;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeBatchContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+import org.openstreetmap.osmosis.testutil.v0_6.SinkEntityInspector;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+
+
+/**
+ * Tests the fast xml writer task.
+ */
+public class FastXmlWriterTest extends AbstractDataTest {
+	
+	/**
+	 * Verifies that the fast writer produces the same output as the input
+	 * file written by the standard writer.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testSimple() throws IOException {
+		File inputFile;
+		File outputFile;
+		
+		// Generate input files.
+		inputFile = dataUtils.createDataFile("v0_6/xml-task-tests-v0_6.osm");
+		outputFile = dataUtils.newFile();
+		
+		// Run the pipeline.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--fast-write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputFile, outputFile);
+	}
+	
+	
+	/**
+	 * Verifies that entities with parsed timestamps, and nodes passed in
+	 * batches, are written the same way as the input file.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testParsedEntities() throws IOException {
+		File inputFile;
+		File outputFile;
+		SinkEntityInspector inspector;
+		XmlReader reader;
+		FastXmlWriter writer;
+		NodeBatchContainer batch;
+		
+		// Read the input file.
+		inputFile = dataUtils.createDataFile("v0_6/xml-task-tests-v0_6.osm");
+		outputFile = dataUtils.newFile();
+		inspector = new SinkEntityInspector();
+		reader = new XmlReader(inputFile, true, CompressionMethod.None);
+		reader.setSink(inspector);
+		reader.run();
+		
+		// Write the entities with parsed timestamps, sending the nodes as a
+		// single batch.
+		writer = new FastXmlWriter(outputFile, CompressionMethod.None, false, 1);
+		writer.initialize(Collections.<String, Object>emptyMap());
+		batch = new NodeBatchContainer();
+		for (EntityContainer entityContainer : inspector.getProcessedEntities()) {
+			EntityContainer writeableContainer = entityContainer.getWriteableInstance();
+			Entity entity = writeableContainer.getEntity();
+			
+			if (entity instanceof Node) {
+				batch.add((Node) entity);
+				continue;
+			}
+			if (batch.size() > 0) {
+				writer.process(batch);
+				batch = new NodeBatchContainer();
+			}
+			
+			entity.setTimestamp(entity.getTimestamp());
+			writer.process(writeableContainer);
+		}
+		if (batch.size() > 0) {
+			writer.process(batch);
+		}
+		writer.complete();
+		writer.close();
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputFile, outputFile);
+	}
+	
+	
+	/**
+	 * Verifies that gzip output compressed on multiple threads can be read.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testParallelCompressed() throws IOException {
+		File inputFile;
+		File workingFolder;
+		File compressedFile;
+		File outputFile;
+		
+		// Generate input files.
+		inputFile = dataUtils.createDataFile("v0_6/xml-task-tests-v0_6.osm");
+		workingFolder = dataUtils.newFolder();
+		compressedFile = new File(workingFolder, "testout.osm.gz");
+		outputFile = new File(workingFolder, "testout.osm");
+		
+		// Run the pipeline.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--fast-write-xml-0.6",
+				compressedFile.getPath(),
+				"workers=4"
+			}
+		);
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				compressedFile.getPath(),
+				"--write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputFile, outputFile);
+	}
+	
+	
+	/**
+	 * Verifies that parallel compression to stdout is finished when the writer
+	 * is closed without being completed, releasing the compression threads.
+	 * 
+	 * @throws IOException
+	 *             if any stream operations fail.
+	 */
+	@Test
+	public void testParallelCompressedStdoutClosedWithoutComplete() throws IOException {
+		PrintStream originalOut;
+		ByteArrayOutputStream stdout;
+		FastXmlWriter writer;
+		
+		originalOut = System.out;
+		stdout = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(stdout));
+		try {
+			writer = new FastXmlWriter(new File("-"), CompressionMethod.GZip, false, 2);
+			writer.initialize(Collections.<String, Object>emptyMap());
+			writer.process(new NodeContainer(
+					new Node(new CommonEntityData(1, 1, new Date(0), OsmUser.NONE, 0), 1, 2)));
+			writer.close();
+		} finally {
+			System.setOut(originalOut);
+		}
+		
+		// The compression must have been finished, leaving a complete gzip
+		// stream on stdout.
+		Assert.assertTrue("No compressed data was written.", stdout.size() > 0);
+		try (InputStream inStream = new GZIPInputStream(new ByteArrayInputStream(stdout.toByteArray()))) {
+			byte[] buffer = new byte[4096];
+			
+			while (inStream.read(buffer) >= 0) {
+				// Read to the end to verify the gzip trailer.
+			}
+		}
+	}
+}
@@ -2,11 +2,17 @@
 package org.openstreetmap.osmosis.xml.v0_6;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 import org.junit.Test;
 import org.openstreetmap.osmosis.core.Osmosis;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+import org.openstreetmap.osmosis.testutil.v0_6.SinkEntityInspector;
+import org.openstreetmap.osmosis.xml.common.CompressionMethod;
 
 
 /**
@@ -83,4 +89,105 @@ public class XmlReaderWriterTest extends AbstractDataTest {
 		// Validate that the output file matches the input file.
 		dataUtils.compareFiles(inputFile, outputFile);
 	}
+	
+	
+	/**
+	 * Verifies that reading with decompression and parsing on separate threads
+	 * produces the same data.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testPipelined() throws IOException {
+		File inputFile;
+		File outputFile;
+		
+		// Generate input files.
+		inputFile = dataUtils.createDataFile("v0_6/xml-task-tests-v0_6.osm");
+		outputFile = dataUtils.newFile();
+		
+		// Run the pipeline.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				"file=" + inputFile.getPath(),
+				"workers=3",
+				"--write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputFile, outputFile);
+	}
+	
+	
+	/**
+	 * Verifies that bzip2 compressed files are read correctly when blocks are
+	 * decoded on multiple threads.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testPipelinedBZip2() throws IOException {
+		File uncompressedFile;
+		File workingFolder;
+		File compressedFile;
+		File outputFile;
+		
+		// Generate input files.
+		uncompressedFile = dataUtils.createDataFile("v0_6/xml-task-tests-v0_6.osm");
+		workingFolder = dataUtils.newFolder();
+		compressedFile = new File(workingFolder, "testin.osm.bz2");
+		outputFile = new File(workingFolder, "testout.osm");
+		
+		// Run the pipeline.
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				uncompressedFile.getPath(),
+				"--write-xml-0.6",
+				compressedFile.getPath()
+			}
+		);
+		Osmosis.run(
+			new String [] {
+				"-q",
+				"--read-xml-0.6",
+				"file=" + compressedFile.getPath(),
+				"workers=3",
+				"--write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(uncompressedFile, outputFile);
+	}
+	
+	
+	/**
+	 * Verifies that parsing errors on the parsing thread are reported.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test(expected = OsmosisRuntimeException.class)
+	public void testPipelinedParseFailure() throws IOException {
+		File inputFile;
+		XmlReader reader;
+		
+		inputFile = dataUtils.newFile();
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(inputFile), "UTF-8")) {
+			writer.write("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n<node id='1'\n");
+		}
+		
+		reader = new XmlReader(inputFile, true, CompressionMethod.None, 3);
+		reader.setSink(new SinkEntityInspector());
+		reader.run();
+	}
 }